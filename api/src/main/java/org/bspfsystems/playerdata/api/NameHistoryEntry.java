@@ -0,0 +1,71 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.api;
+
+import java.time.Instant;
+import java.util.UUID;
+import org.bspfsystems.playerdata.api.plugin.PlayerDataPlugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Represents a name that a player had for a period of time, as returned by
+ * {@link PlayerDataPlugin#getNameHistory(UUID)}.
+ * <p>
+ * The period starts at {@link NameHistoryEntry#getValidFrom()}, inclusive,
+ * and ends at {@link NameHistoryEntry#getValidUntil()}, exclusive. Either end
+ * may be unknown, for example if the player already had the name before the
+ * {@link PlayerDataPlugin} implementation started recording name changes.
+ */
+public interface NameHistoryEntry {
+    
+    /**
+     * Gets the name the player had.
+     * 
+     * @return The name of the player.
+     */
+    @NotNull
+    String getName();
+    
+    /**
+     * Gets the {@link UUID} of the player.
+     * 
+     * @return The {@link UUID} of the player.
+     */
+    @NotNull
+    UUID getUniqueId();
+    
+    /**
+     * Gets the time from which the player is known to have had the name.
+     * 
+     * @return The start of the period, or <code>null</code> if it is not
+     *         known.
+     */
+    @Nullable
+    Instant getValidFrom();
+    
+    /**
+     * Gets the time from which the player had a different name.
+     * 
+     * @return The end of the period, or <code>null</code> if this is the
+     *         current name of the player.
+     */
+    @Nullable
+    Instant getValidUntil();
+}
@@ -19,9 +19,11 @@
 
 package org.bspfsystems.playerdata.api;
 
+import java.time.Instant;
 import java.util.UUID;
 import org.bspfsystems.playerdata.api.plugin.PlayerDataPlugin;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Represents an object to hold basic player data, including the player's
@@ -50,4 +52,32 @@ public interface PlayerDataEntry {
      */
     @NotNull
     UUID getUniqueId();
+    
+    /**
+     * Gets the time the player was first seen.
+     * <p>
+     * Depending on the implementation, this may not be tracked, or may not be
+     * known for players recorded before it was.
+     * 
+     * @return The time the player was first seen, or <code>null</code> if it
+     *         is not known.
+     */
+    @Nullable
+    default Instant getFirstSeen() {
+        return null;
+    }
+    
+    /**
+     * Gets the time the player was last seen, which is either when they last
+     * joined, or when they last left, whichever was later.
+     * <p>
+     * Depending on the implementation, this may not be tracked.
+     * 
+     * @return The time the player was last seen, or <code>null</code> if it
+     *         is not known.
+     */
+    @Nullable
+    default Instant getLastSeen() {
+        return null;
+    }
 }
@@ -20,9 +20,22 @@
 package org.bspfsystems.playerdata.api.plugin;
 
 import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bspfsystems.playerdata.api.NameHistoryEntry;
 import org.bspfsystems.playerdata.api.PlayerDataEntry;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -35,6 +48,16 @@ import org.jetbrains.annotations.Nullable;
  * methods. Some implementations will only map the players that have logged into
  * the BungeeCord and/or Bukkit instance(s). Others may query the Mojang API for
  * updates to player data.
+ * <p>
+ * As a lookup may need to read from storage or query a remote service, every
+ * lookup also has an asynchronous variant returning a
+ * {@link CompletableFuture}. These should be used from any thread that must
+ * not block, such as the main server thread. The thread on which the future
+ * completes depends on the implementation, so any follow-up work that must
+ * run on a particular thread should be scheduled there explicitly. By
+ * default, the asynchronous variants run the lookup on the
+ * {@link java.util.concurrent.ForkJoinPool#commonPool() common pool};
+ * implementations should override them to use their own threads.
  */
 public interface PlayerDataPlugin {
     
@@ -59,6 +82,129 @@ public interface PlayerDataPlugin {
     @Nullable
     String getName(@NotNull UUID uniqueId);
     
+    /**
+     * Gets the {@link UUID} of the player that had the given name at the
+     * given time, or <code>null</code> if that is not known, depending on the
+     * implementation. Names are matched ignoring case.
+     * <p>
+     * Unlike {@link PlayerDataPlugin#getUniqueId(String)}, this finds the
+     * player that owned the name at that time, even if they have since
+     * changed it and another player has taken it.
+     * <p>
+     * By default, no history is kept, so this finds the player that has the
+     * name now, if they were seen by the given time.
+     * 
+     * @param name The name of the player.
+     * @param when The time at which the player had the name.
+     * @return The {@link UUID} of the player, or <code>null</code> if one
+     *         cannot be found.
+     */
+    @Nullable
+    default UUID getUniqueIdAt(@NotNull final String name, @NotNull final Instant when) {
+        final PlayerDataEntry entry = this.getEntry(name);
+        if (entry == null) {
+            return null;
+        }
+        final Instant firstSeen = entry.getFirstSeen();
+        return firstSeen == null || !firstSeen.isAfter(when) ? entry.getUniqueId() : null;
+    }
+    
+    /**
+     * Gets every name the player with the given {@link UUID} is known to have
+     * had, oldest first, depending on the implementation. The last entry is
+     * the current name.
+     * <p>
+     * By default, no history is kept, so this only contains the current
+     * name.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @return A {@link List} of the names of the player, which is empty if
+     *         the {@link UUID} is not known.
+     */
+    @NotNull
+    default List<NameHistoryEntry> getNameHistory(@NotNull final UUID uniqueId) {
+        final PlayerDataEntry entry = this.getEntry(uniqueId);
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+        return Collections.<NameHistoryEntry>singletonList(new NameHistoryEntry() {
+            
+            @Override
+            @NotNull
+            public String getName() {
+                return entry.getName();
+            }
+            
+            @Override
+            @NotNull
+            public UUID getUniqueId() {
+                return entry.getUniqueId();
+            }
+            
+            @Override
+            @Nullable
+            public Instant getValidFrom() {
+                return null;
+            }
+            
+            @Override
+            @Nullable
+            public Instant getValidUntil() {
+                return null;
+            }
+        });
+    }
+    
+    /**
+     * Gets the {@link UUID}s for all of the given player names at once.
+     * <p>
+     * This is equivalent to calling {@link PlayerDataPlugin#getUniqueId(String)}
+     * for each name, but allows the implementation to share any locking,
+     * storage access or remote queries across the whole batch.
+     * <p>
+     * By default, this looks each name up in turn.
+     * 
+     * @param names The names of the players.
+     * @return A {@link Map} of the given player names to their {@link UUID}s.
+     *         Names that are not known are not included.
+     */
+    @NotNull
+    default Map<String, UUID> getUniqueIds(@NotNull final Collection<String> names) {
+        final Map<String, UUID> uniqueIds = new HashMap<String, UUID>();
+        for (final String name : names) {
+            final UUID uniqueId = this.getUniqueId(name);
+            if (uniqueId != null) {
+                uniqueIds.put(name, uniqueId);
+            }
+        }
+        return uniqueIds;
+    }
+    
+    /**
+     * Gets the player names for all of the given {@link UUID}s at once.
+     * <p>
+     * This is equivalent to calling {@link PlayerDataPlugin#getName(UUID)}
+     * for each {@link UUID}, but allows the implementation to share any
+     * locking, storage access or remote queries across the whole batch.
+     * <p>
+     * By default, this looks each {@link UUID} up in turn.
+     * 
+     * @param uniqueIds The {@link UUID}s of the players.
+     * @return A {@link Map} of the given {@link UUID}s to their player names.
+     *         {@link UUID}s that are not known are not included.
+     */
+    @NotNull
+    default Map<UUID, String> getNames(@NotNull final Collection<UUID> uniqueIds) {
+        final Map<UUID, String> names = new HashMap<UUID, String>();
+        for (final UUID uniqueId : uniqueIds) {
+            final String name = this.getName(uniqueId);
+            if (name != null) {
+                names.put(uniqueId, name);
+            }
+        }
+        return names;
+    }
+    
     /**
      * Gets a {@link Set} of any player names that match. Depending on the
      * implementation, this may be a "starts with" matching, or more advanced
@@ -70,6 +216,33 @@ public interface PlayerDataPlugin {
     @NotNull
     Set<String> getMatchingNames(@NotNull String name);
     
+    /**
+     * Gets a {@link List} of at most <code>limit</code> player names that
+     * match, in order of relevance, most relevant first. This is intended for
+     * tab completion, where only the first few results are shown. The
+     * matching is the same as {@link PlayerDataPlugin#getMatchingNames(String)},
+     * and the order depends on the implementation; for example, players that
+     * are online may come first, followed by the most recently seen.
+     * <p>
+     * By default, this sorts the result of
+     * {@link PlayerDataPlugin#getMatchingNames(String)} so that shorter, and
+     * therefore closer, names come first.
+     * 
+     * @param name The (partial) player name to match.
+     * @param limit The maximum number of names to return.
+     * @return A {@link List} containing the best matching names.
+     * @throws IllegalArgumentException If <code>limit</code> is negative.
+     */
+    @NotNull
+    default List<String> getMatchingNames(@NotNull final String name, final int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative: " + limit);
+        }
+        final List<String> names = new ArrayList<String>(this.getMatchingNames(name));
+        names.sort(Comparator.comparingInt(String::length).thenComparing(String.CASE_INSENSITIVE_ORDER));
+        return names.size() > limit ? new ArrayList<String>(names.subList(0, limit)) : names;
+    }
+    
     /**
      * Gets the {@link PlayerDataEntry} for the player with the given name, or
      * <code>null</code> if the name is not known, depending on the
@@ -108,6 +281,84 @@ public interface PlayerDataPlugin {
     @NotNull
     Set<PlayerDataEntry> getMatchingEntries(@NotNull String name);
     
+    /**
+     * Gets a {@link Set} of the {@link PlayerDataEntry PlayerDataEntries} of
+     * every player that was last seen at or after the given time.
+     * <p>
+     * By default, this checks every entry, skipping those without a known
+     * {@link PlayerDataEntry#getLastSeen() last seen time}.
+     * 
+     * @param time The earliest time that the players were last seen.
+     * @return A {@link Set} containing all
+     *         {@link PlayerDataEntry PlayerDataEntries} seen since the given
+     *         time.
+     */
+    @NotNull
+    default Set<PlayerDataEntry> getEntriesSeenSince(@NotNull final Instant time) {
+        final Set<PlayerDataEntry> entries = new HashSet<PlayerDataEntry>();
+        this.forEachEntry(entry -> {
+            final Instant lastSeen = entry.getLastSeen();
+            if (lastSeen != null && !lastSeen.isBefore(time)) {
+                entries.add(entry);
+            }
+        });
+        return entries;
+    }
+    
+    /**
+     * Gets a {@link Set} of the {@link PlayerDataEntry PlayerDataEntries} of
+     * every player that has not been seen since the given time. Passing the
+     * current time minus some number of days finds the players that have
+     * been inactive for longer than that, for example to purge their data.
+     * <p>
+     * By default, this checks every entry, skipping those without a known
+     * {@link PlayerDataEntry#getLastSeen() last seen time}.
+     * 
+     * @param time The time that the players have not been seen since.
+     * @return A {@link Set} containing all
+     *         {@link PlayerDataEntry PlayerDataEntries} not seen since the
+     *         given time.
+     */
+    @NotNull
+    default Set<PlayerDataEntry> getEntriesNotSeenSince(@NotNull final Instant time) {
+        final Set<PlayerDataEntry> entries = new HashSet<PlayerDataEntry>();
+        this.forEachEntry(entry -> {
+            final Instant lastSeen = entry.getLastSeen();
+            if (lastSeen != null && lastSeen.isBefore(time)) {
+                entries.add(entry);
+            }
+        });
+        return entries;
+    }
+    
+    /**
+     * Gets a {@link List} of at most <code>limit</code>
+     * {@link PlayerDataEntry PlayerDataEntries} of the players that were seen
+     * most recently, most recently seen first.
+     * <p>
+     * By default, this sorts every entry with a known
+     * {@link PlayerDataEntry#getLastSeen() last seen time}.
+     * 
+     * @param limit The maximum number of entries to return.
+     * @return A {@link List} containing the most recently seen
+     *         {@link PlayerDataEntry PlayerDataEntries}.
+     * @throws IllegalArgumentException If <code>limit</code> is negative.
+     */
+    @NotNull
+    default List<PlayerDataEntry> getMostRecentlySeen(final int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative: " + limit);
+        }
+        final List<PlayerDataEntry> entries = new ArrayList<PlayerDataEntry>();
+        this.forEachEntry(entry -> {
+            if (entry.getLastSeen() != null) {
+                entries.add(entry);
+            }
+        });
+        entries.sort((first, second) -> second.getLastSeen().compareTo(first.getLastSeen()));
+        return entries.size() > limit ? new ArrayList<PlayerDataEntry>(entries.subList(0, limit)) : entries;
+    }
+    
     /**
      * Gets the {@link Set} of all player names that are known. The data in the
      * set may vary depending on the implementation.
@@ -137,6 +388,279 @@ public interface PlayerDataPlugin {
     @NotNull
     Set<PlayerDataEntry> getAllEntries();
     
+    /**
+     * Performs the given action for each known
+     * {@link PlayerDataEntry PlayerDataEntry}, without copying all of the
+     * entries into a collection first. The data visited may vary depending on
+     * the implementation.
+     * <p>
+     * By default, this iterates over
+     * {@link PlayerDataPlugin#getAllEntries()}, so it does copy the entries.
+     * 
+     * @param action The action to perform for each
+     *               {@link PlayerDataEntry PlayerDataEntry}.
+     */
+    default void forEachEntry(@NotNull final Consumer<? super PlayerDataEntry> action) {
+        this.getAllEntries().forEach(action);
+    }
+    
+    /**
+     * Gets a {@link Stream} over all known
+     * {@link PlayerDataEntry PlayerDataEntries}, without copying all of the
+     * entries into a collection first. The {@link Stream} is sized and can
+     * be split efficiently, so it may be made
+     * {@link Stream#parallel() parallel} for large jobs. The data in the
+     * {@link Stream} may vary depending on the implementation.
+     * <p>
+     * By default, this streams over {@link PlayerDataPlugin#getAllEntries()}.
+     * 
+     * @return A {@link Stream} of all known
+     *         {@link PlayerDataEntry PlayerDataEntries}.
+     */
+    @NotNull
+    default Stream<PlayerDataEntry> entries() {
+        return this.getAllEntries().stream();
+    }
+    
+    /**
+     * Gets the number of known players. This is cheap to call, unlike taking
+     * the size of {@link PlayerDataPlugin#getAllEntries()}.
+     * <p>
+     * By default, this takes the size of
+     * {@link PlayerDataPlugin#getAllUniqueIds()}, so implementations should
+     * override it with something cheaper.
+     * 
+     * @return The number of known players.
+     */
+    default int size() {
+        return this.getAllUniqueIds().size();
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getUniqueId(String)}.
+     * 
+     * @param name The name of the player.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link UUID} of the player, or <code>null</code> if one
+     *         cannot be found.
+     */
+    @NotNull
+    default CompletableFuture<UUID> getUniqueIdAsync(@NotNull final String name) {
+        return CompletableFuture.supplyAsync(() -> this.getUniqueId(name));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getName(UUID)}.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @return A {@link CompletableFuture} that completes with the
+     *         player name, or <code>null</code> if one cannot be found.
+     */
+    @NotNull
+    default CompletableFuture<String> getNameAsync(@NotNull final UUID uniqueId) {
+        return CompletableFuture.supplyAsync(() -> this.getName(uniqueId));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getUniqueIdAt(String, Instant)}.
+     * 
+     * @param name The name of the player.
+     * @param when The time at which the player had the name.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link UUID} of the player, or <code>null</code> if one
+     *         cannot be found.
+     */
+    @NotNull
+    default CompletableFuture<UUID> getUniqueIdAtAsync(@NotNull final String name, @NotNull final Instant when) {
+        return CompletableFuture.supplyAsync(() -> this.getUniqueIdAt(name, when));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getNameHistory(UUID)}.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link List} of the names of the player.
+     */
+    @NotNull
+    default CompletableFuture<List<NameHistoryEntry>> getNameHistoryAsync(@NotNull final UUID uniqueId) {
+        return CompletableFuture.supplyAsync(() -> this.getNameHistory(uniqueId));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getUniqueIds(Collection)}.
+     * 
+     * @param names The names of the players.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link Map} of the known player names to their
+     *         {@link UUID}s.
+     */
+    @NotNull
+    default CompletableFuture<Map<String, UUID>> getUniqueIdsAsync(@NotNull final Collection<String> names) {
+        return CompletableFuture.supplyAsync(() -> this.getUniqueIds(names));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getNames(Collection)}.
+     * 
+     * @param uniqueIds The {@link UUID}s of the players.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link Map} of the known {@link UUID}s to their player
+     *         names.
+     */
+    @NotNull
+    default CompletableFuture<Map<UUID, String>> getNamesAsync(@NotNull final Collection<UUID> uniqueIds) {
+        return CompletableFuture.supplyAsync(() -> this.getNames(uniqueIds));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getMatchingNames(String)}.
+     * 
+     * @param name The (partial) player name to match.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link Set} containing any matching names.
+     */
+    @NotNull
+    default CompletableFuture<Set<String>> getMatchingNamesAsync(@NotNull final String name) {
+        return CompletableFuture.supplyAsync(() -> this.getMatchingNames(name));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getMatchingNames(String, int)}.
+     * 
+     * @param name The (partial) player name to match.
+     * @param limit The maximum number of names to return.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link List} containing the best matching names.
+     * @throws IllegalArgumentException If <code>limit</code> is negative.
+     */
+    @NotNull
+    default CompletableFuture<List<String>> getMatchingNamesAsync(@NotNull final String name, final int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative: " + limit);
+        }
+        return CompletableFuture.supplyAsync(() -> this.getMatchingNames(name, limit));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getEntry(String)}.
+     * 
+     * @param name The name of the player.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link PlayerDataEntry} for the given player name, or
+     *         <code>null</code> if one cannot be found.
+     */
+    @NotNull
+    default CompletableFuture<PlayerDataEntry> getEntryAsync(@NotNull final String name) {
+        return CompletableFuture.supplyAsync(() -> this.getEntry(name));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getEntry(UUID)}.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link PlayerDataEntry} for the given {@link UUID}, or
+     *         <code>null</code> if one cannot be found.
+     */
+    @NotNull
+    default CompletableFuture<PlayerDataEntry> getEntryAsync(@NotNull final UUID uniqueId) {
+        return CompletableFuture.supplyAsync(() -> this.getEntry(uniqueId));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getMatchingEntries(String)}.
+     * 
+     * @param name The (partial) player name to match.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link Set} containing all
+     *         {@link PlayerDataEntry PlayerDataEntries} that have matching
+     *         names.
+     */
+    @NotNull
+    default CompletableFuture<Set<PlayerDataEntry>> getMatchingEntriesAsync(@NotNull final String name) {
+        return CompletableFuture.supplyAsync(() -> this.getMatchingEntries(name));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getEntriesSeenSince(Instant)}.
+     * 
+     * @param time The earliest time that the players were last seen.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link Set} containing all
+     *         {@link PlayerDataEntry PlayerDataEntries} seen since the given
+     *         time.
+     */
+    @NotNull
+    default CompletableFuture<Set<PlayerDataEntry>> getEntriesSeenSinceAsync(@NotNull final Instant time) {
+        return CompletableFuture.supplyAsync(() -> this.getEntriesSeenSince(time));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getEntriesNotSeenSince(Instant)}.
+     * 
+     * @param time The time that the players have not been seen since.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link Set} containing all
+     *         {@link PlayerDataEntry PlayerDataEntries} not seen since the
+     *         given time.
+     */
+    @NotNull
+    default CompletableFuture<Set<PlayerDataEntry>> getEntriesNotSeenSinceAsync(@NotNull final Instant time) {
+        return CompletableFuture.supplyAsync(() -> this.getEntriesNotSeenSince(time));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getMostRecentlySeen(int)}.
+     * 
+     * @param limit The maximum number of entries to return.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link List} containing the most recently seen
+     *         {@link PlayerDataEntry PlayerDataEntries}.
+     * @throws IllegalArgumentException If <code>limit</code> is negative.
+     */
+    @NotNull
+    default CompletableFuture<List<PlayerDataEntry>> getMostRecentlySeenAsync(final int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative: " + limit);
+        }
+        return CompletableFuture.supplyAsync(() -> this.getMostRecentlySeen(limit));
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getAllNames()}.
+     * 
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link Set} of all known player names.
+     */
+    @NotNull
+    default CompletableFuture<Set<String>> getAllNamesAsync() {
+        return CompletableFuture.supplyAsync(() -> this.getAllNames());
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getAllUniqueIds()}.
+     * 
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link Set} of all known player {@link UUID}s.
+     */
+    @NotNull
+    default CompletableFuture<Set<UUID>> getAllUniqueIdsAsync() {
+        return CompletableFuture.supplyAsync(() -> this.getAllUniqueIds());
+    }
+    
+    /**
+     * Asynchronously performs {@link PlayerDataPlugin#getAllEntries()}.
+     * 
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link Set} of all known
+     *         {@link PlayerDataEntry PlayerDataEntries}.
+     */
+    @NotNull
+    default CompletableFuture<Set<PlayerDataEntry>> getAllEntriesAsync() {
+        return CompletableFuture.supplyAsync(() -> this.getAllEntries());
+    }
+    
     /**
      * Gets the {@link Logger} used by this {@link PlayerDataPlugin}.
      * 
@@ -0,0 +1,75 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.benchmarks;
+
+import java.io.File;
+import java.util.logging.Logger;
+import org.bspfsystems.playerdata.core.plugin.CorePlayerDataPlugin;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link CorePlayerDataPlugin} over a {@link PlayerDataSet}, so that the
+ * benchmarks measure the same code paths that the platform plugins use.
+ */
+final class BenchmarkPlugin implements CorePlayerDataPlugin {
+    
+    private final PlayerDataStore store;
+    private final Logger logger;
+    private final File dataDirectory;
+    
+    /**
+     * Creates a new {@link BenchmarkPlugin}.
+     * 
+     * @param dataSet The {@link PlayerDataSet} to serve lookups from.
+     */
+    BenchmarkPlugin(@NotNull final PlayerDataSet dataSet) {
+        this.store = dataSet.getStore();
+        this.logger = Logger.getLogger(BenchmarkPlugin.class.getName());
+        this.dataDirectory = new File(System.getProperty("java.io.tmpdir"), "playerdata-benchmarks");
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    public PlayerDataStore getStore() {
+        return this.store;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    public Logger getLogger() {
+        return this.logger;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    public File getDataDirectory() {
+        return this.dataDirectory;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.benchmarks;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.bspfsystems.playerdata.api.PlayerDataEntry;
+import org.bspfsystems.playerdata.api.plugin.PlayerDataPlugin;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the lookups of a {@link PlayerDataPlugin} that visit every
+ * player.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class BulkBenchmark {
+    
+    @Param({"10000", "1000000", "10000000"})
+    public int players;
+    
+    private PlayerDataPlugin plugin;
+    
+    /**
+     * Builds the {@link PlayerDataSet} for this trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.plugin = new BenchmarkPlugin(new PlayerDataSet(this.players, 0x5EED5EEDL));
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#getAllNames()}.
+     * 
+     * @return Every name.
+     */
+    @Benchmark
+    @NotNull
+    public Set<String> getAllNames() {
+        return this.plugin.getAllNames();
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#getAllUniqueIds()}.
+     * 
+     * @return Every {@link UUID}.
+     */
+    @Benchmark
+    @NotNull
+    public Set<UUID> getAllUniqueIds() {
+        return this.plugin.getAllUniqueIds();
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#getAllEntries()}.
+     * 
+     * @return Every {@link PlayerDataEntry}.
+     */
+    @Benchmark
+    @NotNull
+    public Set<PlayerDataEntry> getAllEntries() {
+        return this.plugin.getAllEntries();
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#forEachEntry(java.util.function.Consumer)},
+     * the allocation-light alternative to
+     * {@link PlayerDataPlugin#getAllEntries()}.
+     * 
+     * @param blackhole The {@link Blackhole} to consume each entry.
+     */
+    @Benchmark
+    public void forEachEntry(@NotNull final Blackhole blackhole) {
+        this.plugin.forEachEntry(blackhole::consume);
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#entries()} as a parallel stream,
+     * reading the {@link UUID} of each entry so that the stream cannot skip
+     * the traversal.
+     * 
+     * @return A checksum of the {@link UUID UUIDs}.
+     */
+    @Benchmark
+    public long entriesParallel() {
+        return this.plugin.entries().parallel().mapToLong(entry -> entry.getUniqueId().getLeastSignificantBits()).sum();
+    }
+}
@@ -0,0 +1,430 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.bspfsystems.playerdata.api.plugin.PlayerDataPlugin;
+import org.bspfsystems.playerdata.core.storage.Journal;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Replays a stream of player joins into a core {@link PlayerDataPlugin} while
+ * other threads look players up, and reports the latency of both.
+ * <p>
+ * Joins arrive at a steady random rate, plus a burst of joins all at once at
+ * the start and then at a fixed interval, as when a proxy restarts and every
+ * player reconnects. Most joins are returning players, with a share of new
+ * players and name changes. The latency of each join is measured from when
+ * it was due to arrive, not from when a thread got round to it, so that the
+ * time spent queued behind a burst is included.
+ * <p>
+ * The load is configured with system properties:
+ * <ul>
+ *     <li><code>playerdata.storm.players</code>: the number of players
+ *     already known (100000).</li>
+ *     <li><code>playerdata.storm.seconds</code>: how long to run (60).</li>
+ *     <li><code>playerdata.storm.rate</code>: the steady joins per second
+ *     (200).</li>
+ *     <li><code>playerdata.storm.burst</code>: the joins in each burst
+ *     (5000).</li>
+ *     <li><code>playerdata.storm.burstSeconds</code>: the interval between
+ *     bursts (20).</li>
+ *     <li><code>playerdata.storm.newPercent</code> and
+ *     <code>playerdata.storm.renamePercent</code>: the share of joins that
+ *     are new players (5) and name changes (1).</li>
+ *     <li><code>playerdata.storm.joiners</code>: the threads processing
+ *     joins (4).</li>
+ *     <li><code>playerdata.storm.readers</code>: the threads looking
+ *     players up (4).</li>
+ *     <li><code>playerdata.storm.journal</code>: <code>true</code> to record
+ *     the joins in a {@link Journal} in a temporary directory (false).</li>
+ * </ul>
+ */
+public final class JoinStorm {
+    
+    private static final long HIGHEST_NANOS = TimeUnit.MINUTES.toNanos(1L);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final int LIMIT = 20;
+    private static final String[] LOOKUPS = {"getUniqueId", "getName", "getMatchingNames"};
+    private static final Join END = new Join(new UUID(0L, 0L), "", PlayerJoinEvent.JoinType.NORMAL, 0L);
+    
+    private final int players;
+    private final long durationNanos;
+    private final int rate;
+    private final int burst;
+    private final long burstIntervalNanos;
+    private final double newRatio;
+    private final double renameRatio;
+    private final int joiners;
+    private final int readers;
+    private final boolean journal;
+    
+    private final Random random;
+    private final AtomicLong mismatches;
+    private final BlockingQueue<Join> queue;
+    private PlayerDataSet dataSet;
+    private String[] currentNames;
+    private int pool;
+    private int freshIndex;
+    private volatile boolean running;
+    
+    /**
+     * Creates a new {@link JoinStorm}, configured from the system properties.
+     */
+    private JoinStorm() {
+        this.players = Integer.getInteger("playerdata.storm.players", 100000);
+        this.durationNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("playerdata.storm.seconds", 60));
+        this.rate = Integer.getInteger("playerdata.storm.rate", 200);
+        this.burst = Integer.getInteger("playerdata.storm.burst", 5000);
+        this.burstIntervalNanos = TimeUnit.SECONDS.toNanos(Integer.getInteger("playerdata.storm.burstSeconds", 20));
+        this.newRatio = Integer.getInteger("playerdata.storm.newPercent", 5) / 100.0D;
+        this.renameRatio = Integer.getInteger("playerdata.storm.renamePercent", 1) / 100.0D;
+        this.joiners = Integer.getInteger("playerdata.storm.joiners", 4);
+        this.readers = Integer.getInteger("playerdata.storm.readers", 4);
+        this.journal = Boolean.getBoolean("playerdata.storm.journal");
+        
+        this.random = new Random(0x5703DL);
+        this.mismatches = new AtomicLong();
+        this.queue = new LinkedBlockingQueue<Join>();
+    }
+    
+    /**
+     * Runs the join storm and prints the report.
+     * 
+     * @param args Unused.
+     * @throws Exception If the storm could not be run.
+     */
+    public static void main(@NotNull final String[] args) throws Exception {
+        new JoinStorm().run();
+    }
+    
+    /**
+     * Runs the join storm and prints the report.
+     * 
+     * @throws Exception If the storm could not be run.
+     */
+    private void run() throws Exception {
+        System.out.println("Loading " + this.players + " players...");
+        this.dataSet = new PlayerDataSet(this.players, 0x5EED5EEDL);
+        this.pool = Math.min(this.players, PlayerDataSet.SAMPLE_SIZE);
+        this.currentNames = Arrays.copyOf(this.dataSet.getNames(), this.pool);
+        final PlayerDataPlugin plugin = new BenchmarkPlugin(this.dataSet);
+        final PlayerDataStore store = this.dataSet.getStore();
+        
+        Journal journal = null;
+        if (this.journal) {
+            final File directory = Files.createTempDirectory("playerdata-storm").toFile();
+            journal = new Journal(directory, store, plugin.getLogger(), Journal.FsyncPolicy.INTERVAL, 1000L, 64L * 1024L * 1024L);
+            journal.open();
+        }
+        
+        this.running = true;
+        final Histogram[][] lookupHistograms = new Histogram[this.readers][];
+        final Thread[] readerThreads = new Thread[this.readers];
+        for (int reader = 0; reader < this.readers; reader++) {
+            final Histogram[] histograms = JoinStorm.createHistograms(JoinStorm.LOOKUPS.length);
+            final long seed = this.random.nextLong();
+            lookupHistograms[reader] = histograms;
+            readerThreads[reader] = new Thread(() -> this.read(plugin, histograms, seed), "Join Storm Reader " + reader);
+            readerThreads[reader].start();
+        }
+        
+        final Histogram[][] joinHistograms = new Histogram[this.joiners][];
+        final Thread[] joinerThreads = new Thread[this.joiners];
+        for (int joiner = 0; joiner < this.joiners; joiner++) {
+            final Histogram[] histograms = JoinStorm.createHistograms(PlayerJoinEvent.JoinType.values().length);
+            joinHistograms[joiner] = histograms;
+            joinerThreads[joiner] = new Thread(() -> this.join(store, histograms), "Join Storm Joiner " + joiner);
+            joinerThreads[joiner].start();
+        }
+        
+        System.out.println("Running for " + TimeUnit.NANOSECONDS.toSeconds(this.durationNanos) + " seconds...");
+        final long start = System.nanoTime();
+        final long joins = this.produce(start);
+        for (int joiner = 0; joiner < this.joiners; joiner++) {
+            this.queue.put(JoinStorm.END);
+        }
+        for (final Thread thread : joinerThreads) {
+            thread.join();
+        }
+        final long elapsed = System.nanoTime() - start;
+        this.running = false;
+        for (final Thread thread : readerThreads) {
+            thread.join();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        
+        this.report(joins, elapsed, joinHistograms, lookupHistograms);
+    }
+    
+    /**
+     * Queues each join when it is due, until the run is over.
+     * 
+     * @param start The start of the run, from {@link System#nanoTime()}.
+     * @return The number of joins queued.
+     * @throws InterruptedException If interrupted while queueing.
+     */
+    private long produce(final long start) throws InterruptedException {
+        final long end = start + this.durationNanos;
+        final double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1L) / (double) Math.max(1, this.rate);
+        long nextSteady = start;
+        long nextBurst = start;
+        long joins = 0L;
+        while (true) {
+            final long due = Math.min(nextSteady, nextBurst);
+            if (due >= end) {
+                return joins;
+            }
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0L) {
+                LockSupport.parkNanos(wait);
+            }
+            
+            if (nextBurst <= nextSteady) {
+                for (int index = 0; index < this.burst; index++) {
+                    this.queue.put(this.nextJoin(nextBurst));
+                }
+                joins += this.burst;
+                nextBurst += this.burstIntervalNanos;
+            } else {
+                this.queue.put(this.nextJoin(nextSteady));
+                joins++;
+                
+                // Exponential gaps give Poisson arrivals at the steady rate.
+                nextSteady += (long) (-Math.log(1.0D - this.random.nextDouble()) * meanIntervalNanos);
+            }
+        }
+    }
+    
+    /**
+     * Creates the next join of the stream.
+     * 
+     * @param due When the join is due, from {@link System#nanoTime()}.
+     * @return The {@link Join}.
+     */
+    @NotNull
+    private Join nextJoin(final long due) {
+        final double roll = this.random.nextDouble();
+        if (roll < this.newRatio) {
+            return new Join(new UUID(this.random.nextLong(), this.random.nextLong()), this.nextFreshName(), PlayerJoinEvent.JoinType.NEW_PLAYER, due);
+        }
+        final int index = this.random.nextInt(this.pool);
+        final UUID uniqueId = this.dataSet.getUniqueIds()[index];
+        if (roll < this.newRatio + this.renameRatio) {
+            this.currentNames[index] = this.nextFreshName();
+            return new Join(uniqueId, this.currentNames[index], PlayerJoinEvent.JoinType.NAME_CHANGE, due);
+        }
+        return new Join(uniqueId, this.currentNames[index], PlayerJoinEvent.JoinType.NORMAL, due);
+    }
+    
+    /**
+     * Gets a name that no player has yet.
+     * 
+     * @return The name.
+     */
+    @NotNull
+    private String nextFreshName() {
+        final String[] unknownNames = this.dataSet.getUnknownNames();
+        if (this.freshIndex < unknownNames.length) {
+            return unknownNames[this.freshIndex++];
+        }
+        return "Storm_" + Integer.toString(this.freshIndex++, Character.MAX_RADIX);
+    }
+    
+    /**
+     * Processes queued joins until the end marker, recording the latency of
+     * each by its expected {@link PlayerJoinEvent.JoinType}.
+     * 
+     * @param store The {@link PlayerDataStore} to process the joins.
+     * @param histograms The {@link Histogram Histograms} for each
+     *                   {@link PlayerJoinEvent.JoinType}.
+     */
+    private void join(@NotNull final PlayerDataStore store, @NotNull final Histogram[] histograms) {
+        try {
+            Join join;
+            while ((join = this.queue.take()) != JoinStorm.END) {
+                final PlayerJoinEvent event = store.update(join.uniqueId, join.name);
+                histograms[join.expected.ordinal()].recordValue(Math.min(System.nanoTime() - join.due, JoinStorm.HIGHEST_NANOS));
+                if (event.getJoinType() != join.expected) {
+                    this.mismatches.incrementAndGet();
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Looks up random players until the run is over, recording the latency
+     * of each lookup.
+     * 
+     * @param plugin The {@link PlayerDataPlugin} to look players up from.
+     * @param histograms The {@link Histogram Histograms} for each lookup.
+     * @param seed The random seed for this reader.
+     */
+    private void read(@NotNull final PlayerDataPlugin plugin, @NotNull final Histogram[] histograms, final long seed) {
+        final Random random = new Random(seed);
+        final String[] names = this.dataSet.getNames();
+        final UUID[] uniqueIds = this.dataSet.getUniqueIds();
+        final String[] prefixes = this.dataSet.getPrefixes();
+        long count = 0L;
+        while (this.running) {
+            final int index = random.nextInt(PlayerDataSet.SAMPLE_SIZE);
+            final int lookup = (int) (count++ % JoinStorm.LOOKUPS.length);
+            final long start = System.nanoTime();
+            if (lookup == 0) {
+                plugin.getUniqueId(names[index]);
+            } else if (lookup == 1) {
+                plugin.getName(uniqueIds[index]);
+            } else {
+                plugin.getMatchingNames(prefixes[index], JoinStorm.LIMIT);
+            }
+            histograms[lookup].recordValue(Math.min(System.nanoTime() - start, JoinStorm.HIGHEST_NANOS));
+        }
+    }
+    
+    /**
+     * Prints the report.
+     * 
+     * @param joins The number of joins.
+     * @param elapsedNanos The length of the run.
+     * @param joinHistograms The join {@link Histogram Histograms} of each
+     *                       joiner thread.
+     * @param lookupHistograms The lookup {@link Histogram Histograms} of each
+     *                         reader thread.
+     */
+    private void report(final long joins, final long elapsedNanos, @NotNull final Histogram[][] joinHistograms, @NotNull final Histogram[][] lookupHistograms) {
+        final double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1L);
+        System.out.println();
+        System.out.printf("%d joins in %.1f s (%.0f/s), %d classified differently than expected%n", joins, seconds, joins / seconds, this.mismatches.get());
+        System.out.printf("%-20s %12s %10s %10s %10s %10s%n", "Latency (us)", "count", "p50", "p99", "p99.9", "max");
+        
+        final Histogram allJoins = JoinStorm.createHistogram();
+        for (final PlayerJoinEvent.JoinType type : PlayerJoinEvent.JoinType.values()) {
+            final Histogram merged = JoinStorm.merge(joinHistograms, type.ordinal());
+            allJoins.add(merged);
+            JoinStorm.print("join " + type.name(), merged);
+        }
+        JoinStorm.print("join (all)", allJoins);
+        
+        long lookups = 0L;
+        for (int lookup = 0; lookup < JoinStorm.LOOKUPS.length; lookup++) {
+            final Histogram merged = JoinStorm.merge(lookupHistograms, lookup);
+            lookups += merged.getTotalCount();
+            JoinStorm.print(JoinStorm.LOOKUPS[lookup], merged);
+        }
+        System.out.printf("%d lookups (%.0f/s) across %d readers%n", lookups, lookups / seconds, this.readers);
+    }
+    
+    /**
+     * Prints one row of the report.
+     * 
+     * @param label The label of the row.
+     * @param histogram The {@link Histogram}, in nanoseconds.
+     */
+    private static void print(@NotNull final String label, @NotNull final Histogram histogram) {
+        System.out.printf("%-20s %12d %10.1f %10.1f %10.1f %10.1f%n", label, histogram.getTotalCount(), JoinStorm.micros(histogram, 50.0D), JoinStorm.micros(histogram, 99.0D), JoinStorm.micros(histogram, 99.9D), histogram.getMaxValue() / 1000.0D);
+    }
+    
+    /**
+     * Gets a percentile of a {@link Histogram}, in microseconds.
+     * 
+     * @param histogram The {@link Histogram}, in nanoseconds.
+     * @param percentile The percentile.
+     * @return The value at the percentile, in microseconds.
+     */
+    private static double micros(@NotNull final Histogram histogram, final double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0D;
+    }
+    
+    /**
+     * Merges the {@link Histogram Histograms} at the given index of each
+     * thread.
+     * 
+     * @param histograms The {@link Histogram Histograms} of each thread.
+     * @param index The index to merge.
+     * @return The merged {@link Histogram}.
+     */
+    @NotNull
+    private static Histogram merge(@NotNull final Histogram[][] histograms, final int index) {
+        final Histogram merged = JoinStorm.createHistogram();
+        for (final Histogram[] thread : histograms) {
+            merged.add(thread[index]);
+        }
+        return merged;
+    }
+    
+    /**
+     * Creates the given number of {@link Histogram Histograms}.
+     * 
+     * @param count The number of {@link Histogram Histograms}.
+     * @return The {@link Histogram Histograms}.
+     */
+    @NotNull
+    private static Histogram[] createHistograms(final int count) {
+        final Histogram[] histograms = new Histogram[count];
+        for (int index = 0; index < count; index++) {
+            histograms[index] = JoinStorm.createHistogram();
+        }
+        return histograms;
+    }
+    
+    /**
+     * Creates a {@link Histogram} of nanosecond latencies up to a minute.
+     * 
+     * @return The {@link Histogram}.
+     */
+    @NotNull
+    private static Histogram createHistogram() {
+        return new Histogram(JoinStorm.HIGHEST_NANOS, JoinStorm.SIGNIFICANT_DIGITS);
+    }
+    
+    /**
+     * A join waiting to be processed.
+     */
+    private static final class Join {
+        
+        private final UUID uniqueId;
+        private final String name;
+        private final PlayerJoinEvent.JoinType expected;
+        private final long due;
+        
+        private Join(@NotNull final UUID uniqueId, @NotNull final String name, @NotNull final PlayerJoinEvent.JoinType expected, final long due) {
+            this.uniqueId = uniqueId;
+            this.name = name;
+            this.expected = expected;
+            this.due = due;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.benchmarks;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.bspfsystems.playerdata.api.PlayerDataEntry;
+import org.bspfsystems.playerdata.api.plugin.PlayerDataPlugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the single player lookups of a {@link PlayerDataPlugin}, for
+ * both known and unknown players, and the prefix lookups used for tab
+ * completion.
+ * <p>
+ * Each thread cycles through its own sample of keys, so that the lookups are
+ * spread across the whole {@link PlayerDataSet} rather than hitting the same
+ * cache lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class LookupBenchmark {
+    
+    /**
+     * The tab completion limit, matching a chat line of suggestions.
+     */
+    private static final int LIMIT = 20;
+    
+    @Param({"10000", "1000000", "10000000"})
+    public int players;
+    
+    private PlayerDataSet dataSet;
+    private PlayerDataPlugin plugin;
+    
+    /**
+     * Builds the {@link PlayerDataSet} for this trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.dataSet = new PlayerDataSet(this.players, 0x5EED5EEDL);
+        this.plugin = new BenchmarkPlugin(this.dataSet);
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#getUniqueId(String)} for known
+     * players.
+     * 
+     * @param cursor The thread's {@link Cursor}.
+     * @return The {@link UUID}.
+     */
+    @Benchmark
+    @Nullable
+    public UUID getUniqueId(@NotNull final Cursor cursor) {
+        return this.plugin.getUniqueId(this.dataSet.getNames()[cursor.next()]);
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#getUniqueId(String)} for unknown
+     * players.
+     * 
+     * @param cursor The thread's {@link Cursor}.
+     * @return The {@link UUID}, which should be <code>null</code>.
+     */
+    @Benchmark
+    @Nullable
+    public UUID getUniqueIdUnknown(@NotNull final Cursor cursor) {
+        return this.plugin.getUniqueId(this.dataSet.getUnknownNames()[cursor.next()]);
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#getName(UUID)} for known players.
+     * 
+     * @param cursor The thread's {@link Cursor}.
+     * @return The name.
+     */
+    @Benchmark
+    @Nullable
+    public String getName(@NotNull final Cursor cursor) {
+        return this.plugin.getName(this.dataSet.getUniqueIds()[cursor.next()]);
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#getName(UUID)} for unknown players.
+     * 
+     * @param cursor The thread's {@link Cursor}.
+     * @return The name, which should be <code>null</code>.
+     */
+    @Benchmark
+    @Nullable
+    public String getNameUnknown(@NotNull final Cursor cursor) {
+        return this.plugin.getName(this.dataSet.getUnknownUniqueIds()[cursor.next()]);
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#getEntry(String)} for known players.
+     * 
+     * @param cursor The thread's {@link Cursor}.
+     * @return The {@link PlayerDataEntry}.
+     */
+    @Benchmark
+    @Nullable
+    public PlayerDataEntry getEntryByName(@NotNull final Cursor cursor) {
+        return this.plugin.getEntry(this.dataSet.getNames()[cursor.next()]);
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#getEntry(UUID)} for known players.
+     * 
+     * @param cursor The thread's {@link Cursor}.
+     * @return The {@link PlayerDataEntry}.
+     */
+    @Benchmark
+    @Nullable
+    public PlayerDataEntry getEntryByUniqueId(@NotNull final Cursor cursor) {
+        return this.plugin.getEntry(this.dataSet.getUniqueIds()[cursor.next()]);
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#getMatchingNames(String)} for short
+     * prefixes of known names.
+     * 
+     * @param cursor The thread's {@link Cursor}.
+     * @return The matching names.
+     */
+    @Benchmark
+    @NotNull
+    public Set<String> getMatchingNames(@NotNull final Cursor cursor) {
+        return this.plugin.getMatchingNames(this.dataSet.getPrefixes()[cursor.next()]);
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#getMatchingNames(String, int)} for
+     * short prefixes of known names, as used for tab completion.
+     * 
+     * @param cursor The thread's {@link Cursor}.
+     * @return The matching names.
+     */
+    @Benchmark
+    @NotNull
+    public List<String> getMatchingNamesLimited(@NotNull final Cursor cursor) {
+        return this.plugin.getMatchingNames(this.dataSet.getPrefixes()[cursor.next()], LookupBenchmark.LIMIT);
+    }
+    
+    /**
+     * Benchmarks {@link PlayerDataPlugin#getMatchingEntries(String)} for short
+     * prefixes of known names.
+     * 
+     * @param cursor The thread's {@link Cursor}.
+     * @return The matching {@link PlayerDataEntry PlayerDataEntries}.
+     */
+    @Benchmark
+    @NotNull
+    public Set<PlayerDataEntry> getMatchingEntries(@NotNull final Cursor cursor) {
+        return this.plugin.getMatchingEntries(this.dataSet.getPrefixes()[cursor.next()]);
+    }
+    
+    /**
+     * The position of a thread in the sampled keys. Each thread starts at a
+     * different position.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        
+        private static final int MASK = PlayerDataSet.SAMPLE_SIZE - 1;
+        
+        private int index;
+        
+        /**
+         * Moves this {@link Cursor} to a random starting position.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.index = (int) (Thread.currentThread().getId() * 0x9E3779B9L) & Cursor.MASK;
+        }
+        
+        /**
+         * Gets the next index into the sampled keys.
+         * 
+         * @return The next index.
+         */
+        int next() {
+            this.index = (this.index + 1) & Cursor.MASK;
+            return this.index;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.benchmarks;
+
+import java.util.regex.Pattern;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the PlayerData benchmark suite.
+ * <p>
+ * With no arguments, every benchmark is run at each of the thread counts in
+ * the <code>playerdata.threads</code> system property (by default 1, 4 and
+ * 16), so that contention shows up in the results. Any arguments are instead
+ * passed straight to the JMH command line, for example
+ * <code>-p players=10000 LookupBenchmark</code>.
+ */
+public final class PlayerDataBenchmarks {
+    
+    private static final String DEFAULT_THREADS = "1,4,16";
+    
+    private PlayerDataBenchmarks() {
+        // Main class.
+    }
+    
+    /**
+     * Runs the benchmarks.
+     * 
+     * @param args The JMH command line arguments, if any.
+     * @throws Exception If the benchmarks could not be run.
+     */
+    public static void main(@NotNull final String[] args) throws Exception {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        for (final String threads : System.getProperty("playerdata.threads", PlayerDataBenchmarks.DEFAULT_THREADS).split(",")) {
+            PlayerDataBenchmarks.run(Integer.parseInt(threads.trim()));
+        }
+    }
+    
+    /**
+     * Runs every benchmark at the given thread count.
+     * 
+     * @param threads The number of threads.
+     * @throws RunnerException If the benchmarks could not be run.
+     */
+    private static void run(final int threads) throws RunnerException {
+        final String include = Pattern.quote(PlayerDataBenchmarks.class.getPackage().getName()) + "\\..*";
+        new Runner(new OptionsBuilder().include(include).threads(threads).build()).run();
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.benchmarks;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A synthetic, reproducible set of players loaded into a
+ * {@link PlayerDataStore}, along with samples of the names and
+ * {@link UUID UUIDs} to look up.
+ * <p>
+ * The names follow the shapes that are common on real networks: words with
+ * numbers appended, joined words in camel or snake case, decorated names,
+ * and a tail of random characters, at lengths from 3 to 16. All names are
+ * unique, ignoring case, as on a real network.
+ */
+final class PlayerDataSet {
+    
+    /**
+     * The number of names and {@link UUID UUIDs} sampled for lookups.
+     */
+    static final int SAMPLE_SIZE = 1 << 16;
+    
+    private static final String[] WORDS = {
+        "shadow", "dragon", "wolf", "fire", "ice", "storm", "night", "dark", "craft", "mine",
+        "block", "pixel", "gamer", "pro", "king", "queen", "lord", "ninja", "sniper", "ghost",
+        "steve", "alex", "creeper", "ender", "nether", "blaze", "diamond", "gold", "iron", "stone",
+        "sky", "moon", "star", "sun", "red", "blue", "green", "toxic", "epic", "lucky",
+        "max", "sam", "jake", "luke", "emma", "lily", "noah", "leo", "mia", "zoe",
+        "cookie", "panda", "tiger", "fox", "bear", "cat", "dog", "potato", "taco", "noodle"
+    };
+    private static final int[] NUMBER_BOUNDS = {100, 10000, 1000000};
+    private static final String CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_";
+    
+    private final PlayerDataStore store;
+    private final String[] names;
+    private final UUID[] uniqueIds;
+    private final String[] unknownNames;
+    private final UUID[] unknownUniqueIds;
+    private final String[] prefixes;
+    
+    /**
+     * Creates a new {@link PlayerDataSet} of the given number of players.
+     * 
+     * @param players The number of players.
+     * @param seed The random seed, so that runs can be compared.
+     */
+    PlayerDataSet(final int players, final long seed) {
+        final Random random = new Random(seed);
+        final long now = System.currentTimeMillis();
+        this.store = new PlayerDataStore();
+        this.names = new String[PlayerDataSet.SAMPLE_SIZE];
+        this.uniqueIds = new UUID[PlayerDataSet.SAMPLE_SIZE];
+        
+        final int stride = Math.max(1, players / PlayerDataSet.SAMPLE_SIZE);
+        int sampled = 0;
+        for (int player = 0; player < players; player++) {
+            String name = PlayerDataSet.generateName(random);
+            while (this.store.getUniqueId(name) != null) {
+                name = PlayerDataSet.generateName(random);
+            }
+            final UUID uniqueId = new UUID(random.nextLong(), random.nextLong());
+            this.store.restore(uniqueId, name, now - (long) (random.nextDouble() * 365L * 24L * 60L * 60L * 1000L));
+            if (player % stride == 0 && sampled < PlayerDataSet.SAMPLE_SIZE) {
+                this.names[sampled] = name;
+                this.uniqueIds[sampled] = uniqueId;
+                sampled++;
+            }
+        }
+        for (int index = sampled; index < PlayerDataSet.SAMPLE_SIZE; index++) {
+            this.names[index] = this.names[index % sampled];
+            this.uniqueIds[index] = this.uniqueIds[index % sampled];
+        }
+        
+        this.unknownNames = new String[PlayerDataSet.SAMPLE_SIZE];
+        this.unknownUniqueIds = new UUID[PlayerDataSet.SAMPLE_SIZE];
+        this.prefixes = new String[PlayerDataSet.SAMPLE_SIZE];
+        for (int index = 0; index < PlayerDataSet.SAMPLE_SIZE; index++) {
+            String name = PlayerDataSet.generateName(random);
+            while (this.store.getUniqueId(name) != null) {
+                name = PlayerDataSet.generateName(random);
+            }
+            this.unknownNames[index] = name;
+            this.unknownUniqueIds[index] = new UUID(random.nextLong(), random.nextLong());
+            
+            // Tab completion is typically asked for after 1 to 4 characters.
+            final String known = this.names[random.nextInt(PlayerDataSet.SAMPLE_SIZE)];
+            this.prefixes[index] = known.substring(0, Math.min(known.length(), 1 + random.nextInt(4))).toLowerCase(Locale.ROOT);
+        }
+    }
+    
+    /**
+     * Gets the {@link PlayerDataStore} holding the players.
+     * 
+     * @return The {@link PlayerDataStore}.
+     */
+    @NotNull
+    PlayerDataStore getStore() {
+        return this.store;
+    }
+    
+    /**
+     * Gets a sample of the names of known players.
+     * 
+     * @return {@link PlayerDataSet#SAMPLE_SIZE} names.
+     */
+    @NotNull
+    String[] getNames() {
+        return this.names;
+    }
+    
+    /**
+     * Gets a sample of the {@link UUID UUIDs} of known players.
+     * 
+     * @return {@link PlayerDataSet#SAMPLE_SIZE} {@link UUID UUIDs}.
+     */
+    @NotNull
+    UUID[] getUniqueIds() {
+        return this.uniqueIds;
+    }
+    
+    /**
+     * Gets names that no player has.
+     * 
+     * @return {@link PlayerDataSet#SAMPLE_SIZE} names.
+     */
+    @NotNull
+    String[] getUnknownNames() {
+        return this.unknownNames;
+    }
+    
+    /**
+     * Gets {@link UUID UUIDs} that no player has.
+     * 
+     * @return {@link PlayerDataSet#SAMPLE_SIZE} {@link UUID UUIDs}.
+     */
+    @NotNull
+    UUID[] getUnknownUniqueIds() {
+        return this.unknownUniqueIds;
+    }
+    
+    /**
+     * Gets prefixes of known names, as typed for tab completion.
+     * 
+     * @return {@link PlayerDataSet#SAMPLE_SIZE} prefixes.
+     */
+    @NotNull
+    String[] getPrefixes() {
+        return this.prefixes;
+    }
+    
+    /**
+     * Generates a random name.
+     * 
+     * @param random The {@link Random} to use.
+     * @return The name.
+     */
+    @NotNull
+    private static String generateName(@NotNull final Random random) {
+        final int shape = random.nextInt(100);
+        final StringBuilder builder = new StringBuilder(16);
+        if (shape < 40) {
+            builder.append(PlayerDataSet.word(random, random.nextBoolean()));
+            builder.append(random.nextInt(PlayerDataSet.NUMBER_BOUNDS[random.nextInt(PlayerDataSet.NUMBER_BOUNDS.length)]));
+        } else if (shape < 65) {
+            builder.append(PlayerDataSet.word(random, true));
+            builder.append(PlayerDataSet.word(random, true));
+        } else if (shape < 80) {
+            builder.append(PlayerDataSet.word(random, false));
+            builder.append('_');
+            builder.append(PlayerDataSet.word(random, false));
+        } else if (shape < 90) {
+            builder.append("xX_");
+            builder.append(PlayerDataSet.word(random, random.nextBoolean()));
+            builder.append("_Xx");
+        } else {
+            final int length = 3 + random.nextInt(14);
+            for (int index = 0; index < length; index++) {
+                builder.append(PlayerDataSet.CHARACTERS.charAt(random.nextInt(PlayerDataSet.CHARACTERS.length())));
+            }
+        }
+        if (builder.length() < 3) {
+            builder.append(random.nextInt(1000));
+        }
+        builder.setLength(Math.min(builder.length(), 16));
+        return builder.toString();
+    }
+    
+    /**
+     * Picks a random word.
+     * 
+     * @param random The {@link Random} to use.
+     * @param capitalize <code>true</code> to capitalize the word.
+     * @return The word.
+     */
+    @NotNull
+    private static String word(@NotNull final Random random, final boolean capitalize) {
+        final String word = PlayerDataSet.WORDS[random.nextInt(PlayerDataSet.WORDS.length)];
+        return capitalize ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.cache;
+
+/**
+ * A compact, approximate count of how often keys have been seen recently,
+ * used by {@link WTinyLfuCache} to decide which entries are worth keeping.
+ * <p>
+ * This is a count-min sketch of 4 bit counters, sixteen to a
+ * <code>long</code>, with four counters per key. Once a sample of ten times
+ * the table size has been recorded, every counter is halved, so that the
+ * counts reflect recent popularity rather than all-time popularity.
+ * <p>
+ * This class is not thread-safe; callers must provide their own
+ * synchronization.
+ */
+final class FrequencySketch {
+    
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long[] SEEDS = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+    
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+    
+    /**
+     * Creates a new, empty {@link FrequencySketch} for a cache of the given
+     * size.
+     * 
+     * @param maximumSize The maximum size of the cache.
+     */
+    FrequencySketch(final int maximumSize) {
+        final int length = Integer.highestOneBit(Math.max(8, Math.min(maximumSize, 1 << 30)) - 1) << 1;
+        this.table = new long[length];
+        this.mask = length - 1;
+        this.sampleSize = 10 * length;
+    }
+    
+    /**
+     * Gets the estimated recent frequency of the key with the given hash.
+     * 
+     * @param hash The hash of the key.
+     * @return The estimated frequency, from <code>0</code> to
+     *         <code>15</code>.
+     */
+    int frequency(final int hash) {
+        final int spread = FrequencySketch.spread(hash);
+        int frequency = 15;
+        for (int depth = 0; depth < 4; depth++) {
+            final int index = this.index(spread, depth);
+            final int shift = FrequencySketch.shift(spread, depth);
+            frequency = Math.min(frequency, (int) ((this.table[index] >>> shift) & 0xFL));
+        }
+        return frequency;
+    }
+    
+    /**
+     * Records an occurrence of the key with the given hash.
+     * 
+     * @param hash The hash of the key.
+     */
+    void increment(final int hash) {
+        final int spread = FrequencySketch.spread(hash);
+        boolean added = false;
+        for (int depth = 0; depth < 4; depth++) {
+            final int index = this.index(spread, depth);
+            final int shift = FrequencySketch.shift(spread, depth);
+            if (((this.table[index] >>> shift) & 0xFL) != 0xFL) {
+                this.table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++this.additions >= this.sampleSize) {
+            this.reset();
+        }
+    }
+    
+    /**
+     * Halves every counter.
+     */
+    private void reset() {
+        for (int index = 0; index < this.table.length; index++) {
+            this.table[index] = (this.table[index] >>> 1) & FrequencySketch.RESET_MASK;
+        }
+        this.additions >>>= 1;
+    }
+    
+    /**
+     * Gets the table index of the counter for the given depth.
+     * 
+     * @param spread The spread hash of the key.
+     * @param depth The depth, from <code>0</code> to <code>3</code>.
+     * @return The table index.
+     */
+    private int index(final int spread, final int depth) {
+        long hash = (spread + FrequencySketch.SEEDS[depth]) * FrequencySketch.SEEDS[depth];
+        hash += hash >>> 32;
+        return (int) hash & this.mask;
+    }
+    
+    /**
+     * Gets the bit offset of the counter for the given depth within its
+     * <code>long</code>.
+     * 
+     * @param spread The spread hash of the key.
+     * @param depth The depth, from <code>0</code> to <code>3</code>.
+     * @return The bit offset.
+     */
+    private static int shift(final int spread, final int depth) {
+        return (((spread >>> (depth << 3)) & 3) << 2) + (depth << 4);
+    }
+    
+    /**
+     * Spreads the bits of a hash code, as keys often have poor low bits.
+     * 
+     * @param hash The hash code.
+     * @return The spread hash.
+     */
+    private static int spread(final int hash) {
+        int spread = hash;
+        spread = ((spread >>> 16) ^ spread) * 0x45D9F3B;
+        spread = ((spread >>> 16) ^ spread) * 0x45D9F3B;
+        return (spread >>> 16) ^ spread;
+    }
+}
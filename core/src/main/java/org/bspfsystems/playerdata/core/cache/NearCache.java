@@ -0,0 +1,358 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.cache;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.bspfsystems.playerdata.api.PlayerDataEntry;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.bspfsystems.playerdata.core.store.PackedPlayerDataEntry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A bounded cache of {@link PlayerDataEntry PlayerDataEntries} for a backend
+ * server, in front of the authoritative store on the proxy.
+ * <p>
+ * Cached entries are kept by a {@link WTinyLfuCache}, so frequently looked up
+ * players stay cached. Misses fall through to a {@link RemoteLookup}, and
+ * concurrent misses for the same player share a single remote lookup.
+ * <p>
+ * The proxy forwards every {@link PlayerJoinEvent}, which must be passed to
+ * {@link NearCache#onJoin(PlayerJoinEvent)}; a name change replaces the
+ * cached entry, and drops any cached entry that still holds the name. A
+ * remote lookup that was in flight when the player or the name it found
+ * changed is not cached, as it may have been answered before the change.
+ * Lookups for other players are unaffected, so a storm of joins does not
+ * stop every lookup in flight from being cached.
+ */
+public final class NearCache {
+    
+    private static final int MAXIMUM_CHANGES = 4096;
+    
+    private final RemoteLookup remote;
+    private final WTinyLfuCache<UUID, PlayerDataEntry> entries;
+    private final Map<String, UUID> names;
+    private final Map<UUID, CompletableFuture<PlayerDataEntry>> pendingUniqueIds;
+    private final Map<String, CompletableFuture<PlayerDataEntry>> pendingNames;
+    private final Map<UUID, Long> changedUniqueIds;
+    private final Map<String, Long> changedNames;
+    private long sequence;
+    private long floor;
+    
+    /**
+     * Creates a new, empty {@link NearCache}.
+     * 
+     * @param remote The {@link RemoteLookup} that misses fall through to.
+     * @param maximumSize The maximum number of cached entries.
+     * @throws IllegalArgumentException If <code>maximumSize</code> is not
+     *                                  positive.
+     */
+    public NearCache(@NotNull final RemoteLookup remote, final int maximumSize) throws IllegalArgumentException {
+        this.remote = remote;
+        this.names = new HashMap<String, UUID>();
+        this.entries = new WTinyLfuCache<UUID, PlayerDataEntry>(maximumSize, (uniqueId, entry) -> this.names.remove(NearCache.key(entry.getName()), uniqueId));
+        this.pendingUniqueIds = new HashMap<UUID, CompletableFuture<PlayerDataEntry>>();
+        this.pendingNames = new HashMap<String, CompletableFuture<PlayerDataEntry>>();
+        this.changedUniqueIds = new HashMap<UUID, Long>();
+        this.changedNames = new HashMap<String, Long>();
+    }
+    
+    /**
+     * Gets the cached {@link PlayerDataEntry} for the given {@link UUID},
+     * without falling through to the proxy.
+     * 
+     * @param uniqueId The {@link UUID} to look up.
+     * @return The cached {@link PlayerDataEntry}, or <code>null</code> if
+     *         there is none.
+     */
+    @Nullable
+    public synchronized PlayerDataEntry getCachedEntry(@NotNull final UUID uniqueId) {
+        return this.entries.get(uniqueId);
+    }
+    
+    /**
+     * Gets the cached {@link PlayerDataEntry} for the given name, ignoring
+     * case, without falling through to the proxy.
+     * 
+     * @param name The name to look up.
+     * @return The cached {@link PlayerDataEntry}, or <code>null</code> if
+     *         there is none.
+     */
+    @Nullable
+    public synchronized PlayerDataEntry getCachedEntry(@NotNull final String name) {
+        final UUID uniqueId = this.names.get(NearCache.key(name));
+        return uniqueId == null ? null : this.entries.get(uniqueId);
+    }
+    
+    /**
+     * Gets the {@link PlayerDataEntry} for the given {@link UUID}, looking it
+     * up from the proxy if it is not cached.
+     * 
+     * @param uniqueId The {@link UUID} to look up.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link PlayerDataEntry}, or with <code>null</code> if the proxy
+     *         does not know the {@link UUID}.
+     */
+    @NotNull
+    public CompletableFuture<PlayerDataEntry> getEntry(@NotNull final UUID uniqueId) {
+        final CompletableFuture<PlayerDataEntry> pending;
+        final long started;
+        synchronized (this) {
+            final PlayerDataEntry entry = this.entries.get(uniqueId);
+            if (entry != null) {
+                return CompletableFuture.completedFuture(entry);
+            }
+            final CompletableFuture<PlayerDataEntry> existing = this.pendingUniqueIds.get(uniqueId);
+            if (existing != null) {
+                return existing;
+            }
+            pending = new CompletableFuture<PlayerDataEntry>();
+            started = this.sequence;
+            this.pendingUniqueIds.put(uniqueId, pending);
+        }
+        
+        this.remote.lookup(uniqueId).whenComplete((entry, failure) -> {
+            synchronized (this) {
+                this.pendingUniqueIds.remove(uniqueId);
+                if (entry != null && !this.isChanged(uniqueId, started) && !this.isChanged(entry, started)) {
+                    this.store(entry);
+                }
+                this.onLookupComplete();
+            }
+            NearCache.complete(pending, entry, failure);
+        });
+        return pending;
+    }
+    
+    /**
+     * Gets the {@link PlayerDataEntry} for the given name, ignoring case,
+     * looking it up from the proxy if it is not cached.
+     * 
+     * @param name The name to look up.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link PlayerDataEntry}, or with <code>null</code> if the proxy
+     *         does not know the name.
+     */
+    @NotNull
+    public CompletableFuture<PlayerDataEntry> getEntry(@NotNull final String name) {
+        final String key = NearCache.key(name);
+        final CompletableFuture<PlayerDataEntry> pending;
+        final long started;
+        synchronized (this) {
+            final UUID uniqueId = this.names.get(key);
+            final PlayerDataEntry entry = uniqueId == null ? null : this.entries.get(uniqueId);
+            if (entry != null) {
+                return CompletableFuture.completedFuture(entry);
+            }
+            final CompletableFuture<PlayerDataEntry> existing = this.pendingNames.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            pending = new CompletableFuture<PlayerDataEntry>();
+            started = this.sequence;
+            this.pendingNames.put(key, pending);
+        }
+        
+        this.remote.lookup(name).whenComplete((entry, failure) -> {
+            synchronized (this) {
+                this.pendingNames.remove(key);
+                if (entry != null && !this.isChanged(key, started) && !this.isChanged(entry, started)) {
+                    this.store(entry);
+                }
+                this.onLookupComplete();
+            }
+            NearCache.complete(pending, entry, failure);
+        });
+        return pending;
+    }
+    
+    /**
+     * Updates this {@link NearCache} for a player that joined the network, as
+     * forwarded by the proxy.
+     * 
+     * @param event The {@link PlayerJoinEvent}.
+     */
+    public synchronized void onJoin(@NotNull final PlayerJoinEvent event) {
+        if (event.getJoinType() == PlayerJoinEvent.JoinType.NORMAL) {
+            return;
+        }
+        this.sequence++;
+        
+        final UUID uniqueId = event.getUniqueId();
+        final String key = NearCache.key(event.getName());
+        final UUID previous = this.names.get(key);
+        if (previous != null && !previous.equals(uniqueId)) {
+            // The name has moved to another player.
+            this.invalidate(previous);
+            this.changedUniqueIds.put(previous, this.sequence);
+        }
+        this.changedUniqueIds.put(uniqueId, this.sequence);
+        this.changedNames.put(key, this.sequence);
+        if (event.getOldName() != null) {
+            this.names.remove(NearCache.key(event.getOldName()), uniqueId);
+            this.changedNames.put(NearCache.key(event.getOldName()), this.sequence);
+        }
+        if (this.changedUniqueIds.size() + this.changedNames.size() > NearCache.MAXIMUM_CHANGES) {
+            // Too many changes to track one by one; ignore every lookup in
+            // flight instead.
+            this.floor = this.sequence;
+            this.changedUniqueIds.clear();
+            this.changedNames.clear();
+        }
+        if (this.entries.peek(uniqueId) != null) {
+            this.store(new PackedPlayerDataEntry(event.getName(), uniqueId));
+        }
+    }
+    
+    /**
+     * Removes the cached {@link PlayerDataEntry} for the given {@link UUID},
+     * if there is one.
+     * 
+     * @param uniqueId The {@link UUID}.
+     */
+    public synchronized void invalidate(@NotNull final UUID uniqueId) {
+        final PlayerDataEntry entry = this.entries.remove(uniqueId);
+        if (entry != null) {
+            this.names.remove(NearCache.key(entry.getName()), uniqueId);
+        }
+    }
+    
+    /**
+     * Removes every cached {@link PlayerDataEntry}. Any remote lookups that
+     * are in flight are not cached when they complete.
+     */
+    public synchronized void clear() {
+        this.floor = ++this.sequence;
+        this.changedUniqueIds.clear();
+        this.changedNames.clear();
+        this.entries.clear();
+        this.names.clear();
+    }
+    
+    /**
+     * Gets the number of cached {@link PlayerDataEntry PlayerDataEntries}.
+     * 
+     * @return The number of cached entries.
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+    
+    /**
+     * Caches the given {@link PlayerDataEntry}, replacing any cached entry
+     * for the same player.
+     * 
+     * @param entry The {@link PlayerDataEntry}.
+     */
+    private void store(@NotNull final PlayerDataEntry entry) {
+        final UUID uniqueId = entry.getUniqueId();
+        final PlayerDataEntry replaced = this.entries.peek(uniqueId);
+        if (replaced != null) {
+            this.names.remove(NearCache.key(replaced.getName()), uniqueId);
+        }
+        this.entries.put(uniqueId, entry);
+        if (this.entries.peek(uniqueId) != null) {
+            this.names.put(NearCache.key(entry.getName()), uniqueId);
+        }
+    }
+    
+    /**
+     * Checks if the given player was changed by a join after a remote lookup
+     * began.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param started The sequence number when the lookup began.
+     * @return <code>true</code> if the player was changed,
+     *         <code>false</code> otherwise.
+     */
+    private boolean isChanged(@NotNull final UUID uniqueId, final long started) {
+        final Long changed = this.changedUniqueIds.get(uniqueId);
+        return started < this.floor || (changed != null && changed > started);
+    }
+    
+    /**
+     * Checks if the given name was changed by a join after a remote lookup
+     * began.
+     * 
+     * @param key The key of the name in the name map.
+     * @param started The sequence number when the lookup began.
+     * @return <code>true</code> if the name was changed, <code>false</code>
+     *         otherwise.
+     */
+    private boolean isChanged(@NotNull final String key, final long started) {
+        final Long changed = this.changedNames.get(key);
+        return started < this.floor || (changed != null && changed > started);
+    }
+    
+    /**
+     * Checks if the player or the name of the given
+     * {@link PlayerDataEntry} was changed by a join after a remote lookup
+     * began.
+     * 
+     * @param entry The {@link PlayerDataEntry} found by the lookup.
+     * @param started The sequence number when the lookup began.
+     * @return <code>true</code> if the entry may be out of date,
+     *         <code>false</code> otherwise.
+     */
+    private boolean isChanged(@NotNull final PlayerDataEntry entry, final long started) {
+        return this.isChanged(entry.getUniqueId(), started) || this.isChanged(NearCache.key(entry.getName()), started);
+    }
+    
+    /**
+     * Forgets the changes made while lookups were in flight, once none are.
+     */
+    private void onLookupComplete() {
+        if (this.pendingUniqueIds.isEmpty() && this.pendingNames.isEmpty()) {
+            this.changedUniqueIds.clear();
+            this.changedNames.clear();
+        }
+    }
+    
+    /**
+     * Completes a pending lookup with the result of a remote lookup.
+     * 
+     * @param pending The pending lookup.
+     * @param entry The {@link PlayerDataEntry}, if the remote lookup
+     *              succeeded.
+     * @param failure The failure, if the remote lookup failed.
+     */
+    private static void complete(@NotNull final CompletableFuture<PlayerDataEntry> pending, @Nullable final PlayerDataEntry entry, @Nullable final Throwable failure) {
+        if (failure != null) {
+            pending.completeExceptionally(failure);
+        } else {
+            pending.complete(entry);
+        }
+    }
+    
+    /**
+     * Gets the key for the given name in the name map.
+     * 
+     * @param name The name.
+     * @return The key.
+     */
+    @NotNull
+    private static String key(@NotNull final String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.cache;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.bspfsystems.playerdata.api.PlayerDataEntry;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Looks up {@link PlayerDataEntry PlayerDataEntries} from the authoritative
+ * store on the proxy, for a {@link NearCache} on a backend server.
+ * <p>
+ * Platform implementations provide this over their own transport, such as
+ * plugin messaging channels. Lookups may be called from any thread, and the
+ * returned {@link CompletableFuture CompletableFutures} may be completed on
+ * any thread.
+ */
+public interface RemoteLookup {
+    
+    /**
+     * Looks up the {@link PlayerDataEntry} for the given {@link UUID}.
+     * 
+     * @param uniqueId The {@link UUID} to look up.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link PlayerDataEntry}, or with <code>null</code> if the proxy
+     *         does not know the {@link UUID}.
+     */
+    @NotNull
+    CompletableFuture<PlayerDataEntry> lookup(@NotNull UUID uniqueId);
+    
+    /**
+     * Looks up the {@link PlayerDataEntry} for the given name, ignoring case.
+     * 
+     * @param name The name to look up.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link PlayerDataEntry}, or with <code>null</code> if the proxy
+     *         does not know the name.
+     */
+    @NotNull
+    CompletableFuture<PlayerDataEntry> lookup(@NotNull String name);
+}
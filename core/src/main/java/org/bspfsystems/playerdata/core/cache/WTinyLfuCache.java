@@ -0,0 +1,304 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A bounded cache using the W-TinyLFU eviction policy.
+ * <p>
+ * New entries enter a small LRU window (1% of the capacity), which absorbs
+ * bursts of one-off keys. Entries leaving the window compete for a place in
+ * the main area, a segmented LRU split into probation and protected
+ * segments: the candidate is only admitted if it has been used more often
+ * recently, according to a {@link FrequencySketch}, than the entry that
+ * would be evicted for it. Entries that are hit while on probation are
+ * promoted to the protected segment.
+ * <p>
+ * This keeps frequently looked up players cached even under a scan of
+ * many players that are looked up only once.
+ * <p>
+ * This class is not thread-safe; callers must provide their own
+ * synchronization.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public final class WTinyLfuCache<K, V> {
+    
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    
+    private final int maximumSize;
+    private final int maximumWindowSize;
+    private final int maximumProtectedSize;
+    private final Map<K, Node<K, V>> nodes;
+    private final FrequencySketch sketch;
+    private final Node<K, V> window;
+    private final Node<K, V> probation;
+    private final Node<K, V> protectedSegment;
+    private final BiConsumer<? super K, ? super V> evictionListener;
+    private int windowSize;
+    private int protectedSize;
+    
+    /**
+     * Creates a new, empty {@link WTinyLfuCache}.
+     * 
+     * @param maximumSize The maximum number of entries.
+     * @param evictionListener Called with each entry that is evicted to make
+     *                         room for others. It is not called for entries
+     *                         that are removed or replaced explicitly.
+     * @throws IllegalArgumentException If <code>maximumSize</code> is not
+     *                                  positive.
+     */
+    public WTinyLfuCache(final int maximumSize, @NotNull final BiConsumer<? super K, ? super V> evictionListener) throws IllegalArgumentException {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.maximumWindowSize = Math.max(1, maximumSize / 100);
+        this.maximumProtectedSize = (maximumSize - this.maximumWindowSize) * 4 / 5;
+        this.nodes = new HashMap<K, Node<K, V>>();
+        this.sketch = new FrequencySketch(maximumSize);
+        this.window = Node.sentinel();
+        this.probation = Node.sentinel();
+        this.protectedSegment = Node.sentinel();
+        this.evictionListener = evictionListener;
+    }
+    
+    /**
+     * Gets the value cached for the given key, recording the access.
+     * 
+     * @param key The key.
+     * @return The value, or <code>null</code> if the key is not cached.
+     */
+    @Nullable
+    public V get(@NotNull final K key) {
+        this.sketch.increment(key.hashCode());
+        final Node<K, V> node = this.nodes.get(key);
+        if (node == null) {
+            return null;
+        }
+        this.onHit(node);
+        return node.value;
+    }
+    
+    /**
+     * Gets the value cached for the given key, without recording the access.
+     * 
+     * @param key The key.
+     * @return The value, or <code>null</code> if the key is not cached.
+     */
+    @Nullable
+    public V peek(@NotNull final K key) {
+        final Node<K, V> node = this.nodes.get(key);
+        return node == null ? null : node.value;
+    }
+    
+    /**
+     * Caches the given value for the given key, replacing any existing value.
+     * This may evict another entry.
+     * 
+     * @param key The key.
+     * @param value The value.
+     */
+    public void put(@NotNull final K key, @NotNull final V value) {
+        this.sketch.increment(key.hashCode());
+        final Node<K, V> existing = this.nodes.get(key);
+        if (existing != null) {
+            existing.value = value;
+            this.onHit(existing);
+            return;
+        }
+        
+        final Node<K, V> node = new Node<K, V>(key, value);
+        this.nodes.put(key, node);
+        node.segment = WTinyLfuCache.WINDOW;
+        node.linkBefore(this.window);
+        this.windowSize++;
+        if (this.windowSize > this.maximumWindowSize) {
+            this.evict();
+        }
+    }
+    
+    /**
+     * Removes the given key.
+     * 
+     * @param key The key.
+     * @return The value that was cached, or <code>null</code> if the key was
+     *         not cached.
+     */
+    @Nullable
+    public V remove(@NotNull final K key) {
+        final Node<K, V> node = this.nodes.remove(key);
+        if (node == null) {
+            return null;
+        }
+        this.unlink(node);
+        return node.value;
+    }
+    
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        this.nodes.clear();
+        this.window.clear();
+        this.probation.clear();
+        this.protectedSegment.clear();
+        this.windowSize = 0;
+        this.protectedSize = 0;
+    }
+    
+    /**
+     * Gets the number of cached entries.
+     * 
+     * @return The number of entries.
+     */
+    public int size() {
+        return this.nodes.size();
+    }
+    
+    /**
+     * Gets the maximum number of cached entries.
+     * 
+     * @return The maximum number of entries.
+     */
+    public int getMaximumSize() {
+        return this.maximumSize;
+    }
+    
+    /**
+     * Moves an entry that was hit, as described in the class documentation.
+     * 
+     * @param node The entry.
+     */
+    private void onHit(@NotNull final Node<K, V> node) {
+        node.unlink();
+        if (node.segment == WTinyLfuCache.WINDOW) {
+            node.linkBefore(this.window);
+        } else if (node.segment == WTinyLfuCache.PROTECTED) {
+            node.linkBefore(this.protectedSegment);
+        } else {
+            node.segment = WTinyLfuCache.PROTECTED;
+            node.linkBefore(this.protectedSegment);
+            this.protectedSize++;
+            if (this.protectedSize > this.maximumProtectedSize) {
+                final Node<K, V> demoted = this.protectedSegment.next;
+                demoted.unlink();
+                demoted.segment = WTinyLfuCache.PROBATION;
+                demoted.linkBefore(this.probation);
+                this.protectedSize--;
+            }
+        }
+    }
+    
+    /**
+     * Moves the oldest window entry to the main area, and if the cache is
+     * over capacity, evicts either it or the main area's victim, whichever
+     * has been used less often recently.
+     */
+    private void evict() {
+        final Node<K, V> candidate = this.window.next;
+        candidate.unlink();
+        this.windowSize--;
+        candidate.segment = WTinyLfuCache.PROBATION;
+        candidate.linkBefore(this.probation);
+        if (this.nodes.size() <= this.maximumSize) {
+            return;
+        }
+        
+        Node<K, V> victim = this.probation.next;
+        if (victim == candidate) {
+            // The candidate is the only entry on probation.
+            victim = this.protectedSegment.next != this.protectedSegment ? this.protectedSegment.next : candidate;
+        }
+        final Node<K, V> evicted = victim != candidate && this.sketch.frequency(candidate.key.hashCode()) > this.sketch.frequency(victim.key.hashCode()) ? victim : candidate;
+        this.nodes.remove(evicted.key);
+        this.unlink(evicted);
+        this.evictionListener.accept(evicted.key, evicted.value);
+    }
+    
+    /**
+     * Unlinks an entry from its segment, keeping the segment sizes up to
+     * date.
+     * 
+     * @param node The entry.
+     */
+    private void unlink(@NotNull final Node<K, V> node) {
+        node.unlink();
+        if (node.segment == WTinyLfuCache.WINDOW) {
+            this.windowSize--;
+        } else if (node.segment == WTinyLfuCache.PROTECTED) {
+            this.protectedSize--;
+        }
+    }
+    
+    /**
+     * An entry, linked into the list of its segment. Each list is circular,
+     * with a sentinel node whose <code>next</code> is the least recently used
+     * entry.
+     * 
+     * @param <K> The type of the key.
+     * @param <V> The type of the value.
+     */
+    private static final class Node<K, V> {
+        
+        private final K key;
+        private V value;
+        private int segment;
+        private Node<K, V> previous;
+        private Node<K, V> next;
+        
+        private Node(@Nullable final K key, @Nullable final V value) {
+            this.key = key;
+            this.value = value;
+        }
+        
+        @NotNull
+        private static <K, V> Node<K, V> sentinel() {
+            final Node<K, V> sentinel = new Node<K, V>(null, null);
+            sentinel.clear();
+            return sentinel;
+        }
+        
+        private void clear() {
+            this.previous = this;
+            this.next = this;
+        }
+        
+        private void linkBefore(@NotNull final Node<K, V> sentinel) {
+            this.previous = sentinel.previous;
+            this.next = sentinel;
+            sentinel.previous.next = this;
+            sentinel.previous = this;
+        }
+        
+        private void unlink() {
+            this.previous.next = this.next;
+            this.next.previous = this.previous;
+        }
+    }
+}
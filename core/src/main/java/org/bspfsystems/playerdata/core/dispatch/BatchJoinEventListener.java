@@ -0,0 +1,47 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.dispatch;
+
+import java.util.List;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the {@link PlayerJoinEvent PlayerJoinEvents} from a
+ * {@link JoinEventDispatcher} in batches.
+ * <p>
+ * Listeners that do their own I/O, such as writing to a database, can handle
+ * a whole batch at once rather than paying for a round trip per event.
+ */
+@FunctionalInterface
+public interface BatchJoinEventListener {
+    
+    /**
+     * Called on the dispatch thread for each batch of
+     * {@link PlayerJoinEvent PlayerJoinEvents}, in the order the events were
+     * dispatched.
+     * <p>
+     * The {@link List} is unmodifiable, and is reused once this method
+     * returns, so it must be copied if it is kept.
+     * 
+     * @param events The {@link PlayerJoinEvent PlayerJoinEvents}, never
+     *               empty.
+     */
+    void onJoins(@NotNull List<PlayerJoinEvent> events);
+}
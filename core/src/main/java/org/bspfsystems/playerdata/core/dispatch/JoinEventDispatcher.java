@@ -0,0 +1,317 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.dispatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Delivers {@link PlayerJoinEvent PlayerJoinEvents} to listeners on a
+ * background thread, so that the login path only has to queue the event
+ * returned by {@link PlayerDataStore#update(java.util.UUID, String)}.
+ * <p>
+ * Events are queued in a bounded ring buffer that any number of threads may
+ * add to. A single dispatch thread takes them off in batches, and delivers
+ * each batch first to every {@link BatchJoinEventListener}, and then event
+ * by event to every {@link JoinEventListener}. Events are delivered in the
+ * order they were queued. An exception thrown by a listener is logged, and
+ * does not stop the other listeners from being called.
+ * <p>
+ * When the queue is full, {@link JoinEventDispatcher#tryDispatch(PlayerJoinEvent)}
+ * fails straight away, and
+ * {@link JoinEventDispatcher#dispatch(PlayerJoinEvent, long, TimeUnit)}
+ * waits for room, so that a burst of joins that the listeners cannot keep
+ * up with slows the logins down rather than using unbounded memory.
+ */
+public final class JoinEventDispatcher {
+    
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+    private static final long MINIMUM_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(1L);
+    private static final long MAXIMUM_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+    
+    private final Logger logger;
+    private final MpscRingBuffer<PlayerJoinEvent> queue;
+    private final int maximumBatch;
+    private final List<JoinEventListener> listeners;
+    private final List<BatchJoinEventListener> batchListeners;
+    private final AtomicInteger producers;
+    
+    private volatile Thread thread;
+    private volatile boolean running;
+    private volatile boolean idle;
+    
+    /**
+     * Creates a new {@link JoinEventDispatcher}. No events are delivered until
+     * {@link JoinEventDispatcher#open()} is called.
+     * 
+     * @param logger The {@link Logger} to report listener failures to.
+     * @param capacity The maximum number of queued events. It is rounded up
+     *                 to a power of two.
+     * @param maximumBatch The maximum number of events delivered in a single
+     *                     batch.
+     * @throws IllegalArgumentException If the capacity or maximum batch size
+     *                                  is less than <code>1</code>.
+     */
+    public JoinEventDispatcher(@NotNull final Logger logger, final int capacity, final int maximumBatch) throws IllegalArgumentException {
+        if (maximumBatch < 1) {
+            throw new IllegalArgumentException("Invalid maximum batch size: " + maximumBatch);
+        }
+        this.logger = logger;
+        this.queue = new MpscRingBuffer<PlayerJoinEvent>(capacity);
+        this.maximumBatch = maximumBatch;
+        this.listeners = new CopyOnWriteArrayList<JoinEventListener>();
+        this.batchListeners = new CopyOnWriteArrayList<BatchJoinEventListener>();
+        this.producers = new AtomicInteger();
+    }
+    
+    /**
+     * Starts the dispatch thread.
+     * 
+     * @throws IllegalStateException If this {@link JoinEventDispatcher} is
+     *                               already open.
+     */
+    public synchronized void open() throws IllegalStateException {
+        if (this.thread != null) {
+            throw new IllegalStateException("JoinEventDispatcher is already open.");
+        }
+        this.running = true;
+        final Thread thread = new Thread(this::run, "PlayerData Join Dispatch Thread");
+        thread.setDaemon(true);
+        this.thread = thread;
+        thread.start();
+    }
+    
+    /**
+     * Stops accepting events, delivers every event that is already queued,
+     * and stops the dispatch thread. Events dispatched at the same time as
+     * this is called may be rejected, or delivered before it returns.
+     */
+    public synchronized void close() {
+        final Thread thread = this.thread;
+        if (thread == null) {
+            return;
+        }
+        this.running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.thread = null;
+        }
+    }
+    
+    /**
+     * Adds a {@link JoinEventListener} to be called for every event.
+     * 
+     * @param listener The {@link JoinEventListener}.
+     */
+    public void addListener(@NotNull final JoinEventListener listener) {
+        this.listeners.add(listener);
+    }
+    
+    /**
+     * Removes a previously added {@link JoinEventListener}.
+     * 
+     * @param listener The {@link JoinEventListener}.
+     */
+    public void removeListener(@NotNull final JoinEventListener listener) {
+        this.listeners.remove(listener);
+    }
+    
+    /**
+     * Adds a {@link BatchJoinEventListener} to be called for every batch of
+     * events.
+     * 
+     * @param listener The {@link BatchJoinEventListener}.
+     */
+    public void addBatchListener(@NotNull final BatchJoinEventListener listener) {
+        this.batchListeners.add(listener);
+    }
+    
+    /**
+     * Removes a previously added {@link BatchJoinEventListener}.
+     * 
+     * @param listener The {@link BatchJoinEventListener}.
+     */
+    public void removeBatchListener(@NotNull final BatchJoinEventListener listener) {
+        this.batchListeners.remove(listener);
+    }
+    
+    /**
+     * Queues the given {@link PlayerJoinEvent} if there is room for it,
+     * without waiting.
+     * 
+     * @param event The {@link PlayerJoinEvent} to deliver.
+     * @return <code>true</code> if the event was queued, <code>false</code>
+     *         if the queue is full.
+     * @throws IllegalStateException If this {@link JoinEventDispatcher} is
+     *                               not open.
+     */
+    public boolean tryDispatch(@NotNull final PlayerJoinEvent event) throws IllegalStateException {
+        // The dispatch thread does not stop while a producer that has seen it
+        // running is still adding its event, so a queued event is always
+        // delivered.
+        this.producers.incrementAndGet();
+        try {
+            if (!this.running) {
+                throw new IllegalStateException("JoinEventDispatcher is not open.");
+            }
+            if (!this.queue.offer(event)) {
+                return false;
+            }
+        } finally {
+            this.producers.decrementAndGet();
+        }
+        this.wake();
+        return true;
+    }
+    
+    /**
+     * Queues the given {@link PlayerJoinEvent}, waiting up to the given time
+     * for room if the queue is full.
+     * 
+     * @param event The {@link PlayerJoinEvent} to deliver.
+     * @param timeout The maximum time to wait.
+     * @param unit The {@link TimeUnit} of the timeout.
+     * @return <code>true</code> if the event was queued, <code>false</code>
+     *         if the queue was still full when the time ran out.
+     * @throws IllegalStateException If this {@link JoinEventDispatcher} is
+     *                               not open, or is closed while waiting.
+     * @throws InterruptedException If the current thread is interrupted while
+     *                              waiting.
+     */
+    public boolean dispatch(@NotNull final PlayerJoinEvent event, final long timeout, @NotNull final TimeUnit unit) throws IllegalStateException, InterruptedException {
+        if (this.tryDispatch(event)) {
+            return true;
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long backoff = JoinEventDispatcher.MINIMUM_BACKOFF_NANOS;
+        while (true) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                return false;
+            }
+            LockSupport.parkNanos(this, Math.min(backoff, remaining));
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (this.tryDispatch(event)) {
+                return true;
+            }
+            backoff = Math.min(backoff << 1, JoinEventDispatcher.MAXIMUM_BACKOFF_NANOS);
+        }
+    }
+    
+    /**
+     * Gets the approximate number of events that are queued and not yet
+     * delivered.
+     * 
+     * @return The number of queued events.
+     */
+    public int getQueuedCount() {
+        return this.queue.size();
+    }
+    
+    /**
+     * Gets the maximum number of events that can be queued.
+     * 
+     * @return The capacity of the queue.
+     */
+    public int getCapacity() {
+        return this.queue.getCapacity();
+    }
+    
+    /**
+     * Wakes the dispatch thread if it is waiting for events.
+     */
+    private void wake() {
+        if (this.idle) {
+            final Thread thread = this.thread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+    
+    /**
+     * The main loop of the dispatch thread.
+     */
+    private void run() {
+        final List<PlayerJoinEvent> batch = new ArrayList<PlayerJoinEvent>(this.maximumBatch);
+        final List<PlayerJoinEvent> view = Collections.unmodifiableList(batch);
+        while (true) {
+            if (this.queue.drain(batch, this.maximumBatch) > 0) {
+                this.deliver(view);
+                batch.clear();
+                continue;
+            }
+            if (!this.running) {
+                // Wait for producers that were part way through adding an
+                // event when the dispatcher was closed.
+                if (this.producers.get() == 0 && this.queue.size() == 0) {
+                    break;
+                }
+                Thread.yield();
+                continue;
+            }
+            
+            this.idle = true;
+            if (!this.queue.isReady() && this.running) {
+                LockSupport.parkNanos(this, JoinEventDispatcher.IDLE_PARK_NANOS);
+            }
+            this.idle = false;
+        }
+    }
+    
+    /**
+     * Delivers a batch of events to every listener.
+     * 
+     * @param batch The batch of events.
+     */
+    private void deliver(@NotNull final List<PlayerJoinEvent> batch) {
+        for (final BatchJoinEventListener listener : this.batchListeners) {
+            try {
+                listener.onJoins(batch);
+            } catch (RuntimeException e) {
+                this.logger.log(Level.SEVERE, "Unable to deliver a batch of PlayerJoinEvents.", e);
+            }
+        }
+        for (final JoinEventListener listener : this.listeners) {
+            for (final PlayerJoinEvent event : batch) {
+                try {
+                    listener.onJoin(event);
+                } catch (RuntimeException e) {
+                    this.logger.log(Level.SEVERE, "Unable to deliver a PlayerJoinEvent for " + event.getName() + ".", e);
+                }
+            }
+        }
+    }
+}
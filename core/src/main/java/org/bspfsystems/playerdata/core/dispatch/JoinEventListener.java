@@ -0,0 +1,42 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.dispatch;
+
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives each {@link PlayerJoinEvent} from a {@link JoinEventDispatcher},
+ * one at a time.
+ * <p>
+ * Platform implementations can use one of these to call the events through
+ * their own event manager, for example with
+ * <code>dispatcher.addListener(eventManager::callEvent)</code>.
+ */
+@FunctionalInterface
+public interface JoinEventListener {
+    
+    /**
+     * Called on the dispatch thread for each {@link PlayerJoinEvent}, in the
+     * order the events were dispatched.
+     * 
+     * @param event The {@link PlayerJoinEvent}.
+     */
+    void onJoin(@NotNull PlayerJoinEvent event);
+}
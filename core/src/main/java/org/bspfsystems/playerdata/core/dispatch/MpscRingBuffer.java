@@ -0,0 +1,164 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.dispatch;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A bounded, lock-free ring buffer for many producers and a single consumer.
+ * <p>
+ * Each slot has a sequence number that says whose turn it is: a producer may
+ * fill slot <code>i</code> at position <code>p</code> when its sequence is
+ * <code>p</code>, and marks it <code>p + 1</code> once the element is
+ * written; the consumer may take it when its sequence is <code>p + 1</code>,
+ * and marks it <code>p + capacity</code> for the next lap. Producers only
+ * contend on the tail position, and never wait for each other to finish
+ * writing.
+ * <p>
+ * {@link MpscRingBuffer#offer(Object)} may be called from any thread, but
+ * {@link MpscRingBuffer#drain(Collection, int)} must only ever be called from
+ * one thread at a time.
+ *
+ * @param <E> The type of the elements.
+ */
+final class MpscRingBuffer<E> {
+    
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong tail;
+    private volatile long head;
+    
+    /**
+     * Creates a new, empty {@link MpscRingBuffer}.
+     * 
+     * @param capacity The minimum number of elements the
+     *                 {@link MpscRingBuffer} can hold. It is rounded up to a
+     *                 power of two.
+     * @throws IllegalArgumentException If the capacity is less than
+     *                                  <code>1</code>, or too large.
+     */
+    MpscRingBuffer(final int capacity) throws IllegalArgumentException {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.elements = new AtomicReferenceArray<E>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int index = 0; index < this.capacity; index++) {
+            this.sequences.set(index, index);
+        }
+        this.tail = new AtomicLong();
+        this.head = 0L;
+    }
+    
+    /**
+     * Adds the given element, if there is room for it.
+     * 
+     * @param element The element to add.
+     * @return <code>true</code> if the element was added, <code>false</code>
+     *         if the {@link MpscRingBuffer} is full.
+     */
+    boolean offer(@NotNull final E element) {
+        long position = this.tail.get();
+        int index;
+        while (true) {
+            index = (int) position & this.mask;
+            final long difference = this.sequences.get(index) - position;
+            if (difference == 0L) {
+                if (this.tail.compareAndSet(position, position + 1L)) {
+                    break;
+                }
+                position = this.tail.get();
+            } else if (difference < 0L) {
+                return false;
+            } else {
+                position = this.tail.get();
+            }
+        }
+        this.elements.lazySet(index, element);
+        this.sequences.set(index, position + 1L);
+        return true;
+    }
+    
+    /**
+     * Moves up to the given number of elements, in the order they were
+     * added, into the given {@link Collection}. Only elements that have been
+     * completely written are moved, so this may stop before an element that
+     * a producer is still adding.
+     * 
+     * @param target The {@link Collection} to add the elements to.
+     * @param maximum The maximum number of elements to move.
+     * @return The number of elements moved.
+     */
+    int drain(@NotNull final Collection<? super E> target, final int maximum) {
+        long position = this.head;
+        int count = 0;
+        while (count < maximum) {
+            final int index = (int) position & this.mask;
+            if (this.sequences.get(index) != position + 1L) {
+                break;
+            }
+            target.add(this.elements.get(index));
+            this.elements.lazySet(index, null);
+            this.sequences.lazySet(index, position + this.capacity);
+            position++;
+            count++;
+        }
+        this.head = position;
+        return count;
+    }
+    
+    /**
+     * Checks if there is an element that is ready to be drained. This must
+     * only be called from the consuming thread.
+     * 
+     * @return <code>true</code> if an element is ready, <code>false</code>
+     *         otherwise.
+     */
+    boolean isReady() {
+        final long position = this.head;
+        return this.sequences.get((int) position & this.mask) == position + 1L;
+    }
+    
+    /**
+     * Gets the approximate number of elements in this
+     * {@link MpscRingBuffer}, including any that are still being added.
+     * 
+     * @return The number of elements.
+     */
+    int size() {
+        return (int) Math.max(0L, Math.min(this.capacity, this.tail.get() - this.head));
+    }
+    
+    /**
+     * Gets the number of elements this {@link MpscRingBuffer} can hold.
+     * 
+     * @return The capacity.
+     */
+    int getCapacity() {
+        return this.capacity;
+    }
+}
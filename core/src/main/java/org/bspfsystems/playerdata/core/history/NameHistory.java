@@ -0,0 +1,317 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.history;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bspfsystems.playerdata.core.store.ChangeListener;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Every name that each player is known to have had, with the period each
+ * was valid for.
+ * <p>
+ * The history of a player is kept as a compact interval list: an array of
+ * start times and an array of names, where each name is valid from its start
+ * time until the start time of the next one, and the last name is the
+ * current one. A second map from each name, ignoring case, to every player
+ * that has had it answers point-in-time lookups without a scan.
+ * <p>
+ * The {@link PlayerDataStore} keeps its {@link NameHistory} up to date as a
+ * {@link ChangeListener}: a new player starts a history, and a name change
+ * ends the old name and starts the new one. Players that were already known
+ * before their first recorded name change get their old name with an
+ * {@link NameHistory#UNKNOWN} start.
+ * <p>
+ * Lookups never block. Each history is replaced rather than modified, and
+ * changes are serialized.
+ */
+public final class NameHistory implements ChangeListener {
+    
+    /**
+     * The start time of a name that the player already had when the history
+     * began.
+     */
+    public static final long UNKNOWN = Long.MIN_VALUE;
+    
+    /**
+     * The end time of the current name of a player.
+     */
+    public static final long CURRENT = Long.MAX_VALUE;
+    
+    private final Map<UUID, Intervals> histories;
+    private final Map<String, UUID[]> owners;
+    
+    /**
+     * Creates a new, empty {@link NameHistory}.
+     */
+    public NameHistory() {
+        this.histories = new ConcurrentHashMap<UUID, Intervals>();
+        this.owners = new ConcurrentHashMap<String, UUID[]>();
+    }
+    
+    /**
+     * Gets the {@link UUID} of the player that had the given name, ignoring
+     * case, at the given time.
+     * <p>
+     * A name that is taken over by another player is not ended for its
+     * previous owner, who may not have been seen since. If more than one
+     * player had the name at the given time, the one that got it most
+     * recently is the owner.
+     * 
+     * @param name The name of the player.
+     * @param time The time, in milliseconds since the epoch.
+     * @return The {@link UUID} of the player, or <code>null</code> if no
+     *         player is known to have had the name at that time.
+     */
+    @Nullable
+    public UUID getUniqueIdAt(@NotNull final String name, final long time) {
+        final UUID[] candidates = this.owners.get(name.toLowerCase(Locale.ROOT));
+        if (candidates == null) {
+            return null;
+        }
+        UUID owner = null;
+        long latest = NameHistory.UNKNOWN;
+        for (final UUID candidate : candidates) {
+            final Intervals intervals = this.histories.get(candidate);
+            final int index = intervals.indexAt(time);
+            if (index >= 0 && intervals.names[index].equalsIgnoreCase(name) && (owner == null || intervals.starts[index] >= latest)) {
+                owner = candidate;
+                latest = intervals.starts[index];
+            }
+        }
+        return owner;
+    }
+    
+    /**
+     * Gets every name the given player is known to have had, oldest first.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @return The {@link NameInterval NameIntervals}, which is empty if the
+     *         player has no recorded history.
+     */
+    @NotNull
+    public List<NameInterval> getHistory(@NotNull final UUID uniqueId) {
+        final Intervals intervals = this.histories.get(uniqueId);
+        if (intervals == null) {
+            return Collections.emptyList();
+        }
+        final List<NameInterval> history = new ArrayList<NameInterval>(intervals.starts.length);
+        for (int index = 0; index < intervals.starts.length; index++) {
+            final long until = index + 1 < intervals.starts.length ? intervals.starts[index + 1] : NameHistory.CURRENT;
+            history.add(new NameInterval(uniqueId, intervals.names[index], intervals.starts[index], until));
+        }
+        return history;
+    }
+    
+    /**
+     * Checks if the given player has a recorded history.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @return <code>true</code> if the player has a recorded history,
+     *         <code>false</code> otherwise.
+     */
+    public boolean contains(@NotNull final UUID uniqueId) {
+        return this.histories.containsKey(uniqueId);
+    }
+    
+    /**
+     * Gets the number of players with a recorded history.
+     * 
+     * @return The number of players.
+     */
+    public int size() {
+        return this.histories.size();
+    }
+    
+    /**
+     * Records that the given player has had the given name since the given
+     * time. Recording the same name again for a time at which it was already
+     * valid changes nothing, so saved changes can be replayed safely.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The name of the player.
+     * @param time The time from which the player had the name, in
+     *             milliseconds since the epoch.
+     */
+    public synchronized void record(@NotNull final UUID uniqueId, @NotNull final String name, final long time) {
+        final Intervals intervals = this.histories.get(uniqueId);
+        if (intervals == null) {
+            this.histories.put(uniqueId, new Intervals(new long[] { time }, new String[] { name }));
+            this.addOwner(name, uniqueId);
+            return;
+        }
+        
+        final int index = intervals.indexAt(time) + 1;
+        if (index > 0 && intervals.names[index - 1].equals(name)) {
+            return;
+        }
+        if (index < intervals.starts.length && intervals.names[index].equals(name)) {
+            final long[] starts = intervals.starts.clone();
+            starts[index] = time;
+            this.histories.put(uniqueId, new Intervals(starts, intervals.names));
+            return;
+        }
+        this.histories.put(uniqueId, intervals.insert(index, time, name));
+        this.addOwner(name, uniqueId);
+    }
+    
+    /**
+     * Records that the given player had the given name until the given time,
+     * if nothing is known about the player before then. The start of the name
+     * is {@link NameHistory#UNKNOWN}.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param oldName The previous name of the player.
+     * @param until The time from which the player no longer had the name, in
+     *              milliseconds since the epoch.
+     */
+    public synchronized void recordPrevious(@NotNull final UUID uniqueId, @NotNull final String oldName, final long until) {
+        final Intervals intervals = this.histories.get(uniqueId);
+        if (intervals == null) {
+            this.histories.put(uniqueId, new Intervals(new long[] { NameHistory.UNKNOWN }, new String[] { oldName }));
+        } else if (intervals.starts[0] >= until && intervals.starts[0] != NameHistory.UNKNOWN && !intervals.names[0].equals(oldName)) {
+            this.histories.put(uniqueId, intervals.insert(0, NameHistory.UNKNOWN, oldName));
+        } else {
+            return;
+        }
+        this.addOwner(oldName, uniqueId);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNewPlayer(@NotNull final UUID uniqueId, @NotNull final String name, final long time) {
+        this.record(uniqueId, name, time);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNameChange(@NotNull final UUID uniqueId, @NotNull final String oldName, @NotNull final String name, final long time) {
+        this.recordPrevious(uniqueId, oldName, time);
+        this.record(uniqueId, name, time);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onLastSeen(@NotNull final UUID uniqueId, final long time) {
+        // The name has not changed.
+    }
+    
+    /**
+     * Adds the given player to the owners of the given name, if they are not
+     * already one.
+     * 
+     * @param name The name.
+     * @param uniqueId The {@link UUID} of the player.
+     */
+    private void addOwner(@NotNull final String name, @NotNull final UUID uniqueId) {
+        final String key = name.toLowerCase(Locale.ROOT);
+        final UUID[] existing = this.owners.get(key);
+        if (existing == null) {
+            this.owners.put(key, new UUID[] { uniqueId });
+            return;
+        }
+        for (final UUID owner : existing) {
+            if (owner.equals(uniqueId)) {
+                return;
+            }
+        }
+        final UUID[] grown = Arrays.copyOf(existing, existing.length + 1);
+        grown[existing.length] = uniqueId;
+        this.owners.put(key, grown);
+    }
+    
+    /**
+     * The immutable interval list of a single player.
+     */
+    private static final class Intervals {
+        
+        private final long[] starts;
+        private final String[] names;
+        
+        /**
+         * Creates a new {@link Intervals}.
+         * 
+         * @param starts The start times, in ascending order.
+         * @param names The names.
+         */
+        private Intervals(@NotNull final long[] starts, @NotNull final String[] names) {
+            this.starts = starts;
+            this.names = names;
+        }
+        
+        /**
+         * Finds the interval that contains the given time.
+         * 
+         * @param time The time, in milliseconds since the epoch.
+         * @return The index of the interval, or <code>-1</code> if the time is
+         *         before the first one.
+         */
+        private int indexAt(final long time) {
+            int low = 0;
+            int high = this.starts.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (this.starts[middle] <= time) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low - 1;
+        }
+        
+        /**
+         * Creates a copy of this {@link Intervals} with a new interval
+         * inserted.
+         * 
+         * @param index The index to insert the interval at.
+         * @param start The start time of the interval.
+         * @param name The name.
+         * @return The new {@link Intervals}.
+         */
+        @NotNull
+        private Intervals insert(final int index, final long start, @NotNull final String name) {
+            final int length = this.starts.length;
+            final long[] starts = new long[length + 1];
+            final String[] names = new String[length + 1];
+            System.arraycopy(this.starts, 0, starts, 0, index);
+            System.arraycopy(this.names, 0, names, 0, index);
+            starts[index] = start;
+            names[index] = name;
+            System.arraycopy(this.starts, index, starts, index + 1, length - index);
+            System.arraycopy(this.names, index, names, index + 1, length - index);
+            return new Intervals(starts, names);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.history;
+
+import java.time.Instant;
+import java.util.UUID;
+import org.bspfsystems.playerdata.api.NameHistoryEntry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable {@link NameHistoryEntry} that is handed out by the core
+ * implementation.
+ * <p>
+ * The times are kept in milliseconds since the epoch, with
+ * {@link NameHistory#UNKNOWN} for an unknown start and
+ * {@link NameHistory#CURRENT} for the current name, and only converted to
+ * {@link Instant Instants} when they are asked for.
+ */
+public final class NameInterval implements NameHistoryEntry {
+    
+    private final UUID uniqueId;
+    private final String name;
+    private final long from;
+    private final long until;
+    
+    /**
+     * Creates a new {@link NameInterval}.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The name the player had.
+     * @param from The start of the period, in milliseconds since the epoch,
+     *             or {@link NameHistory#UNKNOWN}.
+     * @param until The end of the period, in milliseconds since the epoch,
+     *              or {@link NameHistory#CURRENT}.
+     */
+    public NameInterval(@NotNull final UUID uniqueId, @NotNull final String name, final long from, final long until) {
+        this.uniqueId = uniqueId;
+        this.name = name;
+        this.from = from;
+        this.until = until;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    public String getName() {
+        return this.name;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    public UUID getUniqueId() {
+        return this.uniqueId;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nullable
+    public Instant getValidFrom() {
+        return this.from == NameHistory.UNKNOWN ? null : Instant.ofEpochMilli(this.from);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nullable
+    public Instant getValidUntil() {
+        return this.until == NameHistory.CURRENT ? null : Instant.ofEpochMilli(this.until);
+    }
+    
+    /**
+     * Gets the start of the period, without creating an {@link Instant}.
+     * 
+     * @return The start of the period, in milliseconds since the epoch, or
+     *         {@link NameHistory#UNKNOWN}.
+     */
+    public long getFromMillis() {
+        return this.from;
+    }
+    
+    /**
+     * Gets the end of the period, without creating an {@link Instant}.
+     * 
+     * @return The end of the period, in milliseconds since the epoch, or
+     *         {@link NameHistory#CURRENT}.
+     */
+    public long getUntilMillis() {
+        return this.until;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(@Nullable final Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof NameInterval)) {
+            return false;
+        }
+        final NameInterval other = (NameInterval) object;
+        return this.from == other.from && this.until == other.until && this.uniqueId.equals(other.uniqueId) && this.name.equals(other.name);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int hash = this.uniqueId.hashCode();
+        hash = 31 * hash + this.name.hashCode();
+        hash = 31 * hash + Long.hashCode(this.from);
+        return 31 * hash + Long.hashCode(this.until);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    public String toString() {
+        return "NameInterval{name=" + this.name + ", uniqueId=" + this.uniqueId + ", from=" + this.getValidFrom() + ", until=" + this.getValidUntil() + "}";
+    }
+}
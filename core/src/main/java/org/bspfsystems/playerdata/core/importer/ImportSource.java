@@ -0,0 +1,210 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import org.bspfsystems.playerdata.core.resolver.ProfileJson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The kinds of file that players can be imported from.
+ */
+enum ImportSource {
+    
+    /**
+     * The <code>usercache.json</code> file of a server, which holds the name
+     * and {@link UUID} of recently seen players. Each entry expires one month
+     * after the player was last seen, which gives the last seen time.
+     */
+    USER_CACHE {
+        
+        @Override
+        boolean accepts(@NotNull final String fileName) {
+            return fileName.endsWith(".json");
+        }
+        
+        @Override
+        void read(@NotNull final File file, @NotNull final RecordBatch batch) throws IOException, IllegalArgumentException {
+            final String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            for (final Map<?, ?> profile : ProfileJson.readObjects(text)) {
+                final Object name = profile.get("name");
+                final Object uniqueId = profile.get("uuid");
+                if (!(name instanceof String) || !(uniqueId instanceof String)) {
+                    continue;
+                }
+                try {
+                    batch.add(UUID.fromString((String) uniqueId), (String) name, 0L, ImportSource.lastUsed(profile.get("expiresOn")));
+                } catch (IllegalArgumentException e) {
+                    // An invalid UUID; skip only this entry.
+                }
+            }
+        }
+    },
+    
+    /**
+     * The <code>playerdata</code> folder of a world, with one
+     * <code>&lt;uuid&gt;.dat</code> file per player. Only the file name is
+     * read, so these records have no name, and the time the file was last
+     * saved is used as the last seen time.
+     */
+    PLAYER_DATA {
+        
+        @Override
+        boolean accepts(@NotNull final String fileName) {
+            return fileName.endsWith(".dat");
+        }
+        
+        @Override
+        void read(@NotNull final File file, @NotNull final RecordBatch batch) throws IOException, IllegalArgumentException {
+            batch.add(ImportSource.parseUniqueId(file, ".dat"), null, 0L, file.lastModified());
+        }
+    },
+    
+    /**
+     * A userdata folder in the format used by Essentials, with one
+     * <code>&lt;uuid&gt;.yml</code> file per player. The name is read from
+     * <code>last-account-name</code> (or <code>lastAccountName</code> in older
+     * versions), and the last seen time from the <code>login</code> and
+     * <code>logout</code> times under <code>timestamps</code>, or the time the
+     * file was last saved if there are none.
+     */
+    USER_DATA {
+        
+        @Override
+        boolean accepts(@NotNull final String fileName) {
+            return fileName.endsWith(".yml");
+        }
+        
+        @Override
+        void read(@NotNull final File file, @NotNull final RecordBatch batch) throws IOException, IllegalArgumentException {
+            final UUID uniqueId = ImportSource.parseUniqueId(file, ".yml");
+            final List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            String name = null;
+            long lastSeen = 0L;
+            boolean timestamps = false;
+            for (final String line : lines) {
+                final int colon = line.indexOf(':');
+                if (line.isEmpty() || line.trim().startsWith("#") || colon < 0) {
+                    continue;
+                }
+                final String key = line.substring(0, colon).trim();
+                final String value = ImportSource.unquote(line.substring(colon + 1).trim());
+                if (!Character.isWhitespace(line.charAt(0))) {
+                    timestamps = key.equals("timestamps");
+                    if ((key.equals("last-account-name") || key.equals("lastAccountName")) && !value.isEmpty()) {
+                        name = value;
+                    }
+                } else if (timestamps && (key.equals("login") || key.equals("logout"))) {
+                    try {
+                        lastSeen = Math.max(lastSeen, Long.parseLong(value));
+                    } catch (NumberFormatException e) {
+                        // Not a time; ignore it.
+                    }
+                }
+            }
+            batch.add(uniqueId, name, 0L, lastSeen != 0L ? lastSeen : file.lastModified());
+        }
+    };
+    
+    private static final DateTimeFormatter EXPIRES_ON = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss Z", Locale.ROOT);
+    
+    /**
+     * Checks if a file in a folder of this {@link ImportSource} should be
+     * read.
+     * 
+     * @param fileName The name of the file.
+     * @return <code>true</code> if the file should be read,
+     *         <code>false</code> otherwise.
+     */
+    abstract boolean accepts(@NotNull String fileName);
+    
+    /**
+     * Reads the players in the given file into a {@link RecordBatch}.
+     * 
+     * @param file The file to read.
+     * @param batch The {@link RecordBatch} to add the players to.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If the file is not in the expected
+     *                                  format.
+     */
+    abstract void read(@NotNull File file, @NotNull RecordBatch batch) throws IOException, IllegalArgumentException;
+    
+    /**
+     * Parses the {@link UUID} that a file is named after.
+     * 
+     * @param file The file.
+     * @param extension The extension of the file name.
+     * @return The {@link UUID}.
+     * @throws IllegalArgumentException If the file is not named after a
+     *                                  {@link UUID}.
+     */
+    @NotNull
+    private static UUID parseUniqueId(@NotNull final File file, @NotNull final String extension) throws IllegalArgumentException {
+        final String name = file.getName();
+        if (name.length() != 36 + extension.length()) {
+            throw new IllegalArgumentException("File is not named after a UUID: " + name);
+        }
+        return UUID.fromString(name.substring(0, 36));
+    }
+    
+    /**
+     * Gets the time that a <code>usercache.json</code> entry was last used,
+     * from its expiry time.
+     * 
+     * @param expiresOn The <code>expiresOn</code> field of the entry.
+     * @return The time the entry was last used, in milliseconds since the
+     *         epoch, or <code>0</code> if it is not known.
+     */
+    private static long lastUsed(@Nullable final Object expiresOn) {
+        if (!(expiresOn instanceof String)) {
+            return 0L;
+        }
+        try {
+            return ZonedDateTime.parse((String) expiresOn, ImportSource.EXPIRES_ON).minusMonths(1L).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0L;
+        }
+    }
+    
+    /**
+     * Removes the quotes around a YAML scalar, if it has any.
+     * 
+     * @param value The scalar.
+     * @return The value without quotes.
+     */
+    @NotNull
+    private static String unquote(@NotNull final String value) {
+        if (value.length() >= 2 && (value.charAt(0) == '\'' || value.charAt(0) == '"') && value.charAt(value.length() - 1) == value.charAt(0)) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reads a range of import files into a sorted {@link RecordBatch}. Large
+ * ranges are split in half, with the halves read in parallel and their
+ * {@link RecordBatch RecordBatches} merged, so the whole import is a
+ * parallel merge sort by {@link java.util.UUID}.
+ */
+final class ParseTask extends RecursiveTask<RecordBatch> {
+    
+    private static final long serialVersionUID = 1L;
+    private static final int THRESHOLD = 256;
+    
+    private final File[] files;
+    private final ImportSource[] sources;
+    private final int from;
+    private final int to;
+    private final Logger logger;
+    private final AtomicInteger skipped;
+    
+    /**
+     * Creates a new {@link ParseTask}.
+     * 
+     * @param files The files to read.
+     * @param sources The {@link ImportSource} of each file.
+     * @param from The index of the first file to read (inclusive).
+     * @param to The index of the last file to read (exclusive).
+     * @param logger The {@link Logger} to report unreadable files to.
+     * @param skipped The count of unreadable files.
+     */
+    ParseTask(@NotNull final File[] files, @NotNull final ImportSource[] sources, final int from, final int to, @NotNull final Logger logger, @NotNull final AtomicInteger skipped) {
+        this.files = files;
+        this.sources = sources;
+        this.from = from;
+        this.to = to;
+        this.logger = logger;
+        this.skipped = skipped;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    protected RecordBatch compute() {
+        if (this.to - this.from <= ParseTask.THRESHOLD) {
+            final RecordBatch batch = new RecordBatch(this.to - this.from);
+            for (int index = this.from; index < this.to; index++) {
+                try {
+                    this.sources[index].read(this.files[index], batch);
+                } catch (IOException | IllegalArgumentException e) {
+                    this.skipped.incrementAndGet();
+                    this.logger.log(Level.FINE, "Skipping unreadable player file " + this.files[index].getPath() + ".", e);
+                }
+            }
+            return batch.sorted();
+        }
+        
+        final int middle = (this.from + this.to) >>> 1;
+        final ParseTask first = new ParseTask(this.files, this.sources, this.from, middle, this.logger, this.skipped);
+        first.fork();
+        final RecordBatch second = new ParseTask(this.files, this.sources, middle, this.to, this.logger, this.skipped).compute();
+        return RecordBatch.merge(first.join(), second);
+    }
+}
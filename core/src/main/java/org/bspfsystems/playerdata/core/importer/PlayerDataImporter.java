@@ -0,0 +1,246 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bspfsystems.playerdata.core.storage.Journal;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Imports the players that a server already knows about into a
+ * {@link PlayerDataStore}, so that a network with a long history does not
+ * have to wait for every player to join again.
+ * <p>
+ * Players can be imported from:
+ * <ul>
+ *     <li>The <code>usercache.json</code> file of a server.</li>
+ *     <li>The <code>playerdata</code> folder of a world, which only gives
+ *     the {@link UUID UUIDs} of the players, and the time their data was
+ *     last saved.</li>
+ *     <li>The userdata folders of plugins that keep one
+ *     <code>&lt;uuid&gt;.yml</code> file per player in the format used by
+ *     Essentials.</li>
+ * </ul>
+ * {@link PlayerDataImporter#addServer(File)} finds all of these in a server
+ * directory.
+ * <p>
+ * The files are read in parallel on a {@link ForkJoinPool}, and the records
+ * of each player are combined across all of the sources before anything is
+ * added to the store. Players whose name is not found in any source, and is
+ * not already known to the store, cannot be imported. The players are then
+ * added with a single {@link PlayerDataStore#bulkLoad(UUID[], String[], long[], long[], int) bulk load},
+ * which builds the indexes once for the whole import.
+ * <p>
+ * The imported players are not recorded in the {@link Journal} one at a
+ * time. {@link Journal#compactNow()} should be called after the import to
+ * persist them.
+ * <p>
+ * This class is not thread-safe; callers must provide their own
+ * synchronization.
+ */
+public final class PlayerDataImporter {
+    
+    private static final String USER_CACHE = "usercache.json";
+    private static final String PLAYER_DATA = "playerdata";
+    private static final String LEVEL_DATA = "level.dat";
+    private static final String[] USER_DATA = {"plugins/Essentials/userdata"};
+    
+    private final Logger logger;
+    private final ForkJoinPool pool;
+    private final Map<File, ImportSource> locations;
+    
+    /**
+     * Creates a new {@link PlayerDataImporter} that reads the files on the
+     * {@link ForkJoinPool#commonPool() common pool}.
+     * 
+     * @param logger The {@link Logger} to report the progress of the import
+     *               to.
+     */
+    public PlayerDataImporter(@NotNull final Logger logger) {
+        this(logger, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Creates a new {@link PlayerDataImporter}.
+     * 
+     * @param logger The {@link Logger} to report the progress of the import
+     *               to.
+     * @param pool The {@link ForkJoinPool} to read the files on.
+     */
+    public PlayerDataImporter(@NotNull final Logger logger, @NotNull final ForkJoinPool pool) {
+        this.logger = logger;
+        this.pool = pool;
+        this.locations = new LinkedHashMap<File, ImportSource>();
+    }
+    
+    /**
+     * Adds every source of players that can be found in the given server
+     * directory: its <code>usercache.json</code>, the
+     * <code>playerdata</code> folder of each of its worlds, and the userdata
+     * folders of any known plugins.
+     * 
+     * @param directory The directory of the server.
+     * @throws IllegalArgumentException If the directory does not exist.
+     */
+    public void addServer(@NotNull final File directory) throws IllegalArgumentException {
+        final File[] children = directory.listFiles();
+        if (children == null) {
+            throw new IllegalArgumentException("Not a directory: " + directory.getPath());
+        }
+        final File userCache = new File(directory, PlayerDataImporter.USER_CACHE);
+        if (userCache.isFile()) {
+            this.addUserCache(userCache);
+        }
+        for (final File child : children) {
+            final File playerData = new File(child, PlayerDataImporter.PLAYER_DATA);
+            if (new File(child, PlayerDataImporter.LEVEL_DATA).isFile() && playerData.isDirectory()) {
+                this.addPlayerDataFolder(playerData);
+            }
+        }
+        for (final String path : PlayerDataImporter.USER_DATA) {
+            final File userData = new File(directory, path);
+            if (userData.isDirectory()) {
+                this.addUserDataFolder(userData);
+            }
+        }
+    }
+    
+    /**
+     * Adds a <code>usercache.json</code> file to import players from.
+     * 
+     * @param file The <code>usercache.json</code> file.
+     * @throws IllegalArgumentException If the file does not exist.
+     */
+    public void addUserCache(@NotNull final File file) throws IllegalArgumentException {
+        if (!file.isFile()) {
+            throw new IllegalArgumentException("Not a file: " + file.getPath());
+        }
+        this.locations.put(file, ImportSource.USER_CACHE);
+    }
+    
+    /**
+     * Adds the <code>playerdata</code> folder of a world to import players
+     * from.
+     * 
+     * @param directory The <code>playerdata</code> folder.
+     * @throws IllegalArgumentException If the folder does not exist.
+     */
+    public void addPlayerDataFolder(@NotNull final File directory) throws IllegalArgumentException {
+        if (!directory.isDirectory()) {
+            throw new IllegalArgumentException("Not a directory: " + directory.getPath());
+        }
+        this.locations.put(directory, ImportSource.PLAYER_DATA);
+    }
+    
+    /**
+     * Adds a plugin userdata folder, in the format used by Essentials, to
+     * import players from.
+     * 
+     * @param directory The userdata folder.
+     * @throws IllegalArgumentException If the folder does not exist.
+     */
+    public void addUserDataFolder(@NotNull final File directory) throws IllegalArgumentException {
+        if (!directory.isDirectory()) {
+            throw new IllegalArgumentException("Not a directory: " + directory.getPath());
+        }
+        this.locations.put(directory, ImportSource.USER_DATA);
+    }
+    
+    /**
+     * Reads every added source and loads the players into the given
+     * {@link PlayerDataStore}. Any saved snapshot attached to the store is
+     * loaded first, so that the players already known take part in combining
+     * the records.
+     * <p>
+     * Files that cannot be read are skipped, and counted in the summary that
+     * is logged at the end.
+     * 
+     * @param store The {@link PlayerDataStore} to import the players into.
+     * @return The number of players that were added to the store.
+     * @throws IOException If one of the added folders cannot be listed.
+     */
+    public int importInto(@NotNull final PlayerDataStore store) throws IOException {
+        final long start = System.nanoTime();
+        final List<File> files = new ArrayList<File>();
+        final List<ImportSource> sources = new ArrayList<ImportSource>();
+        for (final Map.Entry<File, ImportSource> location : this.locations.entrySet()) {
+            final File file = location.getKey();
+            final ImportSource source = location.getValue();
+            if (source == ImportSource.USER_CACHE) {
+                files.add(file);
+                sources.add(source);
+                continue;
+            }
+            final String[] names = file.list();
+            if (names == null) {
+                throw new IOException("Unable to list the files in " + file.getPath() + ".");
+            }
+            for (final String name : names) {
+                if (source.accepts(name)) {
+                    files.add(new File(file, name));
+                    sources.add(source);
+                }
+            }
+        }
+        
+        final AtomicInteger skipped = new AtomicInteger();
+        final RecordBatch records = this.pool.invoke(new ParseTask(files.toArray(new File[0]), sources.toArray(new ImportSource[0]), 0, files.size(), this.logger, skipped));
+        
+        store.loadSnapshot();
+        final UUID[] uniqueIds = new UUID[records.size()];
+        final String[] names = new String[uniqueIds.length];
+        final long[] firstSeen = new long[uniqueIds.length];
+        final long[] lastSeen = new long[uniqueIds.length];
+        int count = 0;
+        int unnamed = 0;
+        for (int index = 0; index < records.size(); index++) {
+            final UUID uniqueId = records.getUniqueId(index);
+            String name = records.getName(index);
+            if (name == null) {
+                name = store.getName(uniqueId);
+                if (name == null) {
+                    unnamed++;
+                    continue;
+                }
+            }
+            uniqueIds[count] = uniqueId;
+            names[count] = name;
+            firstSeen[count] = records.getFirstSeen(index);
+            lastSeen[count] = records.getLastSeen(index);
+            count++;
+        }
+        final int added = store.bulkLoad(uniqueIds, names, firstSeen, lastSeen, count);
+        
+        this.logger.log(Level.INFO, "Imported " + added + " new players from " + files.size() + " files in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms (" + count + " players found, " + unnamed + " without a known name, " + skipped.get() + " files skipped).");
+        return added;
+    }
+}
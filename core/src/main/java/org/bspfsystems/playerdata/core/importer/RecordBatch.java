@@ -0,0 +1,307 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.importer;
+
+import java.util.Arrays;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A batch of imported player records, stored in columns.
+ * <p>
+ * The same player is usually found in more than one source, so batches are
+ * {@link RecordBatch#sorted() sorted} by {@link UUID} and
+ * {@link RecordBatch#merge(RecordBatch, RecordBatch) merged}, and the
+ * records of each player are combined as they meet: the earliest known first
+ * seen time and the latest last seen time are kept, along with the name from
+ * the most recently seen record that has one. The time the kept name was
+ * seen is tracked apart from the last seen time, as a record without a name
+ * may have been seen more recently than any that has one.
+ * <p>
+ * This class is not thread-safe; callers must provide their own
+ * synchronization.
+ */
+final class RecordBatch {
+    
+    private long[] mostSigBits;
+    private long[] leastSigBits;
+    private String[] names;
+    private long[] firstSeen;
+    private long[] lastSeen;
+    private long[] nameSeen;
+    private int size;
+    
+    /**
+     * Creates a new, empty {@link RecordBatch}.
+     * 
+     * @param capacity The number of records to allocate space for.
+     */
+    RecordBatch(final int capacity) {
+        final int length = Math.max(capacity, 1);
+        this.mostSigBits = new long[length];
+        this.leastSigBits = new long[length];
+        this.names = new String[length];
+        this.firstSeen = new long[length];
+        this.lastSeen = new long[length];
+        this.nameSeen = new long[length];
+        this.size = 0;
+    }
+    
+    /**
+     * Adds a record to this {@link RecordBatch}.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The name of the player, or <code>null</code> if the source
+     *             does not record it.
+     * @param firstSeen The time the player was first seen, in milliseconds
+     *                  since the epoch, or <code>0</code> if it is not known.
+     * @param lastSeen The time the player was last seen, in milliseconds since
+     *                 the epoch, or <code>0</code> if it is not known.
+     */
+    void add(@NotNull final UUID uniqueId, @Nullable final String name, final long firstSeen, final long lastSeen) {
+        this.add(uniqueId.getMostSignificantBits(), uniqueId.getLeastSignificantBits(), name, firstSeen, lastSeen);
+    }
+    
+    /**
+     * Gets the number of records in this {@link RecordBatch}.
+     * 
+     * @return The number of records.
+     */
+    int size() {
+        return this.size;
+    }
+    
+    /**
+     * Gets the {@link UUID} of the given record.
+     * 
+     * @param index The index of the record.
+     * @return The {@link UUID}.
+     */
+    @NotNull
+    UUID getUniqueId(final int index) {
+        return new UUID(this.mostSigBits[index], this.leastSigBits[index]);
+    }
+    
+    /**
+     * Gets the name of the given record.
+     * 
+     * @param index The index of the record.
+     * @return The name, or <code>null</code> if it is not known.
+     */
+    @Nullable
+    String getName(final int index) {
+        return this.names[index];
+    }
+    
+    /**
+     * Gets the first seen time of the given record.
+     * 
+     * @param index The index of the record.
+     * @return The first seen time, or <code>0</code> if it is not known.
+     */
+    long getFirstSeen(final int index) {
+        return this.firstSeen[index];
+    }
+    
+    /**
+     * Gets the last seen time of the given record.
+     * 
+     * @param index The index of the record.
+     * @return The last seen time, or <code>0</code> if it is not known.
+     */
+    long getLastSeen(final int index) {
+        return this.lastSeen[index];
+    }
+    
+    /**
+     * Creates a copy of this {@link RecordBatch} sorted by {@link UUID}, with
+     * the records of each player combined.
+     * 
+     * @return The sorted {@link RecordBatch}.
+     */
+    @NotNull
+    RecordBatch sorted() {
+        final int[] order = new int[this.size];
+        for (int index = 0; index < order.length; index++) {
+            order[index] = index;
+        }
+        RecordBatch.sort(order, 0, order.length, this.mostSigBits, this.leastSigBits);
+        final RecordBatch sorted = new RecordBatch(this.size);
+        for (final int index : order) {
+            sorted.append(this, index);
+        }
+        return sorted;
+    }
+    
+    /**
+     * Merges two {@link RecordBatch RecordBatches} that are each
+     * {@link RecordBatch#sorted() sorted}, combining the records of players
+     * that are in both.
+     * 
+     * @param first The first sorted {@link RecordBatch}.
+     * @param second The second sorted {@link RecordBatch}.
+     * @return The merged {@link RecordBatch}, which is also sorted.
+     */
+    @NotNull
+    static RecordBatch merge(@NotNull final RecordBatch first, @NotNull final RecordBatch second) {
+        final RecordBatch merged = new RecordBatch(first.size + second.size);
+        int left = 0;
+        int right = 0;
+        while (left < first.size || right < second.size) {
+            if (right >= second.size || (left < first.size && RecordBatch.compare(first.mostSigBits[left], first.leastSigBits[left], second.mostSigBits[right], second.leastSigBits[right]) <= 0)) {
+                merged.append(first, left++);
+            } else {
+                merged.append(second, right++);
+            }
+        }
+        return merged;
+    }
+    
+    /**
+     * Appends a record from another {@link RecordBatch}, combining it with
+     * the last record of this one if they are for the same player.
+     * 
+     * @param source The {@link RecordBatch} to copy from.
+     * @param index The index of the record in the source.
+     */
+    private void append(@NotNull final RecordBatch source, final int index) {
+        final int last = this.size - 1;
+        if (last < 0 || this.mostSigBits[last] != source.mostSigBits[index] || this.leastSigBits[last] != source.leastSigBits[index]) {
+            this.add(source.mostSigBits[index], source.leastSigBits[index], source.names[index], source.firstSeen[index], source.lastSeen[index]);
+            this.nameSeen[last + 1] = source.nameSeen[index];
+            return;
+        }
+        
+        final String name = source.names[index];
+        if (name != null && (this.names[last] == null || source.nameSeen[index] > this.nameSeen[last])) {
+            this.names[last] = name;
+            this.nameSeen[last] = source.nameSeen[index];
+        }
+        final long firstSeen = source.firstSeen[index];
+        if (firstSeen != 0L && (this.firstSeen[last] == 0L || firstSeen < this.firstSeen[last])) {
+            this.firstSeen[last] = firstSeen;
+        }
+        this.lastSeen[last] = Math.max(this.lastSeen[last], source.lastSeen[index]);
+    }
+    
+    /**
+     * Adds a record, growing the columns if required.
+     * 
+     * @param mostSigBits The most significant bits of the {@link UUID}.
+     * @param leastSigBits The least significant bits of the {@link UUID}.
+     * @param name The name, or <code>null</code> if it is not known.
+     * @param firstSeen The first seen time.
+     * @param lastSeen The last seen time.
+     */
+    private void add(final long mostSigBits, final long leastSigBits, @Nullable final String name, final long firstSeen, final long lastSeen) {
+        if (this.size == this.mostSigBits.length) {
+            final int capacity = this.size + (this.size >> 1) + 1;
+            this.mostSigBits = Arrays.copyOf(this.mostSigBits, capacity);
+            this.leastSigBits = Arrays.copyOf(this.leastSigBits, capacity);
+            this.names = Arrays.copyOf(this.names, capacity);
+            this.firstSeen = Arrays.copyOf(this.firstSeen, capacity);
+            this.lastSeen = Arrays.copyOf(this.lastSeen, capacity);
+            this.nameSeen = Arrays.copyOf(this.nameSeen, capacity);
+        }
+        this.mostSigBits[this.size] = mostSigBits;
+        this.leastSigBits[this.size] = leastSigBits;
+        this.names[this.size] = name;
+        this.firstSeen[this.size] = firstSeen;
+        this.lastSeen[this.size] = lastSeen;
+        this.nameSeen[this.size] = name != null ? lastSeen : 0L;
+        this.size++;
+    }
+    
+    /**
+     * Compares two {@link UUID UUIDs} by their halves.
+     * 
+     * @param mostSigBits1 The most significant bits of the first
+     *                     {@link UUID}.
+     * @param leastSigBits1 The least significant bits of the first
+     *                      {@link UUID}.
+     * @param mostSigBits2 The most significant bits of the second
+     *                     {@link UUID}.
+     * @param leastSigBits2 The least significant bits of the second
+     *                      {@link UUID}.
+     * @return A negative number, zero, or a positive number as the first
+     *         {@link UUID} is less than, equal to, or greater than the
+     *         second.
+     */
+    private static int compare(final long mostSigBits1, final long leastSigBits1, final long mostSigBits2, final long leastSigBits2) {
+        final int compare = Long.compare(mostSigBits1, mostSigBits2);
+        return compare != 0 ? compare : Long.compare(leastSigBits1, leastSigBits2);
+    }
+    
+    /**
+     * Sorts a range of record indexes by {@link UUID}.
+     * 
+     * @param order The record indexes to sort.
+     * @param from The start of the range (inclusive).
+     * @param to The end of the range (exclusive).
+     * @param mostSigBits The most significant bits of each {@link UUID}.
+     * @param leastSigBits The least significant bits of each {@link UUID}.
+     */
+    private static void sort(@NotNull final int[] order, int from, final int to, @NotNull final long[] mostSigBits, @NotNull final long[] leastSigBits) {
+        int end = to;
+        while (end - from > 16) {
+            final int pivot = order[(from + end) >>> 1];
+            final long pivotMost = mostSigBits[pivot];
+            final long pivotLeast = leastSigBits[pivot];
+            
+            // Three-way partition, so that the records of one player end
+            // up together without being compared again.
+            int less = from;
+            int index = from;
+            int greater = end;
+            while (index < greater) {
+                final int current = order[index];
+                final int compare = RecordBatch.compare(mostSigBits[current], leastSigBits[current], pivotMost, pivotLeast);
+                if (compare < 0) {
+                    order[index++] = order[less];
+                    order[less++] = current;
+                } else if (compare > 0) {
+                    order[index] = order[--greater];
+                    order[greater] = current;
+                } else {
+                    index++;
+                }
+            }
+            
+            // Recurse into the smaller side, and loop on the larger one.
+            if (less - from < end - greater) {
+                RecordBatch.sort(order, from, less, mostSigBits, leastSigBits);
+                from = greater;
+            } else {
+                RecordBatch.sort(order, greater, end, mostSigBits, leastSigBits);
+                end = less;
+            }
+        }
+        for (int index = from + 1; index < end; index++) {
+            final int current = order[index];
+            int position = index;
+            while (position > from && RecordBatch.compare(mostSigBits[order[position - 1]], leastSigBits[order[position - 1]], mostSigBits[current], leastSigBits[current]) > 0) {
+                order[position] = order[position - 1];
+                position--;
+            }
+            order[position] = current;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.index;
+
+import java.nio.LongBuffer;
+import java.util.Locale;
+import java.util.UUID;
+import org.bspfsystems.playerdata.core.store.PackedNames;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A blocked Bloom filter over player {@link UUID}s and names, used to answer
+ * "definitely not known" without touching the indexes they guard.
+ * <p>
+ * The filter is split into 512 bit blocks, one cache line each. A key picks a
+ * single block and sets {@link BloomFilter#PROBES} bits within it, so a
+ * lookup reads one cache line (and at most one page, when the filter is
+ * memory-mapped) rather than one per probe. At 10 bits per key, the false
+ * positive rate is about 1%.
+ * <p>
+ * Names are matched ignoring case, like the name indexes. The filter can be
+ * backed by any {@link LongBuffer}, including a view of a memory-mapped
+ * file. Adding keys is not thread-safe; checking keys is, once the filter is
+ * no longer being added to.
+ */
+public final class BloomFilter {
+    
+    /**
+     * The number of bits set per key.
+     */
+    public static final int PROBES = 7;
+    
+    private static final int BITS_PER_KEY = 10;
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final long NAME_SEED = 0x6E616D65L;
+    private static final long OVERFLOW_SEED = 0x6F766572L;
+    
+    private final LongBuffer words;
+    private final int blocks;
+    
+    /**
+     * Creates a new, empty {@link BloomFilter} sized for the given number of
+     * keys.
+     * 
+     * @param expectedKeys The number of keys that will be added.
+     */
+    public BloomFilter(final int expectedKeys) {
+        this(LongBuffer.wrap(new long[BloomFilter.getWordCount(expectedKeys)]));
+    }
+    
+    /**
+     * Creates a {@link BloomFilter} over existing words, such as those
+     * written by another {@link BloomFilter}.
+     * 
+     * @param words The words of the filter. The number of words must be a
+     *              positive multiple of 8.
+     * @throws IllegalArgumentException If the number of words is not valid.
+     */
+    public BloomFilter(@NotNull final LongBuffer words) throws IllegalArgumentException {
+        if (words.capacity() == 0 || words.capacity() % BloomFilter.WORDS_PER_BLOCK != 0) {
+            throw new IllegalArgumentException("Invalid Bloom filter size: " + words.capacity() + " words.");
+        }
+        this.words = words;
+        this.blocks = words.capacity() / BloomFilter.WORDS_PER_BLOCK;
+    }
+    
+    /**
+     * Gets the number of words a {@link BloomFilter} for the given number of
+     * keys uses.
+     * 
+     * @param expectedKeys The number of keys.
+     * @return The number of words.
+     */
+    public static int getWordCount(final int expectedKeys) {
+        final long bits = Math.max(1L, (long) expectedKeys) * BloomFilter.BITS_PER_KEY;
+        final long blocks = (bits + 511L) / 512L;
+        return (int) Math.min(blocks * BloomFilter.WORDS_PER_BLOCK, Integer.MAX_VALUE - BloomFilter.WORDS_PER_BLOCK);
+    }
+    
+    /**
+     * Gets the words of this {@link BloomFilter}, for saving it.
+     * 
+     * @return A read-only view of the words.
+     */
+    @NotNull
+    public LongBuffer getWords() {
+        return this.words.asReadOnlyBuffer();
+    }
+    
+    /**
+     * Adds the given {@link UUID}.
+     * 
+     * @param mostSigBits The most significant bits of the {@link UUID}.
+     * @param leastSigBits The least significant bits of the {@link UUID}.
+     */
+    public void putUniqueId(final long mostSigBits, final long leastSigBits) {
+        this.put(BloomFilter.mix(mostSigBits, leastSigBits));
+    }
+    
+    /**
+     * Adds the given name.
+     * 
+     * @param name The name.
+     */
+    public void putName(@NotNull final String name) {
+        this.put(BloomFilter.nameHash(name));
+    }
+    
+    /**
+     * Checks if the given {@link UUID} may have been added.
+     * 
+     * @param mostSigBits The most significant bits of the {@link UUID}.
+     * @param leastSigBits The least significant bits of the {@link UUID}.
+     * @return <code>false</code> if the {@link UUID} was definitely not
+     *         added, <code>true</code> if it probably was.
+     */
+    public boolean mightContainUniqueId(final long mostSigBits, final long leastSigBits) {
+        return this.mightContain(BloomFilter.mix(mostSigBits, leastSigBits));
+    }
+    
+    /**
+     * Checks if the given name may have been added, ignoring case.
+     * 
+     * @param name The name.
+     * @return <code>false</code> if the name was definitely not added,
+     *         <code>true</code> if it probably was.
+     */
+    public boolean mightContainName(@NotNull final String name) {
+        return this.mightContain(BloomFilter.nameHash(name));
+    }
+    
+    /**
+     * Sets the bits for the given key hash.
+     * 
+     * @param hash The key hash.
+     */
+    private void put(final long hash) {
+        final int base = this.block(hash);
+        final int step = BloomFilter.step(hash);
+        int bit = (int) hash;
+        for (int probe = 0; probe < BloomFilter.PROBES; probe++) {
+            final int index = base + ((bit & 511) >>> 6);
+            this.words.put(index, this.words.get(index) | (1L << bit));
+            bit += step;
+        }
+    }
+    
+    /**
+     * Checks the bits for the given key hash.
+     * 
+     * @param hash The key hash.
+     * @return <code>true</code> if all the bits are set.
+     */
+    private boolean mightContain(final long hash) {
+        final int base = this.block(hash);
+        final int step = BloomFilter.step(hash);
+        int bit = (int) hash;
+        for (int probe = 0; probe < BloomFilter.PROBES; probe++) {
+            if ((this.words.get(base + ((bit & 511) >>> 6)) & (1L << bit)) == 0L) {
+                return false;
+            }
+            bit += step;
+        }
+        return true;
+    }
+    
+    /**
+     * Gets the index of the first word of the block for the given key hash,
+     * from the high bits of the hash. The probes use the low bits.
+     * 
+     * @param hash The key hash.
+     * @return The word index.
+     */
+    private int block(final long hash) {
+        return (int) (((hash >>> 32) * this.blocks) >>> 32) * BloomFilter.WORDS_PER_BLOCK;
+    }
+    
+    /**
+     * Hashes a name, ignoring case.
+     * 
+     * @param name The name.
+     * @return The key hash.
+     */
+    private static long nameHash(@NotNull final String name) {
+        if (PackedNames.isPackable(name)) {
+            return BloomFilter.mix(PackedNames.packFolded(name, 0) ^ BloomFilter.NAME_SEED, PackedNames.packFolded(name, PackedNames.HEAD_LENGTH));
+        }
+        return BloomFilter.mix(name.toLowerCase(Locale.ROOT).hashCode() ^ BloomFilter.OVERFLOW_SEED, name.length());
+    }
+    
+    /**
+     * Mixes two words into a 64 bit key hash.
+     * 
+     * @param first The first word.
+     * @param second The second word.
+     * @return The key hash.
+     */
+    private static long mix(final long first, final long second) {
+        long hash = first * 0x9E3779B97F4A7C15L ^ second;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+    
+    /**
+     * Gets the distance between the bits of successive probes within a block,
+     * which is odd so that the probes do not repeat.
+     * 
+     * @param hash The key hash.
+     * @return The distance.
+     */
+    private static int step(final long hash) {
+        return (int) (hash >>> 41) | 1;
+    }
+}
@@ -0,0 +1,403 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import org.bspfsystems.playerdata.core.store.EntryTable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An index of the entries in an {@link EntryTable}, ordered by the time they
+ * were last seen.
+ * <p>
+ * Almost every change to a last seen time sets it to the current time, so
+ * the index is kept as a sorted run that is only ever appended to. The old
+ * position of a changed entry is not removed, but left behind as a stale
+ * slot: each entry records its one live position, and slots that do not
+ * match it are skipped. Once stale slots outnumber live ones, the run is
+ * compacted.
+ * <p>
+ * Times that are older than the end of the run, such as when saved data is
+ * loaded, are collected in a pending buffer instead, which is sorted and
+ * merged into the run once it grows past an eighth of the index. Queries
+ * scan the pending buffer in full, so it is kept small except while data is
+ * being loaded.
+ * <p>
+ * This class is not thread-safe; callers must provide their own
+ * synchronization.
+ */
+public final class LastSeenIndex {
+    
+    private static final int MINIMUM_CAPACITY = 16;
+    private static final int MINIMUM_PENDING = 1024;
+    private static final int NOT_INDEXED = -1;
+    
+    private final EntryTable table;
+    private long[] times;
+    private int[] ids;
+    private int size;
+    private long[] pendingTimes;
+    private int[] pendingIds;
+    private int pendingSize;
+    private int[] slots;
+    private int live;
+    
+    /**
+     * Creates a new, empty {@link LastSeenIndex} over the given
+     * {@link EntryTable}.
+     * 
+     * @param table The {@link EntryTable} that holds the last seen times.
+     */
+    public LastSeenIndex(@NotNull final EntryTable table) {
+        this.table = table;
+        this.times = new long[LastSeenIndex.MINIMUM_CAPACITY];
+        this.ids = new int[LastSeenIndex.MINIMUM_CAPACITY];
+        this.pendingTimes = new long[LastSeenIndex.MINIMUM_CAPACITY];
+        this.pendingIds = new int[LastSeenIndex.MINIMUM_CAPACITY];
+        this.slots = new int[LastSeenIndex.MINIMUM_CAPACITY];
+        Arrays.fill(this.slots, LastSeenIndex.NOT_INDEXED);
+    }
+    
+    /**
+     * Indexes the given entry by its last seen time, as currently stored in
+     * the {@link EntryTable}, replacing any previous position.
+     * 
+     * @param id The entry id.
+     */
+    public void put(final int id) {
+        if (id >= this.slots.length) {
+            final int length = this.slots.length;
+            this.slots = Arrays.copyOf(this.slots, Math.max(id + 1, length + (length >> 1)));
+            Arrays.fill(this.slots, length, this.slots.length, LastSeenIndex.NOT_INDEXED);
+        }
+        final int slot = this.slots[id];
+        final long time = this.table.getLastSeen(id);
+        if (slot >= 0 ? this.times[slot] == time : slot != LastSeenIndex.NOT_INDEXED && this.pendingTimes[LastSeenIndex.pendingSlot(slot)] == time) {
+            return;
+        }
+        if (slot == LastSeenIndex.NOT_INDEXED) {
+            this.live++;
+        }
+        
+        if (this.size == 0 || time >= this.times[this.size - 1]) {
+            if (this.size == this.times.length) {
+                if (this.size + this.pendingSize - this.live > this.live) {
+                    // The old slot of this entry is dropped by the merge.
+                    this.slots[id] = LastSeenIndex.NOT_INDEXED;
+                    this.merge();
+                }
+                if (this.size == this.times.length) {
+                    final int capacity = this.size + (this.size >> 1) + 1;
+                    this.times = Arrays.copyOf(this.times, capacity);
+                    this.ids = Arrays.copyOf(this.ids, capacity);
+                }
+            }
+            this.times[this.size] = time;
+            this.ids[this.size] = id;
+            this.slots[id] = this.size++;
+            return;
+        }
+        
+        if (this.pendingSize == this.pendingTimes.length) {
+            final int capacity = this.pendingSize + (this.pendingSize >> 1) + 1;
+            this.pendingTimes = Arrays.copyOf(this.pendingTimes, capacity);
+            this.pendingIds = Arrays.copyOf(this.pendingIds, capacity);
+        }
+        this.pendingTimes[this.pendingSize] = time;
+        this.pendingIds[this.pendingSize] = id;
+        this.slots[id] = LastSeenIndex.pendingSlot(this.pendingSize++);
+        if (this.pendingSize > Math.max(LastSeenIndex.MINIMUM_PENDING, this.live >> 3)) {
+            this.merge();
+        }
+    }
+    
+    /**
+     * Indexes the given entries by their last seen times, as
+     * {@link LastSeenIndex#put(int)} does for each of them in turn, but
+     * sorting them only once, so this is much faster for large batches.
+     * 
+     * @param ids The entry ids.
+     * @param count The number of entry ids to index.
+     */
+    public void putAll(@NotNull final int[] ids, final int count) {
+        if (this.pendingSize + count > this.pendingTimes.length) {
+            this.pendingTimes = Arrays.copyOf(this.pendingTimes, this.pendingSize + count);
+            this.pendingIds = Arrays.copyOf(this.pendingIds, this.pendingSize + count);
+        }
+        for (int index = 0; index < count; index++) {
+            final int id = ids[index];
+            if (id >= this.slots.length) {
+                final int length = this.slots.length;
+                this.slots = Arrays.copyOf(this.slots, Math.max(id + 1, length + (length >> 1)));
+                Arrays.fill(this.slots, length, this.slots.length, LastSeenIndex.NOT_INDEXED);
+            }
+            if (this.slots[id] == LastSeenIndex.NOT_INDEXED) {
+                this.live++;
+            }
+            this.pendingTimes[this.pendingSize] = this.table.getLastSeen(id);
+            this.pendingIds[this.pendingSize] = id;
+            this.slots[id] = LastSeenIndex.pendingSlot(this.pendingSize++);
+        }
+        this.merge();
+    }
+    
+    /**
+     * Calls the given action with every entry last seen at or after the
+     * given time. The entries are not visited in any particular order.
+     * 
+     * @param time The earliest last seen time, in milliseconds since the
+     *             epoch.
+     * @param action The action to call with each entry id.
+     */
+    public void forEachSince(final long time, @NotNull final IntConsumer action) {
+        for (int slot = this.lowerBound(time); slot < this.size; slot++) {
+            if (this.slots[this.ids[slot]] == slot) {
+                action.accept(this.ids[slot]);
+            }
+        }
+        for (int index = 0; index < this.pendingSize; index++) {
+            if (this.pendingTimes[index] >= time && this.slots[this.pendingIds[index]] == LastSeenIndex.pendingSlot(index)) {
+                action.accept(this.pendingIds[index]);
+            }
+        }
+    }
+    
+    /**
+     * Calls the given action with every entry last seen before the given
+     * time. The entries are not visited in any particular order.
+     * 
+     * @param time The time that the entries were not seen since, in
+     *             milliseconds since the epoch.
+     * @param action The action to call with each entry id.
+     */
+    public void forEachBefore(final long time, @NotNull final IntConsumer action) {
+        final int end = this.lowerBound(time);
+        for (int slot = 0; slot < end; slot++) {
+            if (this.slots[this.ids[slot]] == slot) {
+                action.accept(this.ids[slot]);
+            }
+        }
+        for (int index = 0; index < this.pendingSize; index++) {
+            if (this.pendingTimes[index] < time && this.slots[this.pendingIds[index]] == LastSeenIndex.pendingSlot(index)) {
+                action.accept(this.pendingIds[index]);
+            }
+        }
+    }
+    
+    /**
+     * Gets the entries that were seen most recently.
+     * 
+     * @param limit The maximum number of entries to get.
+     * @return The entry ids, most recently seen first.
+     */
+    @NotNull
+    public int[] getMostRecent(final int limit) {
+        final int count = Math.min(limit, this.live);
+        if (count == 0) {
+            return new int[0];
+        }
+        final long[] times = new long[count];
+        final int[] ids = new int[count];
+        int found = 0;
+        for (int slot = this.size - 1; slot >= 0 && found < count; slot--) {
+            if (this.slots[this.ids[slot]] == slot) {
+                times[found] = this.times[slot];
+                ids[found++] = this.ids[slot];
+            }
+        }
+        
+        // Pending entries are older than the end of the run when they are
+        // added, but may still be newer than some of the entries found.
+        for (int index = 0; index < this.pendingSize; index++) {
+            final int id = this.pendingIds[index];
+            final long time = this.pendingTimes[index];
+            if (this.slots[id] != LastSeenIndex.pendingSlot(index) || (found == count && time <= times[count - 1])) {
+                continue;
+            }
+            int position = found < count ? found++ : count - 1;
+            while (position > 0 && times[position - 1] < time) {
+                times[position] = times[position - 1];
+                ids[position] = ids[position - 1];
+                position--;
+            }
+            times[position] = time;
+            ids[position] = id;
+        }
+        return found == count ? ids : Arrays.copyOf(ids, found);
+    }
+    
+    /**
+     * Gets the number of entries in this {@link LastSeenIndex}.
+     * 
+     * @return The number of indexed entries.
+     */
+    public int size() {
+        return this.live;
+    }
+    
+    /**
+     * Finds the first slot of the run with a time at or after the given time.
+     * 
+     * @param time The time.
+     * @return The slot, or the size of the run if there is none.
+     */
+    private int lowerBound(final long time) {
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (this.times[middle] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Sorts the live pending entries and merges them into the run, dropping
+     * every stale slot.
+     */
+    private void merge() {
+        int pending = 0;
+        for (int index = 0; index < this.pendingSize; index++) {
+            if (this.slots[this.pendingIds[index]] == LastSeenIndex.pendingSlot(index)) {
+                this.pendingTimes[pending] = this.pendingTimes[index];
+                this.pendingIds[pending++] = this.pendingIds[index];
+            }
+        }
+        LastSeenIndex.sort(this.pendingTimes, this.pendingIds, 0, pending);
+        
+        // Drop the stale slots of the run before any live slot is moved, as
+        // a moved entry could otherwise land on the position of one of its
+        // own stale slots and make it look live again.
+        int run = 0;
+        for (int slot = 0; slot < this.size; slot++) {
+            if (this.slots[this.ids[slot]] == slot) {
+                this.times[run] = this.times[slot];
+                this.ids[run++] = this.ids[slot];
+            }
+        }
+        
+        final int capacity = Math.max(LastSeenIndex.MINIMUM_CAPACITY, this.live + (this.live >> 1) + 1);
+        final long[] times = new long[capacity];
+        final int[] ids = new int[capacity];
+        int merged = 0;
+        int slot = 0;
+        int index = 0;
+        while (slot < run || index < pending) {
+            final int id;
+            if (index >= pending || (slot < run && this.times[slot] <= this.pendingTimes[index])) {
+                times[merged] = this.times[slot];
+                id = this.ids[slot++];
+            } else {
+                times[merged] = this.pendingTimes[index];
+                id = this.pendingIds[index++];
+            }
+            ids[merged] = id;
+            this.slots[id] = merged++;
+        }
+        this.times = times;
+        this.ids = ids;
+        this.size = merged;
+        this.pendingSize = 0;
+    }
+    
+    /**
+     * Encodes the position of an entry in the pending buffer as a slot, so
+     * that it cannot be mistaken for a position in the run. The encoding is
+     * its own inverse, so this also decodes a slot back into the position.
+     * 
+     * @param index The index in the pending buffer.
+     * @return The encoded slot.
+     */
+    private static int pendingSlot(final int index) {
+        return -2 - index;
+    }
+    
+    /**
+     * Sorts a range of parallel arrays by time.
+     * 
+     * @param times The times to sort by.
+     * @param ids The entry ids, moved with their times.
+     * @param from The start of the range (inclusive).
+     * @param to The end of the range (exclusive).
+     */
+    private static void sort(@NotNull final long[] times, @NotNull final int[] ids, int from, final int to) {
+        int end = to;
+        while (end - from > 16) {
+            final long pivot = times[(from + end) >>> 1];
+            
+            // Three-way partition, so that runs of equal times terminate.
+            int less = from;
+            int index = from;
+            int greater = end;
+            while (index < greater) {
+                final long time = times[index];
+                if (time < pivot) {
+                    LastSeenIndex.swap(times, ids, index++, less++);
+                } else if (time > pivot) {
+                    LastSeenIndex.swap(times, ids, index, --greater);
+                } else {
+                    index++;
+                }
+            }
+            
+            // Recurse into the smaller side, and loop on the larger one.
+            if (less - from < end - greater) {
+                LastSeenIndex.sort(times, ids, from, less);
+                from = greater;
+            } else {
+                LastSeenIndex.sort(times, ids, greater, end);
+                end = less;
+            }
+        }
+        for (int index = from + 1; index < end; index++) {
+            final long time = times[index];
+            final int id = ids[index];
+            int position = index;
+            while (position > from && times[position - 1] > time) {
+                times[position] = times[position - 1];
+                ids[position] = ids[position - 1];
+                position--;
+            }
+            times[position] = time;
+            ids[position] = id;
+        }
+    }
+    
+    /**
+     * Swaps two elements of a pair of parallel arrays.
+     * 
+     * @param times The times.
+     * @param ids The entry ids.
+     * @param first The first index.
+     * @param second The second index.
+     */
+    private static void swap(@NotNull final long[] times, @NotNull final int[] ids, final int first, final int second) {
+        final long time = times[first];
+        times[first] = times[second];
+        times[second] = time;
+        final int id = ids[first];
+        ids[first] = ids[second];
+        ids[second] = id;
+    }
+}
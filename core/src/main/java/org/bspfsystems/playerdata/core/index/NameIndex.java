@@ -0,0 +1,238 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.bspfsystems.playerdata.core.store.EntryTable;
+import org.bspfsystems.playerdata.core.store.PackedNames;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An open-addressing hash index from player names, ignoring case, to entry
+ * ids in an {@link EntryTable}.
+ * <p>
+ * Like the {@link UniqueIdIndex}, only <code>int</code> entry ids are stored;
+ * the keys are the case-folded {@link PackedNames packed} names, read back
+ * from the {@link EntryTable} when probing. Names that cannot be packed are
+ * rare, and are kept in a separate {@link Map}.
+ * <p>
+ * This class is not thread-safe; callers must provide their own
+ * synchronization.
+ */
+public final class NameIndex {
+    
+    private static final int MINIMUM_CAPACITY = 16;
+    
+    private final EntryTable table;
+    private final Map<String, Integer> overflow;
+    private int[] slots;
+    private int mask;
+    private int size;
+    private int threshold;
+    
+    /**
+     * Creates a new, empty {@link NameIndex} over the given
+     * {@link EntryTable}.
+     * 
+     * @param table The {@link EntryTable} that holds the indexed names.
+     */
+    public NameIndex(@NotNull final EntryTable table) {
+        this.table = table;
+        this.overflow = new HashMap<String, Integer>();
+        this.allocate(NameIndex.MINIMUM_CAPACITY);
+    }
+    
+    /**
+     * Gets the entry id for the given name, ignoring case.
+     * 
+     * @param name The name to look up.
+     * @return The entry id, or {@link UniqueIdIndex#NOT_FOUND} if the name is
+     *         not indexed.
+     */
+    public int get(@NotNull final String name) {
+        if (!PackedNames.isPackable(name)) {
+            final Integer id = this.overflow.get(name.toLowerCase(Locale.ROOT));
+            return id == null ? UniqueIdIndex.NOT_FOUND : id;
+        }
+        final long head = PackedNames.packFolded(name, 0);
+        final long tail = PackedNames.packFolded(name, PackedNames.HEAD_LENGTH);
+        final int slot = this.find(head, tail);
+        return slot < 0 ? UniqueIdIndex.NOT_FOUND : this.slots[slot];
+    }
+    
+    /**
+     * Indexes the given entry by its name, as currently stored in the
+     * {@link EntryTable}. If another entry already has the same name, ignoring
+     * case, it is replaced.
+     * 
+     * @param id The entry id.
+     */
+    public void put(final int id) {
+        if (!this.table.isNamePacked(id)) {
+            this.overflow.put(this.table.getName(id).toLowerCase(Locale.ROOT), id);
+            return;
+        }
+        if (this.size >= this.threshold) {
+            this.allocate(this.slots.length << 1);
+        }
+        if (this.insert(id)) {
+            this.size++;
+        }
+    }
+    
+    /**
+     * Grows this {@link NameIndex}, if required, so that it can hold the
+     * given number of entries without resizing again. This should be called
+     * before adding many entries at once.
+     * 
+     * @param expectedSize The expected number of entries.
+     */
+    public void ensureCapacity(final int expectedSize) {
+        final int capacity = UniqueIdIndex.capacityFor(expectedSize);
+        if (capacity > this.slots.length) {
+            this.allocate(capacity);
+        }
+    }
+    
+    /**
+     * Removes the given entry from this {@link NameIndex}, using its name as
+     * currently stored in the {@link EntryTable}. Nothing is removed if the
+     * name is now indexed to a different entry.
+     * 
+     * @param id The entry id.
+     */
+    public void remove(final int id) {
+        if (!this.table.isNamePacked(id)) {
+            final String key = this.table.getName(id).toLowerCase(Locale.ROOT);
+            final Integer existing = this.overflow.get(key);
+            if (existing != null && existing == id) {
+                this.overflow.remove(key);
+            }
+            return;
+        }
+        int slot = this.find(PackedNames.fold(this.table.getNameHead(id)), PackedNames.fold(this.table.getNameTail(id)));
+        if (slot < 0 || this.slots[slot] != id) {
+            return;
+        }
+        
+        // Backward-shift deletion, so that probe sequences stay unbroken.
+        int next = slot;
+        while (true) {
+            next = (next + 1) & this.mask;
+            final int moved = this.slots[next];
+            if (moved == UniqueIdIndex.NOT_FOUND) {
+                break;
+            }
+            final int home = this.hash(moved) & this.mask;
+            final boolean stays = slot <= next ? (slot < home && home <= next) : (slot < home || home <= next);
+            if (!stays) {
+                this.slots[slot] = moved;
+                slot = next;
+            }
+        }
+        this.slots[slot] = UniqueIdIndex.NOT_FOUND;
+        this.size--;
+    }
+    
+    /**
+     * Gets the number of entries in this {@link NameIndex}.
+     * 
+     * @return The number of indexed entries.
+     */
+    public int size() {
+        return this.size + this.overflow.size();
+    }
+    
+    /**
+     * Finds the slot holding the given case-folded packed name.
+     * 
+     * @param head The case-folded head word.
+     * @param tail The case-folded tail word.
+     * @return The slot, or <code>-1</code> if the name is not indexed.
+     */
+    private int find(final long head, final long tail) {
+        int slot = UniqueIdIndex.hash(head, tail) & this.mask;
+        int id;
+        while ((id = this.slots[slot]) != UniqueIdIndex.NOT_FOUND) {
+            if (PackedNames.fold(this.table.getNameHead(id)) == head && PackedNames.fold(this.table.getNameTail(id)) == tail) {
+                return slot;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return -1;
+    }
+    
+    /**
+     * Inserts the given entry id without checking the load factor.
+     * 
+     * @param id The entry id.
+     * @return <code>true</code> if a new slot was used, <code>false</code> if
+     *         an existing entry with the same name was replaced.
+     */
+    private boolean insert(final int id) {
+        final long head = PackedNames.fold(this.table.getNameHead(id));
+        final long tail = PackedNames.fold(this.table.getNameTail(id));
+        int slot = UniqueIdIndex.hash(head, tail) & this.mask;
+        int existing;
+        while ((existing = this.slots[slot]) != UniqueIdIndex.NOT_FOUND) {
+            if (PackedNames.fold(this.table.getNameHead(existing)) == head && PackedNames.fold(this.table.getNameTail(existing)) == tail) {
+                this.slots[slot] = id;
+                return false;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.slots[slot] = id;
+        return true;
+    }
+    
+    /**
+     * Gets the hash of the stored name of the given entry.
+     * 
+     * @param id The entry id.
+     * @return The hash.
+     */
+    private int hash(final int id) {
+        return UniqueIdIndex.hash(PackedNames.fold(this.table.getNameHead(id)), PackedNames.fold(this.table.getNameTail(id)));
+    }
+    
+    /**
+     * Replaces the slot array with one of the given capacity, re-inserting
+     * any existing entries.
+     * 
+     * @param capacity The new capacity, which must be a power of two.
+     */
+    private void allocate(final int capacity) {
+        final int[] old = this.slots;
+        this.slots = new int[capacity];
+        Arrays.fill(this.slots, UniqueIdIndex.NOT_FOUND);
+        this.mask = capacity - 1;
+        this.threshold = (int) (capacity * 0.7F);
+        if (old != null) {
+            for (final int id : old) {
+                if (id != UniqueIdIndex.NOT_FOUND) {
+                    this.insert(id);
+                }
+            }
+        }
+    }
+}
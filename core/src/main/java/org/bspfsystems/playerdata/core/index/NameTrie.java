@@ -0,0 +1,935 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+import org.bspfsystems.playerdata.core.store.EntryTable;
+import org.bspfsystems.playerdata.core.store.PackedNames;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A compressed prefix tree (radix tree) over the case-folded names in an
+ * {@link EntryTable}, answering "starts with" queries in time proportional to
+ * the length of the prefix plus the number of results.
+ * <p>
+ * Nodes are stored in parallel primitive arrays rather than as objects. Each
+ * node has an edge label of up to {@link PackedNames#HEAD_LENGTH} case-folded
+ * {@link PackedNames packed} character codes, a link to its next sibling and
+ * a "down" link. The down link is either the first child of the node, or, if
+ * the node is a leaf, the id of the entry whose name ends there. A name that
+ * ends part way down the tree, such as "bob" when "bobby" is also known, is
+ * stored as a child with an empty label. Siblings are kept in order of the
+ * first code of their labels, so results are visited in case-insensitive
+ * alphabetical order.
+ * <p>
+ * Every node also records the highest {@link EntryTable#getRank(int) rank}
+ * of any entry below it. This allows the best matches for a prefix to be
+ * visited in rank order, best first, expanding only as many nodes as are
+ * needed for the results that are actually taken.
+ * <p>
+ * The tree can also be searched for names within a small edit distance of a
+ * query, counting insertions, deletions, substitutions and swaps of adjacent
+ * letters. The search computes one row of the edit distance table per level
+ * of the tree, shared by every name below that point, and stops descending as
+ * soon as no name below can be close enough.
+ * <p>
+ * Names that cannot be packed are rare, and are kept in a separate sorted
+ * {@link Map}.
+ * <p>
+ * This class is not thread-safe; callers must provide their own
+ * synchronization.
+ */
+public final class NameTrie {
+    
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+    private static final int BITS = 6;
+    private static final int CODE_MASK = (1 << NameTrie.BITS) - 1;
+    
+    private final EntryTable table;
+    private final TreeMap<String, Integer> overflow;
+    private final int[] path;
+    
+    private int[] down;
+    private int[] next;
+    private long[] labels;
+    private byte[] lengths;
+    private long[] ranks;
+    private int nodes;
+    private int free;
+    private int size;
+    
+    /**
+     * Creates a new, empty {@link NameTrie} over the given
+     * {@link EntryTable}.
+     * 
+     * @param table The {@link EntryTable} that holds the indexed names.
+     */
+    public NameTrie(@NotNull final EntryTable table) {
+        this.table = table;
+        this.overflow = new TreeMap<String, Integer>();
+        this.path = new int[PackedNames.MAXIMUM_LENGTH + 2];
+        
+        this.down = new int[64];
+        this.next = new int[64];
+        this.labels = new long[64];
+        this.lengths = new byte[64];
+        this.ranks = new long[64];
+        this.nodes = 0;
+        this.free = NameTrie.NONE;
+        this.size = 0;
+        this.allocate(0L, 0, NameTrie.NONE, Long.MIN_VALUE);
+    }
+    
+    /**
+     * Indexes the given entry by its name, as currently stored in the
+     * {@link EntryTable}. If another entry already has the same name, ignoring
+     * case, it is replaced.
+     * 
+     * @param id The entry id.
+     */
+    public void put(final int id) {
+        if (!this.table.isNamePacked(id)) {
+            this.overflow.put(this.table.getName(id).toLowerCase(Locale.ROOT), id);
+            return;
+        }
+        
+        final long head = PackedNames.fold(this.table.getNameHead(id));
+        final long tail = PackedNames.fold(this.table.getNameTail(id));
+        final int length = PackedNames.length(head, tail);
+        this.insert(head, tail, length, NameTrie.value(id));
+        this.refresh(head, tail, length);
+    }
+    
+    /**
+     * Indexes the given entries by their names, as
+     * {@link NameTrie#put(int)} does for each of them in turn. The ranks are
+     * computed once for the whole tree at the end, rather than along the
+     * path of every name, so this is much faster for large batches.
+     * 
+     * @param ids The entry ids.
+     * @param count The number of entry ids to index.
+     */
+    public void putAll(@NotNull final int[] ids, final int count) {
+        for (int index = 0; index < count; index++) {
+            final int id = ids[index];
+            if (!this.table.isNamePacked(id)) {
+                this.overflow.put(this.table.getName(id).toLowerCase(Locale.ROOT), id);
+                continue;
+            }
+            final long head = PackedNames.fold(this.table.getNameHead(id));
+            final long tail = PackedNames.fold(this.table.getNameTail(id));
+            this.insert(head, tail, PackedNames.length(head, tail), NameTrie.value(id));
+        }
+        this.rerank(NameTrie.ROOT);
+    }
+    
+    /**
+     * Inserts the given key into the tree, without updating the ranks.
+     * 
+     * @param head The case-folded head word of the key.
+     * @param tail The case-folded tail word of the key.
+     * @param length The length of the key.
+     * @param value The encoded entry id to store for the key.
+     */
+    private void insert(final long head, final long tail, final int length, final int value) {
+        int node = NameTrie.ROOT;
+        int position = 0;
+        while (true) {
+            if (position == length) {
+                final int first = this.down[node];
+                if (first >= 0 && this.lengths[first] == 0) {
+                    this.down[first] = value;
+                } else {
+                    final int terminal = this.allocate(0L, 0, value, Long.MIN_VALUE);
+                    this.next[terminal] = first;
+                    this.down[node] = terminal;
+                    this.size++;
+                }
+                return;
+            }
+            
+            final int code = PackedNames.codeAt(head, tail, position);
+            int previous = NameTrie.NONE;
+            int child = this.down[node];
+            while (child >= 0 && this.firstCode(child) < code) {
+                previous = child;
+                child = this.next[child];
+            }
+            if (child < 0 || this.firstCode(child) != code) {
+                final int leaf = this.chain(head, tail, position, length, value);
+                this.next[leaf] = child;
+                this.link(node, previous, leaf);
+                this.size++;
+                return;
+            }
+            
+            final int matched = this.match(child, head, tail, position, length);
+            if (matched < this.lengths[child]) {
+                child = this.split(node, previous, child, matched);
+            }
+            position += matched;
+            if (this.down[child] < NameTrie.NONE) {
+                if (position == length) {
+                    this.down[child] = value;
+                    return;
+                }
+                final int terminal = this.allocate(0L, 0, this.down[child], this.ranks[child]);
+                this.down[child] = terminal;
+            }
+            node = child;
+        }
+    }
+    
+    /**
+     * Removes the given entry from this {@link NameTrie}, using its name as
+     * currently stored in the {@link EntryTable}. Nothing is removed if the
+     * name is now indexed to a different entry.
+     * 
+     * @param id The entry id.
+     */
+    public void remove(final int id) {
+        if (!this.table.isNamePacked(id)) {
+            final String key = this.table.getName(id).toLowerCase(Locale.ROOT);
+            final Integer existing = this.overflow.get(key);
+            if (existing != null && existing == id) {
+                this.overflow.remove(key);
+            }
+            return;
+        }
+        
+        final long head = PackedNames.fold(this.table.getNameHead(id));
+        final long tail = PackedNames.fold(this.table.getNameTail(id));
+        final int length = PackedNames.length(head, tail);
+        this.delete(head, tail, length, NameTrie.value(id));
+        this.refresh(head, tail, length);
+    }
+    
+    /**
+     * Deletes the given key from the tree, if it holds the given value,
+     * without updating the ranks.
+     * 
+     * @param head The case-folded head word of the key.
+     * @param tail The case-folded tail word of the key.
+     * @param length The length of the key.
+     * @param value The encoded entry id that must be stored for the key.
+     */
+    private void delete(final long head, final long tail, final int length, final int value) {
+        int depth = 0;
+        int position = 0;
+        int target;
+        this.path[0] = NameTrie.ROOT;
+        while (true) {
+            final int node = this.path[depth];
+            if (position == length) {
+                target = this.down[node];
+                if (target < 0 || this.lengths[target] != 0 || this.down[target] != value) {
+                    return;
+                }
+                break;
+            }
+            final int child = this.find(node, PackedNames.codeAt(head, tail, position));
+            if (child == NameTrie.NONE) {
+                return;
+            }
+            final int matched = this.match(child, head, tail, position, length);
+            if (matched < this.lengths[child]) {
+                return;
+            }
+            position += matched;
+            if (this.down[child] < NameTrie.NONE) {
+                if (position != length || this.down[child] != value) {
+                    return;
+                }
+                target = child;
+                break;
+            }
+            this.path[++depth] = child;
+        }
+        
+        this.unlink(this.path[depth], target);
+        this.release(target);
+        this.size--;
+        
+        // Prune nodes left without children, and merge nodes left with only
+        // one child, so that the tree stays compressed.
+        while (depth > 0) {
+            final int node = this.path[depth];
+            final int first = this.down[node];
+            if (first < 0) {
+                this.unlink(this.path[depth - 1], node);
+                this.release(node);
+                depth--;
+                continue;
+            }
+            if (this.next[first] == NameTrie.NONE && this.lengths[node] + this.lengths[first] <= PackedNames.HEAD_LENGTH) {
+                this.labels[node] |= this.labels[first] << (NameTrie.BITS * this.lengths[node]);
+                this.lengths[node] += this.lengths[first];
+                this.down[node] = this.down[first];
+                this.ranks[node] = this.ranks[first];
+                this.release(first);
+            }
+            break;
+        }
+    }
+    
+    /**
+     * Visits the ids of all entries whose names start with the given prefix,
+     * ignoring case, in case-insensitive alphabetical order. The visit stops
+     * early if the visitor returns <code>false</code>.
+     * 
+     * @param prefix The (partial) name to match.
+     * @param visitor The visitor to call with each matching entry id.
+     * @return <code>false</code> if the visitor stopped the visit early,
+     *         <code>true</code> otherwise.
+     */
+    public boolean visitPrefix(@NotNull final String prefix, @NotNull final IntPredicate visitor) {
+        if (prefix.isEmpty() || PackedNames.isPackable(prefix)) {
+            final int start = this.locate(prefix);
+            if (start != NameTrie.NONE && !this.visitSubtree(start, visitor)) {
+                return false;
+            }
+        }
+        if (this.overflow.isEmpty()) {
+            return true;
+        }
+        final String key = prefix.toLowerCase(Locale.ROOT);
+        for (final Integer id : this.overflow.subMap(key, key + Character.MAX_VALUE).values()) {
+            if (!visitor.test(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Updates the ranks in the tree after the
+     * {@link EntryTable#getRank(int) rank} of the given entry has changed.
+     * 
+     * @param id The entry id.
+     */
+    public void updateRank(final int id) {
+        if (this.table.isNamePacked(id)) {
+            final long head = PackedNames.fold(this.table.getNameHead(id));
+            final long tail = PackedNames.fold(this.table.getNameTail(id));
+            this.refresh(head, tail, PackedNames.length(head, tail));
+        }
+    }
+    
+    /**
+     * Visits the ids of all entries whose names start with the given prefix,
+     * ignoring case, in {@link EntryTable#getRank(int) rank} order, highest
+     * first. The visit stops early if the visitor returns <code>false</code>,
+     * and only the parts of the tree needed to find the visited entries are
+     * expanded.
+     * 
+     * @param prefix The (partial) name to match.
+     * @param visitor The visitor to call with each matching entry id.
+     * @return <code>false</code> if the visitor stopped the visit early,
+     *         <code>true</code> otherwise.
+     */
+    public boolean visitPrefixByRank(@NotNull final String prefix, @NotNull final IntPredicate visitor) {
+        final List<Integer> overflowIds = new ArrayList<Integer>();
+        if (!this.overflow.isEmpty()) {
+            final String key = prefix.toLowerCase(Locale.ROOT);
+            overflowIds.addAll(this.overflow.subMap(key, key + Character.MAX_VALUE).values());
+            overflowIds.sort((first, second) -> Long.compare(this.table.getRank(second), this.table.getRank(first)));
+        }
+        int overflowIndex = 0;
+        
+        final int start = prefix.isEmpty() || PackedNames.isPackable(prefix) ? this.locate(prefix) : NameTrie.NONE;
+        if (start != NameTrie.NONE) {
+            final RankHeap heap = new RankHeap();
+            heap.push(start, this.ranks[start]);
+            while (!heap.isEmpty()) {
+                final long rank = heap.peekRank();
+                final int node = heap.pop();
+                final int link = this.down[node];
+                if (link < NameTrie.NONE) {
+                    while (overflowIndex < overflowIds.size() && this.table.getRank(overflowIds.get(overflowIndex)) > rank) {
+                        if (!visitor.test(overflowIds.get(overflowIndex++))) {
+                            return false;
+                        }
+                    }
+                    if (!visitor.test(NameTrie.id(link))) {
+                        return false;
+                    }
+                } else {
+                    for (int child = link; child >= 0; child = this.next[child]) {
+                        heap.push(child, this.ranks[child]);
+                    }
+                }
+            }
+        }
+        
+        while (overflowIndex < overflowIds.size()) {
+            if (!visitor.test(overflowIds.get(overflowIndex++))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Visits the ids of all entries whose names are within the given edit
+     * distance of the query, ignoring case. Insertions, deletions,
+     * substitutions and swaps of two adjacent letters each count as one edit.
+     * The visit stops early if the visitor returns <code>false</code>.
+     * 
+     * @param query The name to search for.
+     * @param maxDistance The maximum number of edits.
+     * @param visitor The visitor to call with each matching entry id.
+     * @return <code>false</code> if the visitor stopped the visit early,
+     *         <code>true</code> otherwise.
+     * @throws IllegalArgumentException If <code>maxDistance</code> is
+     *                                  negative.
+     */
+    public boolean visitSimilar(@NotNull final String query, final int maxDistance, @NotNull final IntPredicate visitor) throws IllegalArgumentException {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Maximum distance cannot be negative: " + maxDistance);
+        }
+        final int length = query.length();
+        if (length <= PackedNames.MAXIMUM_LENGTH + maxDistance) {
+            final int[] codes = new int[length];
+            for (int index = 0; index < length; index++) {
+                codes[index] = PackedNames.fold(PackedNames.code(query.charAt(index)));
+            }
+            final int[][] rows = new int[PackedNames.MAXIMUM_LENGTH + 1][length + 1];
+            final int[] path = new int[PackedNames.MAXIMUM_LENGTH + 1];
+            for (int column = 0; column <= length; column++) {
+                rows[0][column] = column;
+            }
+            if (!this.visitSimilar(NameTrie.ROOT, 0, codes, maxDistance, rows, path, visitor)) {
+                return false;
+            }
+        }
+        
+        final String key = query.toLowerCase(Locale.ROOT);
+        for (final Map.Entry<String, Integer> entry : this.overflow.entrySet()) {
+            if (NameTrie.distance(key, entry.getKey(), maxDistance) <= maxDistance && !visitor.test(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Gets the number of entries in this {@link NameTrie}.
+     * 
+     * @return The number of indexed entries.
+     */
+    public int size() {
+        return this.size + this.overflow.size();
+    }
+    
+    /**
+     * Recursively searches the subtree below the given node for names within
+     * the maximum edit distance of the query.
+     * 
+     * @param node The node whose label should be matched next.
+     * @param depth The number of characters above the label of the node.
+     * @param codes The case-folded codes of the query.
+     * @param maxDistance The maximum number of edits.
+     * @param rows The edit distance rows, one per character depth.
+     * @param path The codes of the characters above the current depth.
+     * @param visitor The visitor.
+     * @return <code>false</code> if the visitor stopped the visit early,
+     *         <code>true</code> otherwise.
+     */
+    private boolean visitSimilar(final int node, final int depth, @NotNull final int[] codes, final int maxDistance, @NotNull final int[][] rows, @NotNull final int[] path, @NotNull final IntPredicate visitor) {
+        final int length = codes.length;
+        final long label = this.labels[node];
+        int current = depth;
+        for (int index = 0; index < this.lengths[node]; index++) {
+            final int code = (int) ((label >>> (NameTrie.BITS * index)) & NameTrie.CODE_MASK);
+            path[current] = code;
+            final int[] above = rows[current];
+            final int[] row = rows[++current];
+            row[0] = current;
+            int best = row[0];
+            for (int column = 1; column <= length; column++) {
+                int cost = Math.min(above[column] + 1, row[column - 1] + 1);
+                cost = Math.min(cost, above[column - 1] + (codes[column - 1] == code ? 0 : 1));
+                if (current > 1 && column > 1 && codes[column - 1] == path[current - 2] && codes[column - 2] == code) {
+                    cost = Math.min(cost, rows[current - 2][column - 2] + 1);
+                }
+                row[column] = cost;
+                best = Math.min(best, cost);
+            }
+            if (best > maxDistance) {
+                return true;
+            }
+        }
+        
+        final int link = this.down[node];
+        if (link < NameTrie.NONE) {
+            return rows[current][length] > maxDistance || visitor.test(NameTrie.id(link));
+        }
+        for (int child = link; child >= 0; child = this.next[child]) {
+            if (!this.visitSimilar(child, current, codes, maxDistance, rows, path, visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Recomputes the ranks of the given node and every node below it.
+     * 
+     * @param node The node.
+     * @return The new rank of the node.
+     */
+    private long rerank(final int node) {
+        final int link = this.down[node];
+        long rank = Long.MIN_VALUE;
+        if (link < NameTrie.NONE) {
+            rank = this.table.getRank(NameTrie.id(link));
+        } else {
+            for (int child = link; child >= 0; child = this.next[child]) {
+                rank = Math.max(rank, this.rerank(child));
+            }
+        }
+        this.ranks[node] = rank;
+        return rank;
+    }
+    
+    /**
+     * Recomputes the ranks of the nodes along the path of the given key, from
+     * the bottom up. The path is followed as far as it exists, so this can be
+     * used both after the key is inserted and after it is deleted.
+     * 
+     * @param head The case-folded head word of the key.
+     * @param tail The case-folded tail word of the key.
+     * @param length The length of the key.
+     */
+    private void refresh(final long head, final long tail, final int length) {
+        int depth = 0;
+        int position = 0;
+        this.path[0] = NameTrie.ROOT;
+        while (this.down[this.path[depth]] >= NameTrie.NONE) {
+            final int node = this.path[depth];
+            if (position == length) {
+                final int first = this.down[node];
+                if (first >= 0 && this.lengths[first] == 0) {
+                    this.path[++depth] = first;
+                }
+                break;
+            }
+            final int child = this.find(node, PackedNames.codeAt(head, tail, position));
+            if (child == NameTrie.NONE) {
+                break;
+            }
+            final int matched = this.match(child, head, tail, position, length);
+            if (matched < this.lengths[child]) {
+                break;
+            }
+            position += matched;
+            this.path[++depth] = child;
+        }
+        
+        for (; depth >= 0; depth--) {
+            final int node = this.path[depth];
+            final int link = this.down[node];
+            if (link < NameTrie.NONE) {
+                this.ranks[node] = this.table.getRank(NameTrie.id(link));
+            } else {
+                long rank = Long.MIN_VALUE;
+                for (int child = link; child >= 0; child = this.next[child]) {
+                    rank = Math.max(rank, this.ranks[child]);
+                }
+                this.ranks[node] = rank;
+            }
+        }
+    }
+    
+    /**
+     * Finds the node whose subtree holds exactly the names starting with the
+     * given packable prefix.
+     * 
+     * @param prefix The prefix.
+     * @return The node, or {@link NameTrie#NONE} if no names match.
+     */
+    private int locate(@NotNull final String prefix) {
+        final int length = prefix.length();
+        if (length == 0) {
+            return NameTrie.ROOT;
+        }
+        final long head = PackedNames.packFolded(prefix, 0);
+        final long tail = PackedNames.packFolded(prefix, PackedNames.HEAD_LENGTH);
+        int node = NameTrie.ROOT;
+        int position = 0;
+        while (true) {
+            final int child = this.find(node, PackedNames.codeAt(head, tail, position));
+            if (child == NameTrie.NONE) {
+                return NameTrie.NONE;
+            }
+            final int matched = this.match(child, head, tail, position, length);
+            if (position + matched == length) {
+                return child;
+            }
+            if (matched < this.lengths[child] || this.down[child] < NameTrie.NONE) {
+                return NameTrie.NONE;
+            }
+            position += matched;
+            node = child;
+        }
+    }
+    
+    /**
+     * Visits every entry id in the subtree rooted at the given node, in
+     * order.
+     * 
+     * @param start The root of the subtree.
+     * @param visitor The visitor.
+     * @return <code>false</code> if the visitor stopped the visit early,
+     *         <code>true</code> otherwise.
+     */
+    private boolean visitSubtree(final int start, @NotNull final IntPredicate visitor) {
+        int[] stack = new int[32];
+        int top = 0;
+        stack[top++] = start;
+        while (top > 0) {
+            final int node = stack[--top];
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length << 1);
+            }
+            if (node != start && this.next[node] != NameTrie.NONE) {
+                stack[top++] = this.next[node];
+            }
+            final int link = this.down[node];
+            if (link < NameTrie.NONE) {
+                if (!visitor.test(NameTrie.id(link))) {
+                    return false;
+                }
+            } else if (link != NameTrie.NONE) {
+                stack[top++] = link;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Finds the child of the given node whose label starts with the given
+     * code.
+     * 
+     * @param node The parent node.
+     * @param code The first code of the label.
+     * @return The child, or {@link NameTrie#NONE} if there is none.
+     */
+    private int find(final int node, final int code) {
+        int child = this.down[node];
+        while (child >= 0) {
+            final int first = this.firstCode(child);
+            if (first == code) {
+                return child;
+            }
+            if (first > code) {
+                break;
+            }
+            child = this.next[child];
+        }
+        return NameTrie.NONE;
+    }
+    
+    /**
+     * Counts how many codes of the label of the given node match the key
+     * from the given position.
+     * 
+     * @param node The node.
+     * @param head The case-folded head word of the key.
+     * @param tail The case-folded tail word of the key.
+     * @param position The position in the key.
+     * @param length The length of the key.
+     * @return The number of matching codes.
+     */
+    private int match(final int node, final long head, final long tail, final int position, final int length) {
+        final int limit = Math.min(this.lengths[node], length - position);
+        final long label = this.labels[node];
+        int matched = 0;
+        while (matched < limit && ((label >>> (NameTrie.BITS * matched)) & NameTrie.CODE_MASK) == PackedNames.codeAt(head, tail, position + matched)) {
+            matched++;
+        }
+        return matched;
+    }
+    
+    /**
+     * Creates the nodes for the remainder of a key, chaining several nodes if
+     * it is longer than a single label.
+     * 
+     * @param head The case-folded head word of the key.
+     * @param tail The case-folded tail word of the key.
+     * @param position The position of the first code of the remainder.
+     * @param length The length of the key.
+     * @param value The encoded entry id to store at the end of the chain.
+     * @return The first node of the chain.
+     */
+    private int chain(final long head, final long tail, final int position, final int length, final int value) {
+        final int end = Math.min(length, position + PackedNames.HEAD_LENGTH);
+        long label = 0L;
+        for (int index = end - 1; index >= position; index--) {
+            label = (label << NameTrie.BITS) | PackedNames.codeAt(head, tail, index);
+        }
+        final int link = end == length ? value : this.chain(head, tail, end, length, value);
+        return this.allocate(label, end - position, link, Long.MIN_VALUE);
+    }
+    
+    /**
+     * Splits the label of the given child after the given number of codes,
+     * inserting a new node for the first part in its place.
+     * 
+     * @param parent The parent of the child.
+     * @param previous The previous sibling of the child, or
+     *                 {@link NameTrie#NONE} if it is the first child.
+     * @param child The child to split.
+     * @param at The number of codes to keep in the new node.
+     * @return The new node.
+     */
+    private int split(final int parent, final int previous, final int child, final int at) {
+        final int shift = NameTrie.BITS * at;
+        final int node = this.allocate(this.labels[child] & ((1L << shift) - 1L), at, child, this.ranks[child]);
+        this.next[node] = this.next[child];
+        this.next[child] = NameTrie.NONE;
+        this.labels[child] >>>= shift;
+        this.lengths[child] -= at;
+        this.link(parent, previous, node);
+        return node;
+    }
+    
+    /**
+     * Links the given node into the child list of the parent, after the
+     * given previous sibling.
+     * 
+     * @param parent The parent node.
+     * @param previous The previous sibling, or {@link NameTrie#NONE} to make
+     *                 the node the first child.
+     * @param node The node to link.
+     */
+    private void link(final int parent, final int previous, final int node) {
+        if (previous == NameTrie.NONE) {
+            this.down[parent] = node;
+        } else {
+            this.next[previous] = node;
+        }
+    }
+    
+    /**
+     * Removes the given node from the child list of the parent.
+     * 
+     * @param parent The parent node.
+     * @param node The node to remove.
+     */
+    private void unlink(final int parent, final int node) {
+        int child = this.down[parent];
+        if (child == node) {
+            this.down[parent] = this.next[node];
+            return;
+        }
+        while (this.next[child] != node) {
+            child = this.next[child];
+        }
+        this.next[child] = this.next[node];
+    }
+    
+    /**
+     * Gets the first code of the label of the given node, or <code>0</code>
+     * if the label is empty, so that empty labels sort first.
+     * 
+     * @param node The node.
+     * @return The first code.
+     */
+    private int firstCode(final int node) {
+        return (int) (this.labels[node] & NameTrie.CODE_MASK);
+    }
+    
+    /**
+     * Allocates a new node, reusing a released node if there is one.
+     * 
+     * @param label The label of the node.
+     * @param length The length of the label.
+     * @param link The down link of the node.
+     * @param rank The highest rank below the node.
+     * @return The new node.
+     */
+    private int allocate(final long label, final int length, final int link, final long rank) {
+        final int node;
+        if (this.free != NameTrie.NONE) {
+            node = this.free;
+            this.free = this.next[node];
+        } else {
+            if (this.nodes == this.down.length) {
+                final int capacity = this.nodes + (this.nodes >> 1);
+                this.down = Arrays.copyOf(this.down, capacity);
+                this.next = Arrays.copyOf(this.next, capacity);
+                this.labels = Arrays.copyOf(this.labels, capacity);
+                this.lengths = Arrays.copyOf(this.lengths, capacity);
+                this.ranks = Arrays.copyOf(this.ranks, capacity);
+            }
+            node = this.nodes++;
+        }
+        this.down[node] = link;
+        this.next[node] = NameTrie.NONE;
+        this.labels[node] = label;
+        this.lengths[node] = (byte) length;
+        this.ranks[node] = rank;
+        return node;
+    }
+    
+    /**
+     * Releases the given node for reuse.
+     * 
+     * @param node The node.
+     */
+    private void release(final int node) {
+        this.down[node] = NameTrie.NONE;
+        this.next[node] = this.free;
+        this.free = node;
+    }
+    
+    /**
+     * Computes the edit distance between two {@link String Strings}, counting
+     * swaps of adjacent characters as a single edit. This is only used for
+     * the few names that cannot be stored in the tree.
+     * 
+     * @param first The first {@link String}.
+     * @param second The second {@link String}.
+     * @param maxDistance The distance above which the exact value does not
+     *                    matter.
+     * @return The edit distance, or any value greater than
+     *         <code>maxDistance</code> if it is greater.
+     */
+    private static int distance(@NotNull final String first, @NotNull final String second, final int maxDistance) {
+        if (Math.abs(first.length() - second.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+        final int[][] rows = new int[first.length() + 1][second.length() + 1];
+        for (int column = 0; column <= second.length(); column++) {
+            rows[0][column] = column;
+        }
+        for (int row = 1; row <= first.length(); row++) {
+            rows[row][0] = row;
+            for (int column = 1; column <= second.length(); column++) {
+                final char character = first.charAt(row - 1);
+                int cost = Math.min(rows[row - 1][column] + 1, rows[row][column - 1] + 1);
+                cost = Math.min(cost, rows[row - 1][column - 1] + (character == second.charAt(column - 1) ? 0 : 1));
+                if (row > 1 && column > 1 && character == second.charAt(column - 2) && first.charAt(row - 2) == second.charAt(column - 1)) {
+                    cost = Math.min(cost, rows[row - 2][column - 2] + 1);
+                }
+                rows[row][column] = cost;
+            }
+        }
+        return rows[first.length()][second.length()];
+    }
+    
+    /**
+     * Encodes an entry id as a down link.
+     * 
+     * @param id The entry id.
+     * @return The down link.
+     */
+    private static int value(final int id) {
+        return -id - 2;
+    }
+    
+    /**
+     * Decodes an entry id from a down link.
+     * 
+     * @param link The down link.
+     * @return The entry id.
+     */
+    private static int id(final int link) {
+        return -link - 2;
+    }
+    
+    /**
+     * A binary max-heap of nodes, ordered by rank, used for the best-first
+     * search in {@link NameTrie#visitPrefixByRank(String, IntPredicate)}.
+     */
+    private static final class RankHeap {
+        
+        private long[] ranks;
+        private int[] nodes;
+        private int size;
+        
+        private RankHeap() {
+            this.ranks = new long[32];
+            this.nodes = new int[32];
+            this.size = 0;
+        }
+        
+        private boolean isEmpty() {
+            return this.size == 0;
+        }
+        
+        private long peekRank() {
+            return this.ranks[0];
+        }
+        
+        private void push(final int node, final long rank) {
+            if (this.size == this.nodes.length) {
+                this.ranks = Arrays.copyOf(this.ranks, this.size << 1);
+                this.nodes = Arrays.copyOf(this.nodes, this.size << 1);
+            }
+            int index = this.size++;
+            while (index > 0) {
+                final int parent = (index - 1) >>> 1;
+                if (this.ranks[parent] >= rank) {
+                    break;
+                }
+                this.ranks[index] = this.ranks[parent];
+                this.nodes[index] = this.nodes[parent];
+                index = parent;
+            }
+            this.ranks[index] = rank;
+            this.nodes[index] = node;
+        }
+        
+        private int pop() {
+            final int top = this.nodes[0];
+            final int last = --this.size;
+            final long rank = this.ranks[last];
+            final int node = this.nodes[last];
+            int index = 0;
+            while (true) {
+                int child = (index << 1) + 1;
+                if (child >= last) {
+                    break;
+                }
+                if (child + 1 < last && this.ranks[child + 1] > this.ranks[child]) {
+                    child++;
+                }
+                if (this.ranks[child] <= rank) {
+                    break;
+                }
+                this.ranks[index] = this.ranks[child];
+                this.nodes[index] = this.nodes[child];
+                index = child;
+            }
+            this.ranks[index] = rank;
+            this.nodes[index] = node;
+            return top;
+        }
+    }
+}
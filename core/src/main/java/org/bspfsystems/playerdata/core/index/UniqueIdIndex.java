@@ -0,0 +1,232 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.index;
+
+import java.util.Arrays;
+import java.util.UUID;
+import org.bspfsystems.playerdata.core.store.EntryTable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An open-addressing hash index from player {@link UUID}s to entry ids in an
+ * {@link EntryTable}.
+ * <p>
+ * The index itself only stores <code>int</code> entry ids. The keys are the
+ * two <code>long</code> halves of the {@link UUID}, which are read back from
+ * the {@link EntryTable} when probing, so a lookup does not box anything or
+ * allocate a {@link UUID}, and each slot costs only 4 bytes.
+ * <p>
+ * Collisions are resolved by linear probing. Entries are never removed, so
+ * no tombstones are required.
+ * <p>
+ * This class is not thread-safe; callers must provide their own
+ * synchronization.
+ */
+public final class UniqueIdIndex {
+    
+    /**
+     * The value returned by lookups when the {@link UUID} is not indexed.
+     */
+    public static final int NOT_FOUND = -1;
+    
+    private static final int MINIMUM_CAPACITY = 16;
+    
+    private final EntryTable table;
+    private int[] slots;
+    private int mask;
+    private int size;
+    private int threshold;
+    
+    /**
+     * Creates a new, empty {@link UniqueIdIndex} over the given
+     * {@link EntryTable}.
+     * 
+     * @param table The {@link EntryTable} that holds the indexed keys.
+     */
+    public UniqueIdIndex(@NotNull final EntryTable table) {
+        this(table, UniqueIdIndex.MINIMUM_CAPACITY);
+    }
+    
+    /**
+     * Creates a new, empty {@link UniqueIdIndex} over the given
+     * {@link EntryTable}, sized to hold the given number of entries without
+     * resizing.
+     * 
+     * @param table The {@link EntryTable} that holds the indexed keys.
+     * @param expectedSize The expected number of entries.
+     */
+    public UniqueIdIndex(@NotNull final EntryTable table, final int expectedSize) {
+        this.table = table;
+        this.allocate(UniqueIdIndex.capacityFor(expectedSize));
+    }
+    
+    /**
+     * Gets the entry id for the given {@link UUID}.
+     * 
+     * @param uniqueId The {@link UUID} to look up.
+     * @return The entry id, or {@link UniqueIdIndex#NOT_FOUND} if the
+     *         {@link UUID} is not indexed.
+     */
+    public int get(@NotNull final UUID uniqueId) {
+        return this.get(uniqueId.getMostSignificantBits(), uniqueId.getLeastSignificantBits());
+    }
+    
+    /**
+     * Gets the entry id for the {@link UUID} with the given halves.
+     * 
+     * @param mostSigBits The most significant bits of the {@link UUID}.
+     * @param leastSigBits The least significant bits of the {@link UUID}.
+     * @return The entry id, or {@link UniqueIdIndex#NOT_FOUND} if the
+     *         {@link UUID} is not indexed.
+     */
+    public int get(final long mostSigBits, final long leastSigBits) {
+        int slot = UniqueIdIndex.hash(mostSigBits, leastSigBits) & this.mask;
+        int id;
+        while ((id = this.slots[slot]) != UniqueIdIndex.NOT_FOUND) {
+            if (this.table.getLeastSignificantBits(id) == leastSigBits && this.table.getMostSignificantBits(id) == mostSigBits) {
+                return id;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return UniqueIdIndex.NOT_FOUND;
+    }
+    
+    /**
+     * Indexes the given entry by its {@link UUID}, as currently stored in the
+     * {@link EntryTable}. If another entry with the same {@link UUID} is
+     * already indexed, it is replaced.
+     * 
+     * @param id The entry id.
+     */
+    public void put(final int id) {
+        if (this.size >= this.threshold) {
+            this.allocate(this.slots.length << 1);
+        }
+        if (this.insert(id)) {
+            this.size++;
+        }
+    }
+    
+    /**
+     * Grows this {@link UniqueIdIndex}, if required, so that it can hold the
+     * given number of entries without resizing again. This should be called
+     * before adding many entries at once.
+     * 
+     * @param expectedSize The expected number of entries.
+     */
+    public void ensureCapacity(final int expectedSize) {
+        final int capacity = UniqueIdIndex.capacityFor(expectedSize);
+        if (capacity > this.slots.length) {
+            this.allocate(capacity);
+        }
+    }
+    
+    /**
+     * Gets the number of entries in this {@link UniqueIdIndex}.
+     * 
+     * @return The number of indexed entries.
+     */
+    public int size() {
+        return this.size;
+    }
+    
+    /**
+     * Inserts the given entry id without checking the load factor.
+     * 
+     * @param id The entry id.
+     * @return <code>true</code> if a new slot was used, <code>false</code> if
+     *         an existing entry with the same key was replaced.
+     */
+    private boolean insert(final int id) {
+        final long mostSigBits = this.table.getMostSignificantBits(id);
+        final long leastSigBits = this.table.getLeastSignificantBits(id);
+        int slot = UniqueIdIndex.hash(mostSigBits, leastSigBits) & this.mask;
+        int existing;
+        while ((existing = this.slots[slot]) != UniqueIdIndex.NOT_FOUND) {
+            if (this.table.getLeastSignificantBits(existing) == leastSigBits && this.table.getMostSignificantBits(existing) == mostSigBits) {
+                this.slots[slot] = id;
+                return false;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.slots[slot] = id;
+        return true;
+    }
+    
+    /**
+     * Replaces the slot array with one of the given capacity, re-inserting
+     * any existing entries.
+     * 
+     * @param capacity The new capacity, which must be a power of two.
+     */
+    private void allocate(final int capacity) {
+        final int[] old = this.slots;
+        this.slots = new int[capacity];
+        Arrays.fill(this.slots, UniqueIdIndex.NOT_FOUND);
+        this.mask = capacity - 1;
+        this.threshold = (int) (capacity * 0.7F);
+        if (old != null) {
+            for (final int id : old) {
+                if (id != UniqueIdIndex.NOT_FOUND) {
+                    this.insert(id);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Gets the smallest power-of-two capacity that can hold the given number
+     * of entries below the load factor.
+     * 
+     * @param expectedSize The expected number of entries.
+     * @return The capacity.
+     */
+    static int capacityFor(final int expectedSize) {
+        final long needed = (long) Math.ceil(Math.max(expectedSize, 1) / 0.7D);
+        long capacity = UniqueIdIndex.MINIMUM_CAPACITY;
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        if (capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Expected size too large: " + expectedSize);
+        }
+        return (int) capacity;
+    }
+    
+    /**
+     * Mixes both halves of a {@link UUID} into a well-distributed hash. Name
+     * based (offline mode) and random {@link UUID}s both have fixed version
+     * and variant bits, so the halves are run through a finalizer rather than
+     * used directly.
+     * 
+     * @param mostSigBits The most significant bits of the {@link UUID}.
+     * @param leastSigBits The least significant bits of the {@link UUID}.
+     * @return The hash.
+     */
+    static int hash(final long mostSigBits, final long leastSigBits) {
+        long hash = mostSigBits * 0x9E3779B97F4A7C15L ^ leastSigBits;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+}
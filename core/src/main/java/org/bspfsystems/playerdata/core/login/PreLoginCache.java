@@ -0,0 +1,263 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.login;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.bspfsystems.playerdata.api.PlayerDataEntry;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.bspfsystems.playerdata.core.store.PackedPlayerDataEntry;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Takes the work of a join off the synchronous join handler, by doing it
+ * during the asynchronous pre-login phase instead.
+ * <p>
+ * When a connection has been authenticated, the platform implementation
+ * calls {@link PreLoginCache#prepare(Object, UUID, String)} from its
+ * pre-login handler. This applies the join to the {@link PlayerDataStore},
+ * which decides the {@link PlayerJoinEvent.JoinType}, and caches the
+ * resulting {@link PlayerJoinEvent} and {@link PlayerDataEntry} against the
+ * connection. The synchronous join handler then only has to call
+ * {@link PreLoginCache#join(Object, UUID, String)} to get the event, and
+ * publish it.
+ * <p>
+ * The {@link UUID} and name have been authenticated by then, so they are
+ * recorded even if the login is later denied. If it is, the platform should
+ * call {@link PreLoginCache#discard(Object)}, so that the player is no longer
+ * ranked as online; connections that are neither joined nor discarded are
+ * discarded once they expire. When a player who has joined leaves, the
+ * platform should call {@link PreLoginCache#quit(UUID)}. A player who is
+ * already connected, such as one logging in again from elsewhere, is not
+ * marked as offline when another connection of theirs is discarded.
+ *
+ * @param <K> The type of the key that identifies a connection on the
+ *            platform.
+ */
+public final class PreLoginCache<K> {
+    
+    private final PlayerDataStore store;
+    private final long expiryNanos;
+    private final Map<K, Prepared> prepared;
+    private final Map<UUID, Integer> sessions;
+    private volatile long nextSweep;
+    
+    /**
+     * Creates a new {@link PreLoginCache}.
+     * 
+     * @param store The {@link PlayerDataStore} to apply the joins to.
+     * @param expiryMillis The time after which a prepared join that has not
+     *                     been used is discarded, in milliseconds.
+     * @throws IllegalArgumentException If the expiry time is not positive.
+     */
+    public PreLoginCache(@NotNull final PlayerDataStore store, final long expiryMillis) throws IllegalArgumentException {
+        if (expiryMillis <= 0L) {
+            throw new IllegalArgumentException("Invalid expiry time: " + expiryMillis);
+        }
+        this.store = store;
+        this.expiryNanos = TimeUnit.MILLISECONDS.toNanos(expiryMillis);
+        this.prepared = new ConcurrentHashMap<K, Prepared>();
+        this.sessions = new ConcurrentHashMap<UUID, Integer>();
+        this.nextSweep = System.nanoTime() + this.expiryNanos;
+    }
+    
+    /**
+     * Applies the join of the given player to the {@link PlayerDataStore},
+     * and caches the result for the given connection. This should be called
+     * from the asynchronous pre-login handler, once the player has been
+     * authenticated.
+     * 
+     * @param connection The key of the connection.
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The current name of the player.
+     * @return The {@link PlayerJoinEvent} describing the join.
+     */
+    @NotNull
+    public PlayerJoinEvent prepare(@NotNull final K connection, @NotNull final UUID uniqueId, @NotNull final String name) {
+        final long now = System.nanoTime();
+        if (now - this.nextSweep >= 0L) {
+            this.nextSweep = now + this.expiryNanos;
+            this.expire(now);
+        }
+        
+        final PlayerJoinEvent event = this.store.update(uniqueId, name);
+        final Prepared previous = this.prepared.put(connection, new Prepared(event, new PackedPlayerDataEntry(name, uniqueId), now));
+        if (previous != null && !previous.event.getUniqueId().equals(uniqueId)) {
+            this.disconnect(previous.event.getUniqueId());
+        }
+        return event;
+    }
+    
+    /**
+     * Gets the {@link PlayerJoinEvent} for the given connection, as prepared
+     * by {@link PreLoginCache#prepare(Object, UUID, String)}, and forgets the
+     * connection. This should be called from the synchronous join handler.
+     * <p>
+     * If no join was prepared for the connection, or it was prepared for a
+     * different player, the join is applied now instead, and the player it
+     * was prepared for is recorded as having left. If it was prepared for the
+     * same player under a different name, the new name is recorded, and the
+     * event describes the change from the name the player had before the
+     * join was prepared.
+     * 
+     * @param connection The key of the connection.
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The current name of the player.
+     * @return The {@link PlayerJoinEvent} to publish.
+     */
+    @NotNull
+    public PlayerJoinEvent join(@NotNull final K connection, @NotNull final UUID uniqueId, @NotNull final String name) {
+        this.sessions.merge(uniqueId, 1, Integer::sum);
+        final Prepared prepared = this.prepared.remove(connection);
+        if (prepared == null) {
+            return this.store.update(uniqueId, name);
+        }
+        if (!prepared.event.getUniqueId().equals(uniqueId)) {
+            this.disconnect(prepared.event.getUniqueId());
+            return this.store.update(uniqueId, name);
+        }
+        if (prepared.event.getName().equals(name)) {
+            return prepared.event;
+        }
+        
+        // The prepared join has already been applied, so applying this one
+        // records a change from the prepared name. The event describes the
+        // join as a whole instead.
+        this.store.update(uniqueId, name);
+        if (prepared.event.getJoinType() == PlayerJoinEvent.JoinType.NEW_PLAYER) {
+            return new PlayerJoinEvent(name, null, uniqueId, PlayerJoinEvent.JoinType.NEW_PLAYER);
+        }
+        final String oldName = prepared.event.getJoinType() == PlayerJoinEvent.JoinType.NAME_CHANGE ? prepared.event.getOldName() : prepared.event.getName();
+        return oldName.equals(name) ? new PlayerJoinEvent(name, uniqueId) : new PlayerJoinEvent(name, oldName, uniqueId);
+    }
+    
+    /**
+     * Gets the {@link PlayerDataEntry} of the player on the given connection,
+     * as it was when the join was prepared.
+     * 
+     * @param connection The key of the connection.
+     * @return The {@link PlayerDataEntry}, or <code>null</code> if no join is
+     *         prepared for the connection.
+     */
+    @Nullable
+    public PlayerDataEntry getEntry(@NotNull final K connection) {
+        final Prepared prepared = this.prepared.get(connection);
+        return prepared != null ? prepared.entry : null;
+    }
+    
+    /**
+     * Forgets the given connection after its login was denied, or it was
+     * closed before the player joined, and records that the player has left.
+     * 
+     * @param connection The key of the connection.
+     */
+    public void discard(@NotNull final K connection) {
+        final Prepared prepared = this.prepared.remove(connection);
+        if (prepared != null) {
+            this.disconnect(prepared.event.getUniqueId());
+        }
+    }
+    
+    /**
+     * Records that a player who joined through
+     * {@link PreLoginCache#join(Object, UUID, String)} has left. The player
+     * is recorded as having left the {@link PlayerDataStore} once all of
+     * their connections that have joined have left.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     */
+    public void quit(@NotNull final UUID uniqueId) {
+        this.sessions.compute(uniqueId, (key, count) -> {
+            if (count == null || count <= 1) {
+                this.store.disconnect(key);
+                return null;
+            }
+            return count - 1;
+        });
+    }
+    
+    /**
+     * Gets the number of connections with a prepared join.
+     * 
+     * @return The number of prepared joins.
+     */
+    public int size() {
+        return this.prepared.size();
+    }
+    
+    /**
+     * Discards every prepared join that has expired.
+     * 
+     * @param now The current time, from {@link System#nanoTime()}.
+     */
+    private void expire(final long now) {
+        final Iterator<Map.Entry<K, Prepared>> iterator = this.prepared.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<K, Prepared> entry = iterator.next();
+            if (now - entry.getValue().created >= this.expiryNanos && this.prepared.remove(entry.getKey(), entry.getValue())) {
+                this.disconnect(entry.getValue().event.getUniqueId());
+            }
+        }
+    }
+    
+    /**
+     * Records that the given player has left, after a connection of theirs
+     * that did not join is forgotten, unless another connection of theirs
+     * has joined.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     */
+    private void disconnect(@NotNull final UUID uniqueId) {
+        this.sessions.compute(uniqueId, (key, count) -> {
+            if (count == null) {
+                this.store.disconnect(key);
+            }
+            return count;
+        });
+    }
+    
+    /**
+     * A join prepared for a connection.
+     */
+    private static final class Prepared {
+        
+        private final PlayerJoinEvent event;
+        private final PlayerDataEntry entry;
+        private final long created;
+        
+        /**
+         * Creates a new {@link Prepared} join.
+         * 
+         * @param event The {@link PlayerJoinEvent}.
+         * @param entry The {@link PlayerDataEntry} of the player.
+         * @param created The time the join was prepared, from
+         *                {@link System#nanoTime()}.
+         */
+        private Prepared(@NotNull final PlayerJoinEvent event, @NotNull final PlayerDataEntry entry, final long created) {
+            this.event = event;
+            this.entry = entry;
+            this.created = created;
+        }
+    }
+}
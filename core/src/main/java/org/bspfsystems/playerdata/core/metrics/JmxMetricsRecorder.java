@@ -0,0 +1,125 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.metrics;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The default {@link MetricsRecorder}, which keeps the metrics of each
+ * {@link Operation} in memory and exposes them as JMX MBeans, named
+ * <code>org.bspfsystems.playerdata:type=Operation,name=&lt;metric name&gt;</code>.
+ * <p>
+ * The MBeans can be viewed with any JMX client, such as JConsole or
+ * VisualVM, to see whether time is going into the lookups themselves, the
+ * join processing, the journal, or the profile resolver.
+ */
+public final class JmxMetricsRecorder implements MetricsRecorder {
+    
+    /**
+     * The JMX domain the MBeans are registered under.
+     */
+    public static final String DOMAIN = "org.bspfsystems.playerdata";
+    
+    private final MBeanServer server;
+    private final OperationMetrics[] metrics;
+    
+    /**
+     * Creates a new {@link JmxMetricsRecorder}. Nothing is registered until
+     * {@link JmxMetricsRecorder#register()} is called.
+     * 
+     * @param server The {@link MBeanServer} to register the MBeans with.
+     */
+    public JmxMetricsRecorder(@NotNull final MBeanServer server) {
+        this.server = server;
+        final Operation[] operations = Operation.values();
+        this.metrics = new OperationMetrics[operations.length];
+        for (final Operation operation : operations) {
+            this.metrics[operation.ordinal()] = new OperationMetrics(operation);
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void record(@NotNull final Operation operation, final int hits, final int misses, final long nanos) {
+        this.metrics[operation.ordinal()].record(hits, misses, nanos);
+    }
+    
+    /**
+     * Gets the metrics of the given {@link Operation}.
+     * 
+     * @param operation The {@link Operation}.
+     * @return The {@link OperationMetrics}.
+     */
+    @NotNull
+    public OperationMetrics getMetrics(@NotNull final Operation operation) {
+        return this.metrics[operation.ordinal()];
+    }
+    
+    /**
+     * Registers an MBean for each {@link Operation}, replacing any that are
+     * already registered, such as by a previous load of the plugin.
+     * 
+     * @throws JMException If the MBeans could not be registered.
+     */
+    public void register() throws JMException {
+        for (final OperationMetrics operationMetrics : this.metrics) {
+            final ObjectName name = JmxMetricsRecorder.getObjectName(operationMetrics.getOperation());
+            if (this.server.isRegistered(name)) {
+                this.server.unregisterMBean(name);
+            }
+            this.server.registerMBean(operationMetrics, name);
+        }
+    }
+    
+    /**
+     * Unregisters the MBeans, if they are registered.
+     * 
+     * @throws JMException If the MBeans could not be unregistered.
+     */
+    public void unregister() throws JMException {
+        for (final OperationMetrics operationMetrics : this.metrics) {
+            try {
+                this.server.unregisterMBean(JmxMetricsRecorder.getObjectName(operationMetrics.getOperation()));
+            } catch (InstanceNotFoundException e) {
+                // Not registered.
+            }
+        }
+    }
+    
+    /**
+     * Gets the {@link ObjectName} of the MBean for the given
+     * {@link Operation}.
+     * 
+     * @param operation The {@link Operation}.
+     * @return The {@link ObjectName}.
+     * @throws MalformedObjectNameException Never, as the names are fixed.
+     */
+    @NotNull
+    public static ObjectName getObjectName(@NotNull final Operation operation) throws MalformedObjectNameException {
+        return new ObjectName(JmxMetricsRecorder.DOMAIN + ":type=Operation,name=" + operation.getMetricName());
+    }
+}
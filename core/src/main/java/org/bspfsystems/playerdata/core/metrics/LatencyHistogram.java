@@ -0,0 +1,133 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free histogram of latencies in nanoseconds.
+ * <p>
+ * Each power of two is split into four buckets, so any recorded value is
+ * reported to within 25% using only 256 counters. Recording is a single
+ * atomic increment; reading percentiles walks all the counters, and is only
+ * meant for occasional reporting.
+ */
+final class LatencyHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << LatencyHistogram.SUB_BUCKET_BITS;
+    private static final int BUCKETS = Long.SIZE * LatencyHistogram.SUB_BUCKETS;
+    
+    private final AtomicLongArray counts;
+    
+    /**
+     * Creates a new, empty {@link LatencyHistogram}.
+     */
+    LatencyHistogram() {
+        this.counts = new AtomicLongArray(LatencyHistogram.BUCKETS);
+    }
+    
+    /**
+     * Records a latency.
+     * 
+     * @param nanos The latency, in nanoseconds. Negative values are recorded
+     *              as <code>0</code>.
+     */
+    void record(final long nanos) {
+        this.counts.getAndIncrement(LatencyHistogram.bucket(Math.max(0L, nanos)));
+    }
+    
+    /**
+     * Gets the latency at the given percentile.
+     * 
+     * @param percentile The percentile, from <code>0</code> to
+     *                   <code>100</code>.
+     * @return The latency in nanoseconds, or <code>0</code> if nothing has
+     *         been recorded.
+     */
+    long getValueAtPercentile(final double percentile) {
+        long total = 0L;
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKETS; bucket++) {
+            total += this.counts.get(bucket);
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        
+        final long rank = Math.max(1L, (long) Math.ceil(total * Math.min(100.0D, percentile) / 100.0D));
+        long seen = 0L;
+        int last = -1;
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKETS; bucket++) {
+            final long count = this.counts.get(bucket);
+            if (count == 0L) {
+                continue;
+            }
+            seen += count;
+            last = bucket;
+            if (seen >= rank) {
+                return LatencyHistogram.highestValue(bucket);
+            }
+        }
+        
+        // The histogram was reset while it was being read.
+        return last < 0 ? 0L : LatencyHistogram.highestValue(last);
+    }
+    
+    /**
+     * Clears every recorded latency.
+     */
+    void reset() {
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKETS; bucket++) {
+            this.counts.set(bucket, 0L);
+        }
+    }
+    
+    /**
+     * Gets the bucket for the given latency.
+     * 
+     * @param nanos The non-negative latency.
+     * @return The bucket.
+     */
+    private static int bucket(final long nanos) {
+        if (nanos < LatencyHistogram.SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        final int subBucket = (int) (nanos >>> (exponent - LatencyHistogram.SUB_BUCKET_BITS)) & (LatencyHistogram.SUB_BUCKETS - 1);
+        return (exponent - 1) * LatencyHistogram.SUB_BUCKETS + subBucket;
+    }
+    
+    /**
+     * Gets the highest latency that falls in the given bucket.
+     * 
+     * @param bucket The bucket.
+     * @return The highest latency, in nanoseconds.
+     */
+    private static long highestValue(final int bucket) {
+        if (bucket < LatencyHistogram.SUB_BUCKETS) {
+            return bucket;
+        }
+        final int exponent = bucket / LatencyHistogram.SUB_BUCKETS + 1;
+        final int subBucket = bucket % LatencyHistogram.SUB_BUCKETS;
+        final int shift = exponent - LatencyHistogram.SUB_BUCKET_BITS;
+        final long lowest = (long) (LatencyHistogram.SUB_BUCKETS + subBucket) << shift;
+        return lowest + (1L << shift) - 1L;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the measurements of each {@link Operation}.
+ * <p>
+ * This is a service provider interface: other plugins or libraries may
+ * provide an implementation that forwards the measurements to their own
+ * metrics system, by listing it in
+ * <code>META-INF/services/org.bspfsystems.playerdata.core.metrics.MetricsRecorder</code>.
+ * If there is none, {@link MetricsRecorder#load(ClassLoader, Logger)} falls
+ * back to a {@link JmxMetricsRecorder}. If the <code>playerdata-jfr</code>
+ * module is on the class path and Flight Recorder is available, the loaded
+ * {@link MetricsRecorder} is wrapped in its <code>JfrMetricsRecorder</code>,
+ * so that slow operations also show up in recordings.
+ * <p>
+ * Implementations are called on the hot path from many threads at once, so
+ * they must be thread-safe, must not block, and should not allocate.
+ */
+public interface MetricsRecorder {
+    
+    /**
+     * A {@link MetricsRecorder} that discards every measurement.
+     */
+    MetricsRecorder NONE = (operation, hits, misses, nanos) -> {
+        // Discarded.
+    };
+    
+    /**
+     * The name of the {@link MetricsRecorder} in the <code>playerdata-jfr</code>
+     * module that emits Flight Recorder events.
+     */
+    String JFR_RECORDER = "org.bspfsystems.playerdata.jfr.JfrMetricsRecorder";
+    
+    /**
+     * Records one call of an {@link Operation}.
+     * 
+     * @param operation The {@link Operation}.
+     * @param hits The number of players that were found, or the number of
+     *             items processed for operations that do not look players
+     *             up.
+     * @param misses The number of players that were not found.
+     * @param nanos The time the call took, in nanoseconds.
+     */
+    void record(@NotNull Operation operation, int hits, int misses, long nanos);
+    
+    /**
+     * Loads the {@link MetricsRecorder} to use: the first one provided
+     * through a {@link ServiceLoader}, or a {@link JmxMetricsRecorder}
+     * registered with the platform MBean server if there is none, wrapped in
+     * the <code>JfrMetricsRecorder</code> of the <code>playerdata-jfr</code>
+     * module if it can be loaded and Flight Recorder is available.
+     * <p>
+     * The <code>playerdata-jfr</code> module requires Java 11, so it is
+     * loaded reflectively, and is silently skipped if it is missing or the
+     * JVM is too old for it.
+     * 
+     * @param loader The {@link ClassLoader} to find providers with.
+     * @param logger The {@link Logger} to report problems to.
+     * @return The {@link MetricsRecorder}.
+     */
+    @NotNull
+    static MetricsRecorder load(@NotNull final ClassLoader loader, @NotNull final Logger logger) {
+        MetricsRecorder recorder = null;
+        try {
+            final Iterator<MetricsRecorder> providers = ServiceLoader.load(MetricsRecorder.class, loader).iterator();
+            if (providers.hasNext()) {
+                recorder = providers.next();
+            }
+        } catch (ServiceConfigurationError e) {
+            logger.log(Level.WARNING, "Unable to load the configured PlayerData metrics recorder.", e);
+        }
+        
+        if (recorder == null) {
+            final JmxMetricsRecorder jmx = new JmxMetricsRecorder(ManagementFactory.getPlatformMBeanServer());
+            try {
+                jmx.register();
+            } catch (JMException e) {
+                logger.log(Level.WARNING, "Unable to register the PlayerData MBeans.", e);
+            }
+            recorder = jmx;
+        }
+        
+        try {
+            final Class<?> jfr = Class.forName(MetricsRecorder.JFR_RECORDER, true, loader);
+            if ((Boolean) jfr.getMethod("isAvailable").invoke(null)) {
+                recorder = (MetricsRecorder) jfr.getConstructor(MetricsRecorder.class).newInstance(recorder);
+            }
+        } catch (ClassNotFoundException | UnsupportedClassVersionError e) {
+            // The Flight Recorder events are not installed, or need a newer JVM.
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            logger.log(Level.WARNING, "Unable to load the PlayerData Flight Recorder events.", e);
+        }
+        return recorder;
+    }
+}
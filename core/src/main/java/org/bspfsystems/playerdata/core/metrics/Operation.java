@@ -0,0 +1,186 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.metrics;
+
+import org.bspfsystems.playerdata.api.plugin.PlayerDataPlugin;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The operations that are measured by a {@link MetricsRecorder}.
+ */
+public enum Operation {
+    
+    /**
+     * {@link PlayerDataPlugin#getUniqueId(String)}.
+     */
+    GET_UNIQUE_ID("getUniqueId"),
+    
+    /**
+     * {@link PlayerDataPlugin#getName(java.util.UUID)}.
+     */
+    GET_NAME("getName"),
+    
+    /**
+     * {@link PlayerDataPlugin#getUniqueIdAt(String, java.time.Instant)}.
+     */
+    GET_UNIQUE_ID_AT("getUniqueIdAt"),
+    
+    /**
+     * {@link PlayerDataPlugin#getNameHistory(java.util.UUID)}.
+     */
+    GET_NAME_HISTORY("getNameHistory"),
+    
+    /**
+     * {@link PlayerDataPlugin#getUniqueIds(java.util.Collection)}.
+     */
+    GET_UNIQUE_IDS("getUniqueIds"),
+    
+    /**
+     * {@link PlayerDataPlugin#getNames(java.util.Collection)}.
+     */
+    GET_NAMES("getNames"),
+    
+    /**
+     * {@link PlayerDataPlugin#getMatchingNames(String)}.
+     */
+    GET_MATCHING_NAMES("getMatchingNames"),
+    
+    /**
+     * {@link PlayerDataPlugin#getMatchingNames(String, int)}, as used for tab
+     * completion.
+     */
+    GET_MATCHING_NAMES_LIMITED("getMatchingNamesLimited"),
+    
+    /**
+     * {@link PlayerDataPlugin#getEntry(String)}.
+     */
+    GET_ENTRY_BY_NAME("getEntryByName"),
+    
+    /**
+     * {@link PlayerDataPlugin#getEntry(java.util.UUID)}.
+     */
+    GET_ENTRY_BY_UNIQUE_ID("getEntryByUniqueId"),
+    
+    /**
+     * {@link PlayerDataPlugin#getMatchingEntries(String)}.
+     */
+    GET_MATCHING_ENTRIES("getMatchingEntries"),
+    
+    /**
+     * {@link PlayerDataPlugin#getEntriesSeenSince(java.time.Instant)}.
+     */
+    GET_ENTRIES_SEEN_SINCE("getEntriesSeenSince"),
+    
+    /**
+     * {@link PlayerDataPlugin#getEntriesNotSeenSince(java.time.Instant)}.
+     */
+    GET_ENTRIES_NOT_SEEN_SINCE("getEntriesNotSeenSince"),
+    
+    /**
+     * {@link PlayerDataPlugin#getMostRecentlySeen(int)}.
+     */
+    GET_MOST_RECENTLY_SEEN("getMostRecentlySeen"),
+    
+    /**
+     * {@link PlayerDataPlugin#getAllNames()}.
+     */
+    GET_ALL_NAMES("getAllNames"),
+    
+    /**
+     * {@link PlayerDataPlugin#getAllUniqueIds()}.
+     */
+    GET_ALL_UNIQUE_IDS("getAllUniqueIds"),
+    
+    /**
+     * {@link PlayerDataPlugin#getAllEntries()}.
+     */
+    GET_ALL_ENTRIES("getAllEntries"),
+    
+    /**
+     * {@link PlayerDataPlugin#forEachEntry(java.util.function.Consumer)},
+     * including the time spent in the action.
+     */
+    FOR_EACH_ENTRY("forEachEntry"),
+    
+    /**
+     * {@link PlayerDataPlugin#size()}.
+     */
+    SIZE("size"),
+    
+    /**
+     * Processing the join of a player that was seen for the first time.
+     */
+    JOIN_NEW_PLAYER("joinNewPlayer"),
+    
+    /**
+     * Processing the join of a known player with a different name.
+     */
+    JOIN_NAME_CHANGE("joinNameChange"),
+    
+    /**
+     * Processing the join of a known player with the same name.
+     */
+    JOIN_NORMAL("joinNormal"),
+    
+    /**
+     * Writing a batch of records to the journal. The hits are the number of
+     * records written.
+     */
+    JOURNAL_WRITE("journalWrite"),
+    
+    /**
+     * Syncing the journal to disk.
+     */
+    JOURNAL_SYNC("journalSync"),
+    
+    /**
+     * Resolving a name through the profile resolver, from the request until
+     * the result is known, including any time spent queued or rate limited.
+     */
+    RESOLVE("resolve"),
+    
+    /**
+     * A single bulk request to the profile service, including any retries.
+     * The hits and misses are the number of names that were found and not
+     * found.
+     */
+    RESOLVER_REQUEST("resolverRequest");
+    
+    private final String metricName;
+    
+    /**
+     * Creates a new {@link Operation}.
+     * 
+     * @param metricName The name the {@link Operation} is reported under.
+     */
+    Operation(@NotNull final String metricName) {
+        this.metricName = metricName;
+    }
+    
+    /**
+     * Gets the name this {@link Operation} is reported under.
+     * 
+     * @return The metric name.
+     */
+    @NotNull
+    public String getMetricName() {
+        return this.metricName;
+    }
+}
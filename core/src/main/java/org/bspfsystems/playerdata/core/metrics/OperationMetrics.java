@@ -0,0 +1,180 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The metrics of a single {@link Operation}, kept by a
+ * {@link JmxMetricsRecorder}.
+ * <p>
+ * The counters are {@link LongAdder LongAdders}, so that threads recording
+ * at the same time do not contend.
+ */
+public final class OperationMetrics implements OperationMetricsMBean {
+    
+    private static final double NANOS_PER_MICRO = 1000.0D;
+    
+    private final Operation operation;
+    private final LongAdder calls;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder totalNanos;
+    private final AtomicLong maxNanos;
+    private final LatencyHistogram latencies;
+    
+    /**
+     * Creates a new, empty {@link OperationMetrics}.
+     * 
+     * @param operation The {@link Operation} that is measured.
+     */
+    OperationMetrics(@NotNull final Operation operation) {
+        this.operation = operation;
+        this.calls = new LongAdder();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.totalNanos = new LongAdder();
+        this.maxNanos = new AtomicLong();
+        this.latencies = new LatencyHistogram();
+    }
+    
+    /**
+     * Gets the {@link Operation} that is measured.
+     * 
+     * @return The {@link Operation}.
+     */
+    @NotNull
+    public Operation getOperation() {
+        return this.operation;
+    }
+    
+    /**
+     * Records one call.
+     * 
+     * @param hits The number of hits.
+     * @param misses The number of misses.
+     * @param nanos The time the call took, in nanoseconds.
+     */
+    void record(final int hits, final int misses, final long nanos) {
+        this.calls.increment();
+        if (hits != 0) {
+            this.hits.add(hits);
+        }
+        if (misses != 0) {
+            this.misses.add(misses);
+        }
+        this.totalNanos.add(nanos);
+        this.latencies.record(nanos);
+        long max = this.maxNanos.get();
+        while (nanos > max && !this.maxNanos.compareAndSet(max, nanos)) {
+            max = this.maxNanos.get();
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCalls() {
+        return this.calls.sum();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHits() {
+        return this.hits.sum();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMisses() {
+        return this.misses.sum();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getHitRatio() {
+        final long hits = this.hits.sum();
+        final long total = hits + this.misses.sum();
+        return total == 0L ? Double.NaN : hits / (double) total;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMeanMicros() {
+        final long calls = this.calls.sum();
+        return calls == 0L ? 0.0D : this.totalNanos.sum() / (double) calls / OperationMetrics.NANOS_PER_MICRO;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getP50Micros() {
+        return this.latencies.getValueAtPercentile(50.0D) / OperationMetrics.NANOS_PER_MICRO;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getP99Micros() {
+        return this.latencies.getValueAtPercentile(99.0D) / OperationMetrics.NANOS_PER_MICRO;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getP999Micros() {
+        return this.latencies.getValueAtPercentile(99.9D) / OperationMetrics.NANOS_PER_MICRO;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMaxMicros() {
+        return this.maxNanos.get() / OperationMetrics.NANOS_PER_MICRO;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        this.calls.reset();
+        this.hits.reset();
+        this.misses.reset();
+        this.totalNanos.reset();
+        this.maxNanos.set(0L);
+        this.latencies.reset();
+    }
+}
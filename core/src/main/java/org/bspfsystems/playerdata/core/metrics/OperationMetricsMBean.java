@@ -0,0 +1,97 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.metrics;
+
+/**
+ * The JMX management interface of the metrics of a single
+ * {@link Operation}, as registered by a {@link JmxMetricsRecorder}.
+ */
+public interface OperationMetricsMBean {
+    
+    /**
+     * Gets the number of calls.
+     * 
+     * @return The number of calls.
+     */
+    long getCalls();
+    
+    /**
+     * Gets the total number of players that were found, or of items
+     * processed.
+     * 
+     * @return The number of hits.
+     */
+    long getHits();
+    
+    /**
+     * Gets the total number of players that were not found.
+     * 
+     * @return The number of misses.
+     */
+    long getMisses();
+    
+    /**
+     * Gets the share of lookups that found a player.
+     * 
+     * @return The hit ratio, from <code>0</code> to <code>1</code>, or
+     *         <code>NaN</code> if there have been no lookups.
+     */
+    double getHitRatio();
+    
+    /**
+     * Gets the mean latency.
+     * 
+     * @return The mean latency, in microseconds.
+     */
+    double getMeanMicros();
+    
+    /**
+     * Gets the median latency.
+     * 
+     * @return The median latency, in microseconds.
+     */
+    double getP50Micros();
+    
+    /**
+     * Gets the 99th percentile latency.
+     * 
+     * @return The 99th percentile latency, in microseconds.
+     */
+    double getP99Micros();
+    
+    /**
+     * Gets the 99.9th percentile latency.
+     * 
+     * @return The 99.9th percentile latency, in microseconds.
+     */
+    double getP999Micros();
+    
+    /**
+     * Gets the highest latency.
+     * 
+     * @return The highest latency, in microseconds.
+     */
+    double getMaxMicros();
+    
+    /**
+     * Clears every measurement, such as before reproducing a problem.
+     */
+    void reset();
+}
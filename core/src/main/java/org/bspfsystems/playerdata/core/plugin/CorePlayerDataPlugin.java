@@ -0,0 +1,562 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.plugin;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.bspfsystems.playerdata.api.NameHistoryEntry;
+import org.bspfsystems.playerdata.api.PlayerDataEntry;
+import org.bspfsystems.playerdata.api.plugin.PlayerDataPlugin;
+import org.bspfsystems.playerdata.core.history.NameHistory;
+import org.bspfsystems.playerdata.core.history.NameInterval;
+import org.bspfsystems.playerdata.core.metrics.MetricsRecorder;
+import org.bspfsystems.playerdata.core.metrics.Operation;
+import org.bspfsystems.playerdata.core.resolver.ProfileResolver;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A {@link PlayerDataPlugin} that serves all lookups from a
+ * {@link PlayerDataStore}.
+ * <p>
+ * This is an interface rather than a base class so that the platform
+ * implementations can extend the platform's own plugin class; they only need
+ * to provide the {@link PlayerDataStore}, the
+ * {@link PlayerDataPlugin#getLogger() Logger} and the
+ * {@link PlayerDataPlugin#getDataDirectory() data directory}.
+ * <p>
+ * Every lookup is measured with the
+ * {@link PlayerDataStore#getMetricsRecorder() MetricsRecorder} of the
+ * {@link PlayerDataStore}; platform implementations should set it to the one
+ * from {@link MetricsRecorder#load(ClassLoader, java.util.logging.Logger)}
+ * when they start. The {@link Stream} from
+ * {@link CorePlayerDataPlugin#entries()} is lazy, so it is not measured.
+ */
+public interface CorePlayerDataPlugin extends PlayerDataPlugin {
+    
+    /**
+     * Gets the {@link PlayerDataStore} that backs this
+     * {@link CorePlayerDataPlugin}.
+     * 
+     * @return The {@link PlayerDataStore}.
+     */
+    @NotNull
+    PlayerDataStore getStore();
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nullable
+    default UUID getUniqueId(@NotNull final String name) {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final UUID uniqueId = store.getUniqueId(name);
+        store.getMetricsRecorder().record(Operation.GET_UNIQUE_ID, uniqueId != null ? 1 : 0, uniqueId != null ? 0 : 1, System.nanoTime() - start);
+        return uniqueId;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nullable
+    default String getName(@NotNull final UUID uniqueId) {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final String name = store.getName(uniqueId);
+        store.getMetricsRecorder().record(Operation.GET_NAME, name != null ? 1 : 0, name != null ? 0 : 1, System.nanoTime() - start);
+        return name;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Players whose name has not changed since the {@link NameHistory} began
+     * have no recorded history, so their current name is taken to have been
+     * theirs at any time.
+     */
+    @Override
+    @Nullable
+    default UUID getUniqueIdAt(@NotNull final String name, @NotNull final Instant when) {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final NameHistory history = store.getNameHistory();
+        UUID uniqueId = history.getUniqueIdAt(name, when.toEpochMilli());
+        if (uniqueId == null) {
+            final UUID current = store.getUniqueId(name);
+            if (current != null && !history.contains(current)) {
+                uniqueId = current;
+            }
+        }
+        store.getMetricsRecorder().record(Operation.GET_UNIQUE_ID_AT, uniqueId != null ? 1 : 0, uniqueId != null ? 0 : 1, System.nanoTime() - start);
+        return uniqueId;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Players whose name has not changed since the {@link NameHistory} began
+     * have a single entry for their current name, with an unknown start.
+     */
+    @Override
+    @NotNull
+    default List<NameHistoryEntry> getNameHistory(@NotNull final UUID uniqueId) {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        List<NameInterval> history = store.getNameHistory().getHistory(uniqueId);
+        if (history.isEmpty()) {
+            final String name = store.getName(uniqueId);
+            if (name != null) {
+                history = Collections.singletonList(new NameInterval(uniqueId, name, NameHistory.UNKNOWN, NameHistory.CURRENT));
+            }
+        }
+        store.getMetricsRecorder().record(Operation.GET_NAME_HISTORY, history.size(), history.isEmpty() ? 1 : 0, System.nanoTime() - start);
+        return Collections.unmodifiableList(history);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default Map<String, UUID> getUniqueIds(@NotNull final Collection<String> names) {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final Map<String, UUID> uniqueIds = store.getUniqueIds(names);
+        store.getMetricsRecorder().record(Operation.GET_UNIQUE_IDS, uniqueIds.size(), names.size() - uniqueIds.size(), System.nanoTime() - start);
+        return uniqueIds;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default Map<UUID, String> getNames(@NotNull final Collection<UUID> uniqueIds) {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final Map<UUID, String> names = store.getNames(uniqueIds);
+        store.getMetricsRecorder().record(Operation.GET_NAMES, names.size(), uniqueIds.size() - names.size(), System.nanoTime() - start);
+        return names;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default Set<String> getMatchingNames(@NotNull final String name) {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final Set<String> names = store.getMatchingNames(name);
+        store.getMetricsRecorder().record(Operation.GET_MATCHING_NAMES, names.isEmpty() ? 0 : 1, names.isEmpty() ? 1 : 0, System.nanoTime() - start);
+        return names;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default List<String> getMatchingNames(@NotNull final String name, final int limit) throws IllegalArgumentException {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final List<String> names = store.getMatchingNames(name, limit);
+        store.getMetricsRecorder().record(Operation.GET_MATCHING_NAMES_LIMITED, names.isEmpty() ? 0 : 1, names.isEmpty() ? 1 : 0, System.nanoTime() - start);
+        return names;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nullable
+    default PlayerDataEntry getEntry(@NotNull final String name) {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final PlayerDataEntry entry = store.getEntry(name);
+        store.getMetricsRecorder().record(Operation.GET_ENTRY_BY_NAME, entry != null ? 1 : 0, entry != null ? 0 : 1, System.nanoTime() - start);
+        return entry;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nullable
+    default PlayerDataEntry getEntry(@NotNull final UUID uniqueId) {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final PlayerDataEntry entry = store.getEntry(uniqueId);
+        store.getMetricsRecorder().record(Operation.GET_ENTRY_BY_UNIQUE_ID, entry != null ? 1 : 0, entry != null ? 0 : 1, System.nanoTime() - start);
+        return entry;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default Set<PlayerDataEntry> getMatchingEntries(@NotNull final String name) {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final Set<PlayerDataEntry> entries = store.getMatchingEntries(name);
+        store.getMetricsRecorder().record(Operation.GET_MATCHING_ENTRIES, entries.isEmpty() ? 0 : 1, entries.isEmpty() ? 1 : 0, System.nanoTime() - start);
+        return entries;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default Set<PlayerDataEntry> getEntriesSeenSince(@NotNull final Instant time) {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final Set<PlayerDataEntry> entries = store.getEntriesSeenSince(time.toEpochMilli());
+        store.getMetricsRecorder().record(Operation.GET_ENTRIES_SEEN_SINCE, entries.size(), 0, System.nanoTime() - start);
+        return entries;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default Set<PlayerDataEntry> getEntriesNotSeenSince(@NotNull final Instant time) {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final Set<PlayerDataEntry> entries = store.getEntriesNotSeenSince(time.toEpochMilli());
+        store.getMetricsRecorder().record(Operation.GET_ENTRIES_NOT_SEEN_SINCE, entries.size(), 0, System.nanoTime() - start);
+        return entries;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default List<PlayerDataEntry> getMostRecentlySeen(final int limit) throws IllegalArgumentException {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final List<PlayerDataEntry> entries = store.getMostRecentlySeen(limit);
+        store.getMetricsRecorder().record(Operation.GET_MOST_RECENTLY_SEEN, entries.size(), 0, System.nanoTime() - start);
+        return entries;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default Set<String> getAllNames() {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final Set<String> names = store.getAllNames();
+        store.getMetricsRecorder().record(Operation.GET_ALL_NAMES, names.size(), 0, System.nanoTime() - start);
+        return names;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default Set<UUID> getAllUniqueIds() {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final Set<UUID> uniqueIds = store.getAllUniqueIds();
+        store.getMetricsRecorder().record(Operation.GET_ALL_UNIQUE_IDS, uniqueIds.size(), 0, System.nanoTime() - start);
+        return uniqueIds;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default Set<PlayerDataEntry> getAllEntries() {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final Set<PlayerDataEntry> entries = store.getAllEntries();
+        store.getMetricsRecorder().record(Operation.GET_ALL_ENTRIES, entries.size(), 0, System.nanoTime() - start);
+        return entries;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    default void forEachEntry(@NotNull final Consumer<? super PlayerDataEntry> action) {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final int[] count = new int[1];
+        store.spliterator().forEachRemaining(entry -> {
+            count[0]++;
+            action.accept(entry);
+        });
+        store.getMetricsRecorder().record(Operation.FOR_EACH_ENTRY, count[0], 0, System.nanoTime() - start);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default Stream<PlayerDataEntry> entries() {
+        return StreamSupport.stream(this.getStore().spliterator(), false);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    default int size() {
+        final PlayerDataStore store = this.getStore();
+        final long start = System.nanoTime();
+        final int size = store.size();
+        store.getMetricsRecorder().record(Operation.SIZE, 0, 0, System.nanoTime() - start);
+        return size;
+    }
+    
+    /**
+     * Gets the {@link Executor} that the asynchronous lookups run on. By
+     * default, this is the shared executor from
+     * {@link LookupExecutors#getDefault()}, which uses virtual threads where
+     * they are available; platform implementations may override this to use
+     * their own scheduler.
+     * 
+     * @return The {@link Executor} for asynchronous lookups.
+     */
+    @NotNull
+    default Executor getLookupExecutor() {
+        return LookupExecutors.getDefault();
+    }
+    
+    /**
+     * Gets the {@link ProfileResolver} that the asynchronous {@link UUID}
+     * lookups fall back to for names that are not known locally. By default
+     * there is none, and unknown names resolve to <code>null</code>.
+     * <p>
+     * The synchronous lookups never use the {@link ProfileResolver}, as they
+     * may be called from threads that must not wait for the network.
+     * 
+     * @return The {@link ProfileResolver}, or <code>null</code> if there is
+     *         none.
+     */
+    @Nullable
+    default ProfileResolver getProfileResolver() {
+        return null;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<UUID> getUniqueIdAsync(@NotNull final String name) {
+        final CompletableFuture<UUID> local = CompletableFuture.supplyAsync(() -> this.getUniqueId(name), this.getLookupExecutor());
+        final ProfileResolver resolver = this.getProfileResolver();
+        if (resolver == null) {
+            return local;
+        }
+        return local.thenCompose(uniqueId -> uniqueId != null ? CompletableFuture.completedFuture(uniqueId) : resolver.resolve(name));
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<String> getNameAsync(@NotNull final UUID uniqueId) {
+        return CompletableFuture.supplyAsync(() -> this.getName(uniqueId), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<UUID> getUniqueIdAtAsync(@NotNull final String name, @NotNull final Instant when) {
+        return CompletableFuture.supplyAsync(() -> this.getUniqueIdAt(name, when), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<List<NameHistoryEntry>> getNameHistoryAsync(@NotNull final UUID uniqueId) {
+        return CompletableFuture.supplyAsync(() -> this.getNameHistory(uniqueId), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<Map<String, UUID>> getUniqueIdsAsync(@NotNull final Collection<String> names) {
+        final CompletableFuture<Map<String, UUID>> local = CompletableFuture.supplyAsync(() -> this.getUniqueIds(names), this.getLookupExecutor());
+        final ProfileResolver resolver = this.getProfileResolver();
+        if (resolver == null) {
+            return local;
+        }
+        return local.thenCompose(uniqueIds -> {
+            final Set<String> missing = new HashSet<String>(names);
+            missing.removeAll(uniqueIds.keySet());
+            if (missing.isEmpty()) {
+                return CompletableFuture.completedFuture(uniqueIds);
+            }
+            return resolver.resolveAll(missing).thenApply(resolved -> {
+                final Map<String, UUID> merged = new HashMap<String, UUID>(uniqueIds);
+                merged.putAll(resolved);
+                return merged;
+            });
+        });
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<Map<UUID, String>> getNamesAsync(@NotNull final Collection<UUID> uniqueIds) {
+        return CompletableFuture.supplyAsync(() -> this.getNames(uniqueIds), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<Set<String>> getMatchingNamesAsync(@NotNull final String name) {
+        return CompletableFuture.supplyAsync(() -> this.getMatchingNames(name), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<List<String>> getMatchingNamesAsync(@NotNull final String name, final int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative: " + limit);
+        }
+        return CompletableFuture.supplyAsync(() -> this.getMatchingNames(name, limit), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<PlayerDataEntry> getEntryAsync(@NotNull final String name) {
+        return CompletableFuture.supplyAsync(() -> this.getEntry(name), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<PlayerDataEntry> getEntryAsync(@NotNull final UUID uniqueId) {
+        return CompletableFuture.supplyAsync(() -> this.getEntry(uniqueId), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<Set<PlayerDataEntry>> getMatchingEntriesAsync(@NotNull final String name) {
+        return CompletableFuture.supplyAsync(() -> this.getMatchingEntries(name), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<Set<PlayerDataEntry>> getEntriesSeenSinceAsync(@NotNull final Instant time) {
+        return CompletableFuture.supplyAsync(() -> this.getEntriesSeenSince(time), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<Set<PlayerDataEntry>> getEntriesNotSeenSinceAsync(@NotNull final Instant time) {
+        return CompletableFuture.supplyAsync(() -> this.getEntriesNotSeenSince(time), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<List<PlayerDataEntry>> getMostRecentlySeenAsync(final int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative: " + limit);
+        }
+        return CompletableFuture.supplyAsync(() -> this.getMostRecentlySeen(limit), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<Set<String>> getAllNamesAsync() {
+        return CompletableFuture.supplyAsync(() -> this.getAllNames(), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<Set<UUID>> getAllUniqueIdsAsync() {
+        return CompletableFuture.supplyAsync(() -> this.getAllUniqueIds(), this.getLookupExecutor());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    default CompletableFuture<Set<PlayerDataEntry>> getAllEntriesAsync() {
+        return CompletableFuture.supplyAsync(() -> this.getAllEntries(), this.getLookupExecutor());
+    }
+}
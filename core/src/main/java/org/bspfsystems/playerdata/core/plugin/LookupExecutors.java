@@ -0,0 +1,104 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.plugin;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Provides the default {@link java.util.concurrent.Executor} for the
+ * asynchronous lookups of a {@link CorePlayerDataPlugin}.
+ * <p>
+ * On Java 21 and newer, lookups run on virtual threads, so a lookup that
+ * blocks on storage or the network does not tie up a platform thread. On
+ * older versions, a cached pool of daemon threads is used instead. The
+ * virtual thread executor is found reflectively, as the plugins are built for
+ * Java 8.
+ */
+public final class LookupExecutors {
+    
+    private static volatile ExecutorService defaultExecutor = null;
+    
+    private LookupExecutors() {
+        // Utility class.
+    }
+    
+    /**
+     * Gets the shared default {@link ExecutorService}, creating it on first
+     * use.
+     * 
+     * @return The default {@link ExecutorService}.
+     */
+    @NotNull
+    public static ExecutorService getDefault() {
+        ExecutorService executor = LookupExecutors.defaultExecutor;
+        if (executor == null) {
+            synchronized (LookupExecutors.class) {
+                executor = LookupExecutors.defaultExecutor;
+                if (executor == null) {
+                    executor = LookupExecutors.create();
+                    LookupExecutors.defaultExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+    
+    /**
+     * Creates a new {@link ExecutorService} for lookups, using virtual
+     * threads if they are available.
+     * 
+     * @return The new {@link ExecutorService}.
+     */
+    @NotNull
+    public static ExecutorService create() {
+        try {
+            final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            return Executors.newCachedThreadPool(new LookupThreadFactory());
+        }
+    }
+    
+    /**
+     * Creates the daemon threads used when virtual threads are not
+     * available.
+     */
+    private static final class LookupThreadFactory implements ThreadFactory {
+        
+        private final AtomicInteger count;
+        
+        private LookupThreadFactory() {
+            this.count = new AtomicInteger(0);
+        }
+        
+        @Override
+        @NotNull
+        public Thread newThread(@NotNull final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "PlayerData Lookup Thread #" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.replication;
+
+import java.util.UUID;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A single change to the name and {@link UUID} mappings, as replicated from
+ * the proxy to the backend servers.
+ * <p>
+ * Deltas are numbered by a sequence that increases by one for every change,
+ * so that a backend server can tell when it has missed some.
+ */
+public final class Delta {
+    
+    private final long sequence;
+    private final PlayerJoinEvent.JoinType type;
+    private final UUID uniqueId;
+    private final String name;
+    private final String oldName;
+    private final long time;
+    
+    /**
+     * Creates a new {@link Delta}.
+     * 
+     * @param sequence The sequence number of the change.
+     * @param type The {@link PlayerJoinEvent.JoinType type} of the change,
+     *             either {@link PlayerJoinEvent.JoinType#NEW_PLAYER} or
+     *             {@link PlayerJoinEvent.JoinType#NAME_CHANGE}.
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The name of the player.
+     * @param oldName The previous name of the player, for a
+     *                {@link PlayerJoinEvent.JoinType#NAME_CHANGE}.
+     * @param time The time of the change, in milliseconds since the epoch.
+     * @throws IllegalArgumentException If the <code>type</code> is
+     *                                  {@link PlayerJoinEvent.JoinType#NORMAL},
+     *                                  or <code>oldName</code> is
+     *                                  <code>null</code> for a name change or
+     *                                  not <code>null</code> for a new
+     *                                  player.
+     */
+    public Delta(final long sequence, @NotNull final PlayerJoinEvent.JoinType type, @NotNull final UUID uniqueId, @NotNull final String name, @Nullable final String oldName, final long time) throws IllegalArgumentException {
+        if (type == PlayerJoinEvent.JoinType.NORMAL) {
+            throw new IllegalArgumentException("Normal joins are not replicated.");
+        }
+        if ((oldName == null) == (type == PlayerJoinEvent.JoinType.NAME_CHANGE)) {
+            throw new IllegalArgumentException("The old name must be given for, and only for, a name change.");
+        }
+        this.sequence = sequence;
+        this.type = type;
+        this.uniqueId = uniqueId;
+        this.name = name;
+        this.oldName = oldName;
+        this.time = time;
+    }
+    
+    /**
+     * Gets the sequence number of this {@link Delta}.
+     * 
+     * @return The sequence number.
+     */
+    public long getSequence() {
+        return this.sequence;
+    }
+    
+    /**
+     * Gets the {@link PlayerJoinEvent.JoinType type} of this {@link Delta}.
+     * 
+     * @return Either {@link PlayerJoinEvent.JoinType#NEW_PLAYER} or
+     *         {@link PlayerJoinEvent.JoinType#NAME_CHANGE}.
+     */
+    @NotNull
+    public PlayerJoinEvent.JoinType getType() {
+        return this.type;
+    }
+    
+    /**
+     * Gets the {@link UUID} of the player.
+     * 
+     * @return The {@link UUID} of the player.
+     */
+    @NotNull
+    public UUID getUniqueId() {
+        return this.uniqueId;
+    }
+    
+    /**
+     * Gets the name of the player.
+     * 
+     * @return The name of the player.
+     */
+    @NotNull
+    public String getName() {
+        return this.name;
+    }
+    
+    /**
+     * Gets the previous name of the player. This is only present for a
+     * {@link PlayerJoinEvent.JoinType#NAME_CHANGE}.
+     * 
+     * @return The previous name of the player, or <code>null</code> if this is
+     *         a new player.
+     */
+    @Nullable
+    public String getOldName() {
+        return this.oldName;
+    }
+    
+    /**
+     * Gets the time of the change.
+     * 
+     * @return The time of the change, in milliseconds since the epoch.
+     */
+    public long getTime() {
+        return this.time;
+    }
+    
+    /**
+     * Creates the {@link PlayerJoinEvent} that this {@link Delta} represents.
+     * 
+     * @return The {@link PlayerJoinEvent}.
+     */
+    @NotNull
+    public PlayerJoinEvent toEvent() {
+        return new PlayerJoinEvent(this.name, this.oldName, this.uniqueId, this.type);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    public String toString() {
+        return "Delta{sequence=" + this.sequence + ", type=" + this.type + ", uniqueId=" + this.uniqueId + ", name=" + this.name + ", oldName=" + this.oldName + ", time=" + this.time + "}";
+    }
+}
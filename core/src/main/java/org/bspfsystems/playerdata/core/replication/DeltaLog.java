@@ -0,0 +1,170 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.replication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.bspfsystems.playerdata.core.store.ChangeListener;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Replicates the changes made to the {@link PlayerDataStore} on the proxy as
+ * {@link Delta Deltas}, instead of the backend servers periodically
+ * reloading every entry.
+ * <p>
+ * Each new player and name change is numbered and handed to a
+ * {@link DeltaSink} as it happens. Changes to only the last seen time are not
+ * replicated, as the backend servers do not use them. The most recent
+ * {@link Delta Deltas} are kept in a fixed-size ring, so that a backend
+ * server that missed some can request just those again.
+ * <p>
+ * The sequence numbers start from <code>1</code> each time the proxy starts,
+ * so the backend servers must fully resynchronize whenever they reconnect.
+ */
+public final class DeltaLog implements ChangeListener {
+    
+    private final PlayerDataStore store;
+    private final DeltaSink sink;
+    private final Delta[] ring;
+    private long sequence;
+    
+    /**
+     * Creates a new {@link DeltaLog}.
+     * 
+     * @param store The {@link PlayerDataStore} to replicate.
+     * @param sink The {@link DeltaSink} to send each {@link Delta} to.
+     * @param capacity The number of recent {@link Delta Deltas} to keep for
+     *                 range requests.
+     * @throws IllegalArgumentException If <code>capacity</code> is not
+     *                                  positive.
+     */
+    public DeltaLog(@NotNull final PlayerDataStore store, @NotNull final DeltaSink sink, final int capacity) throws IllegalArgumentException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.store = store;
+        this.sink = sink;
+        this.ring = new Delta[capacity];
+        this.sequence = 0L;
+    }
+    
+    /**
+     * Starts replicating the changes made to the {@link PlayerDataStore}.
+     */
+    public void open() {
+        this.store.addChangeListener(this);
+    }
+    
+    /**
+     * Stops replicating the changes made to the {@link PlayerDataStore}.
+     */
+    public void close() {
+        this.store.removeChangeListener(this);
+    }
+    
+    /**
+     * Gets the sequence number of the most recent {@link Delta}. A backend
+     * server that has just fully synchronized is up to date as of this
+     * sequence number, as long as it was read before the synchronization
+     * started.
+     * 
+     * @return The most recent sequence number, or <code>0</code> if there
+     *         have been no changes.
+     */
+    public synchronized long getSequence() {
+        return this.sequence;
+    }
+    
+    /**
+     * Gets the {@link Delta Deltas} in the given range of sequence numbers.
+     * 
+     * @param from The first sequence number, inclusive.
+     * @param to The last sequence number, inclusive. This is capped at the
+     *           most recent sequence number.
+     * @return The {@link Delta Deltas} in order, or <code>null</code> if some
+     *         of them are no longer kept, in which case the backend server
+     *         must fully resynchronize.
+     * @throws IllegalArgumentException If <code>from</code> is not positive,
+     *                                  or is greater than <code>to</code>.
+     */
+    @Nullable
+    public synchronized List<Delta> getRange(final long from, final long to) throws IllegalArgumentException {
+        if (from <= 0L || from > to) {
+            throw new IllegalArgumentException("Invalid range: " + from + " to " + to);
+        }
+        if (from <= this.sequence - this.ring.length) {
+            return null;
+        }
+        final long last = Math.min(to, this.sequence);
+        final List<Delta> deltas = new ArrayList<Delta>((int) Math.max(0L, last - from + 1L));
+        for (long sequence = from; sequence <= last; sequence++) {
+            deltas.add(this.ring[(int) (sequence % this.ring.length)]);
+        }
+        return deltas;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNewPlayer(@NotNull final UUID uniqueId, @NotNull final String name, final long time) {
+        this.append(PlayerJoinEvent.JoinType.NEW_PLAYER, uniqueId, name, null, time);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNameChange(@NotNull final UUID uniqueId, @NotNull final String oldName, @NotNull final String name, final long time) {
+        this.append(PlayerJoinEvent.JoinType.NAME_CHANGE, uniqueId, name, oldName, time);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onLastSeen(@NotNull final UUID uniqueId, final long time) {
+        // Not replicated.
+    }
+    
+    /**
+     * Numbers and records a change, and sends it to the {@link DeltaSink}.
+     * 
+     * @param type The {@link PlayerJoinEvent.JoinType type} of the change.
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The name of the player.
+     * @param oldName The previous name of the player, if it changed.
+     * @param time The time of the change, in milliseconds since the epoch.
+     */
+    private void append(@NotNull final PlayerJoinEvent.JoinType type, @NotNull final UUID uniqueId, @NotNull final String name, @Nullable final String oldName, final long time) {
+        final Delta delta;
+        synchronized (this) {
+            delta = new Delta(++this.sequence, type, uniqueId, name, oldName, time);
+            this.ring[(int) (delta.getSequence() % this.ring.length)] = delta;
+        }
+        
+        // The store's own lock keeps the sink calls in sequence order.
+        this.sink.send(delta);
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.replication;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Applies the {@link Delta Deltas} replicated from the proxy on a backend
+ * server, in sequence order.
+ * <p>
+ * A {@link Delta} that arrives ahead of its predecessors is held back, and
+ * just the missing range is requested from the proxy through a
+ * {@link RangeRequester}. A request that goes unanswered is repeated after a
+ * delay, either when the next {@link Delta} arrives or when
+ * {@link DeltaReceiver#retry()} is called. Duplicate {@link Delta Deltas} are
+ * ignored.
+ */
+public final class DeltaReceiver {
+    
+    private final Consumer<? super Delta> handler;
+    private final RangeRequester requester;
+    private final long retryNanos;
+    private final int maximumPending;
+    private final TreeMap<Long, Delta> pending;
+    private long applied;
+    private long requestedTo;
+    private long requestedAt;
+    
+    /**
+     * Creates a new {@link DeltaReceiver}.
+     * 
+     * @param handler Applies each {@link Delta}, in sequence order. It is
+     *                called while this {@link DeltaReceiver} is locked, so it
+     *                must return quickly.
+     * @param requester The {@link RangeRequester} for missed
+     *                  {@link Delta Deltas}.
+     * @param sequence The sequence number that the backend server is already
+     *                 up to date as of, as given by
+     *                 {@link DeltaLog#getSequence()} when it last fully
+     *                 synchronized.
+     * @param retryMillis The time to wait for a range request to be answered
+     *                    before repeating it, in milliseconds.
+     * @param maximumPending The maximum number of {@link Delta Deltas} to hold
+     *                       back while waiting for missed ones. Any further
+     *                       {@link Delta Deltas} are dropped and requested
+     *                       again later.
+     * @throws IllegalArgumentException If <code>sequence</code> is negative,
+     *                                  or <code>retryMillis</code> or
+     *                                  <code>maximumPending</code> is not
+     *                                  positive.
+     */
+    public DeltaReceiver(@NotNull final Consumer<? super Delta> handler, @NotNull final RangeRequester requester, final long sequence, final long retryMillis, final int maximumPending) throws IllegalArgumentException {
+        if (sequence < 0L) {
+            throw new IllegalArgumentException("Sequence cannot be negative: " + sequence);
+        }
+        if (retryMillis <= 0L) {
+            throw new IllegalArgumentException("Retry delay must be positive: " + retryMillis);
+        }
+        if (maximumPending <= 0) {
+            throw new IllegalArgumentException("Maximum pending deltas must be positive: " + maximumPending);
+        }
+        this.handler = handler;
+        this.requester = requester;
+        this.retryNanos = TimeUnit.MILLISECONDS.toNanos(retryMillis);
+        this.maximumPending = maximumPending;
+        this.pending = new TreeMap<Long, Delta>();
+        this.applied = sequence;
+        this.requestedTo = sequence;
+    }
+    
+    /**
+     * Gets the sequence number of the last {@link Delta} that was applied.
+     * 
+     * @return The last applied sequence number.
+     */
+    public synchronized long getSequence() {
+        return this.applied;
+    }
+    
+    /**
+     * Gets the number of {@link Delta Deltas} that are held back while
+     * waiting for missed ones.
+     * 
+     * @return The number of held back {@link Delta Deltas}.
+     */
+    public synchronized int getPendingCount() {
+        return this.pending.size();
+    }
+    
+    /**
+     * Receives a {@link Delta} from the proxy, either as it was made or in
+     * answer to a range request.
+     * 
+     * @param delta The {@link Delta}.
+     */
+    public synchronized void receive(@NotNull final Delta delta) {
+        final long sequence = delta.getSequence();
+        if (sequence <= this.applied || this.pending.containsKey(sequence)) {
+            return;
+        }
+        if (sequence == this.applied + 1L) {
+            this.apply(delta);
+            this.drain();
+            return;
+        }
+        
+        if (this.pending.size() >= this.maximumPending) {
+            this.request(sequence);
+            return;
+        }
+        this.pending.put(sequence, delta);
+        long missing = sequence - 1L;
+        while (this.pending.containsKey(missing)) {
+            missing--;
+        }
+        this.request(missing);
+    }
+    
+    /**
+     * Repeats the range request for any missed {@link Delta Deltas} if it has
+     * gone unanswered for too long. This should be called periodically, so
+     * that a lost answer is recovered even if no further changes are made.
+     */
+    public synchronized void retry() {
+        if (this.requestedTo > this.applied) {
+            this.request(this.requestedTo);
+        }
+    }
+    
+    /**
+     * Resets this {@link DeltaReceiver} after the backend server has fully
+     * resynchronized, such as after reconnecting to the proxy, or after the
+     * proxy no longer had a requested range.
+     * <p>
+     * Every held back {@link Delta} is dropped, as it may have been numbered
+     * by the proxy before it restarted, even if its sequence number is still
+     * ahead. Any that are still needed are requested again once the next
+     * {@link Delta} arrives.
+     * 
+     * @param sequence The sequence number that the backend server is now up
+     *                 to date as of, as given by {@link DeltaLog#getSequence()}
+     *                 before the resynchronization started.
+     * @throws IllegalArgumentException If <code>sequence</code> is negative.
+     */
+    public synchronized void reset(final long sequence) throws IllegalArgumentException {
+        if (sequence < 0L) {
+            throw new IllegalArgumentException("Sequence cannot be negative: " + sequence);
+        }
+        this.pending.clear();
+        this.applied = sequence;
+        this.requestedTo = sequence;
+    }
+    
+    /**
+     * Applies the given {@link Delta}, which must be the next in sequence.
+     * 
+     * @param delta The {@link Delta}.
+     */
+    private void apply(@NotNull final Delta delta) {
+        this.handler.accept(delta);
+        this.applied = delta.getSequence();
+        if (this.requestedTo < this.applied) {
+            this.requestedTo = this.applied;
+        }
+    }
+    
+    /**
+     * Applies every held back {@link Delta} that is now next in sequence.
+     */
+    private void drain() {
+        Map.Entry<Long, Delta> next;
+        while ((next = this.pending.firstEntry()) != null && next.getKey() <= this.applied + 1L) {
+            this.pending.pollFirstEntry();
+            if (next.getKey() == this.applied + 1L) {
+                this.apply(next.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Requests the missed {@link Delta Deltas} up to the given sequence
+     * number, unless they have already been requested recently. Held back
+     * {@link Delta Deltas} at either end of the range are not requested
+     * again.
+     * 
+     * @param to The last missed sequence number, inclusive.
+     */
+    private void request(final long to) {
+        final long now = System.nanoTime();
+        final boolean recent = now - this.requestedAt < this.retryNanos && this.requestedTo > this.applied;
+        if (recent && to <= this.requestedTo) {
+            return;
+        }
+        long from = recent ? this.requestedTo + 1L : this.applied + 1L;
+        while (from < to && this.pending.containsKey(from)) {
+            from++;
+        }
+        long last = to;
+        while (last > from && this.pending.containsKey(last)) {
+            last--;
+        }
+        this.requester.requestRange(this, from, last);
+        this.requestedTo = Math.max(this.requestedTo, to);
+        this.requestedAt = now;
+    }
+}
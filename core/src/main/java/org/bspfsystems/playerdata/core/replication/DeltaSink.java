@@ -0,0 +1,43 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.replication;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sends {@link Delta Deltas} from the proxy to the connected backend
+ * servers.
+ * <p>
+ * Platform implementations provide this over their own transport, such as
+ * plugin messaging channels.
+ */
+public interface DeltaSink {
+    
+    /**
+     * Sends the given {@link Delta} to every connected backend server.
+     * <p>
+     * This is called while the change is being made, so it must return
+     * quickly; the actual sending should be queued and done on another
+     * thread.
+     * 
+     * @param delta The {@link Delta} to send.
+     */
+    void send(@NotNull Delta delta);
+}
@@ -0,0 +1,50 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.replication;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Requests missed {@link Delta Deltas} from the proxy for a
+ * {@link DeltaReceiver}.
+ * <p>
+ * Platform implementations provide this over their own transport. The proxy
+ * answers a request from {@link DeltaLog#getRange(long, long)}, and the
+ * backend server passes each returned {@link Delta} to
+ * {@link DeltaReceiver#receive(Delta)}. If the proxy no longer has the whole
+ * range, the backend server must instead fully resynchronize, and then call
+ * {@link DeltaReceiver#reset(long)}.
+ */
+public interface RangeRequester {
+    
+    /**
+     * Requests the {@link Delta Deltas} in the given range of sequence
+     * numbers.
+     * <p>
+     * This is called while the {@link DeltaReceiver} is locked, so it must
+     * return quickly.
+     * 
+     * @param receiver The {@link DeltaReceiver} that is missing the
+     *                 {@link Delta Deltas}.
+     * @param from The first missing sequence number, inclusive.
+     * @param to The last missing sequence number, inclusive.
+     */
+    void requestRange(@NotNull DeltaReceiver receiver, long from, long to);
+}
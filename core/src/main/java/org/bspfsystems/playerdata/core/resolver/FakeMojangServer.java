@@ -0,0 +1,258 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.resolver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A local stand-in for the Mojang bulk profile endpoint, for testing a
+ * {@link ProfileResolver} without network access.
+ * <p>
+ * The server answers <code>POST /profiles/minecraft</code> with the profiles
+ * that have been {@link FakeMojangServer#addProfile(UUID, String) added},
+ * rejects requests for more than {@link ProfileResolver#MAXIMUM_BATCH}
+ * names, and can be told to enforce a rate limit by answering
+ * <code>429 Too Many Requests</code>. It uses the HTTP server that is built
+ * into the JDK, and listens on the loopback address only.
+ */
+public final class FakeMojangServer {
+    
+    private static final String PATH = "/profiles/minecraft";
+    
+    private final HttpServer server;
+    private final Map<String, Map.Entry<String, UUID>> profiles;
+    private final AtomicInteger requests;
+    private final AtomicInteger rejected;
+    private final Deque<Long> window;
+    private volatile int rateLimit;
+    private volatile long rateLimitWindowMillis;
+    private volatile int retryAfterSeconds;
+    
+    /**
+     * Creates a new {@link FakeMojangServer} on a free port of the loopback
+     * address. It is not started until {@link FakeMojangServer#start()} is
+     * called.
+     * 
+     * @throws IOException If the server cannot be bound.
+     */
+    public FakeMojangServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext(FakeMojangServer.PATH, this::handle);
+        this.profiles = new ConcurrentHashMap<String, Map.Entry<String, UUID>>();
+        this.requests = new AtomicInteger();
+        this.rejected = new AtomicInteger();
+        this.window = new ArrayDeque<Long>();
+        this.rateLimit = 0;
+    }
+    
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        this.server.start();
+    }
+    
+    /**
+     * Stops serving requests.
+     */
+    public void stop() {
+        this.server.stop(0);
+    }
+    
+    /**
+     * Gets the endpoint to give to a {@link ProfileResolver}.
+     * 
+     * @return The endpoint {@link URI}.
+     */
+    @NotNull
+    public URI getEndpoint() {
+        return URI.create("http://" + this.server.getAddress().getHostString() + ":" + this.server.getAddress().getPort() + FakeMojangServer.PATH);
+    }
+    
+    /**
+     * Adds a profile that the server will return.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The name of the player.
+     */
+    public void addProfile(@NotNull final UUID uniqueId, @NotNull final String name) {
+        this.profiles.put(name.toLowerCase(Locale.ROOT), new AbstractMap.SimpleImmutableEntry<String, UUID>(name, uniqueId));
+    }
+    
+    /**
+     * Makes the server answer <code>429 Too Many Requests</code> to any
+     * request beyond the given number within a sliding window.
+     * 
+     * @param limit The number of requests allowed per window, or
+     *              <code>0</code> for no limit.
+     * @param windowMillis The length of the window, in milliseconds.
+     * @param retryAfterSeconds The <code>Retry-After</code> value to send, or
+     *                          <code>0</code> to send none.
+     */
+    public void setRateLimit(final int limit, final long windowMillis, final int retryAfterSeconds) {
+        this.rateLimitWindowMillis = windowMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.rateLimit = limit;
+    }
+    
+    /**
+     * Gets the number of requests that have been answered successfully.
+     * 
+     * @return The number of successful requests.
+     */
+    public int getRequestCount() {
+        return this.requests.get();
+    }
+    
+    /**
+     * Gets the number of requests that were rejected by the rate limit.
+     * 
+     * @return The number of rate limited requests.
+     */
+    public int getRateLimitedCount() {
+        return this.rejected.get();
+    }
+    
+    /**
+     * Handles a single request.
+     * 
+     * @param exchange The {@link HttpExchange}.
+     * @throws IOException If the response cannot be sent.
+     */
+    private void handle(@NotNull final HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                this.respond(exchange, 405, "{\"error\":\"Method Not Allowed\"}");
+                return;
+            }
+            if (this.isRateLimited()) {
+                this.rejected.incrementAndGet();
+                if (this.retryAfterSeconds > 0) {
+                    exchange.getResponseHeaders().set("Retry-After", Integer.toString(this.retryAfterSeconds));
+                }
+                this.respond(exchange, 429, "{\"error\":\"TooManyRequestsException\"}");
+                return;
+            }
+            
+            final List<String> names;
+            try {
+                names = ProfileJson.readStrings(FakeMojangServer.read(exchange.getRequestBody()));
+            } catch (IllegalArgumentException e) {
+                this.respond(exchange, 400, "{\"error\":\"IllegalArgumentException\"}");
+                return;
+            }
+            if (names.size() > ProfileResolver.MAXIMUM_BATCH) {
+                this.respond(exchange, 400, "{\"error\":\"IllegalArgumentException\",\"errorMessage\":\"Not more that 10 profile name per call is allowed.\"}");
+                return;
+            }
+            
+            final Map<String, UUID> found = new LinkedHashMap<String, UUID>();
+            for (final String name : names) {
+                final Map.Entry<String, UUID> profile = this.profiles.get(name.toLowerCase(Locale.ROOT));
+                if (profile != null) {
+                    found.put(profile.getKey(), profile.getValue());
+                }
+            }
+            this.requests.incrementAndGet();
+            this.respond(exchange, 200, ProfileJson.writeProfiles(found));
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * Records a request against the rate limit.
+     * 
+     * @return <code>true</code> if the request exceeds the rate limit,
+     *         <code>false</code> otherwise.
+     */
+    private boolean isRateLimited() {
+        final int limit = this.rateLimit;
+        if (limit <= 0) {
+            return false;
+        }
+        final long now = System.currentTimeMillis();
+        synchronized (this.window) {
+            while (!this.window.isEmpty() && this.window.peekFirst() <= now - this.rateLimitWindowMillis) {
+                this.window.pollFirst();
+            }
+            if (this.window.size() >= limit) {
+                return true;
+            }
+            this.window.addLast(now);
+            return false;
+        }
+    }
+    
+    /**
+     * Sends a JSON response.
+     * 
+     * @param exchange The {@link HttpExchange}.
+     * @param status The HTTP status code.
+     * @param body The JSON body.
+     * @throws IOException If the response cannot be sent.
+     */
+    private void respond(@NotNull final HttpExchange exchange, final int status, @NotNull final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (final OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+    
+    /**
+     * Reads the whole of the given stream as UTF-8 text.
+     * 
+     * @param stream The stream.
+     * @return The text.
+     * @throws IOException If the stream cannot be read.
+     */
+    @NotNull
+    private static String read(@NotNull final InputStream stream) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int read;
+        while ((read = stream.read(buffer)) >= 0) {
+            output.write(buffer, 0, read);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
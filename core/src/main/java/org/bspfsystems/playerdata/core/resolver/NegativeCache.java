@@ -0,0 +1,95 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.resolver;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A bounded cache of keys that are known not to exist, each remembered for
+ * a fixed time. If the cache fills up, expired keys are dropped first, and
+ * then the whole cache if that is not enough; forgetting a miss only costs
+ * one more lookup.
+ * <p>
+ * This class is thread-safe.
+ */
+final class NegativeCache {
+    
+    private final long ttlNanos;
+    private final int maximumSize;
+    private final Map<String, Long> expiries;
+    
+    /**
+     * Creates a new, empty {@link NegativeCache}.
+     * 
+     * @param ttlMillis How long to remember each key, in milliseconds.
+     * @param maximumSize The maximum number of keys to remember.
+     */
+    NegativeCache(final long ttlMillis, final int maximumSize) {
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.maximumSize = maximumSize;
+        this.expiries = new ConcurrentHashMap<String, Long>();
+    }
+    
+    /**
+     * Checks if the given key is known not to exist.
+     * 
+     * @param key The key.
+     * @return <code>true</code> if the key was added and has not expired,
+     *         <code>false</code> otherwise.
+     */
+    boolean contains(@NotNull final String key) {
+        final Long expiry = this.expiries.get(key);
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry - System.nanoTime() > 0L) {
+            return true;
+        }
+        this.expiries.remove(key, expiry);
+        return false;
+    }
+    
+    /**
+     * Remembers that the given key does not exist.
+     * 
+     * @param key The key.
+     */
+    void add(@NotNull final String key) {
+        if (this.ttlNanos <= 0L) {
+            return;
+        }
+        final long now = System.nanoTime();
+        if (this.expiries.size() >= this.maximumSize && !this.expiries.containsKey(key)) {
+            final Iterator<Long> iterator = this.expiries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() - now <= 0L) {
+                    iterator.remove();
+                }
+            }
+            if (this.expiries.size() >= this.maximumSize) {
+                this.expiries.clear();
+            }
+        }
+        this.expiries.put(key, now + this.ttlNanos);
+    }
+}
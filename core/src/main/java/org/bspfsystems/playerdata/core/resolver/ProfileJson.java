@@ -0,0 +1,398 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.resolver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The small subset of JSON needed to talk to the Mojang profile service:
+ * writing an array of names, and reading arrays of strings or of profile
+ * objects. Arrays of other objects can also be read, for the profile files
+ * that servers keep, such as their <code>usercache.json</code>. The platforms
+ * bundle different JSON libraries, so core does not depend on any of them.
+ */
+public final class ProfileJson {
+    
+    private final String text;
+    private int position;
+    
+    private ProfileJson(@NotNull final String text) {
+        this.text = text;
+        this.position = 0;
+    }
+    
+    /**
+     * Writes the given strings as a JSON array.
+     * 
+     * @param strings The strings to write.
+     * @return The JSON array.
+     */
+    @NotNull
+    static String writeStrings(@NotNull final Collection<String> strings) {
+        final StringBuilder builder = new StringBuilder("[");
+        for (final String string : strings) {
+            if (builder.length() > 1) {
+                builder.append(',');
+            }
+            ProfileJson.writeString(builder, string);
+        }
+        return builder.append(']').toString();
+    }
+    
+    /**
+     * Writes the given profiles as a JSON array of objects with
+     * <code>id</code> and <code>name</code> fields, as the profile service
+     * returns them.
+     * 
+     * @param profiles The profiles, by name.
+     * @return The JSON array.
+     */
+    @NotNull
+    static String writeProfiles(@NotNull final Map<String, UUID> profiles) {
+        final StringBuilder builder = new StringBuilder("[");
+        for (final Map.Entry<String, UUID> profile : profiles.entrySet()) {
+            if (builder.length() > 1) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":");
+            ProfileJson.writeString(builder, profile.getValue().toString().replace("-", ""));
+            builder.append(",\"name\":");
+            ProfileJson.writeString(builder, profile.getKey());
+            builder.append('}');
+        }
+        return builder.append(']').toString();
+    }
+    
+    /**
+     * Reads a JSON array of strings.
+     * 
+     * @param text The JSON text.
+     * @return The strings.
+     * @throws IllegalArgumentException If the text is not a JSON array of
+     *                                  strings.
+     */
+    @NotNull
+    static List<String> readStrings(@NotNull final String text) throws IllegalArgumentException {
+        final Object value = new ProfileJson(text).readDocument();
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Expected a JSON array.");
+        }
+        final List<String> strings = new ArrayList<String>();
+        for (final Object element : (List<?>) value) {
+            if (!(element instanceof String)) {
+                throw new IllegalArgumentException("Expected a JSON string: " + element);
+            }
+            strings.add((String) element);
+        }
+        return strings;
+    }
+    
+    /**
+     * Reads a JSON array of profile objects, ignoring any fields other than
+     * <code>id</code> and <code>name</code>.
+     * 
+     * @param text The JSON text.
+     * @return The profiles, by name.
+     * @throws IllegalArgumentException If the text is not a JSON array of
+     *                                  profiles.
+     */
+    @NotNull
+    static Map<String, UUID> readProfiles(@NotNull final String text) throws IllegalArgumentException {
+        final Object value = new ProfileJson(text).readDocument();
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Expected a JSON array.");
+        }
+        final Map<String, UUID> profiles = new HashMap<String, UUID>();
+        for (final Object element : (List<?>) value) {
+            if (!(element instanceof Map)) {
+                throw new IllegalArgumentException("Expected a JSON object: " + element);
+            }
+            final Object id = ((Map<?, ?>) element).get("id");
+            final Object name = ((Map<?, ?>) element).get("name");
+            if (!(id instanceof String) || !(name instanceof String)) {
+                throw new IllegalArgumentException("Profile is missing its id or name: " + element);
+            }
+            profiles.put((String) name, ProfileJson.parseUniqueId((String) id));
+        }
+        return profiles;
+    }
+    
+    /**
+     * Reads a JSON array of objects. Nested objects are {@link Map Maps},
+     * arrays are {@link List Lists}, and numbers are kept as their text.
+     * 
+     * @param text The JSON text.
+     * @return The objects.
+     * @throws IllegalArgumentException If the text is not a JSON array of
+     *                                  objects.
+     */
+    @NotNull
+    public static List<Map<?, ?>> readObjects(@NotNull final String text) throws IllegalArgumentException {
+        final Object value = new ProfileJson(text).readDocument();
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Expected a JSON array.");
+        }
+        final List<Map<?, ?>> objects = new ArrayList<Map<?, ?>>();
+        for (final Object element : (List<?>) value) {
+            if (!(element instanceof Map)) {
+                throw new IllegalArgumentException("Expected a JSON object: " + element);
+            }
+            objects.add((Map<?, ?>) element);
+        }
+        return objects;
+    }
+    
+    /**
+     * Parses a {@link UUID} in the undashed form used by the profile service.
+     * 
+     * @param id The undashed {@link UUID}.
+     * @return The {@link UUID}.
+     * @throws IllegalArgumentException If the id is not a valid {@link UUID}.
+     */
+    @NotNull
+    static UUID parseUniqueId(@NotNull final String id) throws IllegalArgumentException {
+        if (id.length() != 32) {
+            throw new IllegalArgumentException("Invalid profile id: " + id);
+        }
+        try {
+            return new UUID(Long.parseUnsignedLong(id.substring(0, 16), 16), Long.parseUnsignedLong(id.substring(16), 16));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid profile id: " + id, e);
+        }
+    }
+    
+    /**
+     * Appends the given string as a JSON string.
+     * 
+     * @param builder The {@link StringBuilder} to append to.
+     * @param string The string.
+     */
+    private static void writeString(@NotNull final StringBuilder builder, @NotNull final String string) {
+        builder.append('"');
+        for (int index = 0; index < string.length(); index++) {
+            final char character = string.charAt(index);
+            if (character == '"' || character == '\\') {
+                builder.append('\\').append(character);
+            } else if (character < 0x20) {
+                builder.append(String.format("\\u%04x", (int) character));
+            } else {
+                builder.append(character);
+            }
+        }
+        builder.append('"');
+    }
+    
+    /**
+     * Reads a whole JSON document.
+     * 
+     * @return The value.
+     * @throws IllegalArgumentException If the text is not valid JSON.
+     */
+    @Nullable
+    private Object readDocument() throws IllegalArgumentException {
+        final Object value = this.readValue();
+        this.skipWhitespace();
+        if (this.position != this.text.length()) {
+            throw this.error("Unexpected trailing data");
+        }
+        return value;
+    }
+    
+    /**
+     * Reads a JSON value: objects become {@link Map Maps}, arrays become
+     * {@link List Lists}, and numbers are kept as their text.
+     * 
+     * @return The value.
+     * @throws IllegalArgumentException If the text is not valid JSON.
+     */
+    @Nullable
+    private Object readValue() throws IllegalArgumentException {
+        this.skipWhitespace();
+        if (this.position >= this.text.length()) {
+            throw this.error("Unexpected end of input");
+        }
+        final char character = this.text.charAt(this.position);
+        if (character == '{') {
+            this.position++;
+            final Map<String, Object> object = new HashMap<String, Object>();
+            if (this.consume('}')) {
+                return object;
+            }
+            do {
+                this.skipWhitespace();
+                final String key = this.readString();
+                this.expect(':');
+                object.put(key, this.readValue());
+            } while (this.consume(','));
+            this.expect('}');
+            return object;
+        }
+        if (character == '[') {
+            this.position++;
+            final List<Object> array = new ArrayList<Object>();
+            if (this.consume(']')) {
+                return array;
+            }
+            do {
+                array.add(this.readValue());
+            } while (this.consume(','));
+            this.expect(']');
+            return array;
+        }
+        if (character == '"') {
+            return this.readString();
+        }
+        if (this.text.startsWith("true", this.position)) {
+            this.position += 4;
+            return Boolean.TRUE;
+        }
+        if (this.text.startsWith("false", this.position)) {
+            this.position += 5;
+            return Boolean.FALSE;
+        }
+        if (this.text.startsWith("null", this.position)) {
+            this.position += 4;
+            return null;
+        }
+        final int start = this.position;
+        while (this.position < this.text.length() && "+-.0123456789eE".indexOf(this.text.charAt(this.position)) >= 0) {
+            this.position++;
+        }
+        if (start == this.position) {
+            throw this.error("Unexpected character '" + character + "'");
+        }
+        return this.text.substring(start, this.position);
+    }
+    
+    /**
+     * Reads a JSON string, starting at its opening quote.
+     * 
+     * @return The string.
+     * @throws IllegalArgumentException If there is no valid string here.
+     */
+    @NotNull
+    private String readString() throws IllegalArgumentException {
+        if (!this.consume('"')) {
+            throw this.error("Expected a string");
+        }
+        final StringBuilder builder = new StringBuilder();
+        while (this.position < this.text.length()) {
+            final char character = this.text.charAt(this.position++);
+            if (character == '"') {
+                return builder.toString();
+            }
+            if (character != '\\') {
+                builder.append(character);
+                continue;
+            }
+            if (this.position >= this.text.length()) {
+                break;
+            }
+            final char escaped = this.text.charAt(this.position++);
+            switch (escaped) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    if (this.position + 4 > this.text.length()) {
+                        throw this.error("Truncated unicode escape");
+                    }
+                    try {
+                        builder.append((char) Integer.parseInt(this.text.substring(this.position, this.position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw this.error("Invalid unicode escape");
+                    }
+                    this.position += 4;
+                    break;
+                default:
+                    builder.append(escaped);
+                    break;
+            }
+        }
+        throw this.error("Unterminated string");
+    }
+    
+    /**
+     * Skips any whitespace, then consumes the given character if it is next.
+     * 
+     * @param character The character.
+     * @return <code>true</code> if the character was consumed,
+     *         <code>false</code> otherwise.
+     */
+    private boolean consume(final char character) {
+        this.skipWhitespace();
+        if (this.position < this.text.length() && this.text.charAt(this.position) == character) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Skips any whitespace, then consumes the given character.
+     * 
+     * @param character The character.
+     * @throws IllegalArgumentException If the character is not next.
+     */
+    private void expect(final char character) throws IllegalArgumentException {
+        if (!this.consume(character)) {
+            throw this.error("Expected '" + character + "'");
+        }
+    }
+    
+    /**
+     * Skips any whitespace.
+     */
+    private void skipWhitespace() {
+        while (this.position < this.text.length() && Character.isWhitespace(this.text.charAt(this.position))) {
+            this.position++;
+        }
+    }
+    
+    /**
+     * Creates an exception describing a syntax error at the current position.
+     * 
+     * @param message The description of the error.
+     * @return The exception.
+     */
+    @NotNull
+    private IllegalArgumentException error(@NotNull final String message) {
+        return new IllegalArgumentException(message + " at position " + this.position + " of JSON text.");
+    }
+}
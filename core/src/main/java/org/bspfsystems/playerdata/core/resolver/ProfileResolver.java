@@ -0,0 +1,430 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.resolver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bspfsystems.playerdata.core.metrics.MetricsRecorder;
+import org.bspfsystems.playerdata.core.metrics.Operation;
+import org.bspfsystems.playerdata.core.store.PackedNames;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Resolves player names that are not known locally through the Mojang
+ * profile service.
+ * <p>
+ * Concurrent requests for the same name, ignoring case, share a single
+ * lookup. Names are queued and sent in bulk requests of up to
+ * {@link ProfileResolver#MAXIMUM_BATCH} names, waiting a short time for a
+ * batch to fill up. Every request takes a token from a {@link TokenBucket},
+ * so a burst of lookups is spread out rather than exceeding the service's
+ * rate limit; if the service still answers <code>429 Too Many
+ * Requests</code>, the resolver backs off, honouring any
+ * <code>Retry-After</code> header, and retries the same batch.
+ * <p>
+ * Names that are not valid Minecraft names are resolved to
+ * <code>null</code> without a request. Names that the service reports as not
+ * existing are remembered for a configurable time and also resolved to
+ * <code>null</code> without a request, so repeated lookups of made-up names
+ * cost nothing. Names that do exist are not cached here, as they are
+ * expected to be recorded by the caller once the player joins. See
+ * {@link FakeMojangServer} for testing without network access.
+ */
+public final class ProfileResolver {
+    
+    /**
+     * The Mojang bulk profile endpoint.
+     */
+    public static final URI MOJANG_ENDPOINT = URI.create("https://api.mojang.com/profiles/minecraft");
+    
+    /**
+     * The maximum number of names in a single bulk request.
+     */
+    public static final int MAXIMUM_BATCH = 10;
+    
+    private static final int MAXIMUM_ATTEMPTS = 3;
+    private static final int MAXIMUM_RATE_LIMITED = 8;
+    private static final long MINIMUM_BACKOFF_MILLIS = 1000L;
+    private static final long MAXIMUM_BACKOFF_MILLIS = 60000L;
+    private static final int TIMEOUT_MILLIS = 10000;
+    private static final int MAXIMUM_NEGATIVE_CACHE_SIZE = 100000;
+    
+    private final URI endpoint;
+    private final TokenBucket rateLimit;
+    private final long lingerMillis;
+    private final Logger logger;
+    private final NegativeCache unknownNames;
+    private final ConcurrentHashMap<String, CompletableFuture<UUID>> pending;
+    private final BlockingQueue<String> queue;
+    
+    private volatile Thread dispatcher;
+    private volatile MetricsRecorder metrics;
+    
+    /**
+     * Creates a new {@link ProfileResolver}. No requests are made until
+     * {@link ProfileResolver#start()} is called.
+     * 
+     * @param endpoint The bulk profile endpoint, usually
+     *                 {@link ProfileResolver#MOJANG_ENDPOINT}.
+     * @param rateLimit The {@link TokenBucket} to take a token from for each
+     *                  request.
+     * @param lingerMillis How long to wait for more names before sending a
+     *                     batch that is not full, in milliseconds.
+     * @param unknownNameMillis How long to remember that a name does not
+     *                          exist, in milliseconds, or <code>0</code> to
+     *                          not remember it.
+     * @param logger The {@link Logger} to report problems to.
+     * @throws IllegalArgumentException If <code>lingerMillis</code> or
+     *                                  <code>unknownNameMillis</code> is
+     *                                  negative.
+     */
+    public ProfileResolver(@NotNull final URI endpoint, @NotNull final TokenBucket rateLimit, final long lingerMillis, final long unknownNameMillis, @NotNull final Logger logger) throws IllegalArgumentException {
+        if (lingerMillis < 0L) {
+            throw new IllegalArgumentException("Linger time cannot be negative: " + lingerMillis);
+        }
+        if (unknownNameMillis < 0L) {
+            throw new IllegalArgumentException("Unknown name time cannot be negative: " + unknownNameMillis);
+        }
+        this.endpoint = endpoint;
+        this.rateLimit = rateLimit;
+        this.lingerMillis = lingerMillis;
+        this.logger = logger;
+        this.unknownNames = new NegativeCache(unknownNameMillis, ProfileResolver.MAXIMUM_NEGATIVE_CACHE_SIZE);
+        this.pending = new ConcurrentHashMap<String, CompletableFuture<UUID>>();
+        this.queue = new LinkedBlockingQueue<String>();
+        this.metrics = MetricsRecorder.NONE;
+    }
+    
+    /**
+     * Sets the {@link MetricsRecorder} that lookups and requests are measured
+     * with, usually the same one as the
+     * {@link org.bspfsystems.playerdata.core.store.PlayerDataStore}.
+     * 
+     * @param metrics The {@link MetricsRecorder}.
+     */
+    public void setMetricsRecorder(@NotNull final MetricsRecorder metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Starts the background thread that sends the requests.
+     * 
+     * @throws IllegalStateException If the resolver is already started.
+     */
+    public synchronized void start() throws IllegalStateException {
+        if (this.dispatcher != null) {
+            throw new IllegalStateException("Profile resolver is already started.");
+        }
+        this.dispatcher = new Thread(this::run, "PlayerData Profile Resolver");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+    
+    /**
+     * Stops the background thread. Any lookups that have not completed yet
+     * complete exceptionally.
+     */
+    public synchronized void close() {
+        final Thread thread = this.dispatcher;
+        if (thread == null) {
+            return;
+        }
+        this.dispatcher = null;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.queue.clear();
+        this.fail(new ArrayList<String>(this.pending.keySet()), new IOException("The profile resolver was closed."));
+    }
+    
+    /**
+     * Resolves the {@link UUID} of the player with the given name.
+     * 
+     * @param name The name of the player.
+     * @return A {@link CompletableFuture} that completes with the
+     *         {@link UUID} of the player, or <code>null</code> if there is no
+     *         player with that name. If the resolver is not running, the
+     *         future completes exceptionally.
+     */
+    @NotNull
+    public CompletableFuture<UUID> resolve(@NotNull final String name) {
+        final long start = System.nanoTime();
+        if (!PackedNames.isPackable(name)) {
+            this.metrics.record(Operation.RESOLVE, 0, 1, System.nanoTime() - start);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (this.dispatcher == null) {
+            final CompletableFuture<UUID> failed = new CompletableFuture<UUID>();
+            failed.completeExceptionally(new IllegalStateException("The profile resolver is not running."));
+            return failed;
+        }
+        final String key = name.toLowerCase(Locale.ROOT);
+        if (this.unknownNames.contains(key)) {
+            this.metrics.record(Operation.RESOLVE, 0, 1, System.nanoTime() - start);
+            return CompletableFuture.completedFuture(null);
+        }
+        final boolean[] created = new boolean[1];
+        final CompletableFuture<UUID> future = this.pending.computeIfAbsent(key, unused -> {
+            created[0] = true;
+            return new CompletableFuture<UUID>();
+        });
+        if (created[0]) {
+            this.queue.add(key);
+            // The resolver may have been closed after the check above, but
+            // before the lookup was registered, in which case close() will
+            // not have seen it and it has to be failed here.
+            if (this.dispatcher == null) {
+                this.queue.remove(key);
+                this.fail(Collections.singletonList(key), new IOException("The profile resolver was closed."));
+            }
+        }
+        // Callers get their own future, so one of them cancelling it does not
+        // affect the others.
+        final CompletableFuture<UUID> result = future.thenApply(Function.identity());
+        result.whenComplete((uniqueId, failure) -> this.metrics.record(Operation.RESOLVE, uniqueId != null ? 1 : 0, uniqueId != null ? 0 : 1, System.nanoTime() - start));
+        return result;
+    }
+    
+    /**
+     * Resolves the {@link UUID}s of the players with the given names.
+     * 
+     * @param names The names of the players.
+     * @return A {@link CompletableFuture} that completes with a {@link Map}
+     *         of the names that exist to their {@link UUID}s.
+     */
+    @NotNull
+    public CompletableFuture<Map<String, UUID>> resolveAll(@NotNull final Collection<String> names) {
+        final Map<String, CompletableFuture<UUID>> futures = new HashMap<String, CompletableFuture<UUID>>(names.size() * 4 / 3 + 1);
+        for (final String name : names) {
+            futures.put(name, this.resolve(name));
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).thenApply(unused -> {
+            final Map<String, UUID> uniqueIds = new HashMap<String, UUID>(futures.size() * 4 / 3 + 1);
+            for (final Map.Entry<String, CompletableFuture<UUID>> entry : futures.entrySet()) {
+                final UUID uniqueId = entry.getValue().join();
+                if (uniqueId != null) {
+                    uniqueIds.put(entry.getKey(), uniqueId);
+                }
+            }
+            return uniqueIds;
+        });
+    }
+    
+    /**
+     * The main loop of the background thread.
+     */
+    private void run() {
+        final List<String> batch = new ArrayList<String>(ProfileResolver.MAXIMUM_BATCH);
+        while (this.dispatcher == Thread.currentThread()) {
+            try {
+                batch.add(this.queue.take());
+                final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.lingerMillis);
+                while (batch.size() < ProfileResolver.MAXIMUM_BATCH) {
+                    final String next = this.queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                this.send(batch);
+            } catch (InterruptedException e) {
+                this.fail(batch, new IOException("The profile resolver was closed."));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    /**
+     * Sends a bulk request for the given names, retrying as needed, and
+     * completes their lookups.
+     * 
+     * @param batch The lower case names.
+     * @throws InterruptedException If the thread is interrupted while
+     *                              waiting for the rate limit.
+     */
+    private void send(@NotNull final List<String> batch) throws InterruptedException {
+        final long start = System.nanoTime();
+        final byte[] body = ProfileJson.writeStrings(batch).getBytes(StandardCharsets.UTF_8);
+        long backoff = ProfileResolver.MINIMUM_BACKOFF_MILLIS;
+        int failures = 0;
+        int rateLimited = 0;
+        while (true) {
+            this.rateLimit.acquire();
+            long wait;
+            try {
+                final HttpURLConnection connection = (HttpURLConnection) this.endpoint.toURL().openConnection();
+                connection.setRequestMethod("POST");
+                connection.setConnectTimeout(ProfileResolver.TIMEOUT_MILLIS);
+                connection.setReadTimeout(ProfileResolver.TIMEOUT_MILLIS);
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setRequestProperty("Accept", "application/json");
+                try (final OutputStream output = connection.getOutputStream()) {
+                    output.write(body);
+                }
+                
+                final int status = connection.getResponseCode();
+                if (status == HttpURLConnection.HTTP_OK) {
+                    final Map<String, UUID> profiles = ProfileJson.readProfiles(ProfileResolver.read(connection.getInputStream()));
+                    final Map<String, UUID> found = new HashMap<String, UUID>();
+                    for (final Map.Entry<String, UUID> profile : profiles.entrySet()) {
+                        found.put(profile.getKey().toLowerCase(Locale.ROOT), profile.getValue());
+                    }
+                    int hits = 0;
+                    for (final String key : batch) {
+                        final UUID uniqueId = found.get(key);
+                        if (uniqueId == null) {
+                            this.unknownNames.add(key);
+                        } else {
+                            hits++;
+                        }
+                        final CompletableFuture<UUID> future = this.pending.remove(key);
+                        if (future != null) {
+                            future.complete(uniqueId);
+                        }
+                    }
+                    this.metrics.record(Operation.RESOLVER_REQUEST, hits, batch.size() - hits, System.nanoTime() - start);
+                    return;
+                }
+                ProfileResolver.discard(connection);
+                
+                if (status == 429) {
+                    if (++rateLimited > ProfileResolver.MAXIMUM_RATE_LIMITED) {
+                        throw new IOException("The profile service is still rate limiting requests after " + ProfileResolver.MAXIMUM_RATE_LIMITED + " retries.");
+                    }
+                    this.rateLimit.drain();
+                    final long retryAfter = ProfileResolver.parseRetryAfter(connection.getHeaderField("Retry-After"));
+                    wait = retryAfter > 0L ? retryAfter : backoff;
+                    this.logger.log(Level.FINE, "Profile service rate limit reached, retrying in " + wait + "ms.");
+                } else {
+                    throw new IOException("Unexpected response from the profile service: " + status);
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                if (++failures >= ProfileResolver.MAXIMUM_ATTEMPTS || rateLimited > ProfileResolver.MAXIMUM_RATE_LIMITED) {
+                    this.logger.log(Level.WARNING, "Unable to resolve player names " + batch + ".", e);
+                    this.metrics.record(Operation.RESOLVER_REQUEST, 0, batch.size(), System.nanoTime() - start);
+                    this.fail(batch, e);
+                    return;
+                }
+                wait = backoff;
+            }
+            Thread.sleep(wait);
+            backoff = Math.min(backoff << 1, ProfileResolver.MAXIMUM_BACKOFF_MILLIS);
+        }
+    }
+    
+    /**
+     * Completes the lookups of the given names exceptionally.
+     * 
+     * @param keys The lower case names.
+     * @param cause The cause of the failure.
+     */
+    private void fail(@NotNull final List<String> keys, @NotNull final Throwable cause) {
+        for (final String key : keys) {
+            final CompletableFuture<UUID> future = this.pending.remove(key);
+            if (future != null) {
+                future.completeExceptionally(cause);
+            }
+        }
+    }
+    
+    /**
+     * Parses a <code>Retry-After</code> header given in seconds.
+     * 
+     * @param header The header value.
+     * @return The time to wait in milliseconds, or <code>0</code> if the
+     *         header is missing or not a number of seconds.
+     */
+    private static long parseRetryAfter(@Nullable final String header) {
+        if (header == null) {
+            return 0L;
+        }
+        try {
+            return Math.min(Long.parseLong(header.trim()) * 1000L, ProfileResolver.MAXIMUM_BACKOFF_MILLIS);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+    
+    /**
+     * Reads the whole of the given stream as UTF-8 text.
+     * 
+     * @param stream The stream, which is closed afterwards.
+     * @return The text.
+     * @throws IOException If the stream cannot be read.
+     */
+    @NotNull
+    private static String read(@NotNull final InputStream stream) throws IOException {
+        try (final InputStream input = stream) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+    
+    /**
+     * Reads and discards the error body of a response, so that the
+     * connection can be reused.
+     * 
+     * @param connection The connection.
+     */
+    private static void discard(@NotNull final HttpURLConnection connection) {
+        final InputStream error = connection.getErrorStream();
+        if (error == null) {
+            return;
+        }
+        try {
+            ProfileResolver.read(error);
+        } catch (IOException e) {
+            // The connection will not be reused.
+        }
+    }
+}
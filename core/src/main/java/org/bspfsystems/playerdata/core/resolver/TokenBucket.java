@@ -0,0 +1,103 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.resolver;
+
+/**
+ * A token bucket rate limiter. The bucket holds up to a fixed number of
+ * tokens and is refilled at a steady rate; each request takes one token, so
+ * short bursts are allowed up to the capacity, while the long-term rate
+ * never exceeds the refill rate.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class TokenBucket {
+    
+    private final long capacity;
+    private final long nanosPerToken;
+    private long tokens;
+    private long lastRefill;
+    
+    /**
+     * Creates a new, full {@link TokenBucket}.
+     * 
+     * @param capacity The maximum number of tokens.
+     * @param tokensPerPeriod The number of tokens added every period.
+     * @param periodMillis The length of the period, in milliseconds.
+     * @throws IllegalArgumentException If any argument is not positive.
+     */
+    public TokenBucket(final long capacity, final long tokensPerPeriod, final long periodMillis) throws IllegalArgumentException {
+        if (capacity <= 0L || tokensPerPeriod <= 0L || periodMillis <= 0L) {
+            throw new IllegalArgumentException("Token bucket parameters must be positive: " + capacity + ", " + tokensPerPeriod + ", " + periodMillis);
+        }
+        this.capacity = capacity;
+        this.nanosPerToken = Math.max(1L, periodMillis * 1_000_000L / tokensPerPeriod);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+    
+    /**
+     * Takes a token if one is available.
+     * 
+     * @return <code>0</code> if a token was taken, otherwise the number of
+     *         nanoseconds until the next token is available.
+     */
+    public synchronized long tryAcquire() {
+        this.refill();
+        if (this.tokens > 0L) {
+            this.tokens--;
+            return 0L;
+        }
+        return Math.max(1L, this.lastRefill + this.nanosPerToken - System.nanoTime());
+    }
+    
+    /**
+     * Takes a token, waiting until one is available.
+     * 
+     * @throws InterruptedException If the thread is interrupted while
+     *                              waiting.
+     */
+    public void acquire() throws InterruptedException {
+        long wait;
+        while ((wait = this.tryAcquire()) > 0L) {
+            Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+        }
+    }
+    
+    /**
+     * Empties the bucket, such as when the remote service reports that the
+     * rate limit has been exceeded anyway.
+     */
+    public synchronized void drain() {
+        this.refill();
+        this.tokens = 0L;
+    }
+    
+    /**
+     * Adds the tokens that have accumulated since the last refill.
+     */
+    private void refill() {
+        final long now = System.nanoTime();
+        final long added = (now - this.lastRefill) / this.nanosPerToken;
+        if (added > 0L) {
+            this.tokens = Math.min(this.capacity, this.tokens + added);
+            this.lastRefill = this.tokens == this.capacity ? now : this.lastRefill + added * this.nanosPerToken;
+        }
+    }
+}
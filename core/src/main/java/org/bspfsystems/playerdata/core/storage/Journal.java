@@ -0,0 +1,673 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.bspfsystems.playerdata.core.metrics.Operation;
+import org.bspfsystems.playerdata.core.store.ChangeListener;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.bspfsystems.playerdata.core.store.SnapshotIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Persists a {@link PlayerDataStore} as an append-only binary journal of
+ * changes, with periodic compaction into a snapshot.
+ * <p>
+ * Every change reported to this {@link Journal} as a {@link ChangeListener}
+ * is queued, and a single background thread writes the queued changes in
+ * batches (group commit), syncing to disk according to the
+ * {@link Journal.FsyncPolicy}. Each record carries a CRC-32, so a record torn
+ * by a crash is detected and discarded when the journal is next loaded.
+ * <p>
+ * Journal files are numbered by generation. When the current journal grows
+ * past the compaction threshold, a new generation is started and a snapshot
+ * of the whole store is written, recording the first generation that must
+ * be replayed on top of it; older journals are then deleted. Every record
+ * sets the complete state it describes, so replaying records that the
+ * snapshot already reflects is harmless, and changes to the store do not
+ * need to be paused while the snapshot is written.
+ * <p>
+ * The snapshot is a {@link MappedSnapshot}. When the journal is opened, it is
+ * mapped and {@link PlayerDataStore#attachSnapshot(SnapshotIndex) attached}
+ * to the store, so lookups can be served straight away, and it is then
+ * loaded into memory on a background thread. Compaction waits until it has
+ * been loaded.
+ */
+public final class Journal implements ChangeListener {
+    
+    /**
+     * How often the journal is synced to the storage device.
+     */
+    public enum FsyncPolicy {
+        
+        /**
+         * Sync after every batch of records is written. No acknowledged change
+         * is lost on a power failure, at the cost of one sync per batch.
+         */
+        ALWAYS,
+        
+        /**
+         * Sync at most once per configured interval. Up to one interval of
+         * changes may be lost on a power failure.
+         */
+        INTERVAL,
+        
+        /**
+         * Never sync explicitly, and leave it to the operating system.
+         */
+        NEVER;
+    }
+    
+    static final byte NEW_PLAYER = 1;
+    static final byte NAME_CHANGE = 2;
+    static final byte LAST_SEEN = 3;
+    
+    private static final int JOURNAL_MAGIC = 0x50444A31;
+    private static final int VERSION = 1;
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".bin";
+    private static final String SNAPSHOT_NAME = "snapshot.bin";
+    private static final int MAXIMUM_BATCH = 4096;
+    private static final long WAIT_MILLIS = 100L;
+    private static final Object STOP = new Object();
+    
+    private final File directory;
+    private final PlayerDataStore store;
+    private final Logger logger;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final long compactionThreshold;
+    private final BlockingQueue<Object> queue;
+    private final CRC32 checksum;
+    
+    private volatile Thread writer;
+    private volatile Thread loader;
+    private FileChannel channel;
+    private long generation;
+    private ByteBuffer buffer;
+    private long lastSync;
+    private boolean dirty;
+    
+    /**
+     * Creates a new {@link Journal} for the given {@link PlayerDataStore}.
+     * Nothing is read or written until {@link Journal#open()} is called.
+     * 
+     * @param directory The directory to store the journal and snapshot files
+     *                  in, usually the data directory of the plugin.
+     * @param store The {@link PlayerDataStore} to persist.
+     * @param logger The {@link Logger} to report problems to.
+     * @param fsyncPolicy The {@link Journal.FsyncPolicy} to use.
+     * @param fsyncIntervalMillis The interval between syncs for
+     *                            {@link Journal.FsyncPolicy#INTERVAL}, in
+     *                            milliseconds.
+     * @param compactionThreshold The size in bytes the current journal may
+     *                            reach before it is compacted into a new
+     *                            snapshot.
+     * @throws IllegalArgumentException If the interval or threshold are not
+     *                                  positive.
+     */
+    public Journal(@NotNull final File directory, @NotNull final PlayerDataStore store, @NotNull final Logger logger, @NotNull final Journal.FsyncPolicy fsyncPolicy, final long fsyncIntervalMillis, final long compactionThreshold) throws IllegalArgumentException {
+        if (fsyncIntervalMillis <= 0L) {
+            throw new IllegalArgumentException("Fsync interval must be positive: " + fsyncIntervalMillis);
+        }
+        if (compactionThreshold <= 0L) {
+            throw new IllegalArgumentException("Compaction threshold must be positive: " + compactionThreshold);
+        }
+        
+        this.directory = directory;
+        this.store = store;
+        this.logger = logger;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.compactionThreshold = compactionThreshold;
+        this.queue = new LinkedBlockingQueue<Object>();
+        this.checksum = new CRC32();
+        this.buffer = ByteBuffer.allocateDirect(64 * 1024);
+    }
+    
+    /**
+     * Attaches the saved snapshot to the {@link PlayerDataStore} and replays
+     * the journals into it, then starts a new journal generation and begins
+     * recording changes. The snapshot is loaded into memory in the
+     * background.
+     * 
+     * @throws IOException If the saved data cannot be read, or the new
+     *                     journal cannot be created.
+     */
+    public synchronized void open() throws IOException {
+        if (this.writer != null) {
+            throw new IllegalStateException("Journal is already open.");
+        }
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new IOException("Unable to create data directory: " + this.directory.getPath());
+        }
+        
+        final long first = this.loadSnapshot();
+        final TreeMap<Long, File> journals = this.findJournals();
+        long last = first - 1L;
+        for (final Long journalGeneration : journals.tailMap(first).keySet()) {
+            this.replay(journals.get(journalGeneration));
+            last = journalGeneration;
+        }
+        
+        this.startGeneration(Math.max(last, first - 1L) + 1L);
+        this.store.addChangeListener(this);
+        this.writer = new Thread(this::run, "PlayerData Journal Thread");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        
+        if (this.store.hasSnapshot()) {
+            final Thread loader = new Thread(this.store::loadSnapshot, "PlayerData Snapshot Loader");
+            loader.setDaemon(true);
+            this.loader = loader;
+            loader.start();
+        }
+    }
+    
+    /**
+     * Waits until every change recorded so far has been written and synced to
+     * disk.
+     * 
+     * @throws IOException If the changes could not be written, or the journal
+     *                     is not open.
+     */
+    public void flush() throws IOException {
+        final Thread writer = this.getWriter();
+        final CompletableFuture<Void> future = new CompletableFuture<Void>();
+        this.queue.add(future);
+        try {
+            this.waitFor(future, writer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while flushing the journal.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to flush the journal.", e.getCause());
+        }
+    }
+    
+    /**
+     * Writes a snapshot of the whole store now, rather than when the journal
+     * next reaches the compaction threshold, and waits until it has been
+     * written. This persists changes that were made without notifying the
+     * {@link ChangeListener ChangeListeners}, such as a
+     * {@link PlayerDataStore#bulkLoad(UUID[], String[], long[], long[], int) bulk load}.
+     * <p>
+     * If the saved snapshot has not finished loading into the store, this
+     * waits until it has, so that it is not replaced by a partial one.
+     * 
+     * @throws IOException If the snapshot could not be written, or the
+     *                     journal is not open.
+     */
+    public void compactNow() throws IOException {
+        final Thread writer = this.getWriter();
+        final Compaction compaction = new Compaction();
+        try {
+            final Thread loader = this.loader;
+            if (loader != null) {
+                loader.join();
+            }
+            if (this.store.hasSnapshot()) {
+                throw new IOException("The saved snapshot has not been loaded.");
+            }
+            this.queue.add(compaction);
+            this.waitFor(compaction.future, writer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compacting the journal.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to compact the journal.", e.getCause());
+        }
+    }
+    
+    /**
+     * Stops recording changes, writes and syncs any queued changes, and
+     * closes the journal.
+     * 
+     * @throws IOException If the queued changes could not be written.
+     */
+    public synchronized void close() throws IOException {
+        if (this.writer == null) {
+            return;
+        }
+        this.store.removeChangeListener(this);
+        this.queue.add(Journal.STOP);
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the journal.", e);
+        } finally {
+            this.writer = null;
+        }
+        this.channel.close();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNewPlayer(@NotNull final UUID uniqueId, @NotNull final String name, final long time) {
+        this.queue.add(new Record(Journal.NEW_PLAYER, uniqueId, name, time));
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNameChange(@NotNull final UUID uniqueId, @NotNull final String oldName, @NotNull final String name, final long time) {
+        this.queue.add(new Record(Journal.NAME_CHANGE, uniqueId, name, time));
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onLastSeen(@NotNull final UUID uniqueId, final long time) {
+        this.queue.add(new Record(Journal.LAST_SEEN, uniqueId, null, time));
+    }
+    
+    /**
+     * The main loop of the writer thread.
+     */
+    private void run() {
+        final List<Object> batch = new ArrayList<Object>();
+        final List<CompletableFuture<Void>> waiters = new ArrayList<CompletableFuture<Void>>();
+        final List<CompletableFuture<Void>> compactions = new ArrayList<CompletableFuture<Void>>();
+        boolean running = true;
+        while (running) {
+            try {
+                final Object first = this.queue.poll(this.pollMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    this.syncIfDue();
+                    continue;
+                }
+                batch.add(first);
+                this.queue.drainTo(batch, Journal.MAXIMUM_BATCH);
+            } catch (InterruptedException e) {
+                batch.add(Journal.STOP);
+            } catch (IOException e) {
+                this.logger.log(Level.SEVERE, "Unable to sync the PlayerData journal.", e);
+                continue;
+            }
+            
+            this.buffer.clear();
+            int records = 0;
+            for (final Object item : batch) {
+                if (item instanceof Record) {
+                    this.encode((Record) item);
+                    records++;
+                } else if (item instanceof CompletableFuture) {
+                    @SuppressWarnings("unchecked")
+                    final CompletableFuture<Void> waiter = (CompletableFuture<Void>) item;
+                    waiters.add(waiter);
+                } else if (item instanceof Compaction) {
+                    compactions.add(((Compaction) item).future);
+                } else if (item == Journal.STOP) {
+                    running = false;
+                }
+            }
+            batch.clear();
+            
+            try {
+                this.buffer.flip();
+                final long start = System.nanoTime();
+                while (this.buffer.hasRemaining()) {
+                    this.channel.write(this.buffer);
+                }
+                if (records > 0) {
+                    this.store.getMetricsRecorder().record(Operation.JOURNAL_WRITE, records, 0, System.nanoTime() - start);
+                }
+                this.dirty = true;
+                if (this.fsyncPolicy == Journal.FsyncPolicy.ALWAYS || !waiters.isEmpty() || !running) {
+                    this.sync();
+                } else {
+                    this.syncIfDue();
+                }
+                for (final CompletableFuture<Void> waiter : waiters) {
+                    waiter.complete(null);
+                }
+                if (!compactions.isEmpty() || (running && this.channel.size() >= this.compactionThreshold && !this.store.hasSnapshot())) {
+                    this.compact();
+                }
+                for (final CompletableFuture<Void> compaction : compactions) {
+                    compaction.complete(null);
+                }
+            } catch (IOException e) {
+                this.logger.log(Level.SEVERE, "Unable to write to the PlayerData journal.", e);
+                for (final CompletableFuture<Void> waiter : waiters) {
+                    waiter.completeExceptionally(e);
+                }
+                for (final CompletableFuture<Void> compaction : compactions) {
+                    compaction.completeExceptionally(e);
+                }
+            }
+            waiters.clear();
+            compactions.clear();
+        }
+    }
+    
+    /**
+     * Gets the writer thread, checking that it is still running.
+     * 
+     * @return The writer thread.
+     * @throws IOException If the journal is not open, or the writer thread
+     *                     has stopped.
+     */
+    @NotNull
+    private Thread getWriter() throws IOException {
+        final Thread writer = this.writer;
+        if (writer == null || !writer.isAlive()) {
+            throw new IOException("The journal is not open.");
+        }
+        return writer;
+    }
+    
+    /**
+     * Waits for the writer thread to complete the given request, failing if
+     * the writer thread stops first, such as when the journal is closed.
+     * 
+     * @param future The {@link CompletableFuture} of the request.
+     * @param writer The writer thread the request was queued for.
+     * @throws InterruptedException If the current thread is interrupted while
+     *                              waiting.
+     * @throws ExecutionException If the request failed.
+     * @throws IOException If the writer thread stopped without completing
+     *                     the request.
+     */
+    private void waitFor(@NotNull final CompletableFuture<Void> future, @NotNull final Thread writer) throws InterruptedException, ExecutionException, IOException {
+        while (true) {
+            try {
+                future.get(Journal.WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                if (!writer.isAlive() && !future.isDone()) {
+                    throw new IOException("The journal was closed.");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Gets how long the writer thread may wait for new records before it
+     * must check whether a sync is due.
+     * 
+     * @return The time to wait, in milliseconds.
+     */
+    private long pollMillis() {
+        if (this.fsyncPolicy != Journal.FsyncPolicy.INTERVAL || !this.dirty) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(1L, this.lastSync + this.fsyncIntervalMillis - System.currentTimeMillis());
+    }
+    
+    /**
+     * Syncs the journal if the {@link Journal.FsyncPolicy#INTERVAL interval}
+     * has passed since the last sync.
+     * 
+     * @throws IOException If the sync fails.
+     */
+    private void syncIfDue() throws IOException {
+        if (this.fsyncPolicy == Journal.FsyncPolicy.INTERVAL && this.dirty && System.currentTimeMillis() - this.lastSync >= this.fsyncIntervalMillis) {
+            this.sync();
+        }
+    }
+    
+    /**
+     * Syncs the journal to disk, unless the policy is
+     * {@link Journal.FsyncPolicy#NEVER}.
+     * 
+     * @throws IOException If the sync fails.
+     */
+    private void sync() throws IOException {
+        if (this.fsyncPolicy != Journal.FsyncPolicy.NEVER) {
+            final long start = System.nanoTime();
+            this.channel.force(false);
+            this.store.getMetricsRecorder().record(Operation.JOURNAL_SYNC, 0, 0, System.nanoTime() - start);
+        }
+        this.lastSync = System.currentTimeMillis();
+        this.dirty = false;
+    }
+    
+    /**
+     * Appends a record to the write buffer, growing it if required.
+     * 
+     * @param record The {@link Record} to encode.
+     */
+    private void encode(@NotNull final Record record) {
+        final byte[] name = record.name == null ? new byte[0] : record.name.getBytes(StandardCharsets.UTF_8);
+        final int length = 1 + 8 + 8 + 8 + 2 + name.length + 4;
+        if (this.buffer.remaining() < length) {
+            final ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(this.buffer.capacity() << 1, this.buffer.position() + length));
+            this.buffer.flip();
+            grown.put(this.buffer);
+            this.buffer = grown;
+        }
+        
+        final int start = this.buffer.position();
+        this.buffer.put(record.type);
+        this.buffer.putLong(record.uniqueId.getMostSignificantBits());
+        this.buffer.putLong(record.uniqueId.getLeastSignificantBits());
+        this.buffer.putLong(record.time);
+        this.buffer.putShort((short) name.length);
+        this.buffer.put(name);
+        
+        final ByteBuffer written = this.buffer.duplicate();
+        written.flip();
+        written.position(start);
+        this.checksum.reset();
+        this.checksum.update(written);
+        this.buffer.putInt((int) this.checksum.getValue());
+    }
+    
+    /**
+     * Closes the current journal, if any, and starts a new, empty journal
+     * with the given generation.
+     * 
+     * @param newGeneration The generation of the new journal.
+     * @throws IOException If the new journal cannot be created.
+     */
+    private void startGeneration(final long newGeneration) throws IOException {
+        if (this.channel != null) {
+            this.sync();
+            this.channel.close();
+        }
+        final File file = new File(this.directory, Journal.JOURNAL_PREFIX + newGeneration + Journal.JOURNAL_SUFFIX);
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        final ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(Journal.JOURNAL_MAGIC).putInt(Journal.VERSION).flip();
+        while (header.hasRemaining()) {
+            this.channel.write(header);
+        }
+        this.channel.force(true);
+        this.generation = newGeneration;
+        this.lastSync = System.currentTimeMillis();
+        this.dirty = false;
+    }
+    
+    /**
+     * Starts a new journal generation, writes a snapshot of the whole store,
+     * and deletes the journals that the snapshot replaces.
+     * 
+     * @throws IOException If the snapshot cannot be written.
+     */
+    private void compact() throws IOException {
+        this.startGeneration(this.generation + 1L);
+        final long replayFrom = this.generation;
+        
+        final File snapshot = new File(this.directory, Journal.SNAPSHOT_NAME);
+        final File temporary = new File(this.directory, Journal.SNAPSHOT_NAME + ".tmp");
+        MappedSnapshot.write(temporary, replayFrom, this.store);
+        Files.move(temporary.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        
+        for (final File journal : this.findJournals().headMap(replayFrom).values()) {
+            if (!journal.delete()) {
+                this.logger.log(Level.WARNING, "Unable to delete compacted journal " + journal.getName() + ".");
+            }
+        }
+    }
+    
+    /**
+     * Maps the snapshot, if there is one, and attaches it to the store.
+     * 
+     * @return The first journal generation that must be replayed after the
+     *         snapshot.
+     * @throws IOException If the snapshot exists but cannot be read.
+     */
+    private long loadSnapshot() throws IOException {
+        final File file = new File(this.directory, Journal.SNAPSHOT_NAME);
+        if (!file.isFile()) {
+            return 0L;
+        }
+        final MappedSnapshot snapshot = MappedSnapshot.open(file);
+        this.store.attachSnapshot(snapshot);
+        return snapshot.getGeneration();
+    }
+    
+    /**
+     * Replays the records of the given journal into the store. If the journal
+     * ends with an incomplete or corrupt record, such as one torn by a crash,
+     * the journal is truncated to the last good record.
+     * 
+     * @param file The journal file.
+     * @throws IOException If the journal cannot be read.
+     */
+    private void replay(@NotNull final File file) throws IOException {
+        final ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (data.remaining() < 8 || data.getInt() != Journal.JOURNAL_MAGIC || data.getInt() != Journal.VERSION) {
+            this.logger.log(Level.WARNING, "Skipping unrecognized PlayerData journal " + file.getName() + ".");
+            return;
+        }
+        
+        int valid = data.position();
+        try {
+            while (data.hasRemaining()) {
+                final int start = data.position();
+                final byte type = data.get();
+                final UUID uniqueId = new UUID(data.getLong(), data.getLong());
+                final long time = data.getLong();
+                final byte[] name = new byte[data.getShort() & 0xFFFF];
+                data.get(name);
+                
+                final ByteBuffer written = data.duplicate();
+                written.limit(data.position());
+                written.position(start);
+                this.checksum.reset();
+                this.checksum.update(written);
+                if (data.getInt() != (int) this.checksum.getValue()) {
+                    break;
+                }
+                
+                if (type == Journal.NEW_PLAYER) {
+                    this.store.restore(uniqueId, new String(name, StandardCharsets.UTF_8), time, time);
+                } else if (type == Journal.NAME_CHANGE) {
+                    this.store.restore(uniqueId, new String(name, StandardCharsets.UTF_8), time);
+                } else if (type == Journal.LAST_SEEN) {
+                    this.store.restoreLastSeen(uniqueId, time);
+                }
+                valid = data.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // A torn record at the end of the journal; it is discarded below.
+        }
+        
+        if (valid < data.limit()) {
+            this.logger.log(Level.WARNING, "Discarding " + (data.limit() - valid) + " bytes of incomplete records from PlayerData journal " + file.getName() + ".");
+            try (final RandomAccessFile truncate = new RandomAccessFile(file, "rw")) {
+                truncate.setLength(valid);
+            }
+        }
+    }
+    
+    /**
+     * Finds the journal files in the data directory.
+     * 
+     * @return The journal files, by generation.
+     */
+    @NotNull
+    private TreeMap<Long, File> findJournals() {
+        final TreeMap<Long, File> journals = new TreeMap<Long, File>();
+        final File[] files = this.directory.listFiles();
+        if (files == null) {
+            return journals;
+        }
+        for (final File file : files) {
+            final String name = file.getName();
+            if (!name.startsWith(Journal.JOURNAL_PREFIX) || !name.endsWith(Journal.JOURNAL_SUFFIX)) {
+                continue;
+            }
+            try {
+                journals.put(Long.parseLong(name.substring(Journal.JOURNAL_PREFIX.length(), name.length() - Journal.JOURNAL_SUFFIX.length())), file);
+            } catch (NumberFormatException e) {
+                this.logger.log(Level.WARNING, "Ignoring unrecognized journal file " + name + ".");
+            }
+        }
+        return journals;
+    }
+    
+    /**
+     * A request to compact the journal, completed once the snapshot has been
+     * written.
+     */
+    private static final class Compaction {
+        
+        private final CompletableFuture<Void> future = new CompletableFuture<Void>();
+    }
+    
+    /**
+     * A change waiting to be written to the journal.
+     */
+    private static final class Record {
+        
+        private final byte type;
+        private final UUID uniqueId;
+        private final String name;
+        private final long time;
+        
+        private Record(final byte type, @NotNull final UUID uniqueId, @Nullable final String name, final long time) {
+            this.type = type;
+            this.uniqueId = uniqueId;
+            this.name = name;
+            this.time = time;
+        }
+    }
+}
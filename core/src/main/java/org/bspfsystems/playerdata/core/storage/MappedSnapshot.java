@@ -0,0 +1,576 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import org.bspfsystems.playerdata.core.index.BloomFilter;
+import org.bspfsystems.playerdata.core.store.PackedNames;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.bspfsystems.playerdata.core.store.SnapshotIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A read-only snapshot of a {@link PlayerDataStore}, served directly from a
+ * memory-mapped file.
+ * <p>
+ * The file is laid out so that it never has to be parsed as a whole:
+ * <ul>
+ *     <li>A 64 byte header with the format version, the record counts and a
+ *     CRC-32 of the header.</li>
+ *     <li>One 48 byte record per player, sorted by {@link UUID}: the two
+ *     halves of the {@link UUID}, the two {@link PackedNames packed} name
+ *     words, and the last and first seen times. Snapshots written before
+ *     first seen times were kept have 40 byte records without them.</li>
+ *     <li>One 24 byte record per packed name, sorted by the case-folded name
+ *     words, pointing at the player record.</li>
+ *     <li>A {@link BloomFilter} over every {@link UUID} and name, so that
+ *     lookups of unknown players are answered from a single cache line
+ *     without searching the records.</li>
+ *     <li>The player records of the names that cannot be packed, and those
+ *     names themselves, which are few enough to be read into the heap when
+ *     the snapshot is opened.</li>
+ * </ul>
+ * Lookups are binary searches over the mapped records, so opening even a
+ * very large snapshot takes constant time, and only the pages that lookups
+ * touch are read from disk.
+ * <p>
+ * Snapshots are limited to 2 GiB, which is enough for about 29 million
+ * players.
+ */
+public final class MappedSnapshot implements SnapshotIndex {
+    
+    private static final int MAGIC = 0x50444D31;
+    private static final int VERSION = 3;
+    private static final int LEGACY_VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int CHECKSUM_OFFSET = 60;
+    private static final int RECORD_SIZE = 48;
+    private static final int LEGACY_RECORD_SIZE = 40;
+    private static final int NAME_RECORD_SIZE = 24;
+    private static final long STRING_OFFSET_MASK = 0xFFFFFFFFL;
+    
+    private final ByteBuffer data;
+    private final long generation;
+    private final int recordSize;
+    private final int count;
+    private final int nameCount;
+    private final int nameOffset;
+    private final int stringOffset;
+    private final BloomFilter bloomFilter;
+    private final Map<String, Integer> overflow;
+    
+    /**
+     * Creates a new {@link MappedSnapshot} over the given mapped file,
+     * which has already been validated.
+     * 
+     * @param data The mapped file.
+     */
+    private MappedSnapshot(@NotNull final ByteBuffer data) {
+        this.data = data;
+        this.generation = data.getLong(8);
+        this.recordSize = data.getInt(4) == MappedSnapshot.LEGACY_VERSION ? MappedSnapshot.LEGACY_RECORD_SIZE : MappedSnapshot.RECORD_SIZE;
+        this.count = data.getInt(16);
+        this.nameCount = data.getInt(20);
+        final int overflowCount = data.getInt(24);
+        final int bloomWords = data.getInt(28);
+        this.nameOffset = MappedSnapshot.HEADER_SIZE + this.count * this.recordSize;
+        final int bloomOffset = this.nameOffset + this.nameCount * MappedSnapshot.NAME_RECORD_SIZE;
+        final int overflowOffset = bloomOffset + bloomWords * 8;
+        this.stringOffset = overflowOffset + overflowCount * 4;
+        
+        final ByteBuffer bloom = data.duplicate();
+        bloom.limit(overflowOffset);
+        bloom.position(bloomOffset);
+        this.bloomFilter = new BloomFilter(bloom.slice().asLongBuffer());
+        
+        this.overflow = new HashMap<String, Integer>(overflowCount * 4 / 3 + 1);
+        for (int index = 0; index < overflowCount; index++) {
+            final int record = data.getInt(overflowOffset + index * 4);
+            final String key = this.getName(record).toLowerCase(Locale.ROOT);
+            final Integer existing = this.overflow.get(key);
+            if (existing == null || this.getLastSeen(existing) < this.getLastSeen(record)) {
+                this.overflow.put(key, record);
+            }
+        }
+    }
+    
+    /**
+     * Maps the given snapshot file.
+     * 
+     * @param file The snapshot file.
+     * @return The opened {@link MappedSnapshot}.
+     * @throws IOException If the file cannot be mapped, or is not a valid
+     *                     snapshot.
+     */
+    @NotNull
+    public static MappedSnapshot open(@NotNull final File file) throws IOException {
+        final MappedByteBuffer data;
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < MappedSnapshot.HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid PlayerData snapshot size " + size + ": " + file.getPath());
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+        }
+        
+        final ByteBuffer header = data.duplicate();
+        header.limit(MappedSnapshot.CHECKSUM_OFFSET);
+        final CRC32 checksum = new CRC32();
+        checksum.update(header);
+        if (data.getInt(0) != MappedSnapshot.MAGIC || (data.getInt(4) != MappedSnapshot.VERSION && data.getInt(4) != MappedSnapshot.LEGACY_VERSION)) {
+            throw new IOException("Unrecognized PlayerData snapshot format: " + file.getPath());
+        }
+        if (data.getInt(MappedSnapshot.CHECKSUM_OFFSET) != (int) checksum.getValue() || data.getLong(32) != data.capacity()) {
+            throw new IOException("Corrupt PlayerData snapshot: " + file.getPath());
+        }
+        return new MappedSnapshot(data);
+    }
+    
+    /**
+     * Writes a snapshot of the given {@link PlayerDataStore} to the given
+     * file. The store is read in small batches, while it remains in use.
+     * 
+     * @param file The file to write to. It is synced to disk before this
+     *             method returns.
+     * @param generation The generation to record in the snapshot.
+     * @param store The {@link PlayerDataStore} to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(@NotNull final File file, final long generation, @NotNull final PlayerDataStore store) throws IOException {
+        final Records records = new Records();
+        store.forEachRecord(records::add);
+        final int count = records.size;
+        
+        final int[] order = new int[count];
+        for (int index = 0; index < count; index++) {
+            order[index] = index;
+        }
+        MappedSnapshot.sort(order, 0, count, records.mostSigBits, records.leastSigBits);
+        
+        // The position of each record in the file, and the overflow names
+        // in file order.
+        final int[] positions = new int[count];
+        final List<Integer> overflowRecords = new ArrayList<Integer>();
+        int packedCount = 0;
+        for (int position = 0; position < count; position++) {
+            final int index = order[position];
+            positions[index] = position;
+            if ((records.nameTails[index] & PackedNames.OVERFLOW) != 0L) {
+                overflowRecords.add(position);
+            } else {
+                packedCount++;
+            }
+        }
+        
+        // Names sorted case-folded; of several players with the same name,
+        // only the most recently seen one is kept, as it holds the name now.
+        final long[] foldedHeads = new long[count];
+        final long[] foldedTails = new long[count];
+        final int[] names = new int[packedCount];
+        int nameCount = 0;
+        for (int index = 0; index < count; index++) {
+            if ((records.nameTails[index] & PackedNames.OVERFLOW) == 0L) {
+                foldedHeads[index] = PackedNames.fold(records.nameHeads[index]);
+                foldedTails[index] = PackedNames.fold(records.nameTails[index]);
+                names[nameCount++] = index;
+            }
+        }
+        MappedSnapshot.sort(names, 0, nameCount, foldedHeads, foldedTails);
+        int unique = 0;
+        for (int index = 0; index < nameCount; index++) {
+            final int current = names[index];
+            if (unique > 0) {
+                final int previous = names[unique - 1];
+                if (foldedHeads[previous] == foldedHeads[current] && foldedTails[previous] == foldedTails[current]) {
+                    if (records.lastSeen[current] > records.lastSeen[previous]) {
+                        names[unique - 1] = current;
+                    }
+                    continue;
+                }
+            }
+            names[unique++] = current;
+        }
+        nameCount = unique;
+        
+        final byte[][] strings = new byte[records.overflowNames.size()][];
+        long stringLength = 0L;
+        for (int index = 0; index < strings.length; index++) {
+            strings[index] = records.overflowNames.get(index).getBytes(StandardCharsets.UTF_8);
+            stringLength += 2 + strings[index].length;
+        }
+        final BloomFilter bloomFilter = new BloomFilter(count * 2);
+        for (int index = 0; index < count; index++) {
+            bloomFilter.putUniqueId(records.mostSigBits[index], records.leastSigBits[index]);
+            final long tail = records.nameTails[index];
+            bloomFilter.putName((tail & PackedNames.OVERFLOW) == 0L ? PackedNames.unpack(records.nameHeads[index], tail) : records.overflowNames.get((int) (tail & MappedSnapshot.STRING_OFFSET_MASK)));
+        }
+        final LongBuffer bloomWords = bloomFilter.getWords();
+        
+        final long length = MappedSnapshot.HEADER_SIZE + (long) count * MappedSnapshot.RECORD_SIZE + (long) nameCount * MappedSnapshot.NAME_RECORD_SIZE + bloomWords.capacity() * 8L + overflowRecords.size() * 4L + stringLength;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Too many players for a single snapshot: " + count);
+        }
+        
+        final ByteBuffer header = ByteBuffer.allocate(MappedSnapshot.HEADER_SIZE);
+        header.putInt(0, MappedSnapshot.MAGIC);
+        header.putInt(4, MappedSnapshot.VERSION);
+        header.putLong(8, generation);
+        header.putInt(16, count);
+        header.putInt(20, nameCount);
+        header.putInt(24, overflowRecords.size());
+        header.putInt(28, bloomWords.capacity());
+        header.putLong(32, length);
+        final CRC32 checksum = new CRC32();
+        checksum.update(header.array(), 0, MappedSnapshot.CHECKSUM_OFFSET);
+        header.putInt(MappedSnapshot.CHECKSUM_OFFSET, (int) checksum.getValue());
+        
+        try (final FileOutputStream stream = new FileOutputStream(file)) {
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            output.write(header.array());
+            
+            final int[] stringOffsets = new int[strings.length];
+            int stringOffset = 0;
+            for (int index = 0; index < strings.length; index++) {
+                stringOffsets[index] = stringOffset;
+                stringOffset += 2 + strings[index].length;
+            }
+            for (int position = 0; position < count; position++) {
+                final int index = order[position];
+                final long tail = records.nameTails[index];
+                output.writeLong(records.mostSigBits[index]);
+                output.writeLong(records.leastSigBits[index]);
+                output.writeLong(records.nameHeads[index]);
+                output.writeLong((tail & PackedNames.OVERFLOW) == 0L ? tail : PackedNames.OVERFLOW | stringOffsets[(int) (tail & MappedSnapshot.STRING_OFFSET_MASK)]);
+                output.writeLong(records.lastSeen[index]);
+                output.writeLong(records.firstSeen[index]);
+            }
+            for (int index = 0; index < nameCount; index++) {
+                final int record = names[index];
+                output.writeLong(foldedHeads[record]);
+                output.writeLong(foldedTails[record]);
+                output.writeInt(positions[record]);
+                output.writeInt(0);
+            }
+            for (int index = 0; index < bloomWords.capacity(); index++) {
+                output.writeLong(bloomWords.get(index));
+            }
+            for (final int record : overflowRecords) {
+                output.writeInt(record);
+            }
+            for (final byte[] string : strings) {
+                output.writeShort(string.length);
+                output.write(string);
+            }
+            output.flush();
+            stream.getFD().sync();
+        }
+    }
+    
+    /**
+     * Gets the generation recorded when this snapshot was written.
+     * 
+     * @return The generation.
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nullable
+    public UUID getUniqueId(@NotNull final String name) {
+        if (!this.bloomFilter.mightContainName(name)) {
+            return null;
+        }
+        final int record;
+        if (PackedNames.isPackable(name)) {
+            record = this.findName(PackedNames.packFolded(name, 0), PackedNames.packFolded(name, PackedNames.HEAD_LENGTH));
+        } else {
+            final Integer overflowRecord = this.overflow.get(name.toLowerCase(Locale.ROOT));
+            record = overflowRecord == null ? -1 : overflowRecord;
+        }
+        if (record < 0) {
+            return null;
+        }
+        final int offset = MappedSnapshot.HEADER_SIZE + record * this.recordSize;
+        return new UUID(this.data.getLong(offset), this.data.getLong(offset + 8));
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nullable
+    public String getName(@NotNull final UUID uniqueId) {
+        if (!this.bloomFilter.mightContainUniqueId(uniqueId.getMostSignificantBits(), uniqueId.getLeastSignificantBits())) {
+            return null;
+        }
+        final int record = this.findUniqueId(uniqueId.getMostSignificantBits(), uniqueId.getLeastSignificantBits());
+        return record < 0 ? null : this.getName(record);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachRecord(@NotNull final PlayerDataStore.RecordVisitor visitor) {
+        for (int record = 0; record < this.count; record++) {
+            final int offset = MappedSnapshot.HEADER_SIZE + record * this.recordSize;
+            visitor.visit(new UUID(this.data.getLong(offset), this.data.getLong(offset + 8)), this.getName(record), this.getFirstSeen(record), this.getLastSeen(record));
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return this.count;
+    }
+    
+    /**
+     * Binary searches the player records for the given {@link UUID}.
+     * 
+     * @param mostSigBits The most significant bits of the {@link UUID}.
+     * @param leastSigBits The least significant bits of the {@link UUID}.
+     * @return The record, or <code>-1</code> if it is not found.
+     */
+    private int findUniqueId(final long mostSigBits, final long leastSigBits) {
+        int low = 0;
+        int high = this.count - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int offset = MappedSnapshot.HEADER_SIZE + middle * this.recordSize;
+            final int compare = MappedSnapshot.compare(this.data.getLong(offset), this.data.getLong(offset + 8), mostSigBits, leastSigBits);
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Binary searches the name records for the given case-folded packed name.
+     * 
+     * @param head The case-folded head word.
+     * @param tail The case-folded tail word.
+     * @return The player record, or <code>-1</code> if it is not found.
+     */
+    private int findName(final long head, final long tail) {
+        int low = 0;
+        int high = this.nameCount - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int offset = this.nameOffset + middle * MappedSnapshot.NAME_RECORD_SIZE;
+            final int compare = MappedSnapshot.compare(this.data.getLong(offset), this.data.getLong(offset + 8), head, tail);
+            if (compare < 0) {
+                low = middle + 1;
+            } else if (compare > 0) {
+                high = middle - 1;
+            } else {
+                return this.data.getInt(offset + 16);
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Decodes the name of the given player record.
+     * 
+     * @param record The player record.
+     * @return The name.
+     */
+    @NotNull
+    private String getName(final int record) {
+        final int offset = MappedSnapshot.HEADER_SIZE + record * this.recordSize;
+        final long head = this.data.getLong(offset + 16);
+        final long tail = this.data.getLong(offset + 24);
+        if ((tail & PackedNames.OVERFLOW) == 0L) {
+            return PackedNames.unpack(head, tail);
+        }
+        final int stringOffset = this.stringOffset + (int) (tail & MappedSnapshot.STRING_OFFSET_MASK);
+        final byte[] bytes = new byte[this.data.getShort(stringOffset) & 0xFFFF];
+        final ByteBuffer string = this.data.duplicate();
+        string.position(stringOffset + 2);
+        string.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Gets the last seen time of the given player record.
+     * 
+     * @param record The player record.
+     * @return The last seen time.
+     */
+    private long getLastSeen(final int record) {
+        return this.data.getLong(MappedSnapshot.HEADER_SIZE + record * this.recordSize + 32);
+    }
+    
+    /**
+     * Gets the first seen time of the given player record.
+     * 
+     * @param record The player record.
+     * @return The first seen time, or <code>0</code> if it is not known.
+     */
+    private long getFirstSeen(final int record) {
+        if (this.recordSize == MappedSnapshot.LEGACY_RECORD_SIZE) {
+            return 0L;
+        }
+        return this.data.getLong(MappedSnapshot.HEADER_SIZE + record * this.recordSize + 40);
+    }
+    
+    /**
+     * Compares two keys made of two <code>long</code>s.
+     * 
+     * @param first1 The first word of the first key.
+     * @param second1 The second word of the first key.
+     * @param first2 The first word of the second key.
+     * @param second2 The second word of the second key.
+     * @return A negative number, zero or a positive number as the first key
+     *         is less than, equal to or greater than the second.
+     */
+    private static int compare(final long first1, final long second1, final long first2, final long second2) {
+        final int compare = Long.compare(first1, first2);
+        return compare != 0 ? compare : Long.compare(second1, second2);
+    }
+    
+    /**
+     * Sorts a range of indexes by the two-word keys they point at, without
+     * boxing them.
+     * 
+     * @param indexes The indexes to sort.
+     * @param from The start of the range (inclusive).
+     * @param to The end of the range (exclusive).
+     * @param first The first words of the keys.
+     * @param second The second words of the keys.
+     */
+    private static void sort(@NotNull final int[] indexes, int from, final int to, @NotNull final long[] first, @NotNull final long[] second) {
+        int end = to;
+        while (end - from > 16) {
+            final int pivot = indexes[(from + end) >>> 1];
+            final long pivotFirst = first[pivot];
+            final long pivotSecond = second[pivot];
+            
+            // Three-way partition, so that runs of equal keys terminate.
+            int less = from;
+            int index = from;
+            int greater = end;
+            while (index < greater) {
+                final int current = indexes[index];
+                final int compare = MappedSnapshot.compare(first[current], second[current], pivotFirst, pivotSecond);
+                if (compare < 0) {
+                    indexes[index++] = indexes[less];
+                    indexes[less++] = current;
+                } else if (compare > 0) {
+                    indexes[index] = indexes[--greater];
+                    indexes[greater] = current;
+                } else {
+                    index++;
+                }
+            }
+            
+            // Recurse into the smaller side, and loop on the larger one.
+            if (less - from < end - greater) {
+                MappedSnapshot.sort(indexes, from, less, first, second);
+                from = greater;
+            } else {
+                MappedSnapshot.sort(indexes, greater, end, first, second);
+                end = less;
+            }
+        }
+        for (int index = from + 1; index < end; index++) {
+            final int current = indexes[index];
+            int position = index;
+            while (position > from && MappedSnapshot.compare(first[indexes[position - 1]], second[indexes[position - 1]], first[current], second[current]) > 0) {
+                indexes[position] = indexes[position - 1];
+                position--;
+            }
+            indexes[position] = current;
+        }
+    }
+    
+    /**
+     * The records of a {@link PlayerDataStore} being written, in columns.
+     * Names that cannot be packed are marked as
+     * {@link PackedNames#OVERFLOW} with the index into
+     * {@link Records#overflowNames} in the low bits.
+     */
+    private static final class Records {
+        
+        private long[] mostSigBits = new long[1024];
+        private long[] leastSigBits = new long[1024];
+        private long[] nameHeads = new long[1024];
+        private long[] nameTails = new long[1024];
+        private long[] firstSeen = new long[1024];
+        private long[] lastSeen = new long[1024];
+        private final List<String> overflowNames = new ArrayList<String>();
+        private int size;
+        
+        private void add(@NotNull final UUID uniqueId, @NotNull final String name, final long firstSeen, final long lastSeen) {
+            if (this.size == this.mostSigBits.length) {
+                final int capacity = this.size + (this.size >> 1);
+                this.mostSigBits = Arrays.copyOf(this.mostSigBits, capacity);
+                this.leastSigBits = Arrays.copyOf(this.leastSigBits, capacity);
+                this.nameHeads = Arrays.copyOf(this.nameHeads, capacity);
+                this.nameTails = Arrays.copyOf(this.nameTails, capacity);
+                this.firstSeen = Arrays.copyOf(this.firstSeen, capacity);
+                this.lastSeen = Arrays.copyOf(this.lastSeen, capacity);
+            }
+            this.mostSigBits[this.size] = uniqueId.getMostSignificantBits();
+            this.leastSigBits[this.size] = uniqueId.getLeastSignificantBits();
+            if (PackedNames.isPackable(name)) {
+                this.nameHeads[this.size] = PackedNames.pack(name, 0);
+                this.nameTails[this.size] = PackedNames.pack(name, PackedNames.HEAD_LENGTH);
+            } else {
+                this.nameHeads[this.size] = 0L;
+                this.nameTails[this.size] = PackedNames.OVERFLOW | this.overflowNames.size();
+                this.overflowNames.add(name);
+            }
+            this.firstSeen[this.size] = firstSeen;
+            this.lastSeen[this.size] = lastSeen;
+            this.size++;
+        }
+    }
+}
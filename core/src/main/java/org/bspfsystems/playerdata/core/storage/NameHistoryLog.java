@@ -0,0 +1,320 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.bspfsystems.playerdata.core.history.NameHistory;
+import org.bspfsystems.playerdata.core.store.ChangeListener;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Persists the {@link NameHistory} of a {@link PlayerDataStore} as an
+ * append-only log of name changes.
+ * <p>
+ * The {@link Journal} compacts old changes away into a snapshot of the
+ * current names, so it cannot keep the history. Name changes are rare,
+ * though, so the log of every change is small enough to keep forever, and
+ * replaying it rebuilds the whole history.
+ * <p>
+ * Like the {@link Journal}, changes are queued and written by a background
+ * thread, and each record carries a CRC-32 so that a record torn by a crash
+ * is discarded when the log is next opened.
+ */
+public final class NameHistoryLog implements ChangeListener {
+    
+    static final byte NEW_PLAYER = 1;
+    static final byte NAME_CHANGE = 2;
+    
+    private static final int MAGIC = 0x50444E31;
+    private static final int VERSION = 1;
+    private static final String FILE_NAME = "names.bin";
+    private static final int MAXIMUM_BATCH = 1024;
+    private static final Object STOP = new Object();
+    
+    private final File file;
+    private final PlayerDataStore store;
+    private final Logger logger;
+    private final BlockingQueue<Object> queue;
+    private final CRC32 checksum;
+    
+    private Thread writer;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    
+    /**
+     * Creates a new {@link NameHistoryLog} for the given
+     * {@link PlayerDataStore}. Nothing is read or written until
+     * {@link NameHistoryLog#open()} is called.
+     * 
+     * @param directory The directory to store the log in, usually the data
+     *                  directory of the plugin.
+     * @param store The {@link PlayerDataStore} whose {@link NameHistory} to
+     *              persist.
+     * @param logger The {@link Logger} to report problems to.
+     */
+    public NameHistoryLog(@NotNull final File directory, @NotNull final PlayerDataStore store, @NotNull final Logger logger) {
+        this.file = new File(directory, NameHistoryLog.FILE_NAME);
+        this.store = store;
+        this.logger = logger;
+        this.queue = new LinkedBlockingQueue<Object>();
+        this.checksum = new CRC32();
+        this.buffer = ByteBuffer.allocate(16 * 1024);
+    }
+    
+    /**
+     * Replays the saved log into the {@link NameHistory} of the
+     * {@link PlayerDataStore}, and begins recording name changes.
+     * 
+     * @throws IOException If the saved log cannot be read, or cannot be
+     *                     opened for writing.
+     */
+    public synchronized void open() throws IOException {
+        if (this.writer != null) {
+            throw new IllegalStateException("NameHistoryLog is already open.");
+        }
+        final File directory = this.file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create data directory: " + directory.getPath());
+        }
+        
+        final boolean exists = this.file.isFile() && this.replay();
+        this.channel = FileChannel.open(this.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (!exists) {
+            this.channel.truncate(0L);
+            final ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(NameHistoryLog.MAGIC);
+            header.putInt(NameHistoryLog.VERSION);
+            header.flip();
+            while (header.hasRemaining()) {
+                this.channel.write(header);
+            }
+        }
+        
+        this.store.addChangeListener(this);
+        this.writer = new Thread(this::run, "PlayerData Name History Thread");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+    
+    /**
+     * Stops recording name changes, writes and syncs any queued changes, and
+     * closes the log.
+     * 
+     * @throws IOException If the queued changes could not be written.
+     */
+    public synchronized void close() throws IOException {
+        if (this.writer == null) {
+            return;
+        }
+        this.store.removeChangeListener(this);
+        this.queue.add(NameHistoryLog.STOP);
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the name history log.", e);
+        } finally {
+            this.writer = null;
+        }
+        this.channel.close();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNewPlayer(@NotNull final UUID uniqueId, @NotNull final String name, final long time) {
+        this.queue.add(new Record(NameHistoryLog.NEW_PLAYER, uniqueId, null, name, time));
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNameChange(@NotNull final UUID uniqueId, @NotNull final String oldName, @NotNull final String name, final long time) {
+        this.queue.add(new Record(NameHistoryLog.NAME_CHANGE, uniqueId, oldName, name, time));
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onLastSeen(@NotNull final UUID uniqueId, final long time) {
+        // The name has not changed.
+    }
+    
+    /**
+     * The main loop of the writer thread.
+     */
+    private void run() {
+        final List<Object> batch = new ArrayList<Object>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(this.queue.take());
+                this.queue.drainTo(batch, NameHistoryLog.MAXIMUM_BATCH);
+            } catch (InterruptedException e) {
+                batch.add(NameHistoryLog.STOP);
+            }
+            
+            this.buffer.clear();
+            for (final Object item : batch) {
+                if (item instanceof Record) {
+                    this.encode((Record) item);
+                } else if (item == NameHistoryLog.STOP) {
+                    running = false;
+                }
+            }
+            batch.clear();
+            
+            try {
+                this.buffer.flip();
+                while (this.buffer.hasRemaining()) {
+                    this.channel.write(this.buffer);
+                }
+                this.channel.force(false);
+            } catch (IOException e) {
+                this.logger.log(Level.SEVERE, "Unable to write to the PlayerData name history log.", e);
+            }
+        }
+    }
+    
+    /**
+     * Appends a record to the write buffer, growing it if required.
+     * 
+     * @param record The {@link Record} to encode.
+     */
+    private void encode(@NotNull final Record record) {
+        final byte[] oldName = record.oldName == null ? new byte[0] : record.oldName.getBytes(StandardCharsets.UTF_8);
+        final byte[] name = record.name.getBytes(StandardCharsets.UTF_8);
+        final int length = 1 + 8 + 8 + 8 + 2 + oldName.length + 2 + name.length + 4;
+        if (this.buffer.remaining() < length) {
+            final ByteBuffer grown = ByteBuffer.allocate(Math.max(this.buffer.capacity() << 1, this.buffer.position() + length));
+            this.buffer.flip();
+            grown.put(this.buffer);
+            this.buffer = grown;
+        }
+        
+        final int start = this.buffer.position();
+        this.buffer.put(record.type);
+        this.buffer.putLong(record.uniqueId.getMostSignificantBits());
+        this.buffer.putLong(record.uniqueId.getLeastSignificantBits());
+        this.buffer.putLong(record.time);
+        this.buffer.putShort((short) oldName.length);
+        this.buffer.put(oldName);
+        this.buffer.putShort((short) name.length);
+        this.buffer.put(name);
+        
+        this.checksum.reset();
+        this.checksum.update(this.buffer.array(), this.buffer.arrayOffset() + start, this.buffer.position() - start);
+        this.buffer.putInt((int) this.checksum.getValue());
+    }
+    
+    /**
+     * Replays the saved log into the {@link NameHistory}, and truncates any
+     * torn record at its end.
+     * 
+     * @return <code>true</code> if the log was replayed, <code>false</code>
+     *         if it was not recognized and must be started again.
+     * @throws IOException If the log cannot be read or truncated.
+     */
+    private boolean replay() throws IOException {
+        final ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(this.file.toPath()));
+        if (data.remaining() < 8 || data.getInt() != NameHistoryLog.MAGIC || data.getInt() != NameHistoryLog.VERSION) {
+            this.logger.log(Level.WARNING, "Discarding unrecognized PlayerData name history log " + this.file.getName() + ".");
+            return false;
+        }
+        
+        final NameHistory history = this.store.getNameHistory();
+        int valid = data.position();
+        try {
+            while (data.hasRemaining()) {
+                final int start = data.position();
+                final byte type = data.get();
+                final UUID uniqueId = new UUID(data.getLong(), data.getLong());
+                final long time = data.getLong();
+                final byte[] oldName = new byte[data.getShort() & 0xFFFF];
+                data.get(oldName);
+                final byte[] name = new byte[data.getShort() & 0xFFFF];
+                data.get(name);
+                
+                this.checksum.reset();
+                this.checksum.update(data.array(), data.arrayOffset() + start, data.position() - start);
+                if (data.getInt() != (int) this.checksum.getValue()) {
+                    break;
+                }
+                
+                if (type == NameHistoryLog.NAME_CHANGE) {
+                    history.onNameChange(uniqueId, new String(oldName, StandardCharsets.UTF_8), new String(name, StandardCharsets.UTF_8), time);
+                } else if (type == NameHistoryLog.NEW_PLAYER) {
+                    history.onNewPlayer(uniqueId, new String(name, StandardCharsets.UTF_8), time);
+                }
+                valid = data.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // A torn record at the end of the log; it is discarded below.
+        }
+        
+        if (valid < data.limit()) {
+            this.logger.log(Level.WARNING, "Discarding " + (data.limit() - valid) + " bytes of incomplete records from PlayerData name history log " + this.file.getName() + ".");
+            try (final RandomAccessFile truncate = new RandomAccessFile(this.file, "rw")) {
+                truncate.setLength(valid);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * A name change waiting to be written to the log.
+     */
+    private static final class Record {
+        
+        private final byte type;
+        private final UUID uniqueId;
+        private final String oldName;
+        private final String name;
+        private final long time;
+        
+        private Record(final byte type, @NotNull final UUID uniqueId, @Nullable final String oldName, @NotNull final String name, final long time) {
+            this.type = type;
+            this.uniqueId = uniqueId;
+            this.oldName = oldName;
+            this.name = name;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.store;
+
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives every change made to a {@link PlayerDataStore}.
+ * <p>
+ * Listeners are called in the order the changes are made, and no further
+ * change can be made until they return, so they must return quickly; any
+ * slow work, such as I/O, should be queued and done on another thread.
+ * Lookups are not held up by listeners.
+ */
+public interface ChangeListener {
+    
+    /**
+     * Called when a player is seen for the first time.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The name of the player.
+     * @param time The time the player was seen, in milliseconds since the
+     *             epoch.
+     */
+    void onNewPlayer(@NotNull UUID uniqueId, @NotNull String name, long time);
+    
+    /**
+     * Called when a known player is seen with a different name.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param oldName The previous name of the player.
+     * @param name The new name of the player.
+     * @param time The time the player was seen, in milliseconds since the
+     *             epoch.
+     */
+    void onNameChange(@NotNull UUID uniqueId, @NotNull String oldName, @NotNull String name, long time);
+    
+    /**
+     * Called when a known player is seen again with the same name, or
+     * leaves.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param time The time the player was seen, in milliseconds since the
+     *             epoch.
+     */
+    void onLastSeen(@NotNull UUID uniqueId, long time);
+}
@@ -0,0 +1,327 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Column-oriented storage for the known players. Each player is assigned a
+ * dense, non-negative entry id when it is added, and all of its data is kept
+ * in primitive arrays at that id, rather than as one object per player.
+ * <p>
+ * The {@link UUID} of each player is stored as its two <code>long</code>
+ * halves, interleaved so that both halves of an entry share a cache line.
+ * Player names are stored the same way, as the two words produced by
+ * {@link PackedNames}, so no {@link String} is kept for a name unless it
+ * cannot be packed. The slots of such names are reused when the entry is
+ * renamed, so renames do not grow the table.
+ * <p>
+ * The table also tracks when each player was first and last seen, and
+ * whether they are currently online, which is used to rank name matches.
+ * <p>
+ * This class is not thread-safe; callers must provide their own
+ * synchronization.
+ */
+public final class EntryTable {
+    
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final long ONLINE_RANK = 1L << 62;
+    
+    private long[] uniqueIds;
+    private long[] names;
+    private final List<String> overflowNames;
+    private final List<Integer> freeOverflowSlots;
+    private long[] firstSeen;
+    private long[] lastSeen;
+    private long[] online;
+    private int capacity;
+    private int size;
+    
+    /**
+     * Creates a new, empty {@link EntryTable}.
+     */
+    public EntryTable() {
+        this(EntryTable.DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Creates a new, empty {@link EntryTable} that can hold the given number
+     * of entries before it needs to grow.
+     * 
+     * @param capacity The initial capacity.
+     * @throws IllegalArgumentException If the capacity is negative.
+     */
+    public EntryTable(final int capacity) throws IllegalArgumentException {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+        }
+        this.capacity = Math.max(capacity, 1);
+        this.uniqueIds = new long[this.capacity * 2];
+        this.names = new long[this.capacity * 2];
+        this.overflowNames = new ArrayList<String>();
+        this.freeOverflowSlots = new ArrayList<Integer>();
+        this.firstSeen = new long[this.capacity];
+        this.lastSeen = new long[this.capacity];
+        this.online = new long[(this.capacity + 63) >>> 6];
+        this.size = 0;
+    }
+    
+    /**
+     * Adds a new entry to this {@link EntryTable}.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The name of the player.
+     * @return The id of the new entry.
+     */
+    public int add(@NotNull final UUID uniqueId, @NotNull final String name) {
+        if (this.size == this.capacity) {
+            this.grow();
+        }
+        final int id = this.size++;
+        this.uniqueIds[id << 1] = uniqueId.getMostSignificantBits();
+        this.uniqueIds[(id << 1) + 1] = uniqueId.getLeastSignificantBits();
+        this.setName(id, name);
+        return id;
+    }
+    
+    /**
+     * Gets the most significant 64 bits of the {@link UUID} of the given
+     * entry.
+     * 
+     * @param id The entry id.
+     * @return The most significant bits of the {@link UUID}.
+     */
+    public long getMostSignificantBits(final int id) {
+        return this.uniqueIds[id << 1];
+    }
+    
+    /**
+     * Gets the least significant 64 bits of the {@link UUID} of the given
+     * entry.
+     * 
+     * @param id The entry id.
+     * @return The least significant bits of the {@link UUID}.
+     */
+    public long getLeastSignificantBits(final int id) {
+        return this.uniqueIds[(id << 1) + 1];
+    }
+    
+    /**
+     * Gets the {@link UUID} of the given entry. This allocates a new
+     * {@link UUID} on every call.
+     * 
+     * @param id The entry id.
+     * @return The {@link UUID} of the entry.
+     */
+    @NotNull
+    public UUID getUniqueId(final int id) {
+        return new UUID(this.getMostSignificantBits(id), this.getLeastSignificantBits(id));
+    }
+    
+    /**
+     * Gets the name of the given entry. This decodes the packed name into a
+     * new {@link String} on every call.
+     * 
+     * @param id The entry id.
+     * @return The name of the entry.
+     */
+    @NotNull
+    public String getName(final int id) {
+        final long tail = this.names[(id << 1) + 1];
+        if ((tail & PackedNames.OVERFLOW) != 0L) {
+            return this.overflowNames.get((int) tail);
+        }
+        return PackedNames.unpack(this.names[id << 1], tail);
+    }
+    
+    /**
+     * Gets the head word of the packed name of the given entry.
+     * 
+     * @param id The entry id.
+     * @return The head word.
+     * @see PackedNames
+     */
+    public long getNameHead(final int id) {
+        return this.names[id << 1];
+    }
+    
+    /**
+     * Gets the tail word of the packed name of the given entry. If the name
+     * could not be packed, the {@link PackedNames#OVERFLOW} flag will be set.
+     * 
+     * @param id The entry id.
+     * @return The tail word.
+     * @see PackedNames
+     */
+    public long getNameTail(final int id) {
+        return this.names[(id << 1) + 1];
+    }
+    
+    /**
+     * Checks if the name of the given entry is stored in packed form.
+     * 
+     * @param id The entry id.
+     * @return <code>true</code> if the name is packed, <code>false</code> if
+     *         it is stored as a {@link String}.
+     */
+    public boolean isNamePacked(final int id) {
+        return (this.names[(id << 1) + 1] & PackedNames.OVERFLOW) == 0L;
+    }
+    
+    /**
+     * Sets the name of the given entry.
+     * 
+     * @param id The entry id.
+     * @param name The new name of the entry.
+     */
+    public void setName(final int id, @NotNull final String name) {
+        final long tail = this.names[(id << 1) + 1];
+        int slot = (tail & PackedNames.OVERFLOW) != 0L ? (int) tail : -1;
+        if (PackedNames.isPackable(name)) {
+            if (slot != -1) {
+                this.overflowNames.set(slot, null);
+                this.freeOverflowSlots.add(slot);
+            }
+            this.names[id << 1] = PackedNames.pack(name, 0);
+            this.names[(id << 1) + 1] = PackedNames.pack(name, PackedNames.HEAD_LENGTH);
+            return;
+        }
+        
+        if (slot == -1) {
+            if (this.freeOverflowSlots.isEmpty()) {
+                slot = this.overflowNames.size();
+                this.overflowNames.add(null);
+            } else {
+                slot = this.freeOverflowSlots.remove(this.freeOverflowSlots.size() - 1);
+            }
+        }
+        this.overflowNames.set(slot, name);
+        this.names[id << 1] = 0L;
+        this.names[(id << 1) + 1] = PackedNames.OVERFLOW | slot;
+    }
+    
+    /**
+     * Gets the time the given entry was first seen.
+     * 
+     * @param id The entry id.
+     * @return The time the entry was first seen, in milliseconds since the
+     *         epoch, or <code>0</code> if it is not known.
+     */
+    public long getFirstSeen(final int id) {
+        return this.firstSeen[id];
+    }
+    
+    /**
+     * Sets the time the given entry was first seen.
+     * 
+     * @param id The entry id.
+     * @param time The time the entry was first seen, in milliseconds since
+     *             the epoch, or <code>0</code> if it is not known.
+     */
+    public void setFirstSeen(final int id, final long time) {
+        this.firstSeen[id] = time;
+    }
+    
+    /**
+     * Gets the time the given entry was last seen.
+     * 
+     * @param id The entry id.
+     * @return The time the entry was last seen, in milliseconds since the
+     *         epoch, or <code>0</code> if it is not known.
+     */
+    public long getLastSeen(final int id) {
+        return this.lastSeen[id];
+    }
+    
+    /**
+     * Sets the time the given entry was last seen.
+     * 
+     * @param id The entry id.
+     * @param time The time the entry was last seen, in milliseconds since the
+     *             epoch.
+     */
+    public void setLastSeen(final int id, final long time) {
+        this.lastSeen[id] = time;
+    }
+    
+    /**
+     * Checks if the given entry is currently online.
+     * 
+     * @param id The entry id.
+     * @return <code>true</code> if the entry is online, <code>false</code>
+     *         otherwise.
+     */
+    public boolean isOnline(final int id) {
+        return (this.online[id >>> 6] & (1L << id)) != 0L;
+    }
+    
+    /**
+     * Sets whether the given entry is currently online.
+     * 
+     * @param id The entry id.
+     * @param online <code>true</code> if the entry is online,
+     *               <code>false</code> otherwise.
+     */
+    public void setOnline(final int id, final boolean online) {
+        if (online) {
+            this.online[id >>> 6] |= 1L << id;
+        } else {
+            this.online[id >>> 6] &= ~(1L << id);
+        }
+    }
+    
+    /**
+     * Gets the rank of the given entry when ordering name matches. Online
+     * entries rank above all offline entries, and within each group, the
+     * most recently seen entries rank highest.
+     * 
+     * @param id The entry id.
+     * @return The rank of the entry.
+     */
+    public long getRank(final int id) {
+        return this.isOnline(id) ? EntryTable.ONLINE_RANK | this.lastSeen[id] : this.lastSeen[id];
+    }
+    
+    /**
+     * Gets the number of entries in this {@link EntryTable}. Valid entry ids
+     * are <code>0</code> (inclusive) to this value (exclusive).
+     * 
+     * @return The number of entries.
+     */
+    public int size() {
+        return this.size;
+    }
+    
+    /**
+     * Grows the backing arrays by half of their current length.
+     */
+    private void grow() {
+        this.capacity = this.capacity + (this.capacity >> 1) + 1;
+        this.uniqueIds = Arrays.copyOf(this.uniqueIds, this.capacity * 2);
+        this.names = Arrays.copyOf(this.names, this.capacity * 2);
+        this.firstSeen = Arrays.copyOf(this.firstSeen, this.capacity);
+        this.lastSeen = Arrays.copyOf(this.lastSeen, this.capacity);
+        this.online = Arrays.copyOf(this.online, (this.capacity + 63) >>> 6);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.store;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Wait-free read access to a mutable, non-thread-safe data structure, using
+ * the Left-Right technique.
+ * <p>
+ * Two identical instances of the data structure are kept. Readers only ever
+ * read the active instance, and never wait: entering and leaving a read only
+ * increment and decrement a counter. A writer applies its mutation to the
+ * inactive instance, makes it the active one, waits for any readers still
+ * using the old one to leave, and then applies the same mutation to the old
+ * one. Writers wait for readers, but readers never wait for writers, and
+ * the instances are never copied.
+ * <p>
+ * Mutations are applied twice, so they must be deterministic and must not
+ * have side effects outside the instance they are given.
+ * <p>
+ * Callers that serialize their writes themselves may also read the active
+ * instance without arriving, as long as they are not inside a write.
+ * <p>
+ * A read looks like:
+ * <pre>
+ * final int ticket = leftRight.arrive();
+ * try {
+ *     final T instance = leftRight.get();
+ *     // Read from the instance.
+ * } finally {
+ *     leftRight.depart(ticket);
+ * }
+ * </pre>
+ *
+ * @param <T> The type of the data structure.
+ */
+public final class LeftRight<T> {
+    
+    private static final int STRIPES = 64;
+    private static final int PADDING = 16;
+    
+    private final T left;
+    private final T right;
+    private final AtomicLongArray readers;
+    private volatile boolean readRight;
+    private volatile int version;
+    
+    /**
+     * Creates a new {@link LeftRight} over two instances, which must start
+     * out identical.
+     * 
+     * @param left The first instance.
+     * @param right The second instance.
+     */
+    public LeftRight(@NotNull final T left, @NotNull final T right) {
+        this.left = left;
+        this.right = right;
+        this.readers = new AtomicLongArray(2 * LeftRight.STRIPES * LeftRight.PADDING);
+        this.readRight = false;
+        this.version = 0;
+    }
+    
+    /**
+     * Starts a read. Every call must be matched by a call to
+     * {@link LeftRight#depart(int)} with the returned ticket, usually in a
+     * <code>finally</code> block.
+     * 
+     * @return The ticket for {@link LeftRight#depart(int)}.
+     */
+    public int arrive() {
+        final int hash = (int) Thread.currentThread().getId() * 0x9E3779B9;
+        final int ticket = ((hash >>> 26) << 1) | this.version;
+        this.readers.getAndIncrement(ticket * LeftRight.PADDING);
+        return ticket;
+    }
+    
+    /**
+     * Gets the instance to read from. This must only be called between
+     * {@link LeftRight#arrive()} and {@link LeftRight#depart(int)}, and the
+     * instance must not be used after {@link LeftRight#depart(int)}.
+     * 
+     * @return The active instance.
+     */
+    @NotNull
+    public T get() {
+        return this.readRight ? this.right : this.left;
+    }
+    
+    /**
+     * Ends a read.
+     * 
+     * @param ticket The ticket returned by {@link LeftRight#arrive()}.
+     */
+    public void depart(final int ticket) {
+        this.readers.getAndDecrement(ticket * LeftRight.PADDING);
+    }
+    
+    /**
+     * Applies a mutation to both instances, as described above. Only one
+     * write runs at a time; to reduce the number of times writers wait for
+     * readers, several changes can be made in one mutation.
+     * 
+     * @param mutation The mutation to apply.
+     */
+    public synchronized void write(@NotNull final Consumer<? super T> mutation) {
+        final boolean wasRight = this.readRight;
+        mutation.accept(wasRight ? this.left : this.right);
+        this.readRight = !wasRight;
+        
+        // Wait for the readers that may still be reading the old instance.
+        final int previous = this.version;
+        final int next = previous ^ 1;
+        this.await(next);
+        this.version = next;
+        this.await(previous);
+        
+        mutation.accept(wasRight ? this.right : this.left);
+    }
+    
+    /**
+     * Waits until no readers have arrived with the given version.
+     * 
+     * @param version The version.
+     */
+    private void await(final int version) {
+        for (int stripe = 0; stripe < LeftRight.STRIPES; stripe++) {
+            final int index = ((stripe << 1) | version) * LeftRight.PADDING;
+            while (this.readers.get(index) != 0L) {
+                Thread.yield();
+            }
+        }
+    }
+}
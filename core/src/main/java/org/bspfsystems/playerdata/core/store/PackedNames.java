@@ -0,0 +1,223 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.store;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Utilities for storing Minecraft player names as packed 6-bit character
+ * codes.
+ * <p>
+ * Valid Minecraft names are 1 to 16 characters from
+ * <code>[A-Za-z0-9_]</code>, which is exactly 63 symbols, so each character
+ * fits in 6 bits with the code <code>0</code> left over to mark the end of
+ * the name. A whole name fits in two <code>long</code>s: the head holds
+ * characters 0 to 9, and the tail holds characters 10 to 15.
+ * <p>
+ * The codes are assigned so that case folding only needs to subtract a
+ * constant from the upper case letters, which lets the indexes compare names
+ * ignoring case without decoding them.
+ * <p>
+ * Names that cannot be packed (legacy or offline mode names with other
+ * characters, or that are too long) are instead marked by
+ * {@link PackedNames#OVERFLOW} in the tail, with the low 32 bits of the tail
+ * pointing at a {@link String} stored elsewhere.
+ */
+public final class PackedNames {
+    
+    /**
+     * The maximum length of a name that can be packed.
+     */
+    public static final int MAXIMUM_LENGTH = 16;
+    
+    /**
+     * The number of characters stored in the head word.
+     */
+    public static final int HEAD_LENGTH = 10;
+    
+    /**
+     * The flag set in the tail word of a name that could not be packed.
+     */
+    public static final long OVERFLOW = 1L << 63;
+    
+    private static final int BITS = 6;
+    private static final long CODE_MASK = (1L << PackedNames.BITS) - 1L;
+    private static final char[] CHARACTERS = "\0abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_".toCharArray();
+    private static final byte[] CODES = new byte[128];
+    
+    static {
+        for (int code = 1; code < PackedNames.CHARACTERS.length; code++) {
+            PackedNames.CODES[PackedNames.CHARACTERS[code]] = (byte) code;
+        }
+    }
+    
+    private PackedNames() {
+        // Utility class.
+    }
+    
+    /**
+     * Checks if the given name can be stored in packed form.
+     * 
+     * @param name The name to check.
+     * @return <code>true</code> if the name can be packed, <code>false</code>
+     *         otherwise.
+     */
+    public static boolean isPackable(@NotNull final String name) {
+        final int length = name.length();
+        if (length == 0 || length > PackedNames.MAXIMUM_LENGTH) {
+            return false;
+        }
+        for (int index = 0; index < length; index++) {
+            if (PackedNames.code(name.charAt(index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Packs the characters of the given name from <code>start</code>
+     * (inclusive) up to at most 10 characters into a single word. Calling
+     * this with a <code>start</code> of <code>0</code> gives the head, and
+     * with {@link PackedNames#HEAD_LENGTH} gives the tail.
+     * <p>
+     * The name must be {@link PackedNames#isPackable(String) packable}.
+     * 
+     * @param name The name to pack.
+     * @param start The index of the first character to pack.
+     * @return The packed word.
+     */
+    public static long pack(@NotNull final String name, final int start) {
+        final int end = Math.min(name.length(), start + PackedNames.HEAD_LENGTH);
+        long word = 0L;
+        for (int index = end - 1; index >= start; index--) {
+            word = (word << PackedNames.BITS) | PackedNames.code(name.charAt(index));
+        }
+        return word;
+    }
+    
+    /**
+     * Packs the characters of the given name as {@link PackedNames#pack(String, int)}
+     * does, but folding upper case letters to lower case. Characters that
+     * cannot be packed are stored as the end marker, so the result never
+     * matches a stored name.
+     * 
+     * @param name The name to pack.
+     * @param start The index of the first character to pack.
+     * @return The packed, case-folded word.
+     */
+    public static long packFolded(@NotNull final String name, final int start) {
+        final int end = Math.min(name.length(), start + PackedNames.HEAD_LENGTH);
+        long word = 0L;
+        for (int index = end - 1; index >= start; index--) {
+            word = (word << PackedNames.BITS) | PackedNames.fold(PackedNames.code(name.charAt(index)));
+        }
+        return word;
+    }
+    
+    /**
+     * Folds every upper case letter in the given packed word to lower case.
+     * 
+     * @param word The packed word.
+     * @return The case-folded word.
+     */
+    public static long fold(final long word) {
+        long folded = 0L;
+        for (int shift = PackedNames.BITS * (PackedNames.HEAD_LENGTH - 1); shift >= 0; shift -= PackedNames.BITS) {
+            folded = (folded << PackedNames.BITS) | PackedNames.fold((int) ((word >>> shift) & PackedNames.CODE_MASK));
+        }
+        return folded;
+    }
+    
+    /**
+     * Gets the number of characters in the given packed name.
+     * 
+     * @param head The head word.
+     * @param tail The tail word.
+     * @return The length of the name.
+     */
+    public static int length(final long head, final long tail) {
+        final long word = tail == 0L ? head : tail;
+        final int offset = tail == 0L ? 0 : PackedNames.HEAD_LENGTH;
+        return offset + (64 - Long.numberOfLeadingZeros(word) + PackedNames.BITS - 1) / PackedNames.BITS;
+    }
+    
+    /**
+     * Gets the 6-bit code of the character at the given index of a packed
+     * name.
+     * 
+     * @param head The head word.
+     * @param tail The tail word.
+     * @param index The index of the character.
+     * @return The code, or <code>0</code> if the index is past the end of the
+     *         name.
+     */
+    public static int codeAt(final long head, final long tail, final int index) {
+        final long word = index < PackedNames.HEAD_LENGTH ? head : tail;
+        final int shift = PackedNames.BITS * (index < PackedNames.HEAD_LENGTH ? index : index - PackedNames.HEAD_LENGTH);
+        return (int) ((word >>> shift) & PackedNames.CODE_MASK);
+    }
+    
+    /**
+     * Decodes a packed name back into a {@link String}.
+     * 
+     * @param head The head word.
+     * @param tail The tail word.
+     * @return The decoded name.
+     */
+    @NotNull
+    public static String unpack(final long head, final long tail) {
+        final char[] characters = new char[PackedNames.length(head, tail)];
+        for (int index = 0; index < characters.length; index++) {
+            characters[index] = PackedNames.CHARACTERS[PackedNames.codeAt(head, tail, index)];
+        }
+        return new String(characters);
+    }
+    
+    /**
+     * Gets the 6-bit code for the given character.
+     * 
+     * @param character The character.
+     * @return The code, or <code>0</code> if the character cannot be packed.
+     */
+    public static int code(final char character) {
+        return character < 128 ? PackedNames.CODES[character] : 0;
+    }
+    
+    /**
+     * Gets the character for the given 6-bit code.
+     * 
+     * @param code The code.
+     * @return The character.
+     */
+    public static char character(final int code) {
+        return PackedNames.CHARACTERS[code];
+    }
+    
+    /**
+     * Folds a single upper case letter code to its lower case code.
+     * 
+     * @param code The code.
+     * @return The case-folded code.
+     */
+    public static int fold(final int code) {
+        return code >= 27 && code <= 52 ? code - 26 : code;
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.store;
+
+import java.time.Instant;
+import java.util.UUID;
+import org.bspfsystems.playerdata.api.PlayerDataEntry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable {@link PlayerDataEntry} that is handed out by the core
+ * implementation. Instances are snapshots of the stored data at the time of
+ * the lookup; they are not updated if the player later changes their name.
+ * <p>
+ * The name and {@link UUID} are kept in the same {@link PackedNames packed}
+ * form as in the {@link EntryTable}, so creating an entry does not allocate
+ * anything else. The {@link String} name and the {@link UUID} are only
+ * created when {@link PackedPlayerDataEntry#getName()} or
+ * {@link PackedPlayerDataEntry#getUniqueId()} are called.
+ * <p>
+ * Entries handed out by a {@link PlayerDataStore} also carry the times the
+ * player was first and last seen, when they are known.
+ * <p>
+ * Two {@link PackedPlayerDataEntry PackedPlayerDataEntries} are equal if they
+ * have the same {@link UUID}.
+ */
+public final class PackedPlayerDataEntry implements PlayerDataEntry {
+    
+    private final long mostSigBits;
+    private final long leastSigBits;
+    private final long nameHead;
+    private final long nameTail;
+    private final String overflowName;
+    private final long firstSeen;
+    private final long lastSeen;
+    
+    /**
+     * Creates a new {@link PackedPlayerDataEntry}.
+     * 
+     * @param name The name of the player.
+     * @param uniqueId The {@link UUID} of the player.
+     */
+    public PackedPlayerDataEntry(@NotNull final String name, @NotNull final UUID uniqueId) {
+        this.mostSigBits = uniqueId.getMostSignificantBits();
+        this.leastSigBits = uniqueId.getLeastSignificantBits();
+        if (PackedNames.isPackable(name)) {
+            this.nameHead = PackedNames.pack(name, 0);
+            this.nameTail = PackedNames.pack(name, PackedNames.HEAD_LENGTH);
+            this.overflowName = null;
+        } else {
+            this.nameHead = 0L;
+            this.nameTail = PackedNames.OVERFLOW;
+            this.overflowName = name;
+        }
+        this.firstSeen = 0L;
+        this.lastSeen = 0L;
+    }
+    
+    /**
+     * Creates a new {@link PackedPlayerDataEntry} from an already
+     * {@link PackedNames packed} name and the bits of a {@link UUID}.
+     * 
+     * @param mostSigBits The most significant bits of the {@link UUID}.
+     * @param leastSigBits The least significant bits of the {@link UUID}.
+     * @param nameHead The head word of the packed name.
+     * @param nameTail The tail word of the packed name.
+     * @throws IllegalArgumentException If the name is empty, or the tail
+     *                                  word is marked as
+     *                                  {@link PackedNames#OVERFLOW}.
+     */
+    public PackedPlayerDataEntry(final long mostSigBits, final long leastSigBits, final long nameHead, final long nameTail) throws IllegalArgumentException {
+        if (nameHead == 0L || (nameTail & PackedNames.OVERFLOW) != 0L) {
+            throw new IllegalArgumentException("Invalid packed name.");
+        }
+        this.mostSigBits = mostSigBits;
+        this.leastSigBits = leastSigBits;
+        this.nameHead = nameHead;
+        this.nameTail = nameTail;
+        this.overflowName = null;
+        this.firstSeen = 0L;
+        this.lastSeen = 0L;
+    }
+    
+    /**
+     * Creates a new {@link PackedPlayerDataEntry} from the given entry of an
+     * {@link EntryTable}.
+     * 
+     * @param table The {@link EntryTable}.
+     * @param id The entry id.
+     */
+    PackedPlayerDataEntry(@NotNull final EntryTable table, final int id) {
+        this.mostSigBits = table.getMostSignificantBits(id);
+        this.leastSigBits = table.getLeastSignificantBits(id);
+        if (table.isNamePacked(id)) {
+            this.nameHead = table.getNameHead(id);
+            this.nameTail = table.getNameTail(id);
+            this.overflowName = null;
+        } else {
+            this.nameHead = 0L;
+            this.nameTail = PackedNames.OVERFLOW;
+            this.overflowName = table.getName(id);
+        }
+        this.firstSeen = table.getFirstSeen(id);
+        this.lastSeen = table.getLastSeen(id);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    public String getName() {
+        return this.overflowName != null ? this.overflowName : PackedNames.unpack(this.nameHead, this.nameTail);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    public UUID getUniqueId() {
+        return new UUID(this.mostSigBits, this.leastSigBits);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nullable
+    public Instant getFirstSeen() {
+        return this.firstSeen == 0L ? null : Instant.ofEpochMilli(this.firstSeen);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nullable
+    public Instant getLastSeen() {
+        return this.lastSeen == 0L ? null : Instant.ofEpochMilli(this.lastSeen);
+    }
+    
+    /**
+     * Gets the time the player was first seen, without creating an
+     * {@link Instant}.
+     * 
+     * @return The time the player was first seen, in milliseconds since the
+     *         epoch, or <code>0</code> if it is not known.
+     */
+    public long getFirstSeenMillis() {
+        return this.firstSeen;
+    }
+    
+    /**
+     * Gets the time the player was last seen, without creating an
+     * {@link Instant}.
+     * 
+     * @return The time the player was last seen, in milliseconds since the
+     *         epoch, or <code>0</code> if it is not known.
+     */
+    public long getLastSeenMillis() {
+        return this.lastSeen;
+    }
+    
+    /**
+     * Gets the most significant bits of the {@link UUID}, without creating
+     * the {@link UUID}.
+     * 
+     * @return The most significant bits.
+     */
+    public long getMostSignificantBits() {
+        return this.mostSigBits;
+    }
+    
+    /**
+     * Gets the least significant bits of the {@link UUID}, without creating
+     * the {@link UUID}.
+     * 
+     * @return The least significant bits.
+     */
+    public long getLeastSignificantBits() {
+        return this.leastSigBits;
+    }
+    
+    /**
+     * Checks if the name is held in {@link PackedNames packed} form.
+     * 
+     * @return <code>true</code> if the name is packed, <code>false</code> if
+     *         it could not be packed.
+     */
+    public boolean isNamePacked() {
+        return this.overflowName == null;
+    }
+    
+    /**
+     * Gets the head word of the packed name. This is only meaningful if
+     * {@link PackedPlayerDataEntry#isNamePacked()} returns <code>true</code>.
+     * 
+     * @return The head word.
+     */
+    public long getNameHead() {
+        return this.nameHead;
+    }
+    
+    /**
+     * Gets the tail word of the packed name. This is only meaningful if
+     * {@link PackedPlayerDataEntry#isNamePacked()} returns <code>true</code>.
+     * 
+     * @return The tail word.
+     */
+    public long getNameTail() {
+        return this.nameTail;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(@Nullable final Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof PackedPlayerDataEntry)) {
+            return false;
+        }
+        final PackedPlayerDataEntry other = (PackedPlayerDataEntry) object;
+        return this.mostSigBits == other.mostSigBits && this.leastSigBits == other.leastSigBits;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        final long hash = this.mostSigBits ^ this.leastSigBits;
+        return ((int) (hash >> 32)) ^ (int) hash;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    public String toString() {
+        return "PackedPlayerDataEntry{name=" + this.getName() + ", uniqueId=" + this.getUniqueId() + "}";
+    }
+}
@@ -0,0 +1,1239 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import org.bspfsystems.playerdata.api.PlayerDataEntry;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.bspfsystems.playerdata.core.history.NameHistory;
+import org.bspfsystems.playerdata.core.index.LastSeenIndex;
+import org.bspfsystems.playerdata.core.index.NameIndex;
+import org.bspfsystems.playerdata.core.index.NameTrie;
+import org.bspfsystems.playerdata.core.index.UniqueIdIndex;
+import org.bspfsystems.playerdata.core.metrics.MetricsRecorder;
+import org.bspfsystems.playerdata.core.metrics.Operation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The in-memory store of all known players, backing the core
+ * {@link org.bspfsystems.playerdata.api.plugin.PlayerDataPlugin}
+ * implementation.
+ * <p>
+ * Player data is kept in an {@link EntryTable}, with a
+ * {@link UniqueIdIndex} for {@link UUID} lookups, a {@link NameIndex} for
+ * case-insensitive name lookups, a {@link NameTrie} for prefix matching, and
+ * a {@link LastSeenIndex} for finding players by when they were last seen.
+ * Player names are unique ignoring case, as they are in Minecraft.
+ * <p>
+ * Reads are wait-free: the table and indexes are kept twice, behind a
+ * {@link LeftRight}, so lookups never block, not even while a player is
+ * joining. Changes are serialized, and are applied to each copy in turn.
+ * <p>
+ * Saved data does not have to be loaded before the store is used. A
+ * {@link SnapshotIndex} can be {@link PlayerDataStore#attachSnapshot(SnapshotIndex) attached},
+ * and lookups by name or {@link UUID} that miss in memory fall back to it
+ * until it has been {@link PlayerDataStore#loadSnapshot() loaded}. Prefix
+ * matching and the methods that list every player only see the players that
+ * have been loaded so far.
+ * <p>
+ * Every name each player has had is also kept in a {@link NameHistory},
+ * which is updated as a {@link ChangeListener}.
+ */
+public final class PlayerDataStore {
+    
+    private static final int BATCH_SIZE = 256;
+    
+    private final LeftRight<Replica> replicas;
+    private final List<ChangeListener> listeners;
+    private final NameHistory history;
+    private volatile SnapshotIndex snapshot;
+    private volatile MetricsRecorder metrics;
+    
+    /**
+     * Creates a new, empty {@link PlayerDataStore}.
+     */
+    public PlayerDataStore() {
+        this.replicas = new LeftRight<Replica>(new Replica(), new Replica());
+        this.listeners = new CopyOnWriteArrayList<ChangeListener>();
+        this.history = new NameHistory();
+        this.listeners.add(this.history);
+        this.metrics = MetricsRecorder.NONE;
+    }
+    
+    /**
+     * Gets the {@link NameHistory} of the players in this
+     * {@link PlayerDataStore}.
+     * 
+     * @return The {@link NameHistory}.
+     */
+    @NotNull
+    public NameHistory getNameHistory() {
+        return this.history;
+    }
+    
+    /**
+     * Gets the {@link MetricsRecorder} that joins, and the lookups of the core
+     * {@link org.bspfsystems.playerdata.api.plugin.PlayerDataPlugin}
+     * implementation, are measured with.
+     * 
+     * @return The {@link MetricsRecorder}, which is
+     *         {@link MetricsRecorder#NONE} unless another has been set.
+     */
+    @NotNull
+    public MetricsRecorder getMetricsRecorder() {
+        return this.metrics;
+    }
+    
+    /**
+     * Sets the {@link MetricsRecorder} that joins, and the lookups of the core
+     * {@link org.bspfsystems.playerdata.api.plugin.PlayerDataPlugin}
+     * implementation, are measured with.
+     * 
+     * @param metrics The {@link MetricsRecorder}.
+     */
+    public void setMetricsRecorder(@NotNull final MetricsRecorder metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Gets the {@link UUID} for the given player name.
+     * 
+     * @param name The name of the player.
+     * @return The {@link UUID} of the player, or <code>null</code> if the
+     *         name is not known.
+     */
+    @Nullable
+    public UUID getUniqueId(@NotNull final String name) {
+        final int ticket = this.replicas.arrive();
+        try {
+            return this.findUniqueId(this.replicas.get(), name);
+        } finally {
+            this.replicas.depart(ticket);
+        }
+    }
+    
+    /**
+     * Gets the player name for the given {@link UUID}.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @return The name of the player, or <code>null</code> if the
+     *         {@link UUID} is not known.
+     */
+    @Nullable
+    public String getName(@NotNull final UUID uniqueId) {
+        final int ticket = this.replicas.arrive();
+        try {
+            return this.findName(this.replicas.get(), uniqueId);
+        } finally {
+            this.replicas.depart(ticket);
+        }
+    }
+    
+    /**
+     * Gets the {@link UUID}s for all of the given player names in a single
+     * read.
+     * 
+     * @param names The names of the players.
+     * @return A {@link Map} of the known names to their {@link UUID}s.
+     */
+    @NotNull
+    public Map<String, UUID> getUniqueIds(@NotNull final Collection<String> names) {
+        final Map<String, UUID> uniqueIds = new HashMap<String, UUID>(names.size() * 4 / 3 + 1);
+        final int ticket = this.replicas.arrive();
+        try {
+            final Replica replica = this.replicas.get();
+            for (final String name : names) {
+                final UUID uniqueId = this.findUniqueId(replica, name);
+                if (uniqueId != null) {
+                    uniqueIds.put(name, uniqueId);
+                }
+            }
+        } finally {
+            this.replicas.depart(ticket);
+        }
+        return uniqueIds;
+    }
+    
+    /**
+     * Gets the player names for all of the given {@link UUID}s in a single
+     * read.
+     * 
+     * @param uniqueIds The {@link UUID}s of the players.
+     * @return A {@link Map} of the known {@link UUID}s to their names.
+     */
+    @NotNull
+    public Map<UUID, String> getNames(@NotNull final Collection<UUID> uniqueIds) {
+        final Map<UUID, String> names = new HashMap<UUID, String>(uniqueIds.size() * 4 / 3 + 1);
+        final int ticket = this.replicas.arrive();
+        try {
+            final Replica replica = this.replicas.get();
+            for (final UUID uniqueId : uniqueIds) {
+                final String name = this.findName(replica, uniqueId);
+                if (name != null) {
+                    names.put(uniqueId, name);
+                }
+            }
+        } finally {
+            this.replicas.depart(ticket);
+        }
+        return names;
+    }
+    
+    /**
+     * Gets the {@link PlayerDataEntry} for the given player name.
+     * 
+     * @param name The name of the player.
+     * @return The {@link PlayerDataEntry}, or <code>null</code> if the name is
+     *         not known.
+     */
+    @Nullable
+    public PlayerDataEntry getEntry(@NotNull final String name) {
+        final int ticket = this.replicas.arrive();
+        try {
+            final Replica replica = this.replicas.get();
+            final int id = replica.nameIndex.get(name);
+            if (id != UniqueIdIndex.NOT_FOUND) {
+                return new PackedPlayerDataEntry(replica.table, id);
+            }
+            final UUID uniqueId = this.findSnapshotUniqueId(replica, name);
+            final String savedName = uniqueId == null ? null : this.findSnapshotName(uniqueId);
+            return savedName == null ? null : new PackedPlayerDataEntry(savedName, uniqueId);
+        } finally {
+            this.replicas.depart(ticket);
+        }
+    }
+    
+    /**
+     * Gets the {@link PlayerDataEntry} for the given {@link UUID}.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @return The {@link PlayerDataEntry}, or <code>null</code> if the
+     *         {@link UUID} is not known.
+     */
+    @Nullable
+    public PlayerDataEntry getEntry(@NotNull final UUID uniqueId) {
+        final int ticket = this.replicas.arrive();
+        try {
+            final Replica replica = this.replicas.get();
+            final int id = replica.uniqueIdIndex.get(uniqueId);
+            if (id != UniqueIdIndex.NOT_FOUND) {
+                return new PackedPlayerDataEntry(replica.table, id);
+            }
+            final String savedName = this.findSnapshotName(uniqueId);
+            return savedName == null ? null : new PackedPlayerDataEntry(savedName, uniqueId);
+        } finally {
+            this.replicas.depart(ticket);
+        }
+    }
+    
+    /**
+     * Gets all known player names that start with the given prefix, ignoring
+     * case, along with any names that are a likely misspelling of it. Names
+     * that were taken over by another player are not included.
+     * <p>
+     * The number of edits allowed for misspellings depends on the length of
+     * the prefix, as given by
+     * {@link PlayerDataStore#getMisspellingDistance(String)}.
+     * 
+     * @param prefix The (partial) player name to match.
+     * @return A {@link Set} containing the matching names.
+     */
+    @NotNull
+    public Set<String> getMatchingNames(@NotNull final String prefix) {
+        final Set<String> names = new HashSet<String>();
+        final int ticket = this.replicas.arrive();
+        try {
+            final Replica replica = this.replicas.get();
+            final IntPredicate collector = id -> {
+                names.add(replica.table.getName(id));
+                return true;
+            };
+            replica.nameTrie.visitPrefix(prefix, collector);
+            replica.nameTrie.visitSimilar(prefix, PlayerDataStore.getMisspellingDistance(prefix), collector);
+        } finally {
+            this.replicas.depart(ticket);
+        }
+        return names;
+    }
+    
+    /**
+     * Gets all known player names within the given number of edits of the
+     * given name, ignoring case. Insertions, deletions, substitutions and
+     * swaps of two adjacent letters each count as one edit.
+     * 
+     * @param name The name to search for.
+     * @param maxDistance The maximum number of edits.
+     * @return A {@link Set} containing the similar names.
+     * @throws IllegalArgumentException If <code>maxDistance</code> is
+     *                                  negative.
+     */
+    @NotNull
+    public Set<String> getSimilarNames(@NotNull final String name, final int maxDistance) throws IllegalArgumentException {
+        final Set<String> names = new HashSet<String>();
+        final int ticket = this.replicas.arrive();
+        try {
+            final Replica replica = this.replicas.get();
+            replica.nameTrie.visitSimilar(name, maxDistance, id -> {
+                names.add(replica.table.getName(id));
+                return true;
+            });
+        } finally {
+            this.replicas.depart(ticket);
+        }
+        return names;
+    }
+    
+    /**
+     * Gets up to <code>limit</code> known player names that start with the
+     * given prefix, ignoring case. Online players are listed first, then the
+     * most recently seen players. Only as many matches as are returned are
+     * looked at.
+     * 
+     * @param prefix The (partial) player name to match.
+     * @param limit The maximum number of names to return.
+     * @return A {@link List} containing the matching names, best first.
+     * @throws IllegalArgumentException If <code>limit</code> is negative.
+     */
+    @NotNull
+    public List<String> getMatchingNames(@NotNull final String prefix, final int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative: " + limit);
+        }
+        final List<String> names = new ArrayList<String>(Math.min(limit, 64));
+        if (limit == 0) {
+            return names;
+        }
+        final int ticket = this.replicas.arrive();
+        try {
+            final Replica replica = this.replicas.get();
+            replica.nameTrie.visitPrefixByRank(prefix, id -> {
+                names.add(replica.table.getName(id));
+                return names.size() < limit;
+            });
+        } finally {
+            this.replicas.depart(ticket);
+        }
+        return names;
+    }
+    
+    /**
+     * Gets all {@link PlayerDataEntry PlayerDataEntries} whose name starts
+     * with the given prefix, ignoring case, or is a likely misspelling of it,
+     * as for {@link PlayerDataStore#getMatchingNames(String)}.
+     * 
+     * @param prefix The (partial) player name to match.
+     * @return A {@link Set} containing the matching
+     *         {@link PlayerDataEntry PlayerDataEntries}.
+     */
+    @NotNull
+    public Set<PlayerDataEntry> getMatchingEntries(@NotNull final String prefix) {
+        final Set<PlayerDataEntry> entries = new HashSet<PlayerDataEntry>();
+        final int ticket = this.replicas.arrive();
+        try {
+            final Replica replica = this.replicas.get();
+            final IntPredicate collector = id -> {
+                entries.add(new PackedPlayerDataEntry(replica.table, id));
+                return true;
+            };
+            replica.nameTrie.visitPrefix(prefix, collector);
+            replica.nameTrie.visitSimilar(prefix, PlayerDataStore.getMisspellingDistance(prefix), collector);
+        } finally {
+            this.replicas.depart(ticket);
+        }
+        return entries;
+    }
+    
+    /**
+     * Gets a copy of all known player names.
+     * 
+     * @return A {@link Set} of all known player names.
+     */
+    @NotNull
+    public Set<String> getAllNames() {
+        final int ticket = this.replicas.arrive();
+        try {
+            final EntryTable table = this.replicas.get().table;
+            final int size = table.size();
+            final Set<String> names = new HashSet<String>(size * 4 / 3 + 1);
+            for (int id = 0; id < size; id++) {
+                names.add(table.getName(id));
+            }
+            return names;
+        } finally {
+            this.replicas.depart(ticket);
+        }
+    }
+    
+    /**
+     * Gets a copy of all known player {@link UUID}s.
+     * 
+     * @return A {@link Set} of all known player {@link UUID}s.
+     */
+    @NotNull
+    public Set<UUID> getAllUniqueIds() {
+        final int ticket = this.replicas.arrive();
+        try {
+            final EntryTable table = this.replicas.get().table;
+            final int size = table.size();
+            final Set<UUID> uniqueIds = new HashSet<UUID>(size * 4 / 3 + 1);
+            for (int id = 0; id < size; id++) {
+                uniqueIds.add(table.getUniqueId(id));
+            }
+            return uniqueIds;
+        } finally {
+            this.replicas.depart(ticket);
+        }
+    }
+    
+    /**
+     * Gets a copy of all known {@link PlayerDataEntry PlayerDataEntries}.
+     * 
+     * @return A {@link Set} of all known
+     *         {@link PlayerDataEntry PlayerDataEntries}.
+     */
+    @NotNull
+    public Set<PlayerDataEntry> getAllEntries() {
+        final int ticket = this.replicas.arrive();
+        try {
+            final EntryTable table = this.replicas.get().table;
+            final int size = table.size();
+            final Set<PlayerDataEntry> entries = new HashSet<PlayerDataEntry>(size * 4 / 3 + 1);
+            for (int id = 0; id < size; id++) {
+                entries.add(new PackedPlayerDataEntry(table, id));
+            }
+            return entries;
+        } finally {
+            this.replicas.depart(ticket);
+        }
+    }
+    
+    /**
+     * Gets the {@link PlayerDataEntry PlayerDataEntries} of every player last
+     * seen at or after the given time.
+     * 
+     * @param time The earliest last seen time, in milliseconds since the
+     *             epoch.
+     * @return The {@link Set} of matching entries.
+     */
+    @NotNull
+    public Set<PlayerDataEntry> getEntriesSeenSince(final long time) {
+        final Set<PlayerDataEntry> entries = new HashSet<PlayerDataEntry>();
+        final int ticket = this.replicas.arrive();
+        try {
+            final Replica replica = this.replicas.get();
+            replica.lastSeenIndex.forEachSince(time, id -> entries.add(new PackedPlayerDataEntry(replica.table, id)));
+        } finally {
+            this.replicas.depart(ticket);
+        }
+        return entries;
+    }
+    
+    /**
+     * Gets the {@link PlayerDataEntry PlayerDataEntries} of every player not
+     * seen since the given time.
+     * 
+     * @param time The time that the players were not seen since, in
+     *             milliseconds since the epoch.
+     * @return The {@link Set} of matching entries.
+     */
+    @NotNull
+    public Set<PlayerDataEntry> getEntriesNotSeenSince(final long time) {
+        final Set<PlayerDataEntry> entries = new HashSet<PlayerDataEntry>();
+        final int ticket = this.replicas.arrive();
+        try {
+            final Replica replica = this.replicas.get();
+            replica.lastSeenIndex.forEachBefore(time, id -> entries.add(new PackedPlayerDataEntry(replica.table, id)));
+        } finally {
+            this.replicas.depart(ticket);
+        }
+        return entries;
+    }
+    
+    /**
+     * Gets the {@link PlayerDataEntry PlayerDataEntries} of the players that
+     * were seen most recently.
+     * 
+     * @param limit The maximum number of entries to get.
+     * @return The {@link List} of entries, most recently seen first.
+     * @throws IllegalArgumentException If <code>limit</code> is negative.
+     */
+    @NotNull
+    public List<PlayerDataEntry> getMostRecentlySeen(final int limit) throws IllegalArgumentException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative: " + limit);
+        }
+        final int ticket = this.replicas.arrive();
+        try {
+            final Replica replica = this.replicas.get();
+            final int[] ids = replica.lastSeenIndex.getMostRecent(limit);
+            final List<PlayerDataEntry> entries = new ArrayList<PlayerDataEntry>(ids.length);
+            for (final int id : ids) {
+                entries.add(new PackedPlayerDataEntry(replica.table, id));
+            }
+            return entries;
+        } finally {
+            this.replicas.depart(ticket);
+        }
+    }
+    
+    /**
+     * Gets a {@link Spliterator} over all known
+     * {@link PlayerDataEntry PlayerDataEntries}.
+     * <p>
+     * The {@link Spliterator} covers the players known when it is created,
+     * and is {@link Spliterator#SIZED sized} and splits evenly, so it is
+     * suitable for parallel streams. Entries are read in small batches, and
+     * no read is held open while the entries are processed.
+     * 
+     * @return A {@link Spliterator} over all known
+     *         {@link PlayerDataEntry PlayerDataEntries}.
+     */
+    @NotNull
+    public Spliterator<PlayerDataEntry> spliterator() {
+        return new EntrySpliterator(0, this.size());
+    }
+    
+    /**
+     * Gets the number of known players.
+     * 
+     * @return The number of known players.
+     */
+    public int size() {
+        final int ticket = this.replicas.arrive();
+        try {
+            return this.replicas.get().table.size();
+        } finally {
+            this.replicas.depart(ticket);
+        }
+    }
+    
+    /**
+     * Records that the given player has joined, adding or updating the
+     * stored data as required.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The current name of the player.
+     * @return The {@link PlayerJoinEvent} describing the join, which should
+     *         be called by the platform implementation, either directly or
+     *         through a
+     *         {@link org.bspfsystems.playerdata.core.dispatch.JoinEventDispatcher}.
+     */
+    @NotNull
+    public PlayerJoinEvent update(@NotNull final UUID uniqueId, @NotNull final String name) {
+        final long start = System.nanoTime();
+        final PlayerJoinEvent event = this.join(uniqueId, name);
+        final Operation operation;
+        switch (event.getJoinType()) {
+            case NEW_PLAYER:
+                operation = Operation.JOIN_NEW_PLAYER;
+                break;
+            case NAME_CHANGE:
+                operation = Operation.JOIN_NAME_CHANGE;
+                break;
+            default:
+                operation = Operation.JOIN_NORMAL;
+                break;
+        }
+        this.metrics.record(operation, 1, 0, System.nanoTime() - start);
+        return event;
+    }
+    
+    /**
+     * Applies a join for {@link PlayerDataStore#update(UUID, String)}. The
+     * time spent waiting for other changes is measured by the caller.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The current name of the player.
+     * @return The {@link PlayerJoinEvent} describing the join.
+     */
+    @NotNull
+    private synchronized PlayerJoinEvent join(@NotNull final UUID uniqueId, @NotNull final String name) {
+        final long now = System.currentTimeMillis();
+        final Replica current = this.replicas.get();
+        final int id = current.uniqueIdIndex.get(uniqueId);
+        final String oldName = id == UniqueIdIndex.NOT_FOUND ? this.findSnapshotName(uniqueId) : current.table.getName(id);
+        if (oldName == null) {
+            this.replicas.write(replica -> replica.add(uniqueId, name, now, true));
+            for (final ChangeListener listener : this.listeners) {
+                listener.onNewPlayer(uniqueId, name, now);
+            }
+            return new PlayerJoinEvent(name, null, uniqueId, PlayerJoinEvent.JoinType.NEW_PLAYER);
+        }
+        
+        this.replicas.write(replica -> {
+            if (id == UniqueIdIndex.NOT_FOUND) {
+                replica.add(uniqueId, name, now, true);
+            } else if (oldName.equals(name)) {
+                replica.touch(id, now, true);
+                replica.reclaim(id);
+            } else {
+                replica.rename(id, name, now, true);
+            }
+        });
+        if (oldName.equals(name)) {
+            for (final ChangeListener listener : this.listeners) {
+                listener.onLastSeen(uniqueId, now);
+            }
+            return new PlayerJoinEvent(name, uniqueId);
+        }
+        for (final ChangeListener listener : this.listeners) {
+            listener.onNameChange(uniqueId, oldName, name, now);
+        }
+        return new PlayerJoinEvent(name, oldName, uniqueId);
+    }
+    
+    /**
+     * Records that the given player has left, so that they are no longer
+     * ranked as online.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     */
+    public synchronized void disconnect(@NotNull final UUID uniqueId) {
+        final int id = this.replicas.get().uniqueIdIndex.get(uniqueId);
+        if (id == UniqueIdIndex.NOT_FOUND) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        this.replicas.write(replica -> replica.touch(id, now, false));
+        for (final ChangeListener listener : this.listeners) {
+            listener.onLastSeen(uniqueId, now);
+        }
+    }
+    
+    /**
+     * Restores previously saved data for the given player, adding or updating
+     * the stored data as required. Unlike
+     * {@link PlayerDataStore#update(UUID, String)}, the player is not marked
+     * as online and the {@link ChangeListener ChangeListeners} are not
+     * called, so this is suitable for loading saved data.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The name of the player.
+     * @param lastSeen The time the player was last seen, in milliseconds since
+     *                 the epoch.
+     */
+    public void restore(@NotNull final UUID uniqueId, @NotNull final String name, final long lastSeen) {
+        this.restore(uniqueId, name, 0L, lastSeen);
+    }
+    
+    /**
+     * Restores previously saved data for the given player, as
+     * {@link PlayerDataStore#restore(UUID, String, long)} does, along with
+     * the time they were first seen. The earliest known first seen time is
+     * kept.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The name of the player.
+     * @param firstSeen The time the player was first seen, in milliseconds
+     *                  since the epoch, or <code>0</code> if it is not known.
+     * @param lastSeen The time the player was last seen, in milliseconds since
+     *                 the epoch.
+     */
+    public synchronized void restore(@NotNull final UUID uniqueId, @NotNull final String name, final long firstSeen, final long lastSeen) {
+        this.replicas.write(replica -> replica.restore(uniqueId, name, firstSeen, lastSeen));
+    }
+    
+    /**
+     * Restores the last seen time of the given player, if they are known.
+     * The {@link ChangeListener ChangeListeners} are not called.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param lastSeen The time the player was last seen, in milliseconds since
+     *                 the epoch.
+     */
+    public synchronized void restoreLastSeen(@NotNull final UUID uniqueId, final long lastSeen) {
+        final int id = this.replicas.get().uniqueIdIndex.get(uniqueId);
+        if (id != UniqueIdIndex.NOT_FOUND) {
+            this.replicas.write(replica -> replica.touch(id, lastSeen, replica.table.isOnline(id)));
+            return;
+        }
+        final String savedName = this.findSnapshotName(uniqueId);
+        if (savedName != null) {
+            this.replicas.write(replica -> replica.load(uniqueId, savedName, 0L, lastSeen));
+        }
+    }
+    
+    /**
+     * Loads a large number of players at once, such as from an import of
+     * another plugin's data. New players are added to the table first, and
+     * the indexes are then built for the whole batch in one pass, rather than
+     * one player at a time.
+     * <p>
+     * Players that are already in the store keep their data, except that the
+     * earliest first seen time is kept, and the name and last seen time are
+     * updated if the loaded player was seen more recently. Where more than one
+     * player has the same name, the name is indexed to the one seen most
+     * recently. As with {@link PlayerDataStore#restore(UUID, String, long)},
+     * the {@link ChangeListener ChangeListeners} are not called.
+     * <p>
+     * Lookups continue to be served while the players are loaded, but other
+     * changes wait until it is finished.
+     * 
+     * @param uniqueIds The {@link UUID UUIDs} of the players.
+     * @param names The names of the players.
+     * @param firstSeen The times the players were first seen, in milliseconds
+     *                  since the epoch, or <code>0</code> where it is not
+     *                  known.
+     * @param lastSeen The times the players were last seen, in milliseconds
+     *                 since the epoch.
+     * @param count The number of players to load from the arrays.
+     * @return The number of players that were added to the store.
+     */
+    public synchronized int bulkLoad(@NotNull final UUID[] uniqueIds, @NotNull final String[] names, @NotNull final long[] firstSeen, @NotNull final long[] lastSeen, final int count) {
+        final int[] added = new int[1];
+        this.replicas.write(replica -> added[0] = replica.bulkLoad(uniqueIds, names, firstSeen, lastSeen, count));
+        return added[0];
+    }
+    
+    /**
+     * Attaches a {@link SnapshotIndex} of saved data, which lookups fall back
+     * to until {@link PlayerDataStore#loadSnapshot()} has finished. This lets
+     * the store be used as soon as the saved data is opened, rather than
+     * after it has all been read.
+     * <p>
+     * Data already in the store, or {@link PlayerDataStore#restore(UUID, String, long) restored}
+     * later, takes precedence over the {@link SnapshotIndex}.
+     * 
+     * @param snapshot The {@link SnapshotIndex}.
+     * @throws IllegalStateException If a {@link SnapshotIndex} is already
+     *                               attached.
+     */
+    public synchronized void attachSnapshot(@NotNull final SnapshotIndex snapshot) throws IllegalStateException {
+        if (this.snapshot != null) {
+            throw new IllegalStateException("A snapshot is already attached.");
+        }
+        this.snapshot = snapshot;
+    }
+    
+    /**
+     * Loads every player from the attached {@link SnapshotIndex} that is not
+     * already in the store, then detaches it. Players are loaded in small
+     * batches, so this can run in the background while the store is in use.
+     */
+    public void loadSnapshot() {
+        final SnapshotIndex attached = this.snapshot;
+        if (attached == null) {
+            return;
+        }
+        final UUID[] uniqueIds = new UUID[PlayerDataStore.BATCH_SIZE];
+        final String[] names = new String[uniqueIds.length];
+        final long[] firstSeen = new long[uniqueIds.length];
+        final long[] lastSeen = new long[uniqueIds.length];
+        final int[] count = new int[1];
+        final Runnable flush = () -> {
+            final int batch = count[0];
+            synchronized (this) {
+                this.replicas.write(replica -> {
+                    for (int index = 0; index < batch; index++) {
+                        final int id = replica.uniqueIdIndex.get(uniqueIds[index]);
+                        if (id == UniqueIdIndex.NOT_FOUND) {
+                            replica.load(uniqueIds[index], names[index], firstSeen[index], lastSeen[index]);
+                        } else {
+                            replica.restoreFirstSeen(id, firstSeen[index]);
+                        }
+                    }
+                });
+            }
+            count[0] = 0;
+        };
+        attached.forEachRecord((uniqueId, name, first, last) -> {
+            final int index = count[0]++;
+            uniqueIds[index] = uniqueId;
+            names[index] = name;
+            firstSeen[index] = first;
+            lastSeen[index] = last;
+            if (count[0] == uniqueIds.length) {
+                flush.run();
+            }
+        });
+        flush.run();
+        synchronized (this) {
+            if (this.snapshot == attached) {
+                this.snapshot = null;
+            }
+        }
+    }
+    
+    /**
+     * Checks if a {@link SnapshotIndex} is attached and has not yet been
+     * {@link PlayerDataStore#loadSnapshot() loaded}.
+     * 
+     * @return <code>true</code> if a {@link SnapshotIndex} is attached,
+     *         <code>false</code> otherwise.
+     */
+    public boolean hasSnapshot() {
+        return this.snapshot != null;
+    }
+    
+    /**
+     * Visits the saved data of every known player. The players are read in
+     * small batches, so it can be used for large exports while players are
+     * joining.
+     * 
+     * @param visitor The {@link RecordVisitor} to call for each player.
+     */
+    public void forEachRecord(@NotNull final RecordVisitor visitor) {
+        final int size = this.size();
+        final UUID[] uniqueIds = new UUID[PlayerDataStore.BATCH_SIZE];
+        final String[] names = new String[uniqueIds.length];
+        final long[] firstSeen = new long[uniqueIds.length];
+        final long[] lastSeen = new long[uniqueIds.length];
+        for (int start = 0; start < size; start += uniqueIds.length) {
+            final int count = Math.min(uniqueIds.length, size - start);
+            final int ticket = this.replicas.arrive();
+            try {
+                final EntryTable table = this.replicas.get().table;
+                for (int index = 0; index < count; index++) {
+                    uniqueIds[index] = table.getUniqueId(start + index);
+                    names[index] = table.getName(start + index);
+                    firstSeen[index] = table.getFirstSeen(start + index);
+                    lastSeen[index] = table.getLastSeen(start + index);
+                }
+            } finally {
+                this.replicas.depart(ticket);
+            }
+            for (int index = 0; index < count; index++) {
+                visitor.visit(uniqueIds[index], names[index], firstSeen[index], lastSeen[index]);
+            }
+        }
+    }
+    
+    /**
+     * Adds a {@link ChangeListener} to be called for every change made to
+     * this {@link PlayerDataStore}.
+     * 
+     * @param listener The {@link ChangeListener}.
+     */
+    public void addChangeListener(@NotNull final ChangeListener listener) {
+        this.listeners.add(listener);
+    }
+    
+    /**
+     * Removes a previously added {@link ChangeListener}.
+     * 
+     * @param listener The {@link ChangeListener}.
+     */
+    public void removeChangeListener(@NotNull final ChangeListener listener) {
+        this.listeners.remove(listener);
+    }
+    
+    /**
+     * Looks up a name, falling back to the attached {@link SnapshotIndex}.
+     * 
+     * @param replica The {@link Replica} being read.
+     * @param name The name of the player.
+     * @return The {@link UUID} of the player, or <code>null</code> if the
+     *         name is not known.
+     */
+    @Nullable
+    private UUID findUniqueId(@NotNull final Replica replica, @NotNull final String name) {
+        final int id = replica.nameIndex.get(name);
+        return id == UniqueIdIndex.NOT_FOUND ? this.findSnapshotUniqueId(replica, name) : replica.table.getUniqueId(id);
+    }
+    
+    /**
+     * Looks up a {@link UUID}, falling back to the attached
+     * {@link SnapshotIndex}.
+     * 
+     * @param replica The {@link Replica} being read.
+     * @param uniqueId The {@link UUID} of the player.
+     * @return The name of the player, or <code>null</code> if the
+     *         {@link UUID} is not known.
+     */
+    @Nullable
+    private String findName(@NotNull final Replica replica, @NotNull final UUID uniqueId) {
+        final int id = replica.uniqueIdIndex.get(uniqueId);
+        return id == UniqueIdIndex.NOT_FOUND ? this.findSnapshotName(uniqueId) : replica.table.getName(id);
+    }
+    
+    /**
+     * Looks up a name that is not in memory in the attached
+     * {@link SnapshotIndex}, if any.
+     * 
+     * @param replica The {@link Replica} being read.
+     * @param name The name of the player.
+     * @return The {@link UUID} of the player, or <code>null</code> if the
+     *         name is not known.
+     */
+    @Nullable
+    private UUID findSnapshotUniqueId(@NotNull final Replica replica, @NotNull final String name) {
+        final SnapshotIndex attached = this.snapshot;
+        if (attached == null) {
+            return null;
+        }
+        final UUID uniqueId = attached.getUniqueId(name);
+        // A player that is already in memory has changed their name since.
+        return uniqueId == null || replica.uniqueIdIndex.get(uniqueId) != UniqueIdIndex.NOT_FOUND ? null : uniqueId;
+    }
+    
+    /**
+     * Looks up a {@link UUID} that is not in memory in the attached
+     * {@link SnapshotIndex}, if any.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @return The name of the player, or <code>null</code> if the
+     *         {@link UUID} is not known.
+     */
+    @Nullable
+    private String findSnapshotName(@NotNull final UUID uniqueId) {
+        final SnapshotIndex attached = this.snapshot;
+        return attached == null ? null : attached.getName(uniqueId);
+    }
+    
+    /**
+     * Gets the number of edits allowed when matching misspellings of the
+     * given name. Short names are not matched fuzzily at all, as almost every
+     * other short name would be within a single edit.
+     * 
+     * @param name The name being matched.
+     * @return <code>0</code> for names of up to 2 characters, <code>1</code>
+     *         for names of up to 5 characters, and <code>2</code> otherwise.
+     */
+    public static int getMisspellingDistance(@NotNull final String name) {
+        return name.length() <= 2 ? 0 : name.length() <= 5 ? 1 : 2;
+    }
+    
+    /**
+     * Visits the saved data of a player.
+     * 
+     * @see PlayerDataStore#forEachRecord(RecordVisitor)
+     */
+    public interface RecordVisitor {
+        
+        /**
+         * Visits the saved data of a player.
+         * 
+         * @param uniqueId The {@link UUID} of the player.
+         * @param name The name of the player.
+         * @param firstSeen The time the player was first seen, in
+         *                  milliseconds since the epoch, or <code>0</code> if
+         *                  it is not known.
+         * @param lastSeen The time the player was last seen, in milliseconds
+         *                 since the epoch.
+         */
+        void visit(@NotNull UUID uniqueId, @NotNull String name, long firstSeen, long lastSeen);
+    }
+    
+    /**
+     * One copy of the {@link EntryTable} and its indexes. The
+     * {@link PlayerDataStore} applies every change to both copies, so the
+     * same player has the same entry id in each.
+     */
+    private static final class Replica {
+        
+        private final EntryTable table;
+        private final UniqueIdIndex uniqueIdIndex;
+        private final NameIndex nameIndex;
+        private final NameTrie nameTrie;
+        private final LastSeenIndex lastSeenIndex;
+        
+        private Replica() {
+            this.table = new EntryTable();
+            this.uniqueIdIndex = new UniqueIdIndex(this.table);
+            this.nameIndex = new NameIndex(this.table);
+            this.nameTrie = new NameTrie(this.table);
+            this.lastSeenIndex = new LastSeenIndex(this.table);
+        }
+        
+        /**
+         * Adds a new entry and indexes it.
+         * 
+         * @param uniqueId The {@link UUID} of the player.
+         * @param name The name of the player.
+         * @param time The time the player was seen.
+         * @param online Whether the player is online.
+         */
+        private void add(@NotNull final UUID uniqueId, @NotNull final String name, final long time, final boolean online) {
+            this.add(uniqueId, name, time, time, online);
+        }
+        
+        /**
+         * Adds a new entry with a known first seen time and indexes it.
+         * 
+         * @param uniqueId The {@link UUID} of the player.
+         * @param name The name of the player.
+         * @param firstSeen The time the player was first seen, or
+         *                  <code>0</code> if it is not known.
+         * @param lastSeen The time the player was last seen.
+         * @param online Whether the player is online.
+         */
+        private void add(@NotNull final UUID uniqueId, @NotNull final String name, final long firstSeen, final long lastSeen, final boolean online) {
+            final int id = this.table.add(uniqueId, name);
+            this.table.setFirstSeen(id, firstSeen);
+            this.table.setLastSeen(id, lastSeen);
+            this.table.setOnline(id, online);
+            this.uniqueIdIndex.put(id);
+            this.nameIndex.put(id);
+            this.nameTrie.put(id);
+            this.lastSeenIndex.put(id);
+        }
+        
+        /**
+         * Adds an entry from saved data. Unlike
+         * {@link Replica#add(UUID, String, long, boolean)}, the name is not
+         * indexed if another player already has it, as that player must have
+         * taken it over after the data was saved.
+         * 
+         * @param uniqueId The {@link UUID} of the player.
+         * @param name The name of the player.
+         * @param firstSeen The time the player was first seen, or
+         *                  <code>0</code> if it is not known.
+         * @param lastSeen The time the player was last seen.
+         */
+        private void load(@NotNull final UUID uniqueId, @NotNull final String name, final long firstSeen, final long lastSeen) {
+            final int id = this.table.add(uniqueId, name);
+            this.table.setFirstSeen(id, firstSeen);
+            this.table.setLastSeen(id, lastSeen);
+            this.uniqueIdIndex.put(id);
+            this.lastSeenIndex.put(id);
+            if (this.nameIndex.get(name) == UniqueIdIndex.NOT_FOUND) {
+                this.nameIndex.put(id);
+                this.nameTrie.put(id);
+            }
+        }
+        
+        /**
+         * Loads a batch of players, building the indexes for the new entries
+         * in bulk.
+         * 
+         * @param uniqueIds The {@link UUID UUIDs} of the players.
+         * @param names The names of the players.
+         * @param firstSeen The times the players were first seen.
+         * @param lastSeen The times the players were last seen.
+         * @param count The number of players to load.
+         * @return The number of new entries.
+         */
+        private int bulkLoad(@NotNull final UUID[] uniqueIds, @NotNull final String[] names, @NotNull final long[] firstSeen, @NotNull final long[] lastSeen, final int count) {
+            this.uniqueIdIndex.ensureCapacity(this.table.size() + count);
+            this.nameIndex.ensureCapacity(this.table.size() + count);
+            final int[] added = new int[count];
+            final int[] named = new int[count];
+            int addedCount = 0;
+            int namedCount = 0;
+            for (int index = 0; index < count; index++) {
+                int id = this.uniqueIdIndex.get(uniqueIds[index]);
+                if (id != UniqueIdIndex.NOT_FOUND) {
+                    if (lastSeen[index] > this.table.getLastSeen(id)) {
+                        this.restore(uniqueIds[index], names[index], firstSeen[index], lastSeen[index]);
+                    } else {
+                        this.restoreFirstSeen(id, firstSeen[index]);
+                    }
+                    continue;
+                }
+                
+                id = this.table.add(uniqueIds[index], names[index]);
+                this.table.setFirstSeen(id, firstSeen[index]);
+                this.table.setLastSeen(id, lastSeen[index]);
+                this.uniqueIdIndex.put(id);
+                added[addedCount++] = id;
+                final int owner = this.nameIndex.get(names[index]);
+                if (owner == UniqueIdIndex.NOT_FOUND || this.table.getLastSeen(owner) < lastSeen[index]) {
+                    this.nameIndex.put(id);
+                    named[namedCount++] = id;
+                }
+            }
+            
+            // A later player in the batch may have taken a name over since it
+            // was recorded, so only the current owners are put in the trie.
+            int owners = 0;
+            for (int index = 0; index < namedCount; index++) {
+                final int id = named[index];
+                if (this.nameIndex.get(this.table.getName(id)) == id) {
+                    named[owners++] = id;
+                }
+            }
+            this.nameTrie.putAll(named, owners);
+            this.lastSeenIndex.putAll(added, addedCount);
+            return addedCount;
+        }
+        
+        /**
+         * Restores saved data, adding or updating the entry as required.
+         * 
+         * @param uniqueId The {@link UUID} of the player.
+         * @param name The name of the player.
+         * @param firstSeen The time the player was first seen, or
+         *                  <code>0</code> if it is not known.
+         * @param lastSeen The time the player was last seen.
+         */
+        private void restore(@NotNull final UUID uniqueId, @NotNull final String name, final long firstSeen, final long lastSeen) {
+            final int id = this.uniqueIdIndex.get(uniqueId);
+            if (id == UniqueIdIndex.NOT_FOUND) {
+                this.add(uniqueId, name, firstSeen, lastSeen, false);
+                return;
+            }
+            this.restoreFirstSeen(id, firstSeen);
+            if (!this.table.getName(id).equals(name)) {
+                this.rename(id, name, lastSeen, this.table.isOnline(id));
+            } else {
+                this.touch(id, lastSeen, this.table.isOnline(id));
+            }
+        }
+        
+        /**
+         * Sets the first seen time of an existing entry from saved data, if
+         * it is earlier than the one known.
+         * 
+         * @param id The entry id.
+         * @param firstSeen The time the player was first seen, or
+         *                  <code>0</code> if it is not known.
+         */
+        private void restoreFirstSeen(final int id, final long firstSeen) {
+            final long known = this.table.getFirstSeen(id);
+            if (firstSeen != 0L && (known == 0L || firstSeen < known)) {
+                this.table.setFirstSeen(id, firstSeen);
+            }
+        }
+        
+        /**
+         * Changes the name of an existing entry and re-indexes it.
+         * 
+         * @param id The entry id.
+         * @param name The new name of the player.
+         * @param time The time the player was seen.
+         * @param online Whether the player is online.
+         */
+        private void rename(final int id, @NotNull final String name, final long time, final boolean online) {
+            this.nameIndex.remove(id);
+            this.nameTrie.remove(id);
+            this.table.setName(id, name);
+            this.table.setLastSeen(id, time);
+            this.table.setOnline(id, online);
+            this.nameIndex.put(id);
+            this.nameTrie.put(id);
+            this.lastSeenIndex.put(id);
+        }
+        
+        /**
+         * Updates the last seen time and online state of an existing entry.
+         * 
+         * @param id The entry id.
+         * @param time The time the player was seen.
+         * @param online Whether the player is online.
+         */
+        private void touch(final int id, final long time, final boolean online) {
+            this.table.setLastSeen(id, time);
+            this.table.setOnline(id, online);
+            this.nameTrie.updateRank(id);
+            this.lastSeenIndex.put(id);
+        }
+        
+        /**
+         * Indexes the name of an existing entry again if another entry has
+         * taken it over since, such as when a player rejoins under the name
+         * they last used after another player has given it up.
+         * 
+         * @param id The entry id.
+         */
+        private void reclaim(final int id) {
+            if (this.nameIndex.get(this.table.getName(id)) != id) {
+                this.nameIndex.put(id);
+                this.nameTrie.put(id);
+            }
+        }
+    }
+    
+    /**
+     * A {@link Spliterator} over a range of entry ids, reading the entries in
+     * batches from the {@link PlayerDataStore}.
+     */
+    private final class EntrySpliterator implements Spliterator<PlayerDataEntry> {
+        
+        private int next;
+        private final int end;
+        
+        private EntrySpliterator(final int start, final int end) {
+            this.next = start;
+            this.end = end;
+        }
+        
+        @Override
+        public boolean tryAdvance(@NotNull final Consumer<? super PlayerDataEntry> action) {
+            if (this.next >= this.end) {
+                return false;
+            }
+            final PlayerDataEntry entry;
+            final int ticket = PlayerDataStore.this.replicas.arrive();
+            try {
+                entry = new PackedPlayerDataEntry(PlayerDataStore.this.replicas.get().table, this.next++);
+            } finally {
+                PlayerDataStore.this.replicas.depart(ticket);
+            }
+            action.accept(entry);
+            return true;
+        }
+        
+        @Override
+        public void forEachRemaining(@NotNull final Consumer<? super PlayerDataEntry> action) {
+            final PlayerDataEntry[] batch = new PlayerDataEntry[PlayerDataStore.BATCH_SIZE];
+            while (this.next < this.end) {
+                final int count = Math.min(batch.length, this.end - this.next);
+                final int ticket = PlayerDataStore.this.replicas.arrive();
+                try {
+                    final EntryTable table = PlayerDataStore.this.replicas.get().table;
+                    for (int index = 0; index < count; index++) {
+                        batch[index] = new PackedPlayerDataEntry(table, this.next + index);
+                    }
+                } finally {
+                    PlayerDataStore.this.replicas.depart(ticket);
+                }
+                this.next += count;
+                for (int index = 0; index < count; index++) {
+                    action.accept(batch[index]);
+                    batch[index] = null;
+                }
+            }
+        }
+        
+        @Override
+        @Nullable
+        public Spliterator<PlayerDataEntry> trySplit() {
+            final int middle = (this.next + this.end) >>> 1;
+            if (middle - this.next < PlayerDataStore.BATCH_SIZE) {
+                return null;
+            }
+            final EntrySpliterator prefix = new EntrySpliterator(this.next, middle);
+            this.next = middle;
+            return prefix;
+        }
+        
+        @Override
+        public long estimateSize() {
+            return this.end - this.next;
+        }
+        
+        @Override
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL | Spliterator.DISTINCT;
+        }
+    }
+}
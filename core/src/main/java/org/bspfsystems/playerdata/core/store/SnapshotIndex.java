@@ -0,0 +1,70 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.store;
+
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A read-only index of saved player data that a {@link PlayerDataStore} can
+ * serve lookups from before the data has been loaded into memory.
+ * <p>
+ * Implementations must be safe to call from multiple threads at once.
+ *
+ * @see PlayerDataStore#attachSnapshot(SnapshotIndex)
+ */
+public interface SnapshotIndex {
+    
+    /**
+     * Gets the {@link UUID} for the given player name, ignoring case.
+     * 
+     * @param name The name of the player.
+     * @return The {@link UUID} of the player, or <code>null</code> if the
+     *         name is not in this {@link SnapshotIndex}.
+     */
+    @Nullable
+    UUID getUniqueId(@NotNull String name);
+    
+    /**
+     * Gets the name of the player with the given {@link UUID}.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @return The name of the player, or <code>null</code> if the
+     *         {@link UUID} is not in this {@link SnapshotIndex}.
+     */
+    @Nullable
+    String getName(@NotNull UUID uniqueId);
+    
+    /**
+     * Visits every player in this {@link SnapshotIndex}.
+     * 
+     * @param visitor The {@link PlayerDataStore.RecordVisitor} to call for
+     *                each player.
+     */
+    void forEachRecord(@NotNull PlayerDataStore.RecordVisitor visitor);
+    
+    /**
+     * Gets the number of players in this {@link SnapshotIndex}.
+     * 
+     * @return The number of players.
+     */
+    int size();
+}
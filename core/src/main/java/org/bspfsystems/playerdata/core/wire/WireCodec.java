@@ -0,0 +1,549 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.wire;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import org.bspfsystems.playerdata.api.PlayerDataEntry;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.bspfsystems.playerdata.core.replication.Delta;
+import org.bspfsystems.playerdata.core.store.PackedNames;
+import org.bspfsystems.playerdata.core.store.PackedPlayerDataEntry;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Utilities for the compact binary encoding of
+ * {@link PlayerDataEntry PlayerDataEntries}, {@link PlayerJoinEvent
+ * PlayerJoinEvents} and {@link Delta Deltas}, used for every exchange
+ * between servers and any other persistence.
+ * <p>
+ * Values are written to and read from a {@link ByteBuffer} directly:
+ * <ul>
+ *     <li>{@link UUID UUIDs} are two big-endian <code>long</code>s.</li>
+ *     <li>Names that can be {@link PackedNames packed} are a length byte
+ *     followed by just the bytes needed for the 6-bit codes of the head and
+ *     tail words, at most 14 bytes in total. Other names are a zero byte,
+ *     a varint byte count and the name in modified UTF-8, as in
+ *     {@link java.io.DataOutput#writeUTF(String)}.</li>
+ *     <li>A {@link PlayerJoinEvent.JoinType} is a single byte.</li>
+ *     <li>Sequence numbers and timestamps are unsigned LEB128 varints.</li>
+ * </ul>
+ * Nothing else is allocated while encoding a {@link PackedPlayerDataEntry},
+ * and decoding one only allocates the entry itself.
+ * <p>
+ * The encoding is not self-describing; each message or file should begin
+ * with a {@link WireCodec#writeHeader(ByteBuffer) header}, so that the
+ * format can change in later versions. Encoding past the end of a
+ * {@link ByteBuffer} throws a {@link java.nio.BufferOverflowException}, and
+ * decoding past the end throws a {@link java.nio.BufferUnderflowException}.
+ */
+public final class WireCodec {
+    
+    /**
+     * The current version of the encoding.
+     */
+    public static final int VERSION = 1;
+    
+    /**
+     * The maximum number of bytes in an encoded name that cannot be packed.
+     */
+    public static final int MAXIMUM_NAME_BYTES = 0xFFFF;
+    
+    private static final int MAGIC = 0x5044;
+    private static final int BITS_PER_BYTE = 8;
+    private static final int BITS_PER_CHARACTER = 6;
+    
+    private static final byte NORMAL = 0;
+    private static final byte NEW_PLAYER = 1;
+    private static final byte NAME_CHANGE = 2;
+    
+    private WireCodec() {
+        // Utility class.
+    }
+    
+    /**
+     * Writes the header that identifies the encoding and its version.
+     * 
+     * @param buffer The {@link ByteBuffer} to write to.
+     */
+    public static void writeHeader(@NotNull final ByteBuffer buffer) {
+        buffer.putShort((short) WireCodec.MAGIC);
+        buffer.put((byte) WireCodec.VERSION);
+    }
+    
+    /**
+     * Reads and checks the header that identifies the encoding and its
+     * version.
+     * 
+     * @param buffer The {@link ByteBuffer} to read from.
+     * @return The version of the encoding that follows.
+     * @throws IllegalArgumentException If the header is not recognized, or
+     *                                  the version is not supported.
+     */
+    public static int readHeader(@NotNull final ByteBuffer buffer) throws IllegalArgumentException {
+        if ((buffer.getShort() & 0xFFFF) != WireCodec.MAGIC) {
+            throw new IllegalArgumentException("Unrecognized PlayerData wire format.");
+        }
+        final int version = buffer.get() & 0xFF;
+        if (version != WireCodec.VERSION) {
+            throw new IllegalArgumentException("Unsupported PlayerData wire format version: " + version);
+        }
+        return version;
+    }
+    
+    /**
+     * Writes a {@link PlayerDataEntry}.
+     * 
+     * @param buffer The {@link ByteBuffer} to write to.
+     * @param entry The {@link PlayerDataEntry}.
+     */
+    public static void writeEntry(@NotNull final ByteBuffer buffer, @NotNull final PlayerDataEntry entry) {
+        if (!(entry instanceof PackedPlayerDataEntry)) {
+            WireCodec.writeUniqueId(buffer, entry.getUniqueId());
+            WireCodec.writeName(buffer, entry.getName());
+            return;
+        }
+        
+        final PackedPlayerDataEntry packed = (PackedPlayerDataEntry) entry;
+        buffer.putLong(packed.getMostSignificantBits());
+        buffer.putLong(packed.getLeastSignificantBits());
+        if (packed.isNamePacked()) {
+            WireCodec.writePackedName(buffer, packed.getNameHead(), packed.getNameTail());
+        } else {
+            WireCodec.writeOverflowName(buffer, packed.getName());
+        }
+    }
+    
+    /**
+     * Reads a {@link PlayerDataEntry}.
+     * 
+     * @param buffer The {@link ByteBuffer} to read from.
+     * @return The {@link PlayerDataEntry}.
+     * @throws IllegalArgumentException If the encoded name is invalid.
+     */
+    @NotNull
+    public static PackedPlayerDataEntry readEntry(@NotNull final ByteBuffer buffer) throws IllegalArgumentException {
+        final long mostSigBits = buffer.getLong();
+        final long leastSigBits = buffer.getLong();
+        final int length = buffer.get() & 0xFF;
+        if (length == 0) {
+            return new PackedPlayerDataEntry(WireCodec.readOverflowName(buffer), new UUID(mostSigBits, leastSigBits));
+        }
+        WireCodec.checkPackedLength(length);
+        final long head = WireCodec.readWord(buffer, Math.min(length, PackedNames.HEAD_LENGTH));
+        final long tail = WireCodec.readWord(buffer, Math.max(0, length - PackedNames.HEAD_LENGTH));
+        WireCodec.checkPackedName(length, head, tail);
+        return new PackedPlayerDataEntry(mostSigBits, leastSigBits, head, tail);
+    }
+    
+    /**
+     * Writes a {@link PlayerJoinEvent}.
+     * 
+     * @param buffer The {@link ByteBuffer} to write to.
+     * @param event The {@link PlayerJoinEvent}.
+     */
+    public static void writeEvent(@NotNull final ByteBuffer buffer, @NotNull final PlayerJoinEvent event) {
+        buffer.put(WireCodec.encodeJoinType(event.getJoinType()));
+        WireCodec.writeUniqueId(buffer, event.getUniqueId());
+        WireCodec.writeName(buffer, event.getName());
+        if (event.getJoinType() == PlayerJoinEvent.JoinType.NAME_CHANGE) {
+            WireCodec.writeName(buffer, event.getOldName());
+        }
+    }
+    
+    /**
+     * Reads a {@link PlayerJoinEvent}.
+     * 
+     * @param buffer The {@link ByteBuffer} to read from.
+     * @return The {@link PlayerJoinEvent}.
+     * @throws IllegalArgumentException If the encoded type or names are
+     *                                  invalid.
+     */
+    @NotNull
+    public static PlayerJoinEvent readEvent(@NotNull final ByteBuffer buffer) throws IllegalArgumentException {
+        final PlayerJoinEvent.JoinType type = WireCodec.decodeJoinType(buffer.get());
+        final UUID uniqueId = WireCodec.readUniqueId(buffer);
+        final String name = WireCodec.readName(buffer);
+        final String oldName = type == PlayerJoinEvent.JoinType.NAME_CHANGE ? WireCodec.readName(buffer) : null;
+        return new PlayerJoinEvent(name, oldName, uniqueId, type);
+    }
+    
+    /**
+     * Writes a {@link Delta}.
+     * 
+     * @param buffer The {@link ByteBuffer} to write to.
+     * @param delta The {@link Delta}.
+     */
+    public static void writeDelta(@NotNull final ByteBuffer buffer, @NotNull final Delta delta) {
+        WireCodec.writeVarLong(buffer, delta.getSequence());
+        buffer.put(WireCodec.encodeJoinType(delta.getType()));
+        WireCodec.writeUniqueId(buffer, delta.getUniqueId());
+        WireCodec.writeName(buffer, delta.getName());
+        if (delta.getOldName() != null) {
+            WireCodec.writeName(buffer, delta.getOldName());
+        }
+        WireCodec.writeVarLong(buffer, delta.getTime());
+    }
+    
+    /**
+     * Reads a {@link Delta}.
+     * 
+     * @param buffer The {@link ByteBuffer} to read from.
+     * @return The {@link Delta}.
+     * @throws IllegalArgumentException If the encoded type, names or varints
+     *                                  are invalid.
+     */
+    @NotNull
+    public static Delta readDelta(@NotNull final ByteBuffer buffer) throws IllegalArgumentException {
+        final long sequence = WireCodec.readVarLong(buffer);
+        final PlayerJoinEvent.JoinType type = WireCodec.decodeJoinType(buffer.get());
+        final UUID uniqueId = WireCodec.readUniqueId(buffer);
+        final String name = WireCodec.readName(buffer);
+        final String oldName = type == PlayerJoinEvent.JoinType.NAME_CHANGE ? WireCodec.readName(buffer) : null;
+        return new Delta(sequence, type, uniqueId, name, oldName, WireCodec.readVarLong(buffer));
+    }
+    
+    /**
+     * Writes a {@link UUID} as two <code>long</code>s.
+     * 
+     * @param buffer The {@link ByteBuffer} to write to.
+     * @param uniqueId The {@link UUID}.
+     */
+    public static void writeUniqueId(@NotNull final ByteBuffer buffer, @NotNull final UUID uniqueId) {
+        buffer.putLong(uniqueId.getMostSignificantBits());
+        buffer.putLong(uniqueId.getLeastSignificantBits());
+    }
+    
+    /**
+     * Reads a {@link UUID} written as two <code>long</code>s.
+     * 
+     * @param buffer The {@link ByteBuffer} to read from.
+     * @return The {@link UUID}.
+     */
+    @NotNull
+    public static UUID readUniqueId(@NotNull final ByteBuffer buffer) {
+        final long mostSigBits = buffer.getLong();
+        return new UUID(mostSigBits, buffer.getLong());
+    }
+    
+    /**
+     * Writes a name, packing it if possible.
+     * 
+     * @param buffer The {@link ByteBuffer} to write to.
+     * @param name The name.
+     * @throws IllegalArgumentException If the name is empty, or cannot be
+     *                                  packed and is longer than
+     *                                  {@link WireCodec#MAXIMUM_NAME_BYTES}
+     *                                  when encoded.
+     */
+    public static void writeName(@NotNull final ByteBuffer buffer, @NotNull final String name) throws IllegalArgumentException {
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Name cannot be empty.");
+        }
+        if (PackedNames.isPackable(name)) {
+            WireCodec.writePackedName(buffer, PackedNames.pack(name, 0), PackedNames.pack(name, PackedNames.HEAD_LENGTH));
+        } else {
+            WireCodec.writeOverflowName(buffer, name);
+        }
+    }
+    
+    /**
+     * Reads a name.
+     * 
+     * @param buffer The {@link ByteBuffer} to read from.
+     * @return The name.
+     * @throws IllegalArgumentException If the encoded name is invalid.
+     */
+    @NotNull
+    public static String readName(@NotNull final ByteBuffer buffer) throws IllegalArgumentException {
+        final int length = buffer.get() & 0xFF;
+        if (length == 0) {
+            return WireCodec.readOverflowName(buffer);
+        }
+        WireCodec.checkPackedLength(length);
+        final long head = WireCodec.readWord(buffer, Math.min(length, PackedNames.HEAD_LENGTH));
+        final long tail = WireCodec.readWord(buffer, Math.max(0, length - PackedNames.HEAD_LENGTH));
+        WireCodec.checkPackedName(length, head, tail);
+        return PackedNames.unpack(head, tail);
+    }
+    
+    /**
+     * Writes an unsigned LEB128 varint: seven bits per byte, least
+     * significant first, with the high bit set on every byte but the last.
+     * 
+     * @param buffer The {@link ByteBuffer} to write to.
+     * @param value The value, treated as unsigned.
+     */
+    public static void writeVarLong(@NotNull final ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0L) {
+            buffer.put((byte) ((value & 0x7FL) | 0x80L));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+    
+    /**
+     * Reads an unsigned LEB128 varint.
+     * 
+     * @param buffer The {@link ByteBuffer} to read from.
+     * @return The value.
+     * @throws IllegalArgumentException If the varint is longer than ten
+     *                                  bytes, or its value does not fit in
+     *                                  a <code>long</code>.
+     */
+    public static long readVarLong(@NotNull final ByteBuffer buffer) throws IllegalArgumentException {
+        long value = 0L;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final byte next = buffer.get();
+            if (shift == Long.SIZE - 1 && (next & 0xFE) != 0) {
+                // Only the lowest bit of the tenth byte is left.
+                break;
+            }
+            value |= (next & 0x7FL) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long.");
+    }
+    
+    /**
+     * Writes an already packed name.
+     * 
+     * @param buffer The {@link ByteBuffer} to write to.
+     * @param head The head word.
+     * @param tail The tail word.
+     */
+    private static void writePackedName(@NotNull final ByteBuffer buffer, final long head, final long tail) {
+        final int length = PackedNames.length(head, tail);
+        buffer.put((byte) length);
+        WireCodec.writeWord(buffer, head, Math.min(length, PackedNames.HEAD_LENGTH));
+        WireCodec.writeWord(buffer, tail, Math.max(0, length - PackedNames.HEAD_LENGTH));
+    }
+    
+    /**
+     * Writes the low bytes of a packed word that hold the given number of
+     * characters, least significant first.
+     * 
+     * @param buffer The {@link ByteBuffer} to write to.
+     * @param word The packed word.
+     * @param characters The number of characters in the word.
+     */
+    private static void writeWord(@NotNull final ByteBuffer buffer, final long word, final int characters) {
+        final int bytes = WireCodec.getWordBytes(characters);
+        for (int index = 0; index < bytes; index++) {
+            buffer.put((byte) (word >>> (index * WireCodec.BITS_PER_BYTE)));
+        }
+    }
+    
+    /**
+     * Reads a packed word that holds the given number of characters.
+     * 
+     * @param buffer The {@link ByteBuffer} to read from.
+     * @param characters The number of characters in the word.
+     * @return The packed word.
+     */
+    private static long readWord(@NotNull final ByteBuffer buffer, final int characters) {
+        final int bytes = WireCodec.getWordBytes(characters);
+        long word = 0L;
+        for (int index = 0; index < bytes; index++) {
+            word |= (buffer.get() & 0xFFL) << (index * WireCodec.BITS_PER_BYTE);
+        }
+        return word;
+    }
+    
+    /**
+     * Gets the number of bytes needed for the given number of packed
+     * characters.
+     * 
+     * @param characters The number of characters.
+     * @return The number of bytes.
+     */
+    private static int getWordBytes(final int characters) {
+        return (characters * WireCodec.BITS_PER_CHARACTER + WireCodec.BITS_PER_BYTE - 1) / WireCodec.BITS_PER_BYTE;
+    }
+    
+    /**
+     * Checks the length byte of a packed name.
+     * 
+     * @param length The length.
+     * @throws IllegalArgumentException If the length is too long for a packed
+     *                                  name.
+     */
+    private static void checkPackedLength(final int length) throws IllegalArgumentException {
+        if (length > PackedNames.MAXIMUM_LENGTH) {
+            throw new IllegalArgumentException("Invalid packed name length: " + length);
+        }
+    }
+    
+    /**
+     * Checks that a decoded packed name has the length it was encoded with.
+     * This catches end markers in the middle of the name, and stray bits
+     * after its end.
+     * 
+     * @param length The encoded length.
+     * @param head The decoded head word.
+     * @param tail The decoded tail word.
+     * @throws IllegalArgumentException If the name is invalid.
+     */
+    private static void checkPackedName(final int length, final long head, final long tail) throws IllegalArgumentException {
+        final long expectedHead = length >= PackedNames.HEAD_LENGTH ? -1L >>> (Long.SIZE - PackedNames.HEAD_LENGTH * WireCodec.BITS_PER_CHARACTER) : (1L << (length * WireCodec.BITS_PER_CHARACTER)) - 1L;
+        if ((head & ~expectedHead) != 0L || PackedNames.length(head, tail) != length) {
+            throw new IllegalArgumentException("Invalid packed name.");
+        }
+        for (int index = 0; index < length; index++) {
+            if (PackedNames.codeAt(head, tail, index) == 0) {
+                throw new IllegalArgumentException("Invalid packed name.");
+            }
+        }
+    }
+    
+    /**
+     * Writes a name that cannot be packed, in modified UTF-8.
+     * 
+     * @param buffer The {@link ByteBuffer} to write to.
+     * @param name The name.
+     * @throws IllegalArgumentException If the name is empty, or the encoded
+     *                                  name is longer than
+     *                                  {@link WireCodec#MAXIMUM_NAME_BYTES}.
+     */
+    private static void writeOverflowName(@NotNull final ByteBuffer buffer, @NotNull final String name) throws IllegalArgumentException {
+        if (name.isEmpty()) {
+            // An empty name could not be read back.
+            throw new IllegalArgumentException("Name cannot be empty.");
+        }
+        int bytes = 0;
+        for (int index = 0; index < name.length(); index++) {
+            final char character = name.charAt(index);
+            bytes += character >= 0x0001 && character <= 0x007F ? 1 : character <= 0x07FF ? 2 : 3;
+        }
+        if (bytes > WireCodec.MAXIMUM_NAME_BYTES) {
+            throw new IllegalArgumentException("Name is too long to encode: " + bytes + " bytes");
+        }
+        
+        buffer.put((byte) 0);
+        WireCodec.writeVarLong(buffer, bytes);
+        for (int index = 0; index < name.length(); index++) {
+            final char character = name.charAt(index);
+            if (character >= 0x0001 && character <= 0x007F) {
+                buffer.put((byte) character);
+            } else if (character <= 0x07FF) {
+                buffer.put((byte) (0xC0 | (character >> 6)));
+                buffer.put((byte) (0x80 | (character & 0x3F)));
+            } else {
+                buffer.put((byte) (0xE0 | (character >> 12)));
+                buffer.put((byte) (0x80 | ((character >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (character & 0x3F)));
+            }
+        }
+    }
+    
+    /**
+     * Reads a name that cannot be packed, after its zero length byte.
+     * 
+     * @param buffer The {@link ByteBuffer} to read from.
+     * @return The name.
+     * @throws IllegalArgumentException If the encoded name is invalid.
+     */
+    @NotNull
+    private static String readOverflowName(@NotNull final ByteBuffer buffer) throws IllegalArgumentException {
+        final long bytes = WireCodec.readVarLong(buffer);
+        if (bytes <= 0L || bytes > WireCodec.MAXIMUM_NAME_BYTES) {
+            throw new IllegalArgumentException("Invalid name length: " + bytes);
+        }
+        
+        final char[] characters = new char[(int) bytes];
+        int count = 0;
+        int remaining = (int) bytes;
+        while (remaining > 0) {
+            final int first = buffer.get() & 0xFF;
+            if (first < 0x80) {
+                characters[count++] = (char) first;
+                remaining--;
+            } else if ((first & 0xE0) == 0xC0 && remaining >= 2) {
+                characters[count++] = (char) (((first & 0x1F) << 6) | WireCodec.readContinuation(buffer));
+                remaining -= 2;
+            } else if ((first & 0xF0) == 0xE0 && remaining >= 3) {
+                final int second = WireCodec.readContinuation(buffer);
+                characters[count++] = (char) (((first & 0x0F) << 12) | (second << 6) | WireCodec.readContinuation(buffer));
+                remaining -= 3;
+            } else {
+                throw new IllegalArgumentException("Invalid modified UTF-8 in name.");
+            }
+        }
+        return new String(characters, 0, count);
+    }
+    
+    /**
+     * Reads a modified UTF-8 continuation byte.
+     * 
+     * @param buffer The {@link ByteBuffer} to read from.
+     * @return The six payload bits.
+     * @throws IllegalArgumentException If the byte is not a continuation
+     *                                  byte.
+     */
+    private static int readContinuation(@NotNull final ByteBuffer buffer) throws IllegalArgumentException {
+        final int next = buffer.get() & 0xFF;
+        if ((next & 0xC0) != 0x80) {
+            throw new IllegalArgumentException("Invalid modified UTF-8 in name.");
+        }
+        return next & 0x3F;
+    }
+    
+    /**
+     * Encodes a {@link PlayerJoinEvent.JoinType} as a byte. The codes are
+     * fixed, rather than the ordinals, so that they do not change if the
+     * enum does.
+     * 
+     * @param type The {@link PlayerJoinEvent.JoinType}.
+     * @return The code.
+     */
+    private static byte encodeJoinType(@NotNull final PlayerJoinEvent.JoinType type) {
+        switch (type) {
+            case NEW_PLAYER:
+                return WireCodec.NEW_PLAYER;
+            case NAME_CHANGE:
+                return WireCodec.NAME_CHANGE;
+            default:
+                return WireCodec.NORMAL;
+        }
+    }
+    
+    /**
+     * Decodes a {@link PlayerJoinEvent.JoinType} from a byte.
+     * 
+     * @param code The code.
+     * @return The {@link PlayerJoinEvent.JoinType}.
+     * @throws IllegalArgumentException If the code is not recognized.
+     */
+    @NotNull
+    private static PlayerJoinEvent.JoinType decodeJoinType(final byte code) throws IllegalArgumentException {
+        switch (code) {
+            case WireCodec.NORMAL:
+                return PlayerJoinEvent.JoinType.NORMAL;
+            case WireCodec.NEW_PLAYER:
+                return PlayerJoinEvent.JoinType.NEW_PLAYER;
+            case WireCodec.NAME_CHANGE:
+                return PlayerJoinEvent.JoinType.NAME_CHANGE;
+            default:
+                throw new IllegalArgumentException("Unrecognized join type: " + code);
+        }
+    }
+}
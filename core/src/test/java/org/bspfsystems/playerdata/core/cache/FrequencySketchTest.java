@@ -0,0 +1,61 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link FrequencySketch}.
+ */
+final class FrequencySketchTest {
+    
+    @Test
+    void countsUpToFifteen() {
+        final FrequencySketch sketch = new FrequencySketch(1024);
+        Assertions.assertEquals(0, sketch.frequency(1));
+        for (int count = 1; count <= 20; count++) {
+            sketch.increment(1);
+            Assertions.assertEquals(Math.min(count, 15), sketch.frequency(1));
+        }
+        Assertions.assertEquals(0, sketch.frequency(2));
+    }
+    
+    @Test
+    void halvesCountsAfterSample() {
+        // A table of 16 longs, halved after 160 additions.
+        final FrequencySketch sketch = new FrequencySketch(16);
+        for (int count = 0; count < 15; count++) {
+            sketch.increment(1);
+        }
+        for (int hash = 1000; hash < 1144; hash++) {
+            sketch.increment(hash);
+        }
+        Assertions.assertEquals(15, sketch.frequency(1));
+        
+        sketch.increment(1144);
+        Assertions.assertEquals(7, sketch.frequency(1));
+        
+        // A saturated count does not count towards the next sample.
+        for (int count = 0; count < 8; count++) {
+            sketch.increment(1);
+        }
+        Assertions.assertEquals(15, sketch.frequency(1));
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.bspfsystems.playerdata.api.PlayerDataEntry;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.bspfsystems.playerdata.core.store.PackedPlayerDataEntry;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link NearCache}.
+ */
+final class NearCacheTest {
+    
+    private static final UUID FIRST = new UUID(0L, 1L);
+    private static final UUID SECOND = new UUID(0L, 2L);
+    private static final UUID THIRD = new UUID(0L, 3L);
+    
+    private final FakeRemoteLookup remote = new FakeRemoteLookup();
+    private final NearCache cache = new NearCache(this.remote, 100);
+    
+    @Test
+    void coalescesMisses() {
+        final List<CompletableFuture<PlayerDataEntry>> futures = new ArrayList<CompletableFuture<PlayerDataEntry>>();
+        for (int index = 0; index < 5; index++) {
+            futures.add(this.cache.getEntry(NearCacheTest.FIRST));
+        }
+        final List<CompletableFuture<PlayerDataEntry>> named = new ArrayList<CompletableFuture<PlayerDataEntry>>();
+        named.add(this.cache.getEntry("Foo"));
+        named.add(this.cache.getEntry("fOO"));
+        Assertions.assertEquals(1, this.remote.getUniqueIdLookups());
+        Assertions.assertEquals(1, this.remote.getNameLookups());
+        
+        this.remote.answer(NearCacheTest.FIRST, new PackedPlayerDataEntry("Foo", NearCacheTest.FIRST));
+        for (final CompletableFuture<PlayerDataEntry> future : futures) {
+            Assertions.assertEquals(NearCacheTest.FIRST, future.join().getUniqueId());
+        }
+        
+        // The name is now cached, but its own lookup is still answered.
+        Assertions.assertFalse(named.get(0).isDone());
+        this.remote.answer("foo", new PackedPlayerDataEntry("Foo", NearCacheTest.FIRST));
+        Assertions.assertEquals(NearCacheTest.FIRST, named.get(1).join().getUniqueId());
+        
+        Assertions.assertEquals(NearCacheTest.FIRST, this.cache.getEntry("FOO").join().getUniqueId());
+        Assertions.assertEquals(1, this.remote.getUniqueIdLookups());
+        Assertions.assertEquals(1, this.remote.getNameLookups());
+    }
+    
+    @Test
+    void doesNotCacheUnknownOrFailedLookups() {
+        final CompletableFuture<PlayerDataEntry> unknown = this.cache.getEntry(NearCacheTest.FIRST);
+        this.remote.answer(NearCacheTest.FIRST, null);
+        Assertions.assertNull(unknown.join());
+        
+        final CompletableFuture<PlayerDataEntry> failed = this.cache.getEntry("Foo");
+        this.remote.fail("foo");
+        Assertions.assertTrue(failed.isCompletedExceptionally());
+        
+        Assertions.assertEquals(0, this.cache.size());
+        this.cache.getEntry(NearCacheTest.FIRST);
+        Assertions.assertEquals(2, this.remote.getUniqueIdLookups());
+    }
+    
+    @Test
+    void dropsOldNameOnNameChange() {
+        this.cacheEntry(NearCacheTest.FIRST, "Foo");
+        this.cache.onJoin(new PlayerJoinEvent("Bar", "Foo", NearCacheTest.FIRST));
+        
+        Assertions.assertNull(this.cache.getCachedEntry("Foo"));
+        Assertions.assertEquals("Bar", this.cache.getCachedEntry("bar").getName());
+        Assertions.assertEquals("Bar", this.cache.getCachedEntry(NearCacheTest.FIRST).getName());
+        Assertions.assertEquals(1, this.cache.size());
+    }
+    
+    @Test
+    void invalidatesPreviousOwnerOfTakenOverName() {
+        this.cacheEntry(NearCacheTest.FIRST, "Foo");
+        this.cacheEntry(NearCacheTest.SECOND, "Bar");
+        
+        this.cache.onJoin(new PlayerJoinEvent("Foo", "Bar", NearCacheTest.SECOND));
+        Assertions.assertNull(this.cache.getCachedEntry(NearCacheTest.FIRST));
+        Assertions.assertNull(this.cache.getCachedEntry("Bar"));
+        Assertions.assertEquals(NearCacheTest.SECOND, this.cache.getCachedEntry("foo").getUniqueId());
+        
+        this.cache.onJoin(new PlayerJoinEvent("Foo", null, NearCacheTest.THIRD, PlayerJoinEvent.JoinType.NEW_PLAYER));
+        Assertions.assertNull(this.cache.getCachedEntry(NearCacheTest.SECOND));
+        Assertions.assertNull(this.cache.getCachedEntry("Foo"));
+        Assertions.assertEquals(0, this.cache.size());
+    }
+    
+    @Test
+    void ignoresNormalJoin() {
+        this.cacheEntry(NearCacheTest.FIRST, "Foo");
+        final CompletableFuture<PlayerDataEntry> pending = this.cache.getEntry(NearCacheTest.SECOND);
+        this.cache.onJoin(new PlayerJoinEvent("Bar", NearCacheTest.SECOND));
+        this.remote.answer(NearCacheTest.SECOND, new PackedPlayerDataEntry("Bar", NearCacheTest.SECOND));
+        
+        Assertions.assertEquals("Foo", this.cache.getCachedEntry(NearCacheTest.FIRST).getName());
+        Assertions.assertEquals("Bar", pending.join().getName());
+        Assertions.assertEquals(2, this.cache.size());
+    }
+    
+    @Test
+    void cachesLookupsUntouchedByJoin() {
+        final CompletableFuture<PlayerDataEntry> byUniqueId = this.cache.getEntry(NearCacheTest.FIRST);
+        final CompletableFuture<PlayerDataEntry> byName = this.cache.getEntry("Bar");
+        for (int index = 0; index < 10; index++) {
+            this.cache.onJoin(new PlayerJoinEvent("Player" + index, null, new UUID(1L, index), PlayerJoinEvent.JoinType.NEW_PLAYER));
+        }
+        this.remote.answer(NearCacheTest.FIRST, new PackedPlayerDataEntry("Foo", NearCacheTest.FIRST));
+        this.remote.answer("bar", new PackedPlayerDataEntry("Bar", NearCacheTest.SECOND));
+        
+        Assertions.assertEquals("Foo", byUniqueId.join().getName());
+        Assertions.assertEquals("Bar", byName.join().getName());
+        Assertions.assertEquals("Foo", this.cache.getCachedEntry(NearCacheTest.FIRST).getName());
+        Assertions.assertEquals(NearCacheTest.SECOND, this.cache.getCachedEntry("bar").getUniqueId());
+    }
+    
+    @Test
+    void skipsLookupsTouchedByJoin() {
+        // The player changes name while being looked up.
+        final CompletableFuture<PlayerDataEntry> byUniqueId = this.cache.getEntry(NearCacheTest.FIRST);
+        this.cache.onJoin(new PlayerJoinEvent("Bar", "Foo", NearCacheTest.FIRST));
+        this.remote.answer(NearCacheTest.FIRST, new PackedPlayerDataEntry("Foo", NearCacheTest.FIRST));
+        Assertions.assertEquals("Foo", byUniqueId.join().getName());
+        Assertions.assertNull(this.cache.getCachedEntry(NearCacheTest.FIRST));
+        Assertions.assertNull(this.cache.getCachedEntry("Foo"));
+        
+        // The name is taken over while being looked up.
+        final CompletableFuture<PlayerDataEntry> byName = this.cache.getEntry("Baz");
+        this.cache.onJoin(new PlayerJoinEvent("Baz", null, NearCacheTest.THIRD, PlayerJoinEvent.JoinType.NEW_PLAYER));
+        this.remote.answer("baz", new PackedPlayerDataEntry("Baz", NearCacheTest.SECOND));
+        Assertions.assertEquals(NearCacheTest.SECOND, byName.join().getUniqueId());
+        Assertions.assertNull(this.cache.getCachedEntry("Baz"));
+        Assertions.assertNull(this.cache.getCachedEntry(NearCacheTest.SECOND));
+        
+        // The name found by a lookup for an uncached player is taken over.
+        final CompletableFuture<PlayerDataEntry> previous = this.cache.getEntry(NearCacheTest.SECOND);
+        this.cache.onJoin(new PlayerJoinEvent("Qux", null, NearCacheTest.THIRD, PlayerJoinEvent.JoinType.NEW_PLAYER));
+        this.remote.answer(NearCacheTest.SECOND, new PackedPlayerDataEntry("Qux", NearCacheTest.SECOND));
+        Assertions.assertEquals("Qux", previous.join().getName());
+        Assertions.assertNull(this.cache.getCachedEntry("Qux"));
+        Assertions.assertNull(this.cache.getCachedEntry(NearCacheTest.SECOND));
+        
+        // Once nothing is in flight, the same lookups are cached again.
+        this.cacheEntry(NearCacheTest.SECOND, "Baz");
+        Assertions.assertEquals(NearCacheTest.SECOND, this.cache.getCachedEntry("baz").getUniqueId());
+    }
+    
+    @Test
+    void skipsLookupsInFlightWhenCleared() {
+        this.cacheEntry(NearCacheTest.FIRST, "Foo");
+        final CompletableFuture<PlayerDataEntry> pending = this.cache.getEntry(NearCacheTest.SECOND);
+        this.cache.clear();
+        this.remote.answer(NearCacheTest.SECOND, new PackedPlayerDataEntry("Bar", NearCacheTest.SECOND));
+        
+        Assertions.assertEquals("Bar", pending.join().getName());
+        Assertions.assertEquals(0, this.cache.size());
+        Assertions.assertNull(this.cache.getCachedEntry("Foo"));
+    }
+    
+    /**
+     * Caches an entry by looking it up through the {@link NearCache}.
+     * 
+     * @param uniqueId The {@link UUID} of the player.
+     * @param name The name of the player.
+     */
+    private void cacheEntry(@NotNull final UUID uniqueId, @NotNull final String name) {
+        final CompletableFuture<PlayerDataEntry> future = this.cache.getEntry(uniqueId);
+        this.remote.answer(uniqueId, new PackedPlayerDataEntry(name, uniqueId));
+        Assertions.assertEquals(name, future.join().getName());
+        Assertions.assertEquals(uniqueId, this.cache.getCachedEntry(uniqueId).getUniqueId());
+    }
+    
+    /**
+     * A {@link RemoteLookup} that is answered by the test.
+     */
+    private static final class FakeRemoteLookup implements RemoteLookup {
+        
+        private final Map<UUID, CompletableFuture<PlayerDataEntry>> uniqueIds;
+        private final Map<String, CompletableFuture<PlayerDataEntry>> names;
+        private int uniqueIdLookups;
+        private int nameLookups;
+        
+        private FakeRemoteLookup() {
+            this.uniqueIds = new HashMap<UUID, CompletableFuture<PlayerDataEntry>>();
+            this.names = new HashMap<String, CompletableFuture<PlayerDataEntry>>();
+        }
+        
+        @NotNull
+        @Override
+        public CompletableFuture<PlayerDataEntry> lookup(@NotNull final UUID uniqueId) {
+            this.uniqueIdLookups++;
+            final CompletableFuture<PlayerDataEntry> future = new CompletableFuture<PlayerDataEntry>();
+            Assertions.assertNull(this.uniqueIds.put(uniqueId, future));
+            return future;
+        }
+        
+        @NotNull
+        @Override
+        public CompletableFuture<PlayerDataEntry> lookup(@NotNull final String name) {
+            this.nameLookups++;
+            final CompletableFuture<PlayerDataEntry> future = new CompletableFuture<PlayerDataEntry>();
+            Assertions.assertNull(this.names.put(name.toLowerCase(Locale.ROOT), future));
+            return future;
+        }
+        
+        /**
+         * Answers the lookup in flight for the given {@link UUID}.
+         * 
+         * @param uniqueId The {@link UUID} that was looked up.
+         * @param entry The {@link PlayerDataEntry} found, or
+         *              <code>null</code> if there is none.
+         */
+        private void answer(@NotNull final UUID uniqueId, final PlayerDataEntry entry) {
+            this.uniqueIds.remove(uniqueId).complete(entry);
+        }
+        
+        /**
+         * Answers the lookup in flight for the given name.
+         * 
+         * @param name The lower case name that was looked up.
+         * @param entry The {@link PlayerDataEntry} found, or
+         *              <code>null</code> if there is none.
+         */
+        private void answer(@NotNull final String name, final PlayerDataEntry entry) {
+            this.names.remove(name).complete(entry);
+        }
+        
+        /**
+         * Fails the lookup in flight for the given name.
+         * 
+         * @param name The lower case name that was looked up.
+         */
+        private void fail(@NotNull final String name) {
+            this.names.remove(name).completeExceptionally(new IllegalStateException("Lookup failed."));
+        }
+        
+        private int getUniqueIdLookups() {
+            return this.uniqueIdLookups;
+        }
+        
+        private int getNameLookups() {
+            return this.nameLookups;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link WTinyLfuCache}.
+ */
+final class WTinyLfuCacheTest {
+    
+    // A window of 1 entry and a protected segment of up to 79 entries.
+    private static final int MAXIMUM_SIZE = 100;
+    
+    private final List<Integer> evicted = new ArrayList<Integer>();
+    private final WTinyLfuCache<Integer, String> cache = new WTinyLfuCache<Integer, String>(WTinyLfuCacheTest.MAXIMUM_SIZE, (key, value) -> this.evicted.add(key));
+    
+    @Test
+    void evictsOnlyWhenFull() {
+        this.fill();
+        Assertions.assertEquals(WTinyLfuCacheTest.MAXIMUM_SIZE, this.cache.size());
+        Assertions.assertTrue(this.evicted.isEmpty());
+        
+        this.cache.put(WTinyLfuCacheTest.MAXIMUM_SIZE, "new");
+        Assertions.assertEquals(WTinyLfuCacheTest.MAXIMUM_SIZE, this.cache.size());
+        Assertions.assertEquals(1, this.evicted.size());
+    }
+    
+    @Test
+    void rejectsCandidateLessFrequentThanVictim() {
+        for (int key = 0; key < WTinyLfuCacheTest.MAXIMUM_SIZE - 1; key++) {
+            this.cache.get(key);
+            this.cache.get(key);
+        }
+        this.fill();
+        
+        // Entry 99 leaves the window with a frequency of 1, while entry 0 on
+        // probation has a frequency of 3.
+        this.cache.put(WTinyLfuCacheTest.MAXIMUM_SIZE, "new");
+        Assertions.assertEquals(this.keys(99), this.evicted);
+        Assertions.assertEquals("0", this.cache.peek(0));
+    }
+    
+    @Test
+    void admitsCandidateMoreFrequentThanVictim() {
+        this.fill();
+        this.putFrequently(100);
+        this.putFrequently(101);
+        
+        // Entry 99 ties with entry 0 and is rejected, then entry 100 beats it.
+        Assertions.assertEquals(this.keys(99, 0), this.evicted);
+        Assertions.assertEquals("100", this.cache.peek(100));
+        Assertions.assertEquals("101", this.cache.peek(101));
+    }
+    
+    @Test
+    void promotesProbationHitToProtected() {
+        this.fill();
+        Assertions.assertEquals("0", this.cache.get(0));
+        
+        // Frequent candidates take every entry on probation, but not the
+        // protected entry, even though it is less frequent than them.
+        for (int key = 100; key < 200; key++) {
+            this.putFrequently(key);
+        }
+        Assertions.assertEquals("0", this.cache.peek(0));
+        for (int key = 1; key < 100; key++) {
+            Assertions.assertNull(this.cache.peek(key));
+        }
+        Assertions.assertEquals(WTinyLfuCacheTest.MAXIMUM_SIZE, this.cache.size());
+    }
+    
+    @Test
+    void demotesLeastRecentProtectedEntry() {
+        this.fill();
+        for (int key = 0; key < 80; key++) {
+            this.cache.get(key);
+        }
+        
+        // Promoting entry 79 overflows the protected segment and demotes
+        // entry 0 behind the entries still on probation.
+        for (int key = 100; key < 121; key++) {
+            this.putFrequently(key);
+        }
+        final List<Integer> expected = this.keys(99);
+        for (int key = 80; key < 99; key++) {
+            expected.add(key);
+        }
+        expected.add(0);
+        Assertions.assertEquals(expected, this.evicted);
+        for (int key = 1; key < 80; key++) {
+            Assertions.assertEquals(String.valueOf(key), this.cache.peek(key));
+        }
+    }
+    
+    @Test
+    void removesAndClears() {
+        this.fill();
+        Assertions.assertEquals("5", this.cache.remove(5));
+        Assertions.assertNull(this.cache.remove(5));
+        Assertions.assertNull(this.cache.get(5));
+        Assertions.assertEquals(WTinyLfuCacheTest.MAXIMUM_SIZE - 1, this.cache.size());
+        
+        this.cache.clear();
+        Assertions.assertEquals(0, this.cache.size());
+        this.fill();
+        Assertions.assertEquals(WTinyLfuCacheTest.MAXIMUM_SIZE, this.cache.size());
+        Assertions.assertTrue(this.evicted.isEmpty());
+    }
+    
+    /**
+     * Fills the cache with the entries <code>0</code> to <code>99</code>, in
+     * order, leaving entry <code>99</code> in the window and the rest on
+     * probation.
+     */
+    private void fill() {
+        for (int key = 0; key < WTinyLfuCacheTest.MAXIMUM_SIZE; key++) {
+            this.cache.put(key, String.valueOf(key));
+        }
+    }
+    
+    /**
+     * Puts the given entry after looking it up often enough to give it a
+     * frequency of 5.
+     * 
+     * @param key The key of the entry.
+     */
+    private void putFrequently(final int key) {
+        for (int count = 0; count < 4; count++) {
+            this.cache.get(key);
+        }
+        this.cache.put(key, String.valueOf(key));
+    }
+    
+    /**
+     * Creates a mutable {@link List} of the given keys.
+     * 
+     * @param keys The keys.
+     * @return The {@link List} of keys.
+     */
+    @NotNull
+    private List<Integer> keys(final int... keys) {
+        final List<Integer> list = new ArrayList<Integer>();
+        for (final int key : keys) {
+            list.add(key);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Tests for the {@link JoinEventDispatcher}.
+ */
+@Timeout(60)
+final class JoinEventDispatcherTest {
+    
+    private static final Logger LOGGER = Logger.getLogger(JoinEventDispatcherTest.class.getName());
+    
+    @Test
+    void deliversEventsInOrder() {
+        final JoinEventDispatcher dispatcher = new JoinEventDispatcher(JoinEventDispatcherTest.LOGGER, 16, 4);
+        final List<PlayerJoinEvent> delivered = new ArrayList<PlayerJoinEvent>();
+        final List<Integer> batches = new ArrayList<Integer>();
+        dispatcher.addListener(delivered::add);
+        dispatcher.addBatchListener(events -> batches.add(events.size()));
+        dispatcher.open();
+        
+        final List<PlayerJoinEvent> events = new ArrayList<PlayerJoinEvent>();
+        for (int index = 0; index < 100; index++) {
+            final PlayerJoinEvent event = new PlayerJoinEvent("Player" + index, new UUID(0L, index));
+            events.add(event);
+            Assertions.assertDoesNotThrow(() -> Assertions.assertTrue(dispatcher.dispatch(event, 10L, TimeUnit.SECONDS)));
+        }
+        dispatcher.close();
+        
+        Assertions.assertEquals(events, delivered);
+        for (final int size : batches) {
+            Assertions.assertTrue(size >= 1 && size <= 4, "Invalid batch size: " + size);
+        }
+    }
+    
+    @Test
+    void rejectsEventsWhenNotOpen() {
+        final JoinEventDispatcher dispatcher = new JoinEventDispatcher(JoinEventDispatcherTest.LOGGER, 16, 4);
+        final PlayerJoinEvent event = new PlayerJoinEvent("Player", new UUID(0L, 1L));
+        Assertions.assertThrows(IllegalStateException.class, () -> dispatcher.tryDispatch(event));
+        dispatcher.open();
+        dispatcher.close();
+        Assertions.assertThrows(IllegalStateException.class, () -> dispatcher.tryDispatch(event));
+    }
+    
+    @Test
+    void deliversEveryAcceptedEventWhenClosedConcurrently() throws InterruptedException {
+        for (int round = 0; round < 200; round++) {
+            final JoinEventDispatcher dispatcher = new JoinEventDispatcher(JoinEventDispatcherTest.LOGGER, 1024, 64);
+            final AtomicInteger delivered = new AtomicInteger();
+            final AtomicInteger accepted = new AtomicInteger();
+            dispatcher.addListener(event -> delivered.incrementAndGet());
+            dispatcher.open();
+            
+            final CountDownLatch started = new CountDownLatch(4);
+            final Thread[] producers = new Thread[4];
+            for (int thread = 0; thread < producers.length; thread++) {
+                producers[thread] = new Thread(() -> {
+                    final PlayerJoinEvent event = new PlayerJoinEvent("Player", UUID.randomUUID());
+                    started.countDown();
+                    try {
+                        while (true) {
+                            if (dispatcher.tryDispatch(event)) {
+                                accepted.incrementAndGet();
+                            }
+                        }
+                    } catch (IllegalStateException e) {
+                        // Closed.
+                    }
+                });
+                producers[thread].start();
+            }
+            started.await();
+            dispatcher.close();
+            for (final Thread producer : producers) {
+                producer.join();
+            }
+            Assertions.assertEquals(accepted.get(), delivered.get(), "Round " + round);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.history;
+
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link NameHistory}.
+ */
+final class NameHistoryTest {
+    
+    private static final UUID FIRST = new UUID(0L, 1L);
+    private static final UUID SECOND = new UUID(0L, 2L);
+    
+    @Test
+    void findsOwnerOfTakenOverName() {
+        final NameHistory history = new NameHistory();
+        history.onNewPlayer(NameHistoryTest.FIRST, "Foo", 10L);
+        history.onNewPlayer(NameHistoryTest.SECOND, "Foo", 20L);
+        
+        Assertions.assertNull(history.getUniqueIdAt("foo", 5L));
+        Assertions.assertEquals(NameHistoryTest.FIRST, history.getUniqueIdAt("foo", 15L));
+        Assertions.assertEquals(NameHistoryTest.SECOND, history.getUniqueIdAt("FOO", 20L));
+        Assertions.assertEquals(NameHistoryTest.SECOND, history.getUniqueIdAt("Foo", 30L));
+    }
+    
+    @Test
+    void findsOwnerOfNameTakenOverAfterChange() {
+        final NameHistory history = new NameHistory();
+        history.onNewPlayer(NameHistoryTest.FIRST, "Foo", 10L);
+        history.onNameChange(NameHistoryTest.SECOND, "Bar", "Foo", 20L);
+        history.onNameChange(NameHistoryTest.FIRST, "Foo", "Baz", 30L);
+        
+        Assertions.assertEquals(NameHistoryTest.FIRST, history.getUniqueIdAt("Foo", 15L));
+        Assertions.assertEquals(NameHistoryTest.SECOND, history.getUniqueIdAt("Foo", 25L));
+        Assertions.assertEquals(NameHistoryTest.SECOND, history.getUniqueIdAt("Foo", 35L));
+        Assertions.assertEquals(NameHistoryTest.SECOND, history.getUniqueIdAt("Bar", 15L));
+        Assertions.assertNull(history.getUniqueIdAt("Bar", 25L));
+    }
+    
+    @Test
+    void recordsPreviousNameWithUnknownStart() {
+        final NameHistory history = new NameHistory();
+        history.onNameChange(NameHistoryTest.FIRST, "Old", "New", 50L);
+        
+        final List<NameInterval> intervals = history.getHistory(NameHistoryTest.FIRST);
+        Assertions.assertEquals(2, intervals.size());
+        Assertions.assertEquals("Old", intervals.get(0).getName());
+        Assertions.assertEquals(NameHistory.UNKNOWN, intervals.get(0).getFromMillis());
+        Assertions.assertEquals(50L, intervals.get(0).getUntilMillis());
+        Assertions.assertNull(intervals.get(0).getValidFrom());
+        Assertions.assertEquals("New", intervals.get(1).getName());
+        Assertions.assertEquals(NameHistory.CURRENT, intervals.get(1).getUntilMillis());
+        Assertions.assertNull(intervals.get(1).getValidUntil());
+        Assertions.assertEquals(NameHistoryTest.FIRST, history.getUniqueIdAt("Old", Long.MIN_VALUE));
+        Assertions.assertEquals(NameHistoryTest.FIRST, history.getUniqueIdAt("New", 50L));
+        
+        // A later change does not add another name with an unknown start.
+        history.onNameChange(NameHistoryTest.FIRST, "New", "Newer", 60L);
+        Assertions.assertEquals(3, history.getHistory(NameHistoryTest.FIRST).size());
+        Assertions.assertEquals("Old", history.getHistory(NameHistoryTest.FIRST).get(0).getName());
+    }
+    
+    @Test
+    void recordsChangeInSameMillisecondAsFirstName() {
+        final NameHistory history = new NameHistory();
+        history.onNewPlayer(NameHistoryTest.FIRST, "Old", 50L);
+        history.onNameChange(NameHistoryTest.FIRST, "Old", "New", 50L);
+        
+        final List<NameInterval> intervals = history.getHistory(NameHistoryTest.FIRST);
+        Assertions.assertEquals(2, intervals.size());
+        Assertions.assertEquals("Old", intervals.get(0).getName());
+        Assertions.assertEquals(50L, intervals.get(0).getFromMillis());
+        Assertions.assertEquals("New", intervals.get(1).getName());
+        Assertions.assertEquals(NameHistoryTest.FIRST, history.getUniqueIdAt("New", 50L));
+        Assertions.assertNull(history.getUniqueIdAt("Old", 49L));
+    }
+    
+    @Test
+    void recordsOutOfOrder() {
+        final NameHistory history = new NameHistory();
+        history.record(NameHistoryTest.FIRST, "Third", 30L);
+        history.record(NameHistoryTest.FIRST, "First", 10L);
+        history.record(NameHistoryTest.FIRST, "Second", 20L);
+        
+        final List<NameInterval> intervals = history.getHistory(NameHistoryTest.FIRST);
+        Assertions.assertEquals(3, intervals.size());
+        Assertions.assertEquals("First", intervals.get(0).getName());
+        Assertions.assertEquals(20L, intervals.get(0).getUntilMillis());
+        Assertions.assertEquals("Second", intervals.get(1).getName());
+        Assertions.assertEquals(30L, intervals.get(1).getUntilMillis());
+        Assertions.assertEquals("Third", intervals.get(2).getName());
+        Assertions.assertEquals(NameHistoryTest.FIRST, history.getUniqueIdAt("Second", 25L));
+        Assertions.assertNull(history.getUniqueIdAt("Second", 30L));
+        
+        // Replaying the same changes changes nothing.
+        history.record(NameHistoryTest.FIRST, "Second", 20L);
+        history.record(NameHistoryTest.FIRST, "Third", 30L);
+        Assertions.assertEquals(3, history.getHistory(NameHistoryTest.FIRST).size());
+        
+        // An earlier start for the next name moves its start back.
+        history.record(NameHistoryTest.FIRST, "Third", 25L);
+        Assertions.assertEquals(25L, history.getHistory(NameHistoryTest.FIRST).get(1).getUntilMillis());
+        Assertions.assertEquals(1, history.size());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the {@link ImportSource ImportSources}.
+ */
+final class ImportSourceTest {
+    
+    private static final UUID FIRST = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+    private static final UUID SECOND = UUID.fromString("853c80ef-3c37-49fd-aa49-938b674adae6");
+    
+    @Test
+    void readsUserCache(@TempDir final Path directory) throws IOException {
+        final File file = ImportSourceTest.write(directory, "usercache.json", "["
+                + "{\"name\":\"Notch\",\"uuid\":\"" + ImportSourceTest.FIRST + "\",\"expiresOn\":\"2021-07-01 12:00:00 +0000\"},"
+                + "{\"name\":\"jeb_\",\"uuid\":\"not-a-uuid\",\"expiresOn\":\"2021-07-01 12:00:00 +0000\"},"
+                + "{\"uuid\":\"" + ImportSourceTest.SECOND + "\"},"
+                + "{\"name\":\"jeb_\",\"uuid\":\"" + ImportSourceTest.SECOND + "\",\"expiresOn\":\"soon\"}"
+                + "]");
+        Assertions.assertTrue(ImportSource.USER_CACHE.accepts(file.getName()));
+        
+        final RecordBatch batch = new RecordBatch(0);
+        ImportSource.USER_CACHE.read(file, batch);
+        Assertions.assertEquals(2, batch.size());
+        Assertions.assertEquals(ImportSourceTest.FIRST, batch.getUniqueId(0));
+        Assertions.assertEquals("Notch", batch.getName(0));
+        Assertions.assertEquals(ZonedDateTime.parse("2021-06-01T12:00:00Z").toInstant().toEpochMilli(), batch.getLastSeen(0));
+        Assertions.assertEquals(ImportSourceTest.SECOND, batch.getUniqueId(1));
+        Assertions.assertEquals("jeb_", batch.getName(1));
+        Assertions.assertEquals(0L, batch.getLastSeen(1));
+    }
+    
+    @Test
+    void readsPlayerData(@TempDir final Path directory) throws IOException {
+        final File file = ImportSourceTest.write(directory, ImportSourceTest.FIRST + ".dat", "");
+        Assertions.assertTrue(file.setLastModified(1600000000000L));
+        Assertions.assertTrue(ImportSource.PLAYER_DATA.accepts(file.getName()));
+        Assertions.assertFalse(ImportSource.PLAYER_DATA.accepts(ImportSourceTest.FIRST + ".dat_old"));
+        
+        final RecordBatch batch = new RecordBatch(0);
+        ImportSource.PLAYER_DATA.read(file, batch);
+        Assertions.assertEquals(1, batch.size());
+        Assertions.assertEquals(ImportSourceTest.FIRST, batch.getUniqueId(0));
+        Assertions.assertNull(batch.getName(0));
+        Assertions.assertEquals(1600000000000L, batch.getLastSeen(0));
+        
+        final File invalid = ImportSourceTest.write(directory, "level.dat", "");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ImportSource.PLAYER_DATA.read(invalid, batch));
+    }
+    
+    @Test
+    void readsUserData(@TempDir final Path directory) throws IOException {
+        final File current = ImportSourceTest.write(directory, ImportSourceTest.FIRST + ".yml", ""
+                + "# Essentials user data\n"
+                + "money: '100'\n"
+                + "last-account-name: \"Notch\"\n"
+                + "timestamps:\n"
+                + "  login: 1600000000000\n"
+                + "  logout: 1600000500000\n"
+                + "  lastteleport: 1700000000000\n"
+                + "ipAddress: 127.0.0.1\n"
+                + "  login: 1800000000000\n");
+        final File legacy = ImportSourceTest.write(directory, ImportSourceTest.SECOND + ".yml", ""
+                + "lastAccountName: jeb_\n"
+                + "timestamps:\n"
+                + "  login: never\n");
+        Assertions.assertTrue(legacy.setLastModified(1500000000000L));
+        Assertions.assertTrue(ImportSource.USER_DATA.accepts(current.getName()));
+        
+        final RecordBatch batch = new RecordBatch(0);
+        ImportSource.USER_DATA.read(current, batch);
+        ImportSource.USER_DATA.read(legacy, batch);
+        Assertions.assertEquals(2, batch.size());
+        Assertions.assertEquals(ImportSourceTest.FIRST, batch.getUniqueId(0));
+        Assertions.assertEquals("Notch", batch.getName(0));
+        Assertions.assertEquals(1600000500000L, batch.getLastSeen(0));
+        Assertions.assertEquals(ImportSourceTest.SECOND, batch.getUniqueId(1));
+        Assertions.assertEquals("jeb_", batch.getName(1));
+        Assertions.assertEquals(1500000000000L, batch.getLastSeen(1));
+    }
+    
+    /**
+     * Writes a file in the given directory.
+     * 
+     * @param directory The directory.
+     * @param name The name of the file.
+     * @param text The contents of the file.
+     * @return The file.
+     * @throws IOException If the file cannot be written.
+     */
+    private static File write(final Path directory, final String name, final String text) throws IOException {
+        return Files.write(directory.resolve(name), text.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+}
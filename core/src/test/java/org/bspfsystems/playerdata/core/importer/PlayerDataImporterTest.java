@@ -0,0 +1,86 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import org.bspfsystems.playerdata.api.PlayerDataEntry;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the {@link PlayerDataImporter}.
+ */
+final class PlayerDataImporterTest {
+    
+    private static final Logger LOGGER = Logger.getLogger(PlayerDataImporterTest.class.getName());
+    private static final UUID FIRST = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+    private static final UUID SECOND = UUID.fromString("853c80ef-3c37-49fd-aa49-938b674adae6");
+    
+    @Test
+    void importsServer(@TempDir final Path directory) throws IOException {
+        // The user cache has an old name, the world was saved later, and
+        // Essentials has the newer name from a login in between.
+        PlayerDataImporterTest.write(directory.resolve("usercache.json"), "["
+                + "{\"name\":\"Old\",\"uuid\":\"" + PlayerDataImporterTest.FIRST + "\",\"expiresOn\":\"2020-10-13 12:26:40 +0000\"}"
+                + "]");
+        PlayerDataImporterTest.write(directory.resolve("world/level.dat"), "");
+        final File saved = PlayerDataImporterTest.write(directory.resolve("world/playerdata/" + PlayerDataImporterTest.FIRST + ".dat"), "");
+        Assertions.assertTrue(saved.setLastModified(1700000000000L));
+        final File unnamed = PlayerDataImporterTest.write(directory.resolve("world/playerdata/" + PlayerDataImporterTest.SECOND + ".dat"), "");
+        Assertions.assertTrue(unnamed.setLastModified(1700000000000L));
+        PlayerDataImporterTest.write(directory.resolve("plugins/Essentials/userdata/" + PlayerDataImporterTest.FIRST + ".yml"), ""
+                + "last-account-name: New\n"
+                + "timestamps:\n"
+                + "  logout: 1650000000000\n");
+        
+        final PlayerDataImporter importer = new PlayerDataImporter(PlayerDataImporterTest.LOGGER, ForkJoinPool.commonPool());
+        importer.addServer(directory.toFile());
+        final PlayerDataStore store = new PlayerDataStore();
+        Assertions.assertEquals(1, importer.importInto(store));
+        
+        final PlayerDataEntry entry = store.getEntry(PlayerDataImporterTest.FIRST);
+        Assertions.assertNotNull(entry);
+        Assertions.assertEquals("New", entry.getName());
+        Assertions.assertEquals(1700000000000L, entry.getLastSeen().toEpochMilli());
+        Assertions.assertNull(store.getUniqueId("Old"));
+        Assertions.assertNull(store.getEntry(PlayerDataImporterTest.SECOND));
+    }
+    
+    /**
+     * Writes a file, creating its parent directories.
+     * 
+     * @param path The path of the file.
+     * @param text The contents of the file.
+     * @return The file.
+     * @throws IOException If the file cannot be written.
+     */
+    private static File write(final Path path, final String text) throws IOException {
+        Files.createDirectories(path.getParent());
+        return Files.write(path, text.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link RecordBatch}.
+ */
+final class RecordBatchTest {
+    
+    private static final UUID FIRST = new UUID(0L, 1L);
+    private static final UUID SECOND = new UUID(0L, 2L);
+    private static final UUID THIRD = new UUID(-1L, 3L);
+    
+    @Test
+    void sortsAndCombinesDuplicates() {
+        final RecordBatch batch = new RecordBatch(0);
+        batch.add(RecordBatchTest.SECOND, "Alex", 300L, 400L);
+        batch.add(RecordBatchTest.FIRST, null, 0L, 900L);
+        batch.add(RecordBatchTest.THIRD, "Notch", 0L, 0L);
+        batch.add(RecordBatchTest.FIRST, "Steve", 100L, 200L);
+        batch.add(RecordBatchTest.SECOND, null, 250L, 0L);
+        batch.add(RecordBatchTest.FIRST, "Herobrine", 0L, 500L);
+        
+        final RecordBatch sorted = batch.sorted();
+        Assertions.assertEquals(3, sorted.size());
+        Assertions.assertEquals(RecordBatchTest.THIRD, sorted.getUniqueId(0));
+        Assertions.assertEquals(RecordBatchTest.FIRST, sorted.getUniqueId(1));
+        Assertions.assertEquals(RecordBatchTest.SECOND, sorted.getUniqueId(2));
+        
+        Assertions.assertEquals("Herobrine", sorted.getName(1));
+        Assertions.assertEquals(100L, sorted.getFirstSeen(1));
+        Assertions.assertEquals(900L, sorted.getLastSeen(1));
+        Assertions.assertEquals("Alex", sorted.getName(2));
+        Assertions.assertEquals(250L, sorted.getFirstSeen(2));
+        Assertions.assertEquals(400L, sorted.getLastSeen(2));
+        Assertions.assertEquals("Notch", sorted.getName(0));
+        Assertions.assertEquals(0L, sorted.getFirstSeen(0));
+    }
+    
+    @Test
+    void mergesSortedBatches() {
+        final RecordBatch first = new RecordBatch(2);
+        first.add(RecordBatchTest.FIRST, "Steve", 0L, 100L);
+        first.add(RecordBatchTest.SECOND, "Alex", 0L, 300L);
+        final RecordBatch second = new RecordBatch(2);
+        second.add(RecordBatchTest.THIRD, "Notch", 0L, 50L);
+        second.add(RecordBatchTest.FIRST, "Herobrine", 0L, 200L);
+        
+        final RecordBatch merged = RecordBatch.merge(first.sorted(), second.sorted());
+        Assertions.assertEquals(3, merged.size());
+        Assertions.assertEquals(RecordBatchTest.THIRD, merged.getUniqueId(0));
+        Assertions.assertEquals("Herobrine", merged.getName(1));
+        Assertions.assertEquals(200L, merged.getLastSeen(1));
+        Assertions.assertEquals("Alex", merged.getName(2));
+    }
+    
+    @Test
+    void keepsNameSeenLastInAnyOrder() {
+        // A user cache entry, a .dat file saved later, and an Essentials file
+        // with a newer name, as the same player in three sources.
+        final List<RecordBatch> records = new ArrayList<RecordBatch>();
+        records.add(RecordBatchTest.single("Old", 10L));
+        records.add(RecordBatchTest.single(null, 50L));
+        records.add(RecordBatchTest.single("New", 30L));
+        
+        final int[][] orders = {{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}};
+        for (final int[] order : orders) {
+            RecordBatch merged = records.get(order[0]);
+            for (int index = 1; index < order.length; index++) {
+                merged = RecordBatch.merge(merged, records.get(order[index]));
+            }
+            Assertions.assertEquals(1, merged.size());
+            Assertions.assertEquals("New", merged.getName(0), "Order " + order[0] + order[1] + order[2]);
+            Assertions.assertEquals(50L, merged.getLastSeen(0));
+            
+            final RecordBatch batch = new RecordBatch(3);
+            for (final int index : order) {
+                batch.add(RecordBatchTest.FIRST, records.get(index).getName(0), 0L, records.get(index).getLastSeen(0));
+            }
+            Assertions.assertEquals("New", batch.sorted().getName(0), "Order " + order[0] + order[1] + order[2]);
+        }
+    }
+    
+    @Test
+    void mergesLargeBatches() {
+        final Random random = new Random(0x5EEDL);
+        final RecordBatch first = new RecordBatch(0);
+        final RecordBatch second = new RecordBatch(0);
+        for (int index = 0; index < 5000; index++) {
+            final UUID uniqueId = new UUID(random.nextInt(100), random.nextInt(20));
+            (random.nextBoolean() ? first : second).add(uniqueId, "p" + index, 0L, index);
+        }
+        
+        final RecordBatch merged = RecordBatch.merge(first.sorted(), second.sorted());
+        for (int index = 1; index < merged.size(); index++) {
+            Assertions.assertTrue(merged.getUniqueId(index - 1).compareTo(merged.getUniqueId(index)) < 0);
+        }
+        for (int index = 0; index < merged.size(); index++) {
+            Assertions.assertEquals("p" + merged.getLastSeen(index), merged.getName(index));
+        }
+    }
+    
+    /**
+     * Creates a sorted {@link RecordBatch} holding one record of the first
+     * player.
+     * 
+     * @param name The name, or <code>null</code>.
+     * @param lastSeen The last seen time.
+     * @return The {@link RecordBatch}.
+     */
+    private static RecordBatch single(final String name, final long lastSeen) {
+        final RecordBatch batch = new RecordBatch(1);
+        batch.add(RecordBatchTest.FIRST, name, 0L, lastSeen);
+        return batch.sorted();
+    }
+}
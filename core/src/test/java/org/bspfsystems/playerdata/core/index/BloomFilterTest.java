@@ -0,0 +1,140 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.index;
+
+import java.nio.LongBuffer;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link BloomFilter}.
+ */
+final class BloomFilterTest {
+    
+    private static final int KEYS = 20000;
+    
+    @Test
+    void hasNoFalseNegatives() {
+        final Random random = new Random(0x5EEDL);
+        final BloomFilter filter = new BloomFilter(BloomFilterTest.KEYS * 2);
+        final UUID[] uniqueIds = new UUID[BloomFilterTest.KEYS];
+        final String[] names = new String[BloomFilterTest.KEYS];
+        for (int index = 0; index < BloomFilterTest.KEYS; index++) {
+            uniqueIds[index] = new UUID(random.nextLong(), random.nextLong());
+            names[index] = BloomFilterTest.name(random, index);
+            filter.putUniqueId(uniqueIds[index].getMostSignificantBits(), uniqueIds[index].getLeastSignificantBits());
+            filter.putName(names[index]);
+        }
+        
+        for (int index = 0; index < BloomFilterTest.KEYS; index++) {
+            Assertions.assertTrue(filter.mightContainUniqueId(uniqueIds[index].getMostSignificantBits(), uniqueIds[index].getLeastSignificantBits()));
+            Assertions.assertTrue(filter.mightContainName(names[index]), names[index]);
+            Assertions.assertTrue(filter.mightContainName(names[index].toLowerCase(Locale.ROOT)), names[index]);
+            Assertions.assertTrue(filter.mightContainName(names[index].toUpperCase(Locale.ROOT)), names[index]);
+        }
+    }
+    
+    @Test
+    void boundsFalsePositiveRate() {
+        final Random random = new Random(0x5EEDL);
+        final BloomFilter filter = new BloomFilter(BloomFilterTest.KEYS);
+        for (int index = 0; index < BloomFilterTest.KEYS / 2; index++) {
+            filter.putUniqueId(random.nextLong(), random.nextLong());
+            filter.putName(BloomFilterTest.name(random, index));
+        }
+        
+        int uniqueIds = 0;
+        int names = 0;
+        final int checks = 100000;
+        for (int index = 0; index < checks; index++) {
+            if (filter.mightContainUniqueId(random.nextLong(), random.nextLong())) {
+                uniqueIds++;
+            }
+            if (filter.mightContainName("Absent" + index)) {
+                names++;
+            }
+        }
+        
+        // About 1% at 10 bits per key.
+        Assertions.assertTrue(uniqueIds < checks / 50, "UUID false positives: " + uniqueIds);
+        Assertions.assertTrue(names < checks / 50, "Name false positives: " + names);
+    }
+    
+    @Test
+    void reloadsFromWords() {
+        final Random random = new Random(0x5EEDL);
+        final BloomFilter filter = new BloomFilter(1000);
+        for (int index = 0; index < 1000; index++) {
+            filter.putUniqueId(random.nextLong(), random.nextLong());
+            filter.putName(BloomFilterTest.name(random, index));
+        }
+        
+        final LongBuffer words = filter.getWords();
+        Assertions.assertTrue(words.isReadOnly());
+        Assertions.assertEquals(BloomFilter.getWordCount(1000), words.capacity());
+        final long[] copy = new long[words.capacity()];
+        words.get(copy);
+        final BloomFilter reloaded = new BloomFilter(LongBuffer.wrap(copy));
+        
+        for (int index = 0; index < 20000; index++) {
+            final long mostSigBits = random.nextLong();
+            final long leastSigBits = index < 10000 ? random.nextLong() : index;
+            Assertions.assertEquals(filter.mightContainUniqueId(mostSigBits, leastSigBits), reloaded.mightContainUniqueId(mostSigBits, leastSigBits));
+            final String name = BloomFilterTest.name(random, index);
+            Assertions.assertEquals(filter.mightContainName(name), reloaded.mightContainName(name));
+        }
+    }
+    
+    @Test
+    void sizesByBlock() {
+        Assertions.assertEquals(8, BloomFilter.getWordCount(0));
+        Assertions.assertEquals(8, BloomFilter.getWordCount(51));
+        Assertions.assertEquals(16, BloomFilter.getWordCount(52));
+        Assertions.assertTrue(BloomFilter.getWordCount(Integer.MAX_VALUE) % 8 == 0);
+        
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BloomFilter(LongBuffer.allocate(0)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BloomFilter(LongBuffer.allocate(12)));
+    }
+    
+    /**
+     * Creates a random name, either packable or not.
+     * 
+     * @param random The {@link Random} to use.
+     * @param index A number to make the name unique.
+     * @return The name.
+     */
+    @NotNull
+    private static String name(final Random random, final int index) {
+        final StringBuilder builder = new StringBuilder();
+        final int length = 1 + random.nextInt(8);
+        for (int character = 0; character < length; character++) {
+            builder.append((char) ((random.nextBoolean() ? 'a' : 'A') + random.nextInt(26)));
+        }
+        builder.append(index);
+        if (index % 4 == 0) {
+            // Not packable.
+            builder.append('\u00EB');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import org.bspfsystems.playerdata.core.store.EntryTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link LastSeenIndex}, checking its queries against a naive
+ * model of the last seen times after random changes.
+ */
+final class LastSeenIndexTest {
+    
+    private static final int PLAYERS = 300;
+    private static final int ROUNDS = 5000;
+    
+    private final Random random = new Random(0x5EEDL);
+    private final EntryTable table = new EntryTable();
+    private final LastSeenIndex index = new LastSeenIndex(this.table);
+    private final Map<Integer, Long> model = new HashMap<Integer, Long>();
+    private long now = 1000L;
+    
+    @Test
+    void dropsStaleSlotsWhenMerging() {
+        final int c = this.add(30L);
+        final int x = this.add(40L);
+        final int d = this.add(50L);
+        final int p = this.add(2L);
+        this.set(x, 3L);
+        this.index.putAll(new int[0], 0);
+        
+        Assertions.assertEquals(this.expectedSince(35L), this.since(35L));
+        Assertions.assertEquals(this.expectedBefore(35L), this.before(35L));
+        final int[] recent = this.index.getMostRecent(4);
+        Assertions.assertArrayEquals(new int[] {d, c, x, p}, recent);
+        Assertions.assertEquals(4, this.index.size());
+    }
+    
+    @Test
+    void matchesModel() {
+        for (int player = 0; player < LastSeenIndexTest.PLAYERS; player++) {
+            this.add(this.randomTime());
+        }
+        for (int round = 0; round < LastSeenIndexTest.ROUNDS; round++) {
+            final int action = this.random.nextInt(10);
+            if (action < 5) {
+                this.set(this.random.nextInt(this.table.size()), this.now++);
+            } else if (action < 8) {
+                this.set(this.random.nextInt(this.table.size()), this.randomTime());
+            } else if (action < 9) {
+                this.add(this.random.nextBoolean() ? this.now++ : this.randomTime());
+            } else {
+                final int[] ids = new int[this.random.nextInt(20)];
+                for (int position = 0; position < ids.length; position++) {
+                    ids[position] = this.random.nextInt(this.table.size());
+                    this.table.setLastSeen(ids[position], this.randomTime());
+                    this.model.put(ids[position], this.table.getLastSeen(ids[position]));
+                }
+                this.index.putAll(ids, ids.length);
+            }
+            
+            final long time = this.randomTime();
+            Assertions.assertEquals(this.expectedSince(time), this.since(time), "Since " + time);
+            Assertions.assertEquals(this.expectedBefore(time), this.before(time), "Before " + time);
+            final int limit = this.random.nextInt(20);
+            Assertions.assertEquals(this.expectedMostRecent(limit), this.mostRecent(limit), "Most recent " + limit);
+            Assertions.assertEquals(this.model.size(), this.index.size());
+        }
+    }
+    
+    private int add(final long time) {
+        final int id = this.table.add(new UUID(this.random.nextLong(), this.random.nextLong()), "player" + this.table.size());
+        this.set(id, time);
+        return id;
+    }
+    
+    private void set(final int id, final long time) {
+        this.table.setLastSeen(id, time);
+        this.index.put(id);
+        this.model.put(id, time);
+    }
+    
+    private long randomTime() {
+        return this.random.nextInt((int) this.now);
+    }
+    
+    private Set<Integer> since(final long time) {
+        final List<Integer> visited = new ArrayList<Integer>();
+        this.index.forEachSince(time, visited::add);
+        final Set<Integer> ids = new HashSet<Integer>(visited);
+        Assertions.assertEquals(visited.size(), ids.size(), "Duplicate entries since " + time);
+        return ids;
+    }
+    
+    private Set<Integer> before(final long time) {
+        final List<Integer> visited = new ArrayList<Integer>();
+        this.index.forEachBefore(time, visited::add);
+        final Set<Integer> ids = new HashSet<Integer>(visited);
+        Assertions.assertEquals(visited.size(), ids.size(), "Duplicate entries before " + time);
+        return ids;
+    }
+    
+    private List<Long> mostRecent(final int limit) {
+        final int[] ids = this.index.getMostRecent(limit);
+        Assertions.assertEquals(ids.length, new HashSet<Integer>(LastSeenIndexTest.box(ids)).size(), "Duplicate recent entries");
+        final List<Long> times = new ArrayList<Long>();
+        for (final int id : ids) {
+            times.add(this.model.get(id));
+        }
+        return times;
+    }
+    
+    private Set<Integer> expectedSince(final long time) {
+        final Set<Integer> ids = new HashSet<Integer>();
+        for (final Map.Entry<Integer, Long> entry : this.model.entrySet()) {
+            if (entry.getValue() >= time) {
+                ids.add(entry.getKey());
+            }
+        }
+        return ids;
+    }
+    
+    private Set<Integer> expectedBefore(final long time) {
+        final Set<Integer> ids = new HashSet<Integer>();
+        for (final Map.Entry<Integer, Long> entry : this.model.entrySet()) {
+            if (entry.getValue() < time) {
+                ids.add(entry.getKey());
+            }
+        }
+        return ids;
+    }
+    
+    private List<Long> expectedMostRecent(final int limit) {
+        final List<Long> times = new ArrayList<Long>(this.model.values());
+        times.sort((first, second) -> Long.compare(second, first));
+        return new ArrayList<Long>(times.subList(0, Math.min(limit, times.size())));
+    }
+    
+    private static List<Integer> box(final int[] ids) {
+        final List<Integer> boxed = new ArrayList<Integer>();
+        for (final int id : ids) {
+            boxed.add(id);
+        }
+        return boxed;
+    }
+}
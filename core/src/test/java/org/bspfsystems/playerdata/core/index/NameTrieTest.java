@@ -0,0 +1,301 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import org.bspfsystems.playerdata.core.store.EntryTable;
+import org.bspfsystems.playerdata.core.store.PackedNames;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link NameTrie}, checking prefix, ranked and fuzzy matches
+ * against a naive model of the indexed names after random changes.
+ */
+final class NameTrieTest {
+    
+    private static final String ALPHABET = "abcABC01_";
+    private static final int ROUNDS = 2000;
+    
+    private final Random random = new Random(0x5EEDL);
+    private final EntryTable table = new EntryTable();
+    private final NameTrie trie = new NameTrie(this.table);
+    private final Map<String, Integer> model = new HashMap<String, Integer>();
+    
+    @Test
+    void matchesPrefixes() {
+        this.populate();
+        for (int round = 0; round < NameTrieTest.ROUNDS; round++) {
+            this.change();
+            final String prefix = this.randomName(0, 4);
+            
+            final List<Integer> visited = new ArrayList<Integer>();
+            Assertions.assertTrue(this.trie.visitPrefix(prefix, visited::add));
+            Assertions.assertEquals(this.expectedPrefix(prefix), new HashSet<Integer>(visited), "Prefix " + prefix);
+            Assertions.assertEquals(visited.size(), new HashSet<Integer>(visited).size(), "Duplicate matches for " + prefix);
+            
+            final List<Integer> packed = new ArrayList<Integer>();
+            for (final int id : visited) {
+                if (this.table.isNamePacked(id)) {
+                    packed.add(id);
+                }
+            }
+            final List<Integer> sorted = new ArrayList<Integer>(packed);
+            sorted.sort(Comparator.comparing(id -> NameTrieTest.sortKey(this.table.getName(id))));
+            Assertions.assertEquals(sorted, packed, "Prefix " + prefix + " not in alphabetical order");
+        }
+        Assertions.assertEquals(this.model.size(), this.trie.size());
+    }
+    
+    @Test
+    void matchesPrefixesByRank() {
+        this.populate();
+        for (int round = 0; round < NameTrieTest.ROUNDS; round++) {
+            this.change();
+            final String prefix = this.randomName(0, 3);
+            final int limit = 1 + this.random.nextInt(10);
+            
+            final List<Integer> visited = new ArrayList<Integer>();
+            this.trie.visitPrefixByRank(prefix, id -> {
+                visited.add(id);
+                return visited.size() < limit;
+            });
+            
+            final List<Integer> expected = new ArrayList<Integer>(this.expectedPrefix(prefix));
+            expected.sort((first, second) -> Long.compare(this.table.getRank(second), this.table.getRank(first)));
+            final List<Long> expectedRanks = new ArrayList<Long>();
+            for (final int id : expected.subList(0, Math.min(limit, expected.size()))) {
+                expectedRanks.add(this.table.getRank(id));
+            }
+            final List<Long> visitedRanks = new ArrayList<Long>();
+            for (final int id : visited) {
+                Assertions.assertTrue(this.isIndexed(id) && this.table.getName(id).toLowerCase(Locale.ROOT).startsWith(prefix.toLowerCase(Locale.ROOT)), "Prefix " + prefix + " matched " + this.table.getName(id));
+                visitedRanks.add(this.table.getRank(id));
+            }
+            Assertions.assertEquals(expectedRanks, visitedRanks, "Prefix " + prefix + " limit " + limit);
+            Assertions.assertEquals(visited.size(), new HashSet<Integer>(visited).size(), "Duplicate matches for " + prefix);
+        }
+    }
+    
+    @Test
+    void matchesSimilarNames() {
+        this.populate();
+        for (int round = 0; round < NameTrieTest.ROUNDS / 4; round++) {
+            this.change();
+            final String query = this.randomName(1, 8);
+            final int maxDistance = this.random.nextInt(3);
+            
+            final Set<Integer> expected = new HashSet<Integer>();
+            for (final Map.Entry<String, Integer> entry : this.model.entrySet()) {
+                if (NameTrieTest.distance(query.toLowerCase(Locale.ROOT), entry.getKey()) <= maxDistance) {
+                    expected.add(entry.getValue());
+                }
+            }
+            final List<Integer> visited = new ArrayList<Integer>();
+            Assertions.assertTrue(this.trie.visitSimilar(query, maxDistance, visited::add));
+            Assertions.assertEquals(expected, new HashSet<Integer>(visited), "Query " + query + " distance " + maxDistance);
+            Assertions.assertEquals(visited.size(), new HashSet<Integer>(visited).size(), "Duplicate matches for " + query);
+        }
+    }
+    
+    @Test
+    void stopsVisitEarly() {
+        this.populate();
+        final int[] count = new int[1];
+        Assertions.assertFalse(this.trie.visitPrefix("", id -> ++count[0] < 3));
+        Assertions.assertEquals(3, count[0]);
+        count[0] = 0;
+        Assertions.assertFalse(this.trie.visitPrefixByRank("", id -> ++count[0] < 3));
+        Assertions.assertEquals(3, count[0]);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.trie.visitSimilar("abc", -1, id -> true));
+    }
+    
+    /**
+     * Indexes an initial set of entries in bulk.
+     */
+    private void populate() {
+        final int[] ids = new int[500];
+        int count = 0;
+        for (int index = 0; index < ids.length; index++) {
+            final int id = this.add();
+            final String key = this.table.getName(id).toLowerCase(Locale.ROOT);
+            final Integer owner = this.model.get(key);
+            if (owner != null) {
+                for (int previous = 0; previous < count; previous++) {
+                    if (ids[previous] == owner) {
+                        System.arraycopy(ids, previous + 1, ids, previous, count - previous - 1);
+                        count--;
+                        break;
+                    }
+                }
+            }
+            this.model.put(key, id);
+            ids[count++] = id;
+        }
+        this.trie.putAll(ids, count);
+        Assertions.assertEquals(this.model.size(), this.trie.size());
+    }
+    
+    /**
+     * Makes a random change: adding an entry, renaming one, or changing the
+     * rank of one.
+     */
+    private void change() {
+        final int kind = this.random.nextInt(3);
+        if (kind == 0) {
+            final int id = this.add();
+            this.model.put(this.table.getName(id).toLowerCase(Locale.ROOT), id);
+            this.trie.put(id);
+            return;
+        }
+        
+        final int id = this.random.nextInt(this.table.size());
+        if (kind == 1) {
+            this.trie.remove(id);
+            this.model.remove(this.table.getName(id).toLowerCase(Locale.ROOT), id);
+            this.table.setName(id, this.randomEntryName());
+            this.model.put(this.table.getName(id).toLowerCase(Locale.ROOT), id);
+            this.trie.put(id);
+        } else {
+            this.table.setLastSeen(id, this.random.nextInt(1000));
+            this.table.setOnline(id, this.random.nextBoolean());
+            this.trie.updateRank(id);
+        }
+    }
+    
+    /**
+     * Adds an entry with a random name and rank to the table, without
+     * indexing it.
+     * 
+     * @return The entry id.
+     */
+    private int add() {
+        final int id = this.table.add(new UUID(0L, this.table.size()), this.randomEntryName());
+        this.table.setLastSeen(id, this.random.nextInt(1000));
+        this.table.setOnline(id, this.random.nextInt(4) == 0);
+        return id;
+    }
+    
+    /**
+     * Creates a random entry name, occasionally one too long to be packed.
+     * 
+     * @return The name.
+     */
+    private String randomEntryName() {
+        return this.random.nextInt(20) == 0 ? this.randomName(PackedNames.MAXIMUM_LENGTH + 1, PackedNames.MAXIMUM_LENGTH + 3) : this.randomName(1, 6);
+    }
+    
+    /**
+     * Creates a random name from a small alphabet, so that many names share
+     * prefixes.
+     * 
+     * @param minimum The minimum length.
+     * @param maximum The maximum length.
+     * @return The name.
+     */
+    private String randomName(final int minimum, final int maximum) {
+        final int length = minimum + this.random.nextInt(maximum - minimum + 1);
+        final StringBuilder builder = new StringBuilder(length);
+        for (int index = 0; index < length; index++) {
+            builder.append(NameTrieTest.ALPHABET.charAt(this.random.nextInt(NameTrieTest.ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * Checks whether the given entry holds its name in the model.
+     * 
+     * @param id The entry id.
+     * @return <code>true</code> if the entry is indexed.
+     */
+    private boolean isIndexed(final int id) {
+        final Integer owner = this.model.get(this.table.getName(id).toLowerCase(Locale.ROOT));
+        return owner != null && owner == id;
+    }
+    
+    /**
+     * Gets the entries in the model whose names start with the given prefix.
+     * 
+     * @param prefix The prefix.
+     * @return The matching entry ids.
+     */
+    private Set<Integer> expectedPrefix(final String prefix) {
+        final String key = prefix.toLowerCase(Locale.ROOT);
+        final Set<Integer> expected = new HashSet<Integer>();
+        for (final Map.Entry<String, Integer> entry : this.model.entrySet()) {
+            if (entry.getKey().startsWith(key)) {
+                expected.add(entry.getValue());
+            }
+        }
+        return expected;
+    }
+    
+    /**
+     * Gets a key that sorts names in the order of their case-folded
+     * {@link PackedNames packed} codes.
+     * 
+     * @param name The name.
+     * @return The sort key.
+     */
+    private static String sortKey(final String name) {
+        final StringBuilder builder = new StringBuilder(name.length());
+        for (int index = 0; index < name.length(); index++) {
+            builder.append((char) PackedNames.fold(PackedNames.code(name.charAt(index))));
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * Computes the edit distance between two names, counting insertions,
+     * deletions, substitutions and swaps of adjacent letters, with the full
+     * table.
+     * 
+     * @param first The first name.
+     * @param second The second name.
+     * @return The edit distance.
+     */
+    private static int distance(final String first, final String second) {
+        final int[][] table = new int[first.length() + 1][second.length() + 1];
+        for (int row = 0; row <= first.length(); row++) {
+            for (int column = 0; column <= second.length(); column++) {
+                if (row == 0 || column == 0) {
+                    table[row][column] = row + column;
+                    continue;
+                }
+                final int cost = first.charAt(row - 1) == second.charAt(column - 1) ? 0 : 1;
+                int best = Math.min(Math.min(table[row - 1][column] + 1, table[row][column - 1] + 1), table[row - 1][column - 1] + cost);
+                if (row > 1 && column > 1 && first.charAt(row - 1) == second.charAt(column - 2) && first.charAt(row - 2) == second.charAt(column - 1)) {
+                    best = Math.min(best, table[row - 2][column - 2] + 1);
+                }
+                table[row][column] = best;
+            }
+        }
+        return table[first.length()][second.length()];
+    }
+}
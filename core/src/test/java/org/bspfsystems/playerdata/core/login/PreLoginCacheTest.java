@@ -0,0 +1,151 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.login;
+
+import java.util.UUID;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.bspfsystems.playerdata.core.store.ChangeListener;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link PreLoginCache}.
+ */
+final class PreLoginCacheTest {
+    
+    private static final UUID PLAYER = new UUID(0L, 1L);
+    private static final UUID OTHER = new UUID(0L, 2L);
+    
+    private PlayerDataStore store;
+    private PreLoginCache<String> cache;
+    
+    @BeforeEach
+    void create() {
+        this.store = new PlayerDataStore();
+        this.cache = new PreLoginCache<String>(this.store, 60000L);
+    }
+    
+    @Test
+    void joinUsesPreparedEvent() {
+        final PlayerJoinEvent prepared = this.cache.prepare("first", PreLoginCacheTest.PLAYER, "Steve");
+        Assertions.assertEquals(PlayerJoinEvent.JoinType.NEW_PLAYER, prepared.getJoinType());
+        Assertions.assertEquals("Steve", this.cache.getEntry("first").getName());
+        Assertions.assertSame(prepared, this.cache.join("first", PreLoginCacheTest.PLAYER, "Steve"));
+        Assertions.assertEquals(0, this.cache.size());
+    }
+    
+    @Test
+    void joinUnderDifferentNameDescribesWholeJoin() {
+        this.store.update(PreLoginCacheTest.PLAYER, "Steve");
+        this.cache.prepare("first", PreLoginCacheTest.PLAYER, "Alex");
+        final PlayerJoinEvent changed = this.cache.join("first", PreLoginCacheTest.PLAYER, "Notch");
+        Assertions.assertEquals(PlayerJoinEvent.JoinType.NAME_CHANGE, changed.getJoinType());
+        Assertions.assertEquals("Steve", changed.getOldName());
+        Assertions.assertEquals("Notch", changed.getName());
+        Assertions.assertEquals(PreLoginCacheTest.PLAYER, this.store.getUniqueId("Notch"));
+        Assertions.assertNull(this.store.getUniqueId("Alex"));
+        
+        this.cache.prepare("second", PreLoginCacheTest.PLAYER, "Alex");
+        final PlayerJoinEvent reverted = this.cache.join("second", PreLoginCacheTest.PLAYER, "Notch");
+        Assertions.assertEquals(PlayerJoinEvent.JoinType.NORMAL, reverted.getJoinType());
+        Assertions.assertEquals("Notch", reverted.getName());
+        
+        this.cache.prepare("third", PreLoginCacheTest.OTHER, "Jeb");
+        final PlayerJoinEvent added = this.cache.join("third", PreLoginCacheTest.OTHER, "Jeb_");
+        Assertions.assertEquals(PlayerJoinEvent.JoinType.NEW_PLAYER, added.getJoinType());
+        Assertions.assertEquals("Jeb_", added.getName());
+        Assertions.assertEquals(PreLoginCacheTest.OTHER, this.store.getUniqueId("Jeb_"));
+    }
+    
+    @Test
+    void discardMarksPlayerOffline() {
+        this.cache.prepare("first", PreLoginCacheTest.PLAYER, "Steve");
+        final int[] disconnects = this.countDisconnects();
+        this.cache.discard("first");
+        Assertions.assertEquals(1, disconnects[0]);
+        this.cache.discard("first");
+        Assertions.assertEquals(1, disconnects[0]);
+    }
+    
+    @Test
+    void discardKeepsJoinedPlayerOnline() {
+        this.cache.prepare("first", PreLoginCacheTest.PLAYER, "Steve");
+        this.cache.join("first", PreLoginCacheTest.PLAYER, "Steve");
+        this.cache.prepare("second", PreLoginCacheTest.PLAYER, "Steve");
+        final int[] disconnects = this.countDisconnects();
+        this.cache.discard("second");
+        Assertions.assertEquals(0, disconnects[0]);
+        this.cache.quit(PreLoginCacheTest.PLAYER);
+        Assertions.assertEquals(1, disconnects[0]);
+    }
+    
+    @Test
+    void quitWaitsForEveryJoinedConnection() {
+        this.cache.prepare("first", PreLoginCacheTest.PLAYER, "Steve");
+        this.cache.join("first", PreLoginCacheTest.PLAYER, "Steve");
+        this.cache.prepare("second", PreLoginCacheTest.PLAYER, "Steve");
+        this.cache.join("second", PreLoginCacheTest.PLAYER, "Steve");
+        final int[] disconnects = this.countDisconnects();
+        this.cache.quit(PreLoginCacheTest.PLAYER);
+        Assertions.assertEquals(0, disconnects[0]);
+        this.cache.quit(PreLoginCacheTest.PLAYER);
+        Assertions.assertEquals(1, disconnects[0]);
+    }
+    
+    @Test
+    void joinOfOtherPlayerDisconnectsPreparedPlayer() {
+        this.cache.prepare("first", PreLoginCacheTest.PLAYER, "Steve");
+        final int[] disconnects = this.countDisconnects();
+        final PlayerJoinEvent event = this.cache.join("first", PreLoginCacheTest.OTHER, "Alex");
+        Assertions.assertEquals(PlayerJoinEvent.JoinType.NEW_PLAYER, event.getJoinType());
+        Assertions.assertEquals(1, disconnects[0]);
+    }
+    
+    /**
+     * Counts the times the player under test is recorded as having left from
+     * now on, as the {@link PlayerDataStore} reports every disconnect as a
+     * change of the last seen time.
+     * 
+     * @return An array holding the count.
+     */
+    private int[] countDisconnects() {
+        final int[] disconnects = new int[1];
+        this.store.addChangeListener(new ChangeListener() {
+            @Override
+            public void onNewPlayer(@NotNull final UUID uniqueId, @NotNull final String name, final long time) {
+            }
+            
+            @Override
+            public void onNameChange(@NotNull final UUID uniqueId, @NotNull final String oldName, @NotNull final String name, final long time) {
+            }
+            
+            @Override
+            public void onLastSeen(@NotNull final UUID uniqueId, final long time) {
+                if (uniqueId.equals(PreLoginCacheTest.PLAYER)) {
+                    disconnects[0]++;
+                }
+            }
+        });
+        return disconnects;
+    }
+}
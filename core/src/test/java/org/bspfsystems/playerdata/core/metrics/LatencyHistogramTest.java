@@ -0,0 +1,114 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.metrics;
+
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link LatencyHistogram}.
+ */
+final class LatencyHistogramTest {
+    
+    @Test
+    void reportsBucketBoundaries() {
+        // Values below 4 have a bucket each.
+        LatencyHistogramTest.assertReported(0L, 0L);
+        LatencyHistogramTest.assertReported(1L, 1L);
+        LatencyHistogramTest.assertReported(3L, 3L);
+        LatencyHistogramTest.assertReported(-5L, 0L);
+        
+        // So do 4 to 7, as a quarter of 4 is 1.
+        LatencyHistogramTest.assertReported(4L, 4L);
+        LatencyHistogramTest.assertReported(5L, 5L);
+        LatencyHistogramTest.assertReported(7L, 7L);
+        
+        // Above that, each bucket is a quarter of a power of two.
+        LatencyHistogramTest.assertReported(8L, 9L);
+        LatencyHistogramTest.assertReported(9L, 9L);
+        LatencyHistogramTest.assertReported(10L, 11L);
+        LatencyHistogramTest.assertReported(15L, 15L);
+        LatencyHistogramTest.assertReported(16L, 19L);
+        LatencyHistogramTest.assertReported(1000L, 1023L);
+        LatencyHistogramTest.assertReported(1024L, 1279L);
+        LatencyHistogramTest.assertReported(Long.MAX_VALUE - 1L, Long.MAX_VALUE);
+        LatencyHistogramTest.assertReported(Long.MAX_VALUE, Long.MAX_VALUE);
+        LatencyHistogramTest.assertReported(1L << 62, (1L << 62) + (1L << 60) - 1L);
+    }
+    
+    @Test
+    void reportsWithinQuarter() {
+        final Random random = new Random(0x5EEDL);
+        for (int index = 0; index < 10000; index++) {
+            final long nanos = random.nextLong() >>> (1 + random.nextInt(Long.SIZE - 1));
+            final LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(nanos);
+            final long reported = histogram.getValueAtPercentile(50.0D);
+            Assertions.assertTrue(reported >= nanos, nanos + " reported as " + reported);
+            Assertions.assertTrue(reported - nanos <= nanos / 4L, nanos + " reported as " + reported);
+        }
+    }
+    
+    @Test
+    void findsPercentileRank() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Assertions.assertEquals(0L, histogram.getValueAtPercentile(50.0D));
+        for (int index = 0; index < 50; index++) {
+            histogram.record(1L);
+        }
+        for (int index = 0; index < 49; index++) {
+            histogram.record(3L);
+        }
+        histogram.record(1000L);
+        
+        Assertions.assertEquals(1L, histogram.getValueAtPercentile(0.0D));
+        Assertions.assertEquals(1L, histogram.getValueAtPercentile(50.0D));
+        Assertions.assertEquals(3L, histogram.getValueAtPercentile(50.5D));
+        Assertions.assertEquals(3L, histogram.getValueAtPercentile(99.0D));
+        Assertions.assertEquals(1023L, histogram.getValueAtPercentile(99.9D));
+        Assertions.assertEquals(1023L, histogram.getValueAtPercentile(100.0D));
+        Assertions.assertEquals(1023L, histogram.getValueAtPercentile(150.0D));
+    }
+    
+    @Test
+    void resets() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000L);
+        histogram.reset();
+        Assertions.assertEquals(0L, histogram.getValueAtPercentile(100.0D));
+        
+        histogram.record(5L);
+        Assertions.assertEquals(5L, histogram.getValueAtPercentile(100.0D));
+    }
+    
+    /**
+     * Asserts that a histogram of the given latency alone reports it as the
+     * given value.
+     * 
+     * @param nanos The recorded latency.
+     * @param reported The expected reported latency.
+     */
+    private static void assertReported(final long nanos, final long reported) {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(nanos);
+        Assertions.assertEquals(reported, histogram.getValueAtPercentile(0.0D), String.valueOf(nanos));
+        Assertions.assertEquals(reported, histogram.getValueAtPercentile(100.0D), String.valueOf(nanos));
+    }
+}
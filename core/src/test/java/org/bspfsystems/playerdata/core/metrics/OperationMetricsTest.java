@@ -0,0 +1,106 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link OperationMetrics}.
+ */
+final class OperationMetricsTest {
+    
+    @Test
+    void recordsCallsAndLatencies() {
+        final OperationMetrics metrics = new OperationMetrics(Operation.GET_UNIQUE_IDS);
+        Assertions.assertEquals(0L, metrics.getCalls());
+        Assertions.assertTrue(Double.isNaN(metrics.getHitRatio()));
+        Assertions.assertEquals(0.0D, metrics.getMeanMicros());
+        
+        metrics.record(3, 1, 2000L);
+        metrics.record(0, 0, 6000L);
+        metrics.record(1, 3, 4000L);
+        
+        Assertions.assertEquals(3L, metrics.getCalls());
+        Assertions.assertEquals(4L, metrics.getHits());
+        Assertions.assertEquals(4L, metrics.getMisses());
+        Assertions.assertEquals(0.5D, metrics.getHitRatio());
+        Assertions.assertEquals(4.0D, metrics.getMeanMicros());
+        Assertions.assertEquals(6.0D, metrics.getMaxMicros());
+        
+        // Reported to within a quarter, rounded up.
+        Assertions.assertEquals(4.095D, metrics.getP50Micros(), 1.0E-9D);
+        Assertions.assertEquals(6.143D, metrics.getP99Micros(), 1.0E-9D);
+        Assertions.assertEquals(6.143D, metrics.getP999Micros(), 1.0E-9D);
+    }
+    
+    @Test
+    void resets() {
+        final OperationMetrics metrics = new OperationMetrics(Operation.GET_NAME);
+        metrics.record(1, 0, 5000L);
+        metrics.reset();
+        
+        Assertions.assertEquals(0L, metrics.getCalls());
+        Assertions.assertEquals(0L, metrics.getHits());
+        Assertions.assertEquals(0L, metrics.getMisses());
+        Assertions.assertEquals(0.0D, metrics.getMaxMicros());
+        Assertions.assertEquals(0.0D, metrics.getP99Micros());
+        
+        metrics.record(0, 1, 1000L);
+        Assertions.assertEquals(1.0D, metrics.getMaxMicros());
+        Assertions.assertEquals(0.0D, metrics.getHitRatio());
+    }
+    
+    @Test
+    void exportsOverJmx() throws JMException {
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final JmxMetricsRecorder recorder = new JmxMetricsRecorder(server);
+        recorder.register();
+        // Registering again replaces the MBeans.
+        recorder.register();
+        
+        final ObjectName name = JmxMetricsRecorder.getObjectName(Operation.GET_NAME);
+        Assertions.assertEquals(JmxMetricsRecorder.DOMAIN + ":type=Operation,name=getName", name.toString());
+        for (final Operation operation : Operation.values()) {
+            Assertions.assertTrue(server.isRegistered(JmxMetricsRecorder.getObjectName(operation)), operation.getMetricName());
+        }
+        
+        recorder.record(Operation.GET_NAME, 1, 0, 3000L);
+        recorder.record(Operation.GET_NAME, 0, 1, 5000L);
+        Assertions.assertEquals(2L, server.getAttribute(name, "Calls"));
+        Assertions.assertEquals(0.5D, server.getAttribute(name, "HitRatio"));
+        Assertions.assertEquals(5.0D, server.getAttribute(name, "MaxMicros"));
+        Assertions.assertEquals(0L, server.getAttribute(JmxMetricsRecorder.getObjectName(Operation.GET_UNIQUE_ID), "Calls"));
+        Assertions.assertSame(recorder.getMetrics(Operation.GET_NAME), recorder.getMetrics(Operation.GET_NAME));
+        
+        server.invoke(name, "reset", new Object[0], new String[0]);
+        Assertions.assertEquals(0L, recorder.getMetrics(Operation.GET_NAME).getCalls());
+        
+        recorder.unregister();
+        for (final Operation operation : Operation.values()) {
+            Assertions.assertFalse(server.isRegistered(JmxMetricsRecorder.getObjectName(operation)), operation.getMetricName());
+        }
+        // Unregistering again is harmless.
+        recorder.unregister();
+    }
+}
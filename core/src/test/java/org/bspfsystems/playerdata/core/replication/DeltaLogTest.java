@@ -0,0 +1,140 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.replication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link DeltaLog}.
+ */
+final class DeltaLogTest {
+    
+    private static final UUID FIRST = new UUID(0L, 1L);
+    private static final UUID SECOND = new UUID(0L, 2L);
+    
+    private final PlayerDataStore store = new PlayerDataStore();
+    private final List<Delta> sent = new ArrayList<Delta>();
+    
+    @Test
+    void numbersAndSendsChanges() {
+        final DeltaLog log = this.open(8);
+        Assertions.assertEquals(0L, log.getSequence());
+        this.store.update(DeltaLogTest.FIRST, "Steve");
+        this.store.update(DeltaLogTest.FIRST, "Steve");
+        this.store.update(DeltaLogTest.SECOND, "Alex");
+        this.store.update(DeltaLogTest.FIRST, "Notch");
+        
+        Assertions.assertEquals(3L, log.getSequence());
+        Assertions.assertEquals(3, this.sent.size());
+        Assertions.assertEquals(PlayerJoinEvent.JoinType.NEW_PLAYER, this.sent.get(0).getType());
+        Assertions.assertEquals("Steve", this.sent.get(0).getName());
+        Assertions.assertEquals(DeltaLogTest.SECOND, this.sent.get(1).getUniqueId());
+        Assertions.assertEquals(PlayerJoinEvent.JoinType.NAME_CHANGE, this.sent.get(2).getType());
+        Assertions.assertEquals("Notch", this.sent.get(2).getName());
+        Assertions.assertEquals("Steve", this.sent.get(2).getOldName());
+        for (int index = 0; index < this.sent.size(); index++) {
+            Assertions.assertEquals(index + 1L, this.sent.get(index).getSequence());
+        }
+        
+        log.close();
+        this.store.update(DeltaLogTest.SECOND, "Herobrine");
+        Assertions.assertEquals(3L, log.getSequence());
+        Assertions.assertEquals(3, this.sent.size());
+    }
+    
+    @Test
+    void returnsKeptRanges() {
+        final DeltaLog log = this.open(4);
+        for (int index = 0; index < 3; index++) {
+            this.store.update(new UUID(1L, index), "Player" + index);
+        }
+        Assertions.assertEquals(this.sent, log.getRange(1L, 3L));
+        Assertions.assertEquals(this.sent.subList(1, 3), log.getRange(2L, 100L));
+        Assertions.assertTrue(log.getRange(4L, 4L).isEmpty());
+        
+        Assertions.assertThrows(IllegalArgumentException.class, () -> log.getRange(0L, 1L));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> log.getRange(3L, 2L));
+    }
+    
+    @Test
+    void returnsNullOnceRingWraps() {
+        final DeltaLog log = this.open(4);
+        for (int index = 0; index < 10; index++) {
+            this.store.update(new UUID(1L, index), "Player" + index);
+        }
+        
+        // Only deltas 7 to 10 are still kept.
+        Assertions.assertNull(log.getRange(1L, 10L));
+        Assertions.assertNull(log.getRange(6L, 10L));
+        Assertions.assertNull(log.getRange(6L, 6L));
+        Assertions.assertEquals(this.sent.subList(6, 10), log.getRange(7L, 10L));
+        Assertions.assertEquals(this.sent.subList(9, 10), log.getRange(10L, 10L));
+    }
+    
+    @Test
+    void feedsReceiver() {
+        final DeltaLog log = this.open(16);
+        final List<Delta> applied = new ArrayList<Delta>();
+        final List<long[]> requests = new ArrayList<long[]>();
+        final DeltaReceiver receiver = new DeltaReceiver(applied::add, (missing, from, to) -> requests.add(new long[] { from, to }), log.getSequence(), 60000L, 16);
+        for (int index = 0; index < 6; index++) {
+            this.store.update(new UUID(1L, index), "Player" + index);
+        }
+        
+        // Deltas 2 and 4 are lost, then recovered through range requests.
+        receiver.receive(this.sent.get(0));
+        receiver.receive(this.sent.get(2));
+        receiver.receive(this.sent.get(4));
+        receiver.receive(this.sent.get(5));
+        Assertions.assertEquals(2, requests.size());
+        for (final long[] request : requests) {
+            for (final Delta delta : log.getRange(request[0], request[1])) {
+                receiver.receive(delta);
+            }
+        }
+        Assertions.assertEquals(this.sent, applied);
+        Assertions.assertEquals(log.getSequence(), receiver.getSequence());
+    }
+    
+    @Test
+    void rejectsInvalidCapacity() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new DeltaLog(this.store, this.sent::add, 0));
+    }
+    
+    /**
+     * Opens a {@link DeltaLog} on the store that records every sent
+     * {@link Delta}.
+     * 
+     * @param capacity The number of recent deltas to keep.
+     * @return The open {@link DeltaLog}.
+     */
+    @NotNull
+    private DeltaLog open(final int capacity) {
+        final DeltaLog log = new DeltaLog(this.store, this.sent::add, capacity);
+        log.open();
+        return log;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.replication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link DeltaReceiver}.
+ */
+final class DeltaReceiverTest {
+    
+    private static final long NEVER = 60000L;
+    
+    private final List<Long> applied = new ArrayList<Long>();
+    private final List<long[]> requests = new ArrayList<long[]>();
+    
+    @Test
+    void appliesInOrder() {
+        final DeltaReceiver receiver = this.create(5L, DeltaReceiverTest.NEVER, 16);
+        receiver.receive(DeltaReceiverTest.delta(6L));
+        receiver.receive(DeltaReceiverTest.delta(7L));
+        receiver.receive(DeltaReceiverTest.delta(7L));
+        receiver.receive(DeltaReceiverTest.delta(3L));
+        
+        Assertions.assertEquals(this.sequences(6L, 7L), this.applied);
+        Assertions.assertEquals(7L, receiver.getSequence());
+        Assertions.assertTrue(this.requests.isEmpty());
+    }
+    
+    @Test
+    void requestsGapAndHoldsBackLaterDeltas() {
+        final DeltaReceiver receiver = this.create(0L, DeltaReceiverTest.NEVER, 16);
+        receiver.receive(DeltaReceiverTest.delta(4L));
+        this.assertRequests(1L, 3L);
+        Assertions.assertTrue(this.applied.isEmpty());
+        
+        // A further delta only extends the request if it leaves a new gap,
+        // and held back deltas are not requested again.
+        receiver.receive(DeltaReceiverTest.delta(5L));
+        receiver.receive(DeltaReceiverTest.delta(4L));
+        receiver.receive(DeltaReceiverTest.delta(8L));
+        this.assertRequests(1L, 3L, 6L, 7L);
+        Assertions.assertEquals(3, receiver.getPendingCount());
+        
+        // The answers arrive out of order.
+        receiver.receive(DeltaReceiverTest.delta(2L));
+        receiver.receive(DeltaReceiverTest.delta(3L));
+        Assertions.assertTrue(this.applied.isEmpty());
+        receiver.receive(DeltaReceiverTest.delta(1L));
+        Assertions.assertEquals(this.sequences(1L, 2L, 3L, 4L, 5L), this.applied);
+        receiver.receive(DeltaReceiverTest.delta(7L));
+        receiver.receive(DeltaReceiverTest.delta(6L));
+        Assertions.assertEquals(this.sequences(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), this.applied);
+        Assertions.assertEquals(0, receiver.getPendingCount());
+        
+        receiver.retry();
+        this.assertRequests(1L, 3L, 6L, 7L);
+    }
+    
+    @Test
+    void throttlesRepeatedRequests() {
+        final DeltaReceiver receiver = this.create(0L, DeltaReceiverTest.NEVER, 16);
+        receiver.receive(DeltaReceiverTest.delta(3L));
+        receiver.receive(DeltaReceiverTest.delta(5L));
+        this.assertRequests(1L, 2L, 4L, 4L);
+        
+        receiver.retry();
+        receiver.receive(DeltaReceiverTest.delta(5L));
+        receiver.receive(DeltaReceiverTest.delta(1L));
+        this.assertRequests(1L, 2L, 4L, 4L);
+        Assertions.assertEquals(this.sequences(1L), this.applied);
+    }
+    
+    @Test
+    void repeatsUnansweredRequests() throws InterruptedException {
+        final DeltaReceiver receiver = this.create(0L, 1L, 16);
+        receiver.receive(DeltaReceiverTest.delta(3L));
+        receiver.receive(DeltaReceiverTest.delta(2L));
+        this.assertRequests(1L, 2L);
+        
+        Thread.sleep(10L);
+        receiver.retry();
+        this.assertRequests(1L, 2L, 1L, 1L);
+        
+        Thread.sleep(10L);
+        receiver.receive(DeltaReceiverTest.delta(5L));
+        this.assertRequests(1L, 2L, 1L, 1L, 1L, 4L);
+        
+        receiver.receive(DeltaReceiverTest.delta(1L));
+        receiver.receive(DeltaReceiverTest.delta(4L));
+        Assertions.assertEquals(this.sequences(1L, 2L, 3L, 4L, 5L), this.applied);
+        Thread.sleep(10L);
+        receiver.retry();
+        Assertions.assertEquals(3, this.requests.size());
+    }
+    
+    @Test
+    void dropsDeltasBeyondMaximumPending() {
+        final DeltaReceiver receiver = this.create(0L, DeltaReceiverTest.NEVER, 2);
+        receiver.receive(DeltaReceiverTest.delta(2L));
+        receiver.receive(DeltaReceiverTest.delta(3L));
+        receiver.receive(DeltaReceiverTest.delta(4L));
+        receiver.receive(DeltaReceiverTest.delta(5L));
+        Assertions.assertEquals(2, receiver.getPendingCount());
+        this.assertRequests(1L, 1L, 4L, 4L, 5L, 5L);
+        
+        // The dropped deltas are requested again rather than lost.
+        receiver.receive(DeltaReceiverTest.delta(1L));
+        Assertions.assertEquals(this.sequences(1L, 2L, 3L), this.applied);
+        receiver.receive(DeltaReceiverTest.delta(4L));
+        receiver.receive(DeltaReceiverTest.delta(5L));
+        Assertions.assertEquals(this.sequences(1L, 2L, 3L, 4L, 5L), this.applied);
+    }
+    
+    @Test
+    void resetsAfterProxyRestart() {
+        final DeltaReceiver receiver = this.create(0L, DeltaReceiverTest.NEVER, 16);
+        receiver.receive(DeltaReceiverTest.delta(1L));
+        receiver.receive(DeltaReceiverTest.delta(5L));
+        receiver.receive(DeltaReceiverTest.delta(9L));
+        Assertions.assertEquals(2, receiver.getPendingCount());
+        
+        // The restarted proxy is behind the backend server.
+        receiver.reset(0L);
+        Assertions.assertEquals(0L, receiver.getSequence());
+        Assertions.assertEquals(0, receiver.getPendingCount());
+        receiver.receive(DeltaReceiverTest.delta(1L));
+        Assertions.assertEquals(this.sequences(1L, 1L), this.applied);
+        
+        // The restarted proxy is ahead of the backend server, but not of
+        // everything held back from before it restarted.
+        receiver.receive(DeltaReceiverTest.delta(8L));
+        receiver.reset(6L);
+        Assertions.assertEquals(0, receiver.getPendingCount());
+        receiver.receive(DeltaReceiverTest.delta(7L));
+        receiver.receive(DeltaReceiverTest.delta(8L, "Restarted"));
+        Assertions.assertEquals(this.sequences(1L, 1L, 7L, 8L), this.applied);
+        Assertions.assertEquals(8L, receiver.getSequence());
+        
+        Assertions.assertThrows(IllegalArgumentException.class, () -> receiver.reset(-1L));
+    }
+    
+    @Test
+    void rejectsInvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.create(-1L, DeltaReceiverTest.NEVER, 16));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.create(0L, 0L, 16));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.create(0L, DeltaReceiverTest.NEVER, 0));
+    }
+    
+    /**
+     * Creates a {@link DeltaReceiver} that records the sequence numbers it
+     * applies and the ranges it requests.
+     * 
+     * @param sequence The sequence number the receiver is up to date as of.
+     * @param retryMillis The delay before repeating a range request.
+     * @param maximumPending The maximum number of held back deltas.
+     * @return The new {@link DeltaReceiver}.
+     */
+    @NotNull
+    private DeltaReceiver create(final long sequence, final long retryMillis, final int maximumPending) {
+        return new DeltaReceiver(delta -> {
+            if ("Restarted".equals(delta.getName()) || delta.getName().equals("Player" + delta.getSequence())) {
+                this.applied.add(delta.getSequence());
+            } else {
+                Assertions.fail("Applied a stale delta: " + delta);
+            }
+        }, (receiver, from, to) -> this.requests.add(new long[] { from, to }), sequence, retryMillis, maximumPending);
+    }
+    
+    /**
+     * Asserts that the given ranges were requested, in order.
+     * 
+     * @param ranges The first and last sequence number of each range.
+     */
+    private void assertRequests(final long... ranges) {
+        final List<Long> requested = new ArrayList<Long>();
+        for (final long[] request : this.requests) {
+            requested.add(request[0]);
+            requested.add(request[1]);
+        }
+        Assertions.assertEquals(this.sequences(ranges), requested);
+    }
+    
+    /**
+     * Creates a mutable {@link List} of the given sequence numbers.
+     * 
+     * @param sequences The sequence numbers.
+     * @return The {@link List} of sequence numbers.
+     */
+    @NotNull
+    private List<Long> sequences(final long... sequences) {
+        final List<Long> list = new ArrayList<Long>();
+        for (final long sequence : sequences) {
+            list.add(sequence);
+        }
+        return list;
+    }
+    
+    /**
+     * Creates a new player {@link Delta} with the given sequence number.
+     * 
+     * @param sequence The sequence number.
+     * @return The {@link Delta}.
+     */
+    @NotNull
+    private static Delta delta(final long sequence) {
+        return DeltaReceiverTest.delta(sequence, "Player" + sequence);
+    }
+    
+    /**
+     * Creates a new player {@link Delta} with the given sequence number and
+     * name.
+     * 
+     * @param sequence The sequence number.
+     * @param name The name of the player.
+     * @return The {@link Delta}.
+     */
+    @NotNull
+    private static Delta delta(final long sequence, @NotNull final String name) {
+        return new Delta(sequence, PlayerJoinEvent.JoinType.NEW_PLAYER, new UUID(0L, sequence), name, null, sequence * 1000L);
+    }
+}
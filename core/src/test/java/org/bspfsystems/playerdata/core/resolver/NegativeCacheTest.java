@@ -0,0 +1,89 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.resolver;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link NegativeCache}.
+ */
+final class NegativeCacheTest {
+    
+    private static final long NEVER = 60000L;
+    
+    @Test
+    void remembersUntilExpiry() throws InterruptedException {
+        final NegativeCache cache = new NegativeCache(50L, 16);
+        Assertions.assertFalse(cache.contains("notch"));
+        cache.add("notch");
+        Assertions.assertTrue(cache.contains("notch"));
+        Assertions.assertFalse(cache.contains("Notch"));
+        
+        Thread.sleep(100L);
+        Assertions.assertFalse(cache.contains("notch"));
+        cache.add("notch");
+        Assertions.assertTrue(cache.contains("notch"));
+    }
+    
+    @Test
+    void remembersNothingWithoutTtl() {
+        final NegativeCache cache = new NegativeCache(0L, 16);
+        cache.add("notch");
+        Assertions.assertFalse(cache.contains("notch"));
+    }
+    
+    @Test
+    void dropsExpiredKeysWhenFull() throws InterruptedException {
+        final NegativeCache cache = new NegativeCache(50L, 4);
+        cache.add("first");
+        cache.add("second");
+        Thread.sleep(100L);
+        cache.add("third");
+        cache.add("fourth");
+        
+        // Only the expired keys make room for the new one.
+        cache.add("fifth");
+        Assertions.assertFalse(cache.contains("first"));
+        Assertions.assertFalse(cache.contains("second"));
+        Assertions.assertTrue(cache.contains("third"));
+        Assertions.assertTrue(cache.contains("fourth"));
+        Assertions.assertTrue(cache.contains("fifth"));
+    }
+    
+    @Test
+    void clearsWhenFullOfLiveKeys() {
+        final NegativeCache cache = new NegativeCache(NegativeCacheTest.NEVER, 4);
+        for (int index = 0; index < 4; index++) {
+            cache.add("key" + index);
+        }
+        
+        // Adding a key that is already remembered does not need room.
+        cache.add("key0");
+        for (int index = 0; index < 4; index++) {
+            Assertions.assertTrue(cache.contains("key" + index));
+        }
+        
+        cache.add("key4");
+        for (int index = 0; index < 4; index++) {
+            Assertions.assertFalse(cache.contains("key" + index));
+        }
+        Assertions.assertTrue(cache.contains("key4"));
+    }
+}
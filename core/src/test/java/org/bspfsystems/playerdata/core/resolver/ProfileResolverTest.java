@@ -0,0 +1,168 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.resolver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Tests for the {@link ProfileResolver}, against a {@link FakeMojangServer}.
+ */
+@Timeout(30)
+final class ProfileResolverTest {
+    
+    private static final Logger LOGGER = Logger.getLogger(ProfileResolverTest.class.getName());
+    
+    private FakeMojangServer server;
+    private ProfileResolver resolver;
+    
+    @BeforeEach
+    void start() throws IOException {
+        this.server = new FakeMojangServer();
+        this.server.start();
+    }
+    
+    @AfterEach
+    void stop() {
+        if (this.resolver != null) {
+            this.resolver.close();
+        }
+        this.server.stop();
+    }
+    
+    @Test
+    void coalescesConcurrentLookups() {
+        final UUID uniqueId = UUID.randomUUID();
+        this.server.addProfile(uniqueId, "Notch");
+        this.startResolver(200L);
+        
+        final List<CompletableFuture<UUID>> futures = new ArrayList<CompletableFuture<UUID>>();
+        for (int index = 0; index < 5; index++) {
+            futures.add(this.resolver.resolve("Notch"));
+            futures.add(this.resolver.resolve("nOTCH"));
+        }
+        for (final CompletableFuture<UUID> future : futures) {
+            Assertions.assertEquals(uniqueId, future.join());
+        }
+        Assertions.assertEquals(1, this.server.getRequestCount());
+    }
+    
+    @Test
+    void cancellingOneLookupDoesNotAffectOthers() {
+        final UUID uniqueId = UUID.randomUUID();
+        this.server.addProfile(uniqueId, "Notch");
+        this.startResolver(200L);
+        
+        final CompletableFuture<UUID> cancelled = this.resolver.resolve("Notch");
+        final CompletableFuture<UUID> kept = this.resolver.resolve("Notch");
+        cancelled.cancel(false);
+        Assertions.assertEquals(uniqueId, kept.join());
+    }
+    
+    @Test
+    void sendsNamesInBatchesOfTen() {
+        final List<String> names = new ArrayList<String>();
+        for (int index = 0; index < 25; index++) {
+            final String name = "Player" + index;
+            names.add(name);
+            if (index % 2 == 0) {
+                this.server.addProfile(new UUID(0L, index), name);
+            }
+        }
+        this.startResolver(500L);
+        
+        final Map<String, UUID> uniqueIds = this.resolver.resolveAll(names).join();
+        Assertions.assertEquals(13, uniqueIds.size());
+        for (int index = 0; index < 25; index++) {
+            Assertions.assertEquals(index % 2 == 0 ? new UUID(0L, index) : null, uniqueIds.get("Player" + index));
+        }
+        Assertions.assertEquals(3, this.server.getRequestCount());
+    }
+    
+    @Test
+    void remembersUnknownNames() {
+        this.startResolver(0L);
+        Assertions.assertNull(this.resolver.resolve("Nobody").join());
+        Assertions.assertNull(this.resolver.resolve("nobody").join());
+        Assertions.assertEquals(1, this.server.getRequestCount());
+    }
+    
+    @Test
+    void resolvesInvalidNamesWithoutRequest() {
+        this.startResolver(0L);
+        Assertions.assertNull(this.resolver.resolve("not a name").join());
+        Assertions.assertNull(this.resolver.resolve("ThisNameIsFarTooLong").join());
+        Assertions.assertEquals(0, this.server.getRequestCount());
+    }
+    
+    @Test
+    void backsOffWhenRateLimited() {
+        final UUID first = UUID.randomUUID();
+        final UUID second = UUID.randomUUID();
+        this.server.addProfile(first, "First");
+        this.server.addProfile(second, "Second");
+        this.server.setRateLimit(1, 500L, 1);
+        this.startResolver(0L);
+        
+        Assertions.assertEquals(first, this.resolver.resolve("First").join());
+        final long start = System.nanoTime();
+        Assertions.assertEquals(second, this.resolver.resolve("Second").join());
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        Assertions.assertEquals(2, this.server.getRequestCount());
+        Assertions.assertTrue(this.server.getRateLimitedCount() >= 1, "The second request was not rate limited.");
+        Assertions.assertTrue(elapsed >= 900L, "The Retry-After header was not honoured: " + elapsed + "ms");
+    }
+    
+    @Test
+    void failsLookupsWhenClosed() {
+        this.server.setRateLimit(1, 60000L, 60);
+        this.startResolver(0L);
+        Assertions.assertNull(this.resolver.resolve("Nobody").join());
+        
+        final CompletableFuture<UUID> pending = this.resolver.resolve("Somebody");
+        this.resolver.close();
+        Assertions.assertThrows(CompletionException.class, pending::join);
+        Assertions.assertThrows(CompletionException.class, () -> this.resolver.resolve("Anybody").join());
+    }
+    
+    /**
+     * Creates and starts the {@link ProfileResolver} under test, with a rate
+     * limit high enough not to delay any of the tests.
+     * 
+     * @param lingerMillis How long to wait for a batch to fill up.
+     */
+    private void startResolver(final long lingerMillis) {
+        this.resolver = new ProfileResolver(this.server.getEndpoint(), new TokenBucket(100L, 100L, 1000L), lingerMillis, 60000L, ProfileResolverTest.LOGGER);
+        this.resolver.start();
+    }
+}
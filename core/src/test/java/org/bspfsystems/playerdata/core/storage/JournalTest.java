@@ -0,0 +1,178 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.logging.Logger;
+import org.bspfsystems.playerdata.api.PlayerDataEntry;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the {@link Journal}.
+ */
+@Timeout(30)
+final class JournalTest {
+    
+    private static final Logger LOGGER = Logger.getLogger(JournalTest.class.getName());
+    private static final UUID FIRST = new UUID(0L, 1L);
+    private static final UUID SECOND = new UUID(0L, 2L);
+    
+    @Test
+    void replaysChanges(@TempDir final Path directory) throws IOException {
+        final PlayerDataStore store = new PlayerDataStore();
+        final Journal journal = JournalTest.open(directory, store);
+        store.update(JournalTest.FIRST, "Steve");
+        store.update(JournalTest.SECOND, "Alex");
+        store.update(JournalTest.FIRST, "Notch");
+        store.disconnect(JournalTest.SECOND);
+        final long lastSeen = store.getEntry(JournalTest.SECOND).getLastSeen().toEpochMilli();
+        journal.flush();
+        journal.close();
+        
+        final PlayerDataStore restored = new PlayerDataStore();
+        final Journal reopened = JournalTest.open(directory, restored);
+        try {
+            Assertions.assertEquals(2, restored.size());
+            Assertions.assertEquals(JournalTest.FIRST, restored.getUniqueId("Notch"));
+            Assertions.assertNull(restored.getUniqueId("Steve"));
+            Assertions.assertEquals("Alex", restored.getName(JournalTest.SECOND));
+            Assertions.assertEquals(lastSeen, restored.getEntry(JournalTest.SECOND).getLastSeen().toEpochMilli());
+        } finally {
+            reopened.close();
+        }
+    }
+    
+    @Test
+    void truncatesTornRecord(@TempDir final Path directory) throws IOException {
+        final PlayerDataStore store = new PlayerDataStore();
+        final Journal journal = JournalTest.open(directory, store);
+        store.update(JournalTest.FIRST, "Steve");
+        store.update(JournalTest.SECOND, "Alex");
+        journal.close();
+        
+        // Tear the second record part way through, as a crash would.
+        final File file = new File(directory.toFile(), "journal-0.bin");
+        final long intact = 8L + 31L + "Steve".length();
+        try (final RandomAccessFile torn = new RandomAccessFile(file, "rw")) {
+            Assertions.assertEquals(intact + 31L + "Alex".length(), torn.length());
+            torn.setLength(torn.length() - 3L);
+        }
+        
+        final PlayerDataStore restored = new PlayerDataStore();
+        final Journal reopened = JournalTest.open(directory, restored);
+        try {
+            Assertions.assertEquals(1, restored.size());
+            Assertions.assertEquals(JournalTest.FIRST, restored.getUniqueId("Steve"));
+            Assertions.assertNull(restored.getUniqueId("Alex"));
+            Assertions.assertEquals(intact, file.length());
+        } finally {
+            reopened.close();
+        }
+    }
+    
+    @Test
+    void discardsCorruptRecord(@TempDir final Path directory) throws IOException {
+        final PlayerDataStore store = new PlayerDataStore();
+        final Journal journal = JournalTest.open(directory, store);
+        store.update(JournalTest.FIRST, "Steve");
+        store.update(JournalTest.SECOND, "Alex");
+        journal.close();
+        
+        final File file = new File(directory.toFile(), "journal-0.bin");
+        try (final RandomAccessFile corrupt = new RandomAccessFile(file, "rw")) {
+            corrupt.seek(corrupt.length() - 6L);
+            corrupt.write('a');
+        }
+        
+        final PlayerDataStore restored = new PlayerDataStore();
+        final Journal reopened = JournalTest.open(directory, restored);
+        try {
+            Assertions.assertEquals(1, restored.size());
+            Assertions.assertNull(restored.getUniqueId("Alex"));
+        } finally {
+            reopened.close();
+        }
+    }
+    
+    @Test
+    void compactsIntoSnapshot(@TempDir final Path directory) throws IOException {
+        final PlayerDataStore store = new PlayerDataStore();
+        final Journal journal = JournalTest.open(directory, store);
+        store.update(JournalTest.FIRST, "Steve");
+        store.bulkLoad(new UUID[] {JournalTest.SECOND}, new String[] {"Alex"}, new long[] {1000L}, new long[] {2000L}, 1);
+        journal.compactNow();
+        store.update(JournalTest.FIRST, "Notch");
+        journal.close();
+        
+        Assertions.assertTrue(new File(directory.toFile(), "snapshot.bin").isFile());
+        Assertions.assertFalse(new File(directory.toFile(), "journal-0.bin").exists());
+        
+        final PlayerDataStore restored = new PlayerDataStore();
+        final Journal reopened = JournalTest.open(directory, restored);
+        try {
+            Assertions.assertEquals(JournalTest.FIRST, restored.getUniqueId("Notch"));
+            Assertions.assertEquals("Alex", restored.getName(JournalTest.SECOND));
+            
+            // Compacting waits for the snapshot to be loaded in the background.
+            reopened.compactNow();
+            Assertions.assertFalse(restored.hasSnapshot());
+            final PlayerDataEntry entry = restored.getEntry(JournalTest.SECOND);
+            Assertions.assertNotNull(entry);
+            Assertions.assertEquals(1000L, entry.getFirstSeen().toEpochMilli());
+            Assertions.assertEquals(2000L, entry.getLastSeen().toEpochMilli());
+        } finally {
+            reopened.close();
+        }
+    }
+    
+    @Test
+    void failsWhenNotOpen(@TempDir final Path directory) throws IOException {
+        final Journal journal = new Journal(directory.toFile(), new PlayerDataStore(), JournalTest.LOGGER, Journal.FsyncPolicy.NEVER, 1000L, 1L << 20);
+        Assertions.assertThrows(IOException.class, journal::flush);
+        Assertions.assertThrows(IOException.class, journal::compactNow);
+        journal.open();
+        journal.flush();
+        journal.close();
+        Assertions.assertThrows(IOException.class, journal::flush);
+        Assertions.assertThrows(IOException.class, journal::compactNow);
+    }
+    
+    /**
+     * Opens a {@link Journal} for the given store in the given directory.
+     * 
+     * @param directory The data directory.
+     * @param store The {@link PlayerDataStore}.
+     * @return The open {@link Journal}.
+     * @throws IOException If the journal cannot be opened.
+     */
+    private static Journal open(final Path directory, final PlayerDataStore store) throws IOException {
+        final Journal journal = new Journal(directory.toFile(), store, JournalTest.LOGGER, Journal.FsyncPolicy.ALWAYS, 1000L, 1L << 20);
+        journal.open();
+        return journal;
+    }
+}
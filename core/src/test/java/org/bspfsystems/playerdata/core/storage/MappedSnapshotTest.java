@@ -0,0 +1,170 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the {@link MappedSnapshot}, in both the current format and the
+ * legacy format without first seen times.
+ */
+final class MappedSnapshotTest {
+    
+    private static final int PLAYERS = 500;
+    private static final String LONG_NAME = "ThisNameIsFarTooLong";
+    
+    @Test
+    void readsCurrentFormat(@TempDir final Path directory) throws IOException {
+        final File file = new File(directory.toFile(), "snapshot.bin");
+        MappedSnapshot.write(file, 7L, MappedSnapshotTest.createStore());
+        
+        final MappedSnapshot snapshot = MappedSnapshot.open(file);
+        Assertions.assertEquals(7L, snapshot.getGeneration());
+        MappedSnapshotTest.checkLookups(snapshot);
+        MappedSnapshotTest.checkRecords(snapshot, true);
+    }
+    
+    @Test
+    void readsLegacyFormat(@TempDir final Path directory) throws IOException {
+        final File file = new File(directory.toFile(), "snapshot.bin");
+        MappedSnapshot.write(file, 7L, MappedSnapshotTest.createStore());
+        MappedSnapshotTest.convertToLegacy(file);
+        
+        final MappedSnapshot snapshot = MappedSnapshot.open(file);
+        Assertions.assertEquals(7L, snapshot.getGeneration());
+        MappedSnapshotTest.checkLookups(snapshot);
+        MappedSnapshotTest.checkRecords(snapshot, false);
+    }
+    
+    @Test
+    void loadsLegacyFormatIntoStore(@TempDir final Path directory) throws IOException {
+        final File file = new File(directory.toFile(), "snapshot.bin");
+        MappedSnapshot.write(file, 0L, MappedSnapshotTest.createStore());
+        MappedSnapshotTest.convertToLegacy(file);
+        
+        final PlayerDataStore store = new PlayerDataStore();
+        store.attachSnapshot(MappedSnapshot.open(file));
+        Assertions.assertEquals(new UUID(0L, 3L), store.getUniqueId("player3"));
+        store.loadSnapshot();
+        Assertions.assertFalse(store.hasSnapshot());
+        Assertions.assertEquals(MappedSnapshotTest.PLAYERS + 1, store.size());
+        Assertions.assertNull(store.getEntry(new UUID(0L, 3L)).getFirstSeen());
+        Assertions.assertEquals(3003L, store.getEntry(new UUID(0L, 3L)).getLastSeen().toEpochMilli());
+    }
+    
+    @Test
+    void rejectsCorruptHeader(@TempDir final Path directory) throws IOException {
+        final File file = new File(directory.toFile(), "snapshot.bin");
+        MappedSnapshot.write(file, 0L, MappedSnapshotTest.createStore());
+        final byte[] data = Files.readAllBytes(file.toPath());
+        data[16] ^= 1;
+        Files.write(file.toPath(), data);
+        Assertions.assertThrows(IOException.class, () -> MappedSnapshot.open(file));
+    }
+    
+    /**
+     * Creates a {@link PlayerDataStore} with a known set of players, one of
+     * them with a name that cannot be packed.
+     * 
+     * @return The {@link PlayerDataStore}.
+     */
+    private static PlayerDataStore createStore() {
+        final PlayerDataStore store = new PlayerDataStore();
+        for (int index = 0; index < MappedSnapshotTest.PLAYERS; index++) {
+            store.restore(new UUID(0L, index), "Player" + index, 1000L + index, 3000L + index);
+        }
+        store.restore(new UUID(1L, 0L), MappedSnapshotTest.LONG_NAME, 500L, 600L);
+        return store;
+    }
+    
+    /**
+     * Checks the name and {@link UUID} lookups of a snapshot of the store
+     * from {@link MappedSnapshotTest#createStore()}.
+     * 
+     * @param snapshot The {@link MappedSnapshot}.
+     */
+    private static void checkLookups(final MappedSnapshot snapshot) {
+        Assertions.assertEquals(MappedSnapshotTest.PLAYERS + 1, snapshot.size());
+        for (int index = 0; index < MappedSnapshotTest.PLAYERS; index++) {
+            Assertions.assertEquals(new UUID(0L, index), snapshot.getUniqueId("PLAYER" + index));
+            Assertions.assertEquals("Player" + index, snapshot.getName(new UUID(0L, index)));
+        }
+        Assertions.assertEquals(new UUID(1L, 0L), snapshot.getUniqueId(MappedSnapshotTest.LONG_NAME.toLowerCase(Locale.ROOT)));
+        Assertions.assertEquals(MappedSnapshotTest.LONG_NAME, snapshot.getName(new UUID(1L, 0L)));
+        Assertions.assertNull(snapshot.getUniqueId("Nobody"));
+        Assertions.assertNull(snapshot.getName(new UUID(2L, 0L)));
+    }
+    
+    /**
+     * Checks the records of a snapshot of the store from
+     * {@link MappedSnapshotTest#createStore()}.
+     * 
+     * @param snapshot The {@link MappedSnapshot}.
+     * @param firstSeen Whether the snapshot records first seen times.
+     */
+    private static void checkRecords(final MappedSnapshot snapshot, final boolean firstSeen) {
+        final Map<UUID, long[]> times = new HashMap<UUID, long[]>();
+        snapshot.forEachRecord((uniqueId, name, first, last) -> times.put(uniqueId, new long[] {first, last}));
+        Assertions.assertEquals(MappedSnapshotTest.PLAYERS + 1, times.size());
+        for (int index = 0; index < MappedSnapshotTest.PLAYERS; index++) {
+            final long[] time = times.get(new UUID(0L, index));
+            Assertions.assertEquals(firstSeen ? 1000L + index : 0L, time[0]);
+            Assertions.assertEquals(3000L + index, time[1]);
+        }
+    }
+    
+    /**
+     * Rewrites a snapshot in the legacy format, which has the same layout
+     * except for 40 byte player records without the first seen time.
+     * 
+     * @param file The snapshot file.
+     * @throws IOException If the file cannot be rewritten.
+     */
+    private static void convertToLegacy(final File file) throws IOException {
+        final ByteBuffer current = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        final int count = current.getInt(16);
+        final ByteBuffer legacy = ByteBuffer.allocate(current.capacity() - count * 8);
+        legacy.put(current.array(), 0, 64);
+        for (int record = 0; record < count; record++) {
+            legacy.put(current.array(), 64 + record * 48, 40);
+        }
+        legacy.put(current.array(), 64 + count * 48, current.capacity() - 64 - count * 48);
+        
+        legacy.putInt(4, 2);
+        legacy.putLong(32, legacy.capacity());
+        final CRC32 checksum = new CRC32();
+        checksum.update(legacy.array(), 0, 60);
+        legacy.putInt(60, (int) checksum.getValue());
+        Files.write(file.toPath(), legacy.array());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import org.bspfsystems.playerdata.core.history.NameHistory;
+import org.bspfsystems.playerdata.core.history.NameInterval;
+import org.bspfsystems.playerdata.core.store.PlayerDataStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the {@link NameHistoryLog}.
+ */
+@Timeout(30)
+final class NameHistoryLogTest {
+    
+    private static final Logger LOGGER = Logger.getLogger(NameHistoryLogTest.class.getName());
+    private static final UUID FIRST = new UUID(0L, 1L);
+    private static final UUID SECOND = new UUID(0L, 2L);
+    
+    @Test
+    void replaysChanges(@TempDir final Path directory) throws IOException {
+        final PlayerDataStore store = new PlayerDataStore();
+        final NameHistoryLog log = NameHistoryLogTest.open(directory, store);
+        store.update(NameHistoryLogTest.FIRST, "Steve");
+        store.update(NameHistoryLogTest.SECOND, "Alex");
+        store.update(NameHistoryLogTest.FIRST, "Notch");
+        log.close();
+        final List<NameInterval> expected = store.getNameHistory().getHistory(NameHistoryLogTest.FIRST);
+        
+        final PlayerDataStore restored = new PlayerDataStore();
+        final NameHistoryLog reopened = NameHistoryLogTest.open(directory, restored);
+        try {
+            final NameHistory history = restored.getNameHistory();
+            Assertions.assertEquals(2, history.size());
+            Assertions.assertEquals(expected, history.getHistory(NameHistoryLogTest.FIRST));
+            Assertions.assertEquals("Steve", history.getHistory(NameHistoryLogTest.FIRST).get(0).getName());
+            Assertions.assertEquals("Notch", history.getHistory(NameHistoryLogTest.FIRST).get(1).getName());
+            Assertions.assertEquals("Alex", history.getHistory(NameHistoryLogTest.SECOND).get(0).getName());
+        } finally {
+            reopened.close();
+        }
+    }
+    
+    @Test
+    void truncatesTornRecord(@TempDir final Path directory) throws IOException {
+        final PlayerDataStore store = new PlayerDataStore();
+        final NameHistoryLog log = NameHistoryLogTest.open(directory, store);
+        store.update(NameHistoryLogTest.FIRST, "Steve");
+        store.update(NameHistoryLogTest.SECOND, "Alex");
+        log.close();
+        
+        // Tear the second record part way through, as a crash would.
+        final File file = new File(directory.toFile(), "names.bin");
+        final long intact = 8L + 33L + "Steve".length();
+        try (final RandomAccessFile torn = new RandomAccessFile(file, "rw")) {
+            Assertions.assertEquals(intact + 33L + "Alex".length(), torn.length());
+            torn.setLength(torn.length() - 3L);
+        }
+        
+        final PlayerDataStore restored = new PlayerDataStore();
+        final NameHistoryLog reopened = NameHistoryLogTest.open(directory, restored);
+        try {
+            Assertions.assertEquals(1, restored.getNameHistory().size());
+            Assertions.assertTrue(restored.getNameHistory().contains(NameHistoryLogTest.FIRST));
+            Assertions.assertFalse(restored.getNameHistory().contains(NameHistoryLogTest.SECOND));
+            Assertions.assertEquals(intact, file.length());
+            
+            // New changes are appended after the last intact record.
+            restored.update(NameHistoryLogTest.SECOND, "Alex");
+        } finally {
+            reopened.close();
+        }
+        
+        final PlayerDataStore again = new PlayerDataStore();
+        final NameHistoryLog last = NameHistoryLogTest.open(directory, again);
+        try {
+            Assertions.assertEquals(2, again.getNameHistory().size());
+            Assertions.assertEquals(NameHistoryLogTest.SECOND, again.getNameHistory().getUniqueIdAt("Alex", System.currentTimeMillis()));
+        } finally {
+            last.close();
+        }
+    }
+    
+    /**
+     * Opens a {@link NameHistoryLog} for the given store in the given
+     * directory.
+     * 
+     * @param directory The data directory.
+     * @param store The {@link PlayerDataStore}.
+     * @return The open {@link NameHistoryLog}.
+     * @throws IOException If the log cannot be opened.
+     */
+    private static NameHistoryLog open(final Path directory, final PlayerDataStore store) throws IOException {
+        final NameHistoryLog log = new NameHistoryLog(directory.toFile(), store, NameHistoryLogTest.LOGGER);
+        log.open();
+        return log;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.store;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link EntryTable}.
+ */
+final class EntryTableTest {
+    
+    @Test
+    void storesEntries() {
+        final EntryTable table = new EntryTable(1);
+        for (int index = 0; index < 100; index++) {
+            Assertions.assertEquals(index, table.add(new UUID(index, -index), "Player" + index));
+            table.setLastSeen(index, index * 10L);
+            table.setOnline(index, index % 3 == 0);
+        }
+        Assertions.assertEquals(100, table.size());
+        for (int index = 0; index < 100; index++) {
+            Assertions.assertEquals(new UUID(index, -index), table.getUniqueId(index));
+            Assertions.assertEquals("Player" + index, table.getName(index));
+            Assertions.assertTrue(table.isNamePacked(index));
+            Assertions.assertEquals(index * 10L, table.getLastSeen(index));
+            Assertions.assertEquals(index % 3 == 0, table.isOnline(index));
+        }
+        Assertions.assertTrue(table.getRank(3) > table.getRank(98));
+    }
+    
+    @Test
+    void renamesBetweenPackedAndUnpackedNames() {
+        final EntryTable table = new EntryTable();
+        final int first = table.add(new UUID(0L, 1L), "Short");
+        final int second = table.add(new UUID(0L, 2L), "A name with spaces");
+        Assertions.assertFalse(table.isNamePacked(second));
+        
+        for (int round = 0; round < 1000; round++) {
+            final String unpacked = "Not packable " + round;
+            table.setName(first, unpacked);
+            Assertions.assertFalse(table.isNamePacked(first));
+            Assertions.assertEquals(unpacked, table.getName(first));
+            Assertions.assertEquals("A name with spaces", table.getName(second));
+            
+            table.setName(second, "Packed" + round);
+            Assertions.assertTrue(table.isNamePacked(second));
+            Assertions.assertEquals("Packed" + round, table.getName(second));
+            table.setName(second, "Unpacked again " + round);
+            table.setName(second, "A name with spaces");
+            
+            if (round % 2 == 0) {
+                table.setName(first, "Short");
+                Assertions.assertEquals("Short", table.getName(first));
+            }
+        }
+        Assertions.assertEquals("Not packable 999", table.getName(first));
+        Assertions.assertEquals("A name with spaces", table.getName(second));
+    }
+}
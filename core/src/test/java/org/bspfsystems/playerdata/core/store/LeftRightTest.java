@@ -0,0 +1,122 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.store;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Tests for {@link LeftRight}.
+ */
+@Timeout(60)
+final class LeftRightTest {
+    
+    @Test
+    void appliesMutationToBothInstances() {
+        final int[] left = new int[1];
+        final int[] right = new int[1];
+        final LeftRight<int[]> leftRight = new LeftRight<int[]>(left, right);
+        for (int index = 1; index <= 5; index++) {
+            leftRight.write(instance -> instance[0]++);
+            Assertions.assertEquals(index, left[0]);
+            Assertions.assertEquals(index, right[0]);
+            final int ticket = leftRight.arrive();
+            try {
+                Assertions.assertEquals(index, leftRight.get()[0]);
+            } finally {
+                leftRight.depart(ticket);
+            }
+        }
+    }
+    
+    @Test
+    void writerWaitsForReaders() throws InterruptedException {
+        final LeftRight<int[]> leftRight = new LeftRight<int[]>(new int[1], new int[1]);
+        final int ticket = leftRight.arrive();
+        final int[] reading = leftRight.get();
+        
+        final CountDownLatch written = new CountDownLatch(1);
+        final Thread writer = new Thread(() -> {
+            leftRight.write(instance -> instance[0]++);
+            written.countDown();
+        });
+        writer.start();
+        Assertions.assertFalse(written.await(200L, TimeUnit.MILLISECONDS), "The writer did not wait for the reader.");
+        Assertions.assertEquals(0, reading[0], "The instance being read was changed.");
+        
+        leftRight.depart(ticket);
+        Assertions.assertTrue(written.await(10L, TimeUnit.SECONDS));
+        writer.join();
+        Assertions.assertEquals(1, reading[0]);
+    }
+    
+    @Test
+    void readersNeverSeePartialWrites() throws InterruptedException {
+        final LeftRight<long[]> leftRight = new LeftRight<long[]>(new long[2], new long[2]);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final AtomicInteger reads = new AtomicInteger();
+        final Thread[] readers = new Thread[4];
+        for (int thread = 0; thread < readers.length; thread++) {
+            readers[thread] = new Thread(() -> {
+                long previous = 0L;
+                while (running.get()) {
+                    final int ticket = leftRight.arrive();
+                    try {
+                        final long[] instance = leftRight.get();
+                        final long first = instance[0];
+                        Thread.yield();
+                        final long second = instance[1];
+                        if (first != second) {
+                            failure.compareAndSet(null, "Partial write seen: " + first + " != " + second);
+                        }
+                        if (first < previous) {
+                            failure.compareAndSet(null, "Write seen going backwards: " + first + " < " + previous);
+                        }
+                        previous = first;
+                    } finally {
+                        leftRight.depart(ticket);
+                    }
+                    reads.incrementAndGet();
+                }
+            });
+            readers[thread].start();
+        }
+        
+        for (int write = 0; write < 20000; write++) {
+            leftRight.write(instance -> {
+                instance[0]++;
+                instance[1]++;
+            });
+        }
+        running.set(false);
+        for (final Thread reader : readers) {
+            reader.join();
+        }
+        Assertions.assertNull(failure.get());
+        Assertions.assertTrue(reads.get() > 0);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bspfsystems.playerdata.core.store;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import org.bspfsystems.playerdata.api.PlayerDataEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link PlayerDataStore}.
+ */
+final class PlayerDataStoreTest {
+    
+    private static final UUID FIRST = new UUID(0L, 1L);
+    private static final UUID SECOND = new UUID(0L, 2L);
+    
+    @Test
+    void rejoinReclaimsNameGivenUp() {
+        final PlayerDataStore store = new PlayerDataStore();
+        store.update(PlayerDataStoreTest.FIRST, "Steve");
+        store.update(PlayerDataStoreTest.SECOND, "Steve");
+        store.update(PlayerDataStoreTest.SECOND, "Alex");
+        Assertions.assertNull(store.getUniqueId("Steve"));
+        
+        store.update(PlayerDataStoreTest.FIRST, "Steve");
+        Assertions.assertEquals(PlayerDataStoreTest.FIRST, store.getUniqueId("Steve"));
+        Assertions.assertEquals(PlayerDataStoreTest.SECOND, store.getUniqueId("Alex"));
+        Assertions.assertEquals(Collections.singleton("Steve"), store.getMatchingNames("Ste"));
+        Assertions.assertEquals(Collections.singletonList("Steve"), store.getMatchingNames("ste", 10));
+    }
+    
+    @Test
+    void rejoinReclaimsNameTakenOver() {
+        final PlayerDataStore store = new PlayerDataStore();
+        store.update(PlayerDataStoreTest.FIRST, "Steve");
+        store.update(PlayerDataStoreTest.SECOND, "Steve");
+        Assertions.assertEquals(PlayerDataStoreTest.SECOND, store.getUniqueId("Steve"));
+        
+        store.update(PlayerDataStoreTest.FIRST, "Steve");
+        Assertions.assertEquals(PlayerDataStoreTest.FIRST, store.getUniqueId("Steve"));
+        Assertions.assertEquals(Collections.singleton("Steve"), store.getMatchingNames("St"));
+    }
+    
+    @Test
+    void historyFollowsNameTakenOver() {
+        final PlayerDataStore store = new PlayerDataStore();
+        store.update(PlayerDataStoreTest.FIRST, "Foo");
+        store.update(PlayerDataStoreTest.SECOND, "Foo");
+        
+        final long now = System.currentTimeMillis();
+        Assertions.assertEquals(PlayerDataStoreTest.SECOND, store.getUniqueId("Foo"));
+        Assertions.assertEquals(PlayerDataStoreTest.SECOND, store.getNameHistory().getUniqueIdAt("Foo", now));
+    }
+    
+    @Test
+    void bulkLoadIndexesNameToItsCurrentOwner() {
+        final PlayerDataStore store = new PlayerDataStore();
+        store.restore(PlayerDataStoreTest.SECOND, "Old", 50L);
+        final UUID[] uniqueIds = {PlayerDataStoreTest.FIRST, PlayerDataStoreTest.SECOND};
+        final String[] names = {"Xyz", "Xyz"};
+        Assertions.assertEquals(1, store.bulkLoad(uniqueIds, names, new long[2], new long[] {100L, 200L}, 2));
+        
+        Assertions.assertEquals(PlayerDataStoreTest.SECOND, store.getUniqueId("Xyz"));
+        final Set<PlayerDataEntry> entries = store.getMatchingEntries("Xy");
+        Assertions.assertEquals(1, entries.size());
+        Assertions.assertEquals(PlayerDataStoreTest.SECOND, entries.iterator().next().getUniqueId());
+        Assertions.assertTrue(store.getMatchingEntries("Old").isEmpty());
+    }
+}
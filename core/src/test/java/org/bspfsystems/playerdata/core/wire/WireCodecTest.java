@@ -0,0 +1,264 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.core.wire;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import org.bspfsystems.playerdata.api.event.PlayerJoinEvent;
+import org.bspfsystems.playerdata.core.replication.Delta;
+import org.bspfsystems.playerdata.core.store.PackedPlayerDataEntry;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link WireCodec}.
+ */
+final class WireCodecTest {
+    
+    private static final UUID UNIQUE_ID = new UUID(0x0123456789ABCDEFL, 0xFEDCBA9876543210L);
+    
+    @Test
+    void roundTripsPackedNames() {
+        WireCodecTest.assertName("a", 2);
+        WireCodecTest.assertName("Notch_1234", 9);
+        WireCodecTest.assertName("Notch_12345", 10);
+        WireCodecTest.assertName("ABCDEFGHIJ_67890", 14);
+    }
+    
+    @Test
+    void roundTripsOverflowNames() {
+        WireCodecTest.assertName("Zo\u00EB", 6);
+        WireCodecTest.assertName("a\u0000b", 6);
+        WireCodecTest.assertName("\u0000", 4);
+        WireCodecTest.assertName("\u540D\u524D", 8);
+        WireCodecTest.assertName("\uFFFF", 5);
+        WireCodecTest.assertName("ABCDEFGHIJ_678901", 19);
+        WireCodecTest.assertName("with space", 12);
+    }
+    
+    @Test
+    void rejectsEmptyName() {
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.writeName(buffer, ""));
+        Assertions.assertEquals(0, buffer.position());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.writeEvent(buffer, new PlayerJoinEvent("", WireCodecTest.UNIQUE_ID)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.writeDelta(buffer, new Delta(1L, PlayerJoinEvent.JoinType.NAME_CHANGE, WireCodecTest.UNIQUE_ID, "Notch", "", 0L)));
+    }
+    
+    @Test
+    void rejectsTooLongName() {
+        final StringBuilder builder = new StringBuilder();
+        for (int index = 0; index < WireCodec.MAXIMUM_NAME_BYTES / 3 + 1; index++) {
+            builder.append('\u540D');
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(WireCodec.MAXIMUM_NAME_BYTES + 16);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.writeName(buffer, builder.toString()));
+        Assertions.assertEquals(0, buffer.position());
+    }
+    
+    @Test
+    void roundTripsVarLongs() {
+        WireCodecTest.assertVarLong(0L, 1);
+        WireCodecTest.assertVarLong(1L, 1);
+        WireCodecTest.assertVarLong(127L, 1);
+        WireCodecTest.assertVarLong(128L, 2);
+        WireCodecTest.assertVarLong(16383L, 2);
+        WireCodecTest.assertVarLong(16384L, 3);
+        WireCodecTest.assertVarLong(Long.MAX_VALUE, 9);
+        WireCodecTest.assertVarLong(Long.MIN_VALUE, 10);
+        WireCodecTest.assertVarLong(-1L, 10);
+        
+        final ByteBuffer buffer = ByteBuffer.allocate(16);
+        WireCodec.writeVarLong(buffer, 128L);
+        buffer.flip();
+        Assertions.assertEquals((byte) 0x80, buffer.get(0));
+        Assertions.assertEquals((byte) 0x01, buffer.get(1));
+    }
+    
+    @Test
+    void roundTripsEntries() {
+        WireCodecTest.assertEntry(new PackedPlayerDataEntry("Notch", WireCodecTest.UNIQUE_ID), 16 + 1 + 4);
+        WireCodecTest.assertEntry(new PackedPlayerDataEntry("Zo\u00EB", WireCodecTest.UNIQUE_ID), 16 + 6);
+    }
+    
+    @Test
+    void roundTripsEvents() {
+        WireCodecTest.assertEvent(new PlayerJoinEvent("Notch", WireCodecTest.UNIQUE_ID));
+        WireCodecTest.assertEvent(new PlayerJoinEvent("Notch", null, WireCodecTest.UNIQUE_ID, PlayerJoinEvent.JoinType.NEW_PLAYER));
+        WireCodecTest.assertEvent(new PlayerJoinEvent("Notch", "Zo\u00EB", WireCodecTest.UNIQUE_ID));
+    }
+    
+    @Test
+    void roundTripsDeltas() {
+        WireCodecTest.assertDelta(new Delta(1L, PlayerJoinEvent.JoinType.NEW_PLAYER, WireCodecTest.UNIQUE_ID, "Notch", null, 0L));
+        WireCodecTest.assertDelta(new Delta(Long.MAX_VALUE, PlayerJoinEvent.JoinType.NAME_CHANGE, WireCodecTest.UNIQUE_ID, "Zo\u00EB", "ABCDEFGHIJ_67890", 1700000000000L));
+    }
+    
+    @Test
+    void checksHeader() {
+        final ByteBuffer buffer = ByteBuffer.allocate(3);
+        WireCodec.writeHeader(buffer);
+        buffer.flip();
+        Assertions.assertEquals(WireCodec.VERSION, WireCodec.readHeader(buffer));
+        
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readHeader(WireCodecTest.bytes(0x50, 0x45, WireCodec.VERSION)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readHeader(WireCodecTest.bytes(0x50, 0x44, WireCodec.VERSION + 1)));
+    }
+    
+    @Test
+    void rejectsMalformedNames() {
+        // A packed name longer than 16 characters.
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readName(WireCodecTest.bytes(17, 0x01, 0x01, 0x01, 0x01, 0x01, 0x01, 0x01, 0x01, 0x01, 0x01, 0x01, 0x01, 0x01)));
+        // A packed name with an end marker in the middle.
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readName(WireCodecTest.bytes(2, 0x00, 0x01)));
+        // A packed name with stray bits after its end.
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readName(WireCodecTest.bytes(1, 0xC1)));
+        // An overflow name of no bytes, or too many.
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readName(WireCodecTest.bytes(0, 0)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readName(WireCodecTest.bytes(0, 0x80, 0x80, 0x04)));
+        // Invalid modified UTF-8.
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readName(WireCodecTest.bytes(0, 2, 0xC3, 0x41)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readName(WireCodecTest.bytes(0, 1, 0xC3)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readName(WireCodecTest.bytes(0, 2, 0x80, 0x80)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readName(WireCodecTest.bytes(0, 4, 0xF0, 0x9F, 0x98, 0x80)));
+        // A truncated name.
+        Assertions.assertThrows(BufferUnderflowException.class, () -> WireCodec.readName(WireCodecTest.bytes(0, 3, 0x41)));
+    }
+    
+    @Test
+    void rejectsMalformedVarLongs() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readVarLong(WireCodecTest.bytes(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x01)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readVarLong(WireCodecTest.bytes(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x02)));
+        Assertions.assertThrows(BufferUnderflowException.class, () -> WireCodec.readVarLong(WireCodecTest.bytes(0x80)));
+    }
+    
+    @Test
+    void rejectsMalformedEventsAndDeltas() {
+        final ByteBuffer event = ByteBuffer.allocate(64);
+        WireCodec.writeEvent(event, new PlayerJoinEvent("Notch", WireCodecTest.UNIQUE_ID));
+        event.flip();
+        event.put(0, (byte) 3);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readEvent(event));
+        
+        // Deltas are never for a normal join.
+        final ByteBuffer delta = ByteBuffer.allocate(64);
+        WireCodec.writeDelta(delta, new Delta(1L, PlayerJoinEvent.JoinType.NEW_PLAYER, WireCodecTest.UNIQUE_ID, "Notch", null, 0L));
+        delta.flip();
+        delta.put(1, (byte) 0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WireCodec.readDelta(delta));
+    }
+    
+    /**
+     * Asserts that the given name round trips in the given number of bytes.
+     * 
+     * @param name The name.
+     * @param bytes The expected number of encoded bytes.
+     */
+    private static void assertName(@NotNull final String name, final int bytes) {
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        WireCodec.writeName(buffer, name);
+        Assertions.assertEquals(bytes, buffer.position(), name);
+        buffer.flip();
+        Assertions.assertEquals(name, WireCodec.readName(buffer));
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+    
+    /**
+     * Asserts that the given value round trips as a varint in the given
+     * number of bytes.
+     * 
+     * @param value The value.
+     * @param bytes The expected number of encoded bytes.
+     */
+    private static void assertVarLong(final long value, final int bytes) {
+        final ByteBuffer buffer = ByteBuffer.allocate(16);
+        WireCodec.writeVarLong(buffer, value);
+        Assertions.assertEquals(bytes, buffer.position(), String.valueOf(value));
+        buffer.flip();
+        Assertions.assertEquals(value, WireCodec.readVarLong(buffer));
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+    
+    /**
+     * Asserts that the given entry round trips in the given number of bytes.
+     * 
+     * @param entry The entry.
+     * @param bytes The expected number of encoded bytes.
+     */
+    private static void assertEntry(@NotNull final PackedPlayerDataEntry entry, final int bytes) {
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        WireCodec.writeEntry(buffer, entry);
+        Assertions.assertEquals(bytes, buffer.position());
+        buffer.flip();
+        final PackedPlayerDataEntry read = WireCodec.readEntry(buffer);
+        Assertions.assertEquals(entry, read);
+        Assertions.assertEquals(entry.getName(), read.getName());
+        Assertions.assertEquals(entry.getUniqueId(), read.getUniqueId());
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+    
+    /**
+     * Asserts that the given event round trips.
+     * 
+     * @param event The event.
+     */
+    private static void assertEvent(@NotNull final PlayerJoinEvent event) {
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        WireCodec.writeEvent(buffer, event);
+        buffer.flip();
+        final PlayerJoinEvent read = WireCodec.readEvent(buffer);
+        Assertions.assertEquals(event.getJoinType(), read.getJoinType());
+        Assertions.assertEquals(event.getUniqueId(), read.getUniqueId());
+        Assertions.assertEquals(event.getName(), read.getName());
+        Assertions.assertEquals(event.getOldName(), read.getOldName());
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+    
+    /**
+     * Asserts that the given delta round trips.
+     * 
+     * @param delta The delta.
+     */
+    private static void assertDelta(@NotNull final Delta delta) {
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        WireCodec.writeDelta(buffer, delta);
+        buffer.flip();
+        final Delta read = WireCodec.readDelta(buffer);
+        Assertions.assertEquals(delta.toString(), read.toString());
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+    
+    /**
+     * Wraps the given bytes in a {@link ByteBuffer}.
+     * 
+     * @param values The bytes, as unsigned values.
+     * @return The {@link ByteBuffer}.
+     */
+    @NotNull
+    private static ByteBuffer bytes(final int... values) {
+        final ByteBuffer buffer = ByteBuffer.allocate(values.length);
+        for (final int value : values) {
+            buffer.put((byte) value);
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
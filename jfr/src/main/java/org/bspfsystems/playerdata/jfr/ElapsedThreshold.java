@@ -0,0 +1,161 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.jfr;
+
+import java.util.Locale;
+import java.util.Set;
+import jdk.jfr.SettingControl;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The <code>elapsedThreshold</code> setting of the PlayerData JFR events.
+ * <p>
+ * The events are committed after the measured call has returned, so the
+ * built-in <code>threshold</code> setting, which compares the duration
+ * between <code>begin()</code> and <code>end()</code>, cannot be used.
+ * Instead, an event is only committed if its <code>elapsed</code> time is at
+ * least the value of this setting. Values are given like the built-in
+ * setting, for example <code>"20 ms"</code>, <code>"0 ns"</code> or
+ * <code>"infinity"</code>.
+ * <p>
+ * Each event type has its own subclass, as the subclass is where the default
+ * value comes from.
+ */
+public abstract class ElapsedThreshold extends SettingControl {
+    
+    private static final String INFINITY = "infinity";
+    
+    private volatile String value;
+    private volatile long nanos;
+    
+    /**
+     * Creates a new {@link ElapsedThreshold}.
+     * 
+     * @param value The default value.
+     */
+    protected ElapsedThreshold(@NotNull final String value) {
+        this.value = value;
+        this.nanos = ElapsedThreshold.parse(value);
+    }
+    
+    /**
+     * Gets the threshold in nanoseconds.
+     * 
+     * @return The threshold, or {@link Long#MAX_VALUE} if it is infinite.
+     */
+    public final long getNanos() {
+        return this.nanos;
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If several recordings are running, the lowest threshold is used, so
+     * that no recording misses an event that it asked for.
+     */
+    @Override
+    @NotNull
+    public final String combine(@NotNull final Set<String> values) {
+        String lowest = null;
+        long lowestNanos = Long.MAX_VALUE;
+        for (final String candidate : values) {
+            final long candidateNanos = ElapsedThreshold.parse(candidate);
+            if (lowest == null || candidateNanos < lowestNanos) {
+                lowest = candidate;
+                lowestNanos = candidateNanos;
+            }
+        }
+        return lowest != null ? lowest : ElapsedThreshold.INFINITY;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final void setValue(@NotNull final String value) {
+        this.nanos = ElapsedThreshold.parse(value);
+        this.value = value;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @NotNull
+    public final String getValue() {
+        return this.value;
+    }
+    
+    /**
+     * Parses a threshold value into nanoseconds. Values that cannot be
+     * parsed are treated as infinite, so that a typo in a recording
+     * configuration does not flood the recording.
+     * 
+     * @param value The value to parse.
+     * @return The threshold in nanoseconds, or {@link Long#MAX_VALUE} if it
+     *         is infinite.
+     */
+    private static long parse(@NotNull final String value) {
+        final String trimmed = value.trim().toLowerCase(Locale.ROOT);
+        if (trimmed.equals(ElapsedThreshold.INFINITY)) {
+            return Long.MAX_VALUE;
+        }
+        int split = 0;
+        while (split < trimmed.length() && Character.isDigit(trimmed.charAt(split))) {
+            split++;
+        }
+        if (split == 0) {
+            return Long.MAX_VALUE;
+        }
+        
+        final long amount;
+        try {
+            amount = Long.parseLong(trimmed.substring(0, split));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+        final long unit;
+        switch (trimmed.substring(split).trim()) {
+            case "ns":
+                unit = 1L;
+                break;
+            case "us":
+                unit = 1000L;
+                break;
+            case "ms":
+                unit = 1000L * 1000L;
+                break;
+            case "s":
+                unit = 1000L * 1000L * 1000L;
+                break;
+            case "m":
+                unit = 60L * 1000L * 1000L * 1000L;
+                break;
+            case "h":
+                unit = 60L * 60L * 1000L * 1000L * 1000L;
+                break;
+            case "d":
+                unit = 24L * 60L * 60L * 1000L * 1000L * 1000L;
+                break;
+            default:
+                return Long.MAX_VALUE;
+        }
+        return amount > Long.MAX_VALUE / unit ? Long.MAX_VALUE : amount * unit;
+    }
+}
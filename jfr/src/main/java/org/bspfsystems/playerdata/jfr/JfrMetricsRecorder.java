@@ -0,0 +1,154 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.jfr;
+
+import org.bspfsystems.playerdata.core.metrics.MetricsRecorder;
+import org.bspfsystems.playerdata.core.metrics.Operation;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link MetricsRecorder} that emits a JDK Flight Recorder event for each
+ * measured {@link Operation}, and then passes the measurement on to another
+ * {@link MetricsRecorder}.
+ * <p>
+ * The events are:
+ * <ul>
+ *     <li><code>playerdata.Lookup</code>, for the lookups by name or
+ *     {@link java.util.UUID} and of all players, recorded from 1 ms;</li>
+ *     <li><code>playerdata.Match</code>, for the prefix matches, recorded
+ *     from 10 ms;</li>
+ *     <li><code>playerdata.JoinProcessed</code>, for processing a join,
+ *     recorded from 20 ms;</li>
+ *     <li><code>playerdata.Persist</code>, for the journal writes and syncs,
+ *     recorded from 20 ms; and</li>
+ *     <li><code>playerdata.RemoteResolve</code>, for the profile resolver,
+ *     recorded from 500 ms.</li>
+ * </ul>
+ * The thresholds are the <code>elapsedThreshold</code> setting of each event,
+ * and can be changed in the recording configuration.
+ * <p>
+ * The measurement is only known after the call has returned, so the events
+ * carry the time the call took in their <code>elapsed</code> field rather
+ * than in their duration.
+ * <p>
+ * The events are in their own classes, so this class can be loaded on JVMs
+ * without Flight Recorder, but {@link JfrMetricsRecorder#isAvailable()} must
+ * be checked before one is created.
+ * {@link MetricsRecorder#load(ClassLoader, java.util.logging.Logger)} finds
+ * this class by name and does so whenever this module is on the class path.
+ */
+public final class JfrMetricsRecorder implements MetricsRecorder {
+    
+    private static final String KEY_NAME = "name";
+    private static final String KEY_UNIQUE_ID = "uuid";
+    private static final String KEY_PREFIX = "prefix";
+    private static final String KEY_TIME = "time";
+    private static final String KEY_NONE = "none";
+    
+    private final MetricsRecorder delegate;
+    
+    /**
+     * Creates a new {@link JfrMetricsRecorder}.
+     * 
+     * @param delegate The {@link MetricsRecorder} to pass every measurement
+     *                 on to.
+     */
+    public JfrMetricsRecorder(@NotNull final MetricsRecorder delegate) {
+        this.delegate = delegate;
+    }
+    
+    /**
+     * Checks if Flight Recorder is available in this JVM.
+     * 
+     * @return <code>true</code> if Flight Recorder is available,
+     *         <code>false</code> otherwise.
+     */
+    public static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder", false, JfrMetricsRecorder.class.getClassLoader());
+            return jdk.jfr.FlightRecorder.isAvailable();
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Gets the {@link MetricsRecorder} that every measurement is passed on to.
+     * 
+     * @return The delegate {@link MetricsRecorder}.
+     */
+    @NotNull
+    public MetricsRecorder getDelegate() {
+        return this.delegate;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void record(@NotNull final Operation operation, final int hits, final int misses, final long nanos) {
+        this.delegate.record(operation, hits, misses, nanos);
+        switch (operation) {
+            case GET_UNIQUE_ID:
+            case GET_UNIQUE_IDS:
+            case GET_UNIQUE_ID_AT:
+            case GET_ENTRY_BY_NAME:
+                new LookupEvent().commit(operation, JfrMetricsRecorder.KEY_NAME, hits, misses, nanos);
+                break;
+            case GET_NAME:
+            case GET_NAMES:
+            case GET_NAME_HISTORY:
+            case GET_ENTRY_BY_UNIQUE_ID:
+                new LookupEvent().commit(operation, JfrMetricsRecorder.KEY_UNIQUE_ID, hits, misses, nanos);
+                break;
+            case GET_ALL_NAMES:
+            case GET_ALL_UNIQUE_IDS:
+            case GET_ALL_ENTRIES:
+            case FOR_EACH_ENTRY:
+            case SIZE:
+                new LookupEvent().commit(operation, JfrMetricsRecorder.KEY_NONE, hits, misses, nanos);
+                break;
+            case GET_ENTRIES_SEEN_SINCE:
+            case GET_ENTRIES_NOT_SEEN_SINCE:
+            case GET_MOST_RECENTLY_SEEN:
+                new LookupEvent().commit(operation, JfrMetricsRecorder.KEY_TIME, hits, misses, nanos);
+                break;
+            case GET_MATCHING_NAMES:
+            case GET_MATCHING_NAMES_LIMITED:
+            case GET_MATCHING_ENTRIES:
+                new MatchEvent().commit(operation, JfrMetricsRecorder.KEY_PREFIX, hits, misses, nanos);
+                break;
+            case JOIN_NEW_PLAYER:
+            case JOIN_NAME_CHANGE:
+            case JOIN_NORMAL:
+                new JoinProcessedEvent().commit(operation, JfrMetricsRecorder.KEY_UNIQUE_ID, hits, misses, nanos);
+                break;
+            case JOURNAL_WRITE:
+            case JOURNAL_SYNC:
+                new PersistEvent().commit(operation, JfrMetricsRecorder.KEY_NONE, hits, misses, nanos);
+                break;
+            case RESOLVE:
+            case RESOLVER_REQUEST:
+                new RemoteResolveEvent().commit(operation, JfrMetricsRecorder.KEY_NAME, hits, misses, nanos);
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.bspfsystems.playerdata.core.metrics.Operation;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The fields shared by the PlayerData JFR events.
+ * <p>
+ * Each subclass defines its own <code>elapsedThreshold</code> setting with
+ * an {@link ElapsedThreshold} of its own, so that only slow operations are
+ * recorded by default.
+ */
+@Category("PlayerData")
+@StackTrace(false)
+abstract class OperationEvent extends Event {
+    
+    @Label("Method")
+    @Description("The PlayerData method or step that was measured.")
+    String method;
+    
+    @Label("Key Kind")
+    @Description("What the operation was keyed on: name, uuid, prefix, time or none.")
+    String keyKind;
+    
+    @Label("Result Size")
+    @Description("The number of players that were found, or the number of items processed.")
+    int resultSize;
+    
+    @Label("Misses")
+    @Description("The number of players that were not found.")
+    int misses;
+    
+    @Label("Hit")
+    @Description("Whether anything was found.")
+    boolean hit;
+    
+    @Label("Elapsed")
+    @Description("The time the operation took.")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+    
+    /**
+     * Sets the fields of this {@link OperationEvent} and commits it, if it is
+     * enabled and the elapsed time is over the threshold.
+     * 
+     * @param operation The {@link Operation} that was measured.
+     * @param keyKind What the {@link Operation} was keyed on.
+     * @param hits The number of players that were found.
+     * @param misses The number of players that were not found.
+     * @param nanos The time the {@link Operation} took, in nanoseconds.
+     */
+    final void commit(@NotNull final Operation operation, @NotNull final String keyKind, final int hits, final int misses, final long nanos) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        this.method = operation.getMetricName();
+        this.keyKind = keyKind;
+        this.resultSize = hits;
+        this.misses = misses;
+        this.hit = hits > 0;
+        this.elapsed = nanos;
+        this.commit();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * This file is part of the PlayerData plugins for
+ * BungeeCord and Bukkit servers for Minecraft.
+ *
+ * Copyright 2020-2021 BSPF Systems, LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bspfsystems.playerdata.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A name resolved through the profile service, or a single request to it.
+ * Only committed if it took at least 500 ms by default.
+ */
+@Name("playerdata.RemoteResolve")
+@Label("PlayerData Remote Resolve")
+@Description("A name resolved through the profile service, or a single request to it.")
+final class RemoteResolveEvent extends OperationEvent {
+    
+    /**
+     * The {@link ElapsedThreshold} of the {@link RemoteResolveEvent}.
+     */
+    public static final class Threshold extends ElapsedThreshold {
+        
+        /**
+         * Creates a new {@link Threshold}.
+         */
+        public Threshold() {
+            super("500 ms");
+        }
+    }
+    
+    /**
+     * Checks the elapsed time against the threshold.
+     * 
+     * @param threshold The {@link Threshold}.
+     * @return <code>true</code> if this {@link RemoteResolveEvent} should be committed,
+     *         <code>false</code> otherwise.
+     */
+    @SettingDefinition
+    @Name("elapsedThreshold")
+    @Label("Elapsed Threshold")
+    @Description("Record only operations that took at least this long.")
+    boolean elapsedThreshold(@NotNull final Threshold threshold) {
+        return this.elapsed >= threshold.getNanos();
+    }
+}